@@ -0,0 +1,789 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package com.phasereditor2d.json;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A pull parser for JSON documents. Unlike {@link JSONObject}, it does not
+ * build a tree of maps and lists: the caller walks the tokens and reads the
+ * values it needs with the typed getters, and skips the rest with
+ * {@link #skipValue()}.
+ * 
+ * <pre>
+ * try (var reader = new JSONStreamReader(file)) {
+ * 	reader.beginObject();
+ * 	while (reader.hasNext()) {
+ * 		switch (reader.nextName()) {
+ * 		case "frames":
+ * 			readFrames(reader);
+ * 			break;
+ * 		default:
+ * 			reader.skipValue();
+ * 			break;
+ * 		}
+ * 	}
+ * 	reader.endObject();
+ * }
+ * </pre>
+ * 
+ * Object names are interned in a small table, so the repeated keys of a large
+ * document are returned as the same String instance. Numbers that fit in a
+ * long are parsed without allocating.
+ * 
+ * @author arian
+ *
+ */
+public class JSONStreamReader implements AutoCloseable {
+
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+
+	private static final int PEEKED_NONE = 0;
+	private static final int PEEKED_BEGIN_OBJECT = 1;
+	private static final int PEEKED_END_OBJECT = 2;
+	private static final int PEEKED_BEGIN_ARRAY = 3;
+	private static final int PEEKED_END_ARRAY = 4;
+	private static final int PEEKED_NAME = 5;
+	private static final int PEEKED_STRING = 6;
+	private static final int PEEKED_NUMBER = 7;
+	private static final int PEEKED_TRUE = 8;
+	private static final int PEEKED_FALSE = 9;
+	private static final int PEEKED_NULL = 10;
+	private static final int PEEKED_EOF = 11;
+
+	private static final int SCOPE_EMPTY_DOCUMENT = 0;
+	private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+	private static final int SCOPE_EMPTY_OBJECT = 2;
+	private static final int SCOPE_NONEMPTY_OBJECT = 3;
+	private static final int SCOPE_DANGLING_NAME = 4;
+	private static final int SCOPE_EMPTY_ARRAY = 5;
+	private static final int SCOPE_NONEMPTY_ARRAY = 6;
+
+	private static final int NAME_TABLE_SIZE = 512;
+	private static final int MAX_INTERNED_NAME = 64;
+
+	private final Reader _in;
+	private final char[] _buf;
+	private int _pos;
+	private int _limit;
+	private long _offset;
+
+	private int[] _stack;
+	private int _stackSize;
+	private int _peeked;
+
+	private final StringBuilder _sb;
+	private final String[] _names;
+
+	private boolean _numberIsLong;
+	private long _numberLong;
+
+	public JSONStreamReader(Reader in) {
+		_in = in;
+		_buf = new char[8192];
+		_stack = new int[32];
+		_stack[_stackSize++] = SCOPE_EMPTY_DOCUMENT;
+		_peeked = PEEKED_NONE;
+		_sb = new StringBuilder();
+		_names = new String[NAME_TABLE_SIZE];
+	}
+
+	public JSONStreamReader(InputStream in) {
+		this(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+
+	public JSONStreamReader(File file) throws IOException {
+		this(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+	}
+
+	public JSONStreamReader(String source) {
+		this(new StringReader(source));
+	}
+
+	@Override
+	public void close() {
+		try {
+			_in.close();
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	/**
+	 * The type of the next token, without consuming it.
+	 */
+	public Token peek() {
+		switch (peekInternal()) {
+		case PEEKED_BEGIN_OBJECT:
+			return Token.BEGIN_OBJECT;
+		case PEEKED_END_OBJECT:
+			return Token.END_OBJECT;
+		case PEEKED_BEGIN_ARRAY:
+			return Token.BEGIN_ARRAY;
+		case PEEKED_END_ARRAY:
+			return Token.END_ARRAY;
+		case PEEKED_NAME:
+			return Token.NAME;
+		case PEEKED_STRING:
+			return Token.STRING;
+		case PEEKED_NUMBER:
+			return Token.NUMBER;
+		case PEEKED_TRUE:
+		case PEEKED_FALSE:
+			return Token.BOOLEAN;
+		case PEEKED_NULL:
+			return Token.NULL;
+		default:
+			return Token.END_DOCUMENT;
+		}
+	}
+
+	/**
+	 * If the current object or array has more elements.
+	 */
+	public boolean hasNext() {
+		int p = peekInternal();
+		return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+	}
+
+	public void beginObject() {
+		expect(PEEKED_BEGIN_OBJECT, "'{'");
+		push(SCOPE_EMPTY_OBJECT);
+		_peeked = PEEKED_NONE;
+	}
+
+	public void endObject() {
+		expect(PEEKED_END_OBJECT, "'}'");
+		_stackSize--;
+		_peeked = PEEKED_NONE;
+	}
+
+	public void beginArray() {
+		expect(PEEKED_BEGIN_ARRAY, "'['");
+		push(SCOPE_EMPTY_ARRAY);
+		_peeked = PEEKED_NONE;
+	}
+
+	public void endArray() {
+		expect(PEEKED_END_ARRAY, "']'");
+		_stackSize--;
+		_peeked = PEEKED_NONE;
+	}
+
+	public String nextName() {
+		expect(PEEKED_NAME, "a name");
+		_peeked = PEEKED_NONE;
+		return readQuoted(true);
+	}
+
+	/**
+	 * The next string value. Numbers and booleans are returned as text, like
+	 * {@link JSONObject#getString(String)} would do it with the original
+	 * source.
+	 */
+	public String nextString() {
+		int p = peekInternal();
+		_peeked = PEEKED_NONE;
+		switch (p) {
+		case PEEKED_STRING:
+			return readQuoted(false);
+		case PEEKED_NUMBER:
+			readNumber();
+			return _sb.toString();
+		case PEEKED_TRUE:
+			return "true";
+		case PEEKED_FALSE:
+			return "false";
+		default:
+			_peeked = p;
+			throw syntaxError("Expected a string but was " + peek());
+		}
+	}
+
+	/**
+	 * The next string value, or null if the value is a JSON null.
+	 */
+	public String nextStringOrNull() {
+		if (peekInternal() == PEEKED_NULL) {
+			_peeked = PEEKED_NONE;
+			return null;
+		}
+		return nextString();
+	}
+
+	public long nextLong() {
+		if (readNumeric() && _numberIsLong) {
+			return _numberLong;
+		}
+		return (long) parseDouble();
+	}
+
+	public int nextInt() {
+		if (readNumeric() && _numberIsLong && _numberLong == (int) _numberLong) {
+			return (int) _numberLong;
+		}
+		return (int) parseDouble();
+	}
+
+	public double nextDouble() {
+		if (readNumeric() && _numberIsLong) {
+			return _numberLong;
+		}
+		return parseDouble();
+	}
+
+	public boolean nextBoolean() {
+		int p = peekInternal();
+		_peeked = PEEKED_NONE;
+		switch (p) {
+		case PEEKED_TRUE:
+			return true;
+		case PEEKED_FALSE:
+			return false;
+		case PEEKED_STRING:
+			var str = readQuoted(false);
+			if (str.equalsIgnoreCase("true")) {
+				return true;
+			}
+			if (str.equalsIgnoreCase("false")) {
+				return false;
+			}
+			throw syntaxError("Expected a boolean but was \"" + str + "\"");
+		default:
+			_peeked = p;
+			throw syntaxError("Expected a boolean but was " + peek());
+		}
+	}
+
+	public void nextNull() {
+		expect(PEEKED_NULL, "null");
+		_peeked = PEEKED_NONE;
+	}
+
+	/**
+	 * Reads the next value as {@link JSONObject}, {@link JSONArray},
+	 * {@link String}, {@link Number}, {@link Boolean} or {@link JSONObject#NULL}.
+	 * It is meant for the small parts of a streamed document that are handled
+	 * with the tree API.
+	 */
+	public Object nextValue() {
+		switch (peekInternal()) {
+		case PEEKED_BEGIN_OBJECT: {
+			var obj = new JSONObject();
+			beginObject();
+			while (hasNext()) {
+				var name = nextName();
+				obj.put(name, nextValue());
+			}
+			endObject();
+			return obj;
+		}
+		case PEEKED_BEGIN_ARRAY: {
+			var array = new JSONArray();
+			beginArray();
+			while (hasNext()) {
+				array.put(nextValue());
+			}
+			endArray();
+			return array;
+		}
+		case PEEKED_NUMBER:
+			_peeked = PEEKED_NONE;
+			readNumber();
+			if (_numberIsLong) {
+				if (_numberLong == (int) _numberLong) {
+					return Integer.valueOf((int) _numberLong);
+				}
+				return Long.valueOf(_numberLong);
+			}
+			return Double.valueOf(parseDouble());
+		case PEEKED_TRUE:
+		case PEEKED_FALSE:
+			return Boolean.valueOf(nextBoolean());
+		case PEEKED_NULL:
+			nextNull();
+			return JSONObject.NULL;
+		default:
+			return nextString();
+		}
+	}
+
+	public JSONObject nextJSONObject() {
+		if (peekInternal() != PEEKED_BEGIN_OBJECT) {
+			throw syntaxError("Expected '{' but was " + peek());
+		}
+		return (JSONObject) nextValue();
+	}
+
+	/**
+	 * Skips the next value, including all the nested values of an object or
+	 * array. The skipped strings and numbers are not decoded.
+	 */
+	public void skipValue() {
+		int depth = 0;
+		do {
+			int p = peekInternal();
+			switch (p) {
+			case PEEKED_BEGIN_OBJECT:
+				push(SCOPE_EMPTY_OBJECT);
+				depth++;
+				break;
+			case PEEKED_BEGIN_ARRAY:
+				push(SCOPE_EMPTY_ARRAY);
+				depth++;
+				break;
+			case PEEKED_END_OBJECT:
+			case PEEKED_END_ARRAY:
+				if (depth == 0) {
+					throw syntaxError("Expected a value but was " + peek());
+				}
+				_stackSize--;
+				depth--;
+				break;
+			case PEEKED_NAME:
+			case PEEKED_STRING:
+				skipQuoted();
+				break;
+			case PEEKED_NUMBER:
+				skipNumber();
+				break;
+			case PEEKED_EOF:
+				throw syntaxError("Unexpected end of input");
+			default:
+				break;
+			}
+			_peeked = PEEKED_NONE;
+		} while (depth != 0);
+	}
+
+	/**
+	 * The number of chars consumed so far. It is used in the error messages.
+	 */
+	public long getPosition() {
+		return _offset + _pos;
+	}
+
+	private void expect(int peeked, String what) {
+		if (peekInternal() != peeked) {
+			throw syntaxError("Expected " + what + " but was " + peek());
+		}
+	}
+
+	private void push(int scope) {
+		if (_stackSize == _stack.length) {
+			var stack = new int[_stackSize * 2];
+			System.arraycopy(_stack, 0, stack, 0, _stackSize);
+			_stack = stack;
+		}
+		_stack[_stackSize++] = scope;
+	}
+
+	private int peekInternal() {
+		if (_peeked == PEEKED_NONE) {
+			_peeked = doPeek();
+		}
+		return _peeked;
+	}
+
+	private int doPeek() {
+		int top = _stack[_stackSize - 1];
+
+		switch (top) {
+		case SCOPE_EMPTY_ARRAY:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+			break;
+		case SCOPE_NONEMPTY_ARRAY: {
+			int c = nextNonWhitespace(true);
+			if (c == ']') {
+				return PEEKED_END_ARRAY;
+			}
+			if (c != ',') {
+				throw syntaxError("Expected ',' or ']'");
+			}
+			break;
+		}
+		case SCOPE_EMPTY_OBJECT:
+		case SCOPE_NONEMPTY_OBJECT: {
+			_stack[_stackSize - 1] = SCOPE_DANGLING_NAME;
+			if (top == SCOPE_NONEMPTY_OBJECT) {
+				int c = nextNonWhitespace(true);
+				if (c == '}') {
+					return PEEKED_END_OBJECT;
+				}
+				if (c != ',') {
+					throw syntaxError("Expected ',' or '}'");
+				}
+			}
+			int c = nextNonWhitespace(true);
+			if (c == '"') {
+				return PEEKED_NAME;
+			}
+			if (c == '}' && top == SCOPE_EMPTY_OBJECT) {
+				return PEEKED_END_OBJECT;
+			}
+			throw syntaxError("Expected a name");
+		}
+		case SCOPE_DANGLING_NAME: {
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+			int c = nextNonWhitespace(true);
+			if (c != ':') {
+				throw syntaxError("Expected ':'");
+			}
+			break;
+		}
+		case SCOPE_EMPTY_DOCUMENT:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+			// skip the byte order mark written by some tools
+			if ((_pos < _limit || fill()) && _buf[_pos] == '\uFEFF') {
+				_pos++;
+			}
+			break;
+		default: {
+			// SCOPE_NONEMPTY_DOCUMENT
+			int c = nextNonWhitespace(false);
+			if (c == -1) {
+				return PEEKED_EOF;
+			}
+			throw syntaxError("Unexpected content after the document");
+		}
+		}
+
+		int c = nextNonWhitespace(true);
+		switch (c) {
+		case ']':
+			if (top == SCOPE_EMPTY_ARRAY) {
+				return PEEKED_END_ARRAY;
+			}
+			throw syntaxError("Unexpected ']'");
+		case '"':
+			return PEEKED_STRING;
+		case '{':
+			return PEEKED_BEGIN_OBJECT;
+		case '[':
+			return PEEKED_BEGIN_ARRAY;
+		case 't':
+			expectLiteral("true");
+			return PEEKED_TRUE;
+		case 'f':
+			expectLiteral("false");
+			return PEEKED_FALSE;
+		case 'n':
+			expectLiteral("null");
+			return PEEKED_NULL;
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				_pos--;
+				return PEEKED_NUMBER;
+			}
+			throw syntaxError("Unexpected character '" + (char) c + "'");
+		}
+	}
+
+	private void expectLiteral(String word) {
+		for (int i = 1; i < word.length(); i++) {
+			if (_pos == _limit && !fill()) {
+				throw syntaxError("Unexpected end of input");
+			}
+			if (_buf[_pos++] != word.charAt(i)) {
+				throw syntaxError("Expected '" + word + "'");
+			}
+		}
+	}
+
+	/**
+	 * Reads more chars, keeping the unread ones at the start of the buffer.
+	 */
+	private boolean fill() {
+		_offset += _pos;
+		int unread = _limit - _pos;
+		if (unread > 0) {
+			System.arraycopy(_buf, _pos, _buf, 0, unread);
+		}
+		_limit = unread;
+		_pos = 0;
+		try {
+			int n;
+			while ((n = _in.read(_buf, _limit, _buf.length - _limit)) != -1) {
+				_limit += n;
+				if (_limit > unread) {
+					return true;
+				}
+			}
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		return false;
+	}
+
+	private int nextNonWhitespace(boolean throwOnEof) {
+		while (true) {
+			if (_pos == _limit && !fill()) {
+				if (throwOnEof) {
+					throw syntaxError("Unexpected end of input");
+				}
+				return -1;
+			}
+			char c = _buf[_pos++];
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+				return c;
+			}
+		}
+	}
+
+	private String readQuoted(boolean name) {
+		boolean usedBuilder = false;
+		_sb.setLength(0);
+
+		while (true) {
+			int p = _pos;
+			int l = _limit;
+			int start = p;
+
+			while (p < l) {
+				char c = _buf[p++];
+				if (c == '"') {
+					_pos = p;
+					int len = p - start - 1;
+					if (!usedBuilder) {
+						return name ? internName(start, len) : new String(_buf, start, len);
+					}
+					_sb.append(_buf, start, len);
+					return _sb.toString();
+				} else if (c == '\\') {
+					_pos = p;
+					_sb.append(_buf, start, p - start - 1);
+					usedBuilder = true;
+					_sb.append(readEscape());
+					p = _pos;
+					l = _limit;
+					start = p;
+				}
+			}
+
+			_sb.append(_buf, start, p - start);
+			usedBuilder = true;
+			_pos = p;
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+		}
+	}
+
+	private String internName(int start, int len) {
+		if (len > MAX_INTERNED_NAME) {
+			return new String(_buf, start, len);
+		}
+
+		int hash = 0;
+		for (int i = start; i < start + len; i++) {
+			hash = 31 * hash + _buf[i];
+		}
+
+		int slot = (hash ^ (hash >>> 16)) & (NAME_TABLE_SIZE - 1);
+		var str = _names[slot];
+
+		if (str != null && str.length() == len) {
+			boolean equals = true;
+			for (int i = 0; i < len; i++) {
+				if (str.charAt(i) != _buf[start + i]) {
+					equals = false;
+					break;
+				}
+			}
+			if (equals) {
+				return str;
+			}
+		}
+
+		str = new String(_buf, start, len);
+		_names[slot] = str;
+		return str;
+	}
+
+	private char readEscape() {
+		if (_pos == _limit && !fill()) {
+			throw syntaxError("Unterminated escape sequence");
+		}
+
+		char c = _buf[_pos++];
+		switch (c) {
+		case 'u': {
+			if (_limit - _pos < 4) {
+				while (_limit - _pos < 4) {
+					if (!fill()) {
+						throw syntaxError("Unterminated escape sequence");
+					}
+				}
+			}
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				char h = _buf[_pos++];
+				int digit = Character.digit(h, 16);
+				if (digit == -1) {
+					throw syntaxError("Illegal escape sequence");
+				}
+				value = (value << 4) | digit;
+			}
+			return (char) value;
+		}
+		case 'b':
+			return '\b';
+		case 't':
+			return '\t';
+		case 'n':
+			return '\n';
+		case 'f':
+			return '\f';
+		case 'r':
+			return '\r';
+		default:
+			// '"', '\\', '/' and the rest are taken literally, like JSONTokener
+			return c;
+		}
+	}
+
+	private void skipQuoted() {
+		while (true) {
+			while (_pos < _limit) {
+				char c = _buf[_pos++];
+				if (c == '"') {
+					return;
+				}
+				if (c == '\\') {
+					if (_pos == _limit && !fill()) {
+						throw syntaxError("Unterminated string");
+					}
+					_pos++;
+				}
+			}
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+		}
+	}
+
+	private static boolean isNumberChar(char c) {
+		return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+	}
+
+	private void skipNumber() {
+		while (true) {
+			while (_pos < _limit) {
+				if (!isNumberChar(_buf[_pos])) {
+					return;
+				}
+				_pos++;
+			}
+			if (!fill()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads the number chars into the builder, and computes the long value when
+	 * the number is an integer that fits in a long.
+	 */
+	private void readNumber() {
+		_sb.setLength(0);
+		boolean isLong = true;
+		boolean negative = false;
+		long value = 0;
+		int digits = 0;
+
+		while (true) {
+			if (_pos == _limit && !fill()) {
+				break;
+			}
+			char c = _buf[_pos];
+			if (!isNumberChar(c)) {
+				break;
+			}
+			_pos++;
+			_sb.append(c);
+
+			if (c >= '0' && c <= '9') {
+				value = value * 10 + (c - '0');
+				digits++;
+			} else if (c == '-' && _sb.length() == 1) {
+				negative = true;
+			} else {
+				isLong = false;
+			}
+		}
+
+		if (digits == 0 || digits > 18) {
+			isLong = false;
+		}
+
+		_numberIsLong = isLong;
+		_numberLong = negative ? -value : value;
+	}
+
+	/**
+	 * Reads a number, or a string with a number, like {@link JSONObject#getInt}
+	 * accepts it. Returns true if it was a number token.
+	 */
+	private boolean readNumeric() {
+		int p = peekInternal();
+		_peeked = PEEKED_NONE;
+		if (p == PEEKED_NUMBER) {
+			readNumber();
+			return true;
+		}
+		if (p == PEEKED_STRING) {
+			var str = readQuoted(false);
+			_sb.setLength(0);
+			_sb.append(str.trim());
+			_numberIsLong = false;
+			return false;
+		}
+		_peeked = p;
+		throw syntaxError("Expected a number but was " + peek());
+	}
+
+	private double parseDouble() {
+		try {
+			return Double.parseDouble(_sb.toString());
+		} catch (NumberFormatException e) {
+			throw syntaxError("Not a number: \"" + _sb + "\"");
+		}
+	}
+
+	private JSONException syntaxError(String message) {
+		return new JSONException(message + " at " + getPosition());
+	}
+}
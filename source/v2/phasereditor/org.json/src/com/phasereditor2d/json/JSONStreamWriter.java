@@ -0,0 +1,309 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package com.phasereditor2d.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Writes a JSON document token by token, the counterpart of
+ * {@link JSONStreamReader}. The values go straight to the output, no
+ * {@link JSONObject} tree is built in memory.
+ * 
+ * <pre>
+ * var writer = new JSONStreamWriter(out, 2);
+ * writer.beginObject();
+ * writer.name("frame").beginObject();
+ * writer.name("x").value(10);
+ * writer.endObject();
+ * writer.endObject();
+ * </pre>
+ * 
+ * @author arian
+ *
+ */
+public class JSONStreamWriter implements AutoCloseable {
+
+	private static final int SCOPE_EMPTY_OBJECT = 0;
+	private static final int SCOPE_NONEMPTY_OBJECT = 1;
+	private static final int SCOPE_DANGLING_NAME = 2;
+	private static final int SCOPE_EMPTY_ARRAY = 3;
+	private static final int SCOPE_NONEMPTY_ARRAY = 4;
+	private static final int SCOPE_DOCUMENT = 5;
+
+	private final Writer _out;
+	private final int _indent;
+	private int[] _stack;
+	private int _stackSize;
+
+	/**
+	 * @param out
+	 *            The destination.
+	 * @param indent
+	 *            The number of spaces of each indentation level, or 0 to write
+	 *            everything in a single line.
+	 */
+	public JSONStreamWriter(Writer out, int indent) {
+		_out = out;
+		_indent = indent;
+		_stack = new int[32];
+		_stack[_stackSize++] = SCOPE_DOCUMENT;
+	}
+
+	public JSONStreamWriter(Writer out) {
+		this(out, 0);
+	}
+
+	/**
+	 * A writer to build a JSON string. Get the result with {@link #toString()}.
+	 */
+	public JSONStreamWriter(int indent) {
+		this(new StringWriter(), indent);
+	}
+
+	public JSONStreamWriter beginObject() {
+		beforeValue();
+		push(SCOPE_EMPTY_OBJECT);
+		write('{');
+		return this;
+	}
+
+	public JSONStreamWriter endObject() {
+		return close(SCOPE_EMPTY_OBJECT, SCOPE_NONEMPTY_OBJECT, '}');
+	}
+
+	public JSONStreamWriter beginArray() {
+		beforeValue();
+		push(SCOPE_EMPTY_ARRAY);
+		write('[');
+		return this;
+	}
+
+	public JSONStreamWriter endArray() {
+		return close(SCOPE_EMPTY_ARRAY, SCOPE_NONEMPTY_ARRAY, ']');
+	}
+
+	public JSONStreamWriter name(String name) {
+		if (name == null) {
+			throw new JSONException("Null name.");
+		}
+
+		int top = _stack[_stackSize - 1];
+
+		if (top == SCOPE_NONEMPTY_OBJECT) {
+			write(',');
+		} else if (top != SCOPE_EMPTY_OBJECT) {
+			throw new JSONException("Misplaced name.");
+		}
+
+		newline();
+		_stack[_stackSize - 1] = SCOPE_DANGLING_NAME;
+		writeQuoted(name);
+		write(':');
+		if (_indent > 0) {
+			write(' ');
+		}
+		return this;
+	}
+
+	public JSONStreamWriter value(String value) {
+		if (value == null) {
+			return nullValue();
+		}
+		beforeValue();
+		writeQuoted(value);
+		return this;
+	}
+
+	public JSONStreamWriter value(long value) {
+		beforeValue();
+		write(Long.toString(value));
+		return this;
+	}
+
+	public JSONStreamWriter value(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new JSONException("JSON does not allow non-finite numbers.");
+		}
+		beforeValue();
+		if (value == (long) value) {
+			write(Long.toString((long) value));
+		} else {
+			write(Double.toString(value));
+		}
+		return this;
+	}
+
+	public JSONStreamWriter value(boolean value) {
+		beforeValue();
+		write(value ? "true" : "false");
+		return this;
+	}
+
+	public JSONStreamWriter nullValue() {
+		beforeValue();
+		write("null");
+		return this;
+	}
+
+	/**
+	 * Writes any value accepted by {@link JSONObject#put(String, Object)},
+	 * including {@link JSONObject} and {@link org.json.JSONArray} subtrees.
+	 */
+	public JSONStreamWriter value(Object value) {
+		if (value == null || value == JSONObject.NULL) {
+			return nullValue();
+		}
+
+		if (value instanceof String) {
+			return value((String) value);
+		}
+
+		if (value instanceof Boolean) {
+			return value(((Boolean) value).booleanValue());
+		}
+
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return value(((Number) value).longValue());
+		}
+
+		if (value instanceof Number) {
+			return value(((Number) value).doubleValue());
+		}
+
+		beforeValue();
+		write(JSONObject.valueToString(value));
+		return this;
+	}
+
+	public void flush() {
+		try {
+			_out.flush();
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (_stackSize > 1) {
+			throw new JSONException("Incomplete document.");
+		}
+		try {
+			_out.close();
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	/**
+	 * The written text, if this writer was created with
+	 * {@link #JSONStreamWriter(int)}.
+	 */
+	@Override
+	public String toString() {
+		return _out.toString();
+	}
+
+	private JSONStreamWriter close(int emptyScope, int nonEmptyScope, char bracket) {
+		int top = _stack[_stackSize - 1];
+		if (top != emptyScope && top != nonEmptyScope) {
+			throw new JSONException("Misplaced " + bracket + ".");
+		}
+		_stackSize--;
+		if (top == nonEmptyScope) {
+			newline();
+		}
+		write(bracket);
+		return this;
+	}
+
+	private void beforeValue() {
+		int top = _stack[_stackSize - 1];
+		switch (top) {
+		case SCOPE_DANGLING_NAME:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+			break;
+		case SCOPE_EMPTY_ARRAY:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+			newline();
+			break;
+		case SCOPE_NONEMPTY_ARRAY:
+			write(',');
+			newline();
+			break;
+		case SCOPE_DOCUMENT:
+			break;
+		default:
+			throw new JSONException("Misplaced value, expecting a name.");
+		}
+	}
+
+	private void push(int scope) {
+		if (_stackSize == _stack.length) {
+			var stack = new int[_stackSize * 2];
+			System.arraycopy(_stack, 0, stack, 0, _stackSize);
+			_stack = stack;
+		}
+		_stack[_stackSize++] = scope;
+	}
+
+	private void newline() {
+		if (_indent == 0) {
+			return;
+		}
+		write('\n');
+		// the document scope is not indented
+		int n = (_stackSize - 1) * _indent;
+		for (int i = 0; i < n; i++) {
+			write(' ');
+		}
+	}
+
+	private void writeQuoted(String str) {
+		try {
+			JSONObject.quote(str, _out);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	private void write(char c) {
+		try {
+			_out.write(c);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	private void write(String str) {
+		try {
+			_out.write(str);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+}
@@ -51,6 +51,7 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		AssetPackCore.installProjectListener();
 	}
 
 	/*
@@ -61,6 +62,7 @@ public class Activator extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		AssetPackCore.saveContentTypeIndex();
 		plugin = null;
 		super.stop(context);
 	}
@@ -41,6 +41,7 @@ public class AssetFinder {
 	private Map<String, IAssetKey> _map;
 	private IProject _project;
 	private AssetPackModel[] _contextPacks;
+	private int _version;
 
 	public AssetFinder(IProject project, AssetPackModel... contextPacks) {
 		_project = project;
@@ -60,6 +61,7 @@ public class AssetFinder {
 		packs.addAll(sharedPacks);
 
 		_map = new HashMap<>();
+		_version++;
 
 		for (var pack : packs) {
 			for (var asset : pack.getAssets()) {
@@ -74,6 +76,15 @@ public class AssetFinder {
 		}
 	}
 
+	/**
+	 * A number that changes every time the finder is built. It is used by the
+	 * clients to know if the content changed since the last time they checked
+	 * it.
+	 */
+	public int getVersion() {
+		return _version;
+	}
+
 	public IAssetKey findAssetKey(String key) {
 		return findAssetKey(key, null);
 	}
@@ -127,6 +138,7 @@ public class AssetFinder {
 		var finder = new AssetFinder(_project);
 
 		finder._map = new HashMap<>(_map);
+		finder._version = _version;
 
 		return finder;
 	}
@@ -0,0 +1,259 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.assetpack.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * An inverted index of the assets of a project. It maps the asset keys to the
+ * assets, the element (frame) names to the elements, and the asset keys to the
+ * canvas files that reference them.
+ * <p>
+ * The assets part is updated by pack, when a pack is created, changed, moved
+ * or built. The references part is updated by file, by the canvas file data
+ * cache, and it is used by the reference search and the rename refactoring.
+ * 
+ * @author arian
+ *
+ */
+public class AssetIndex {
+
+	/**
+	 * The keys used to index an asset or element, they are kept because the
+	 * models could change before they are removed from the index.
+	 */
+	private static class Entry<T> {
+		String key;
+		T value;
+
+		public Entry(String key, T value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	private IProject _project;
+	private Map<IFile, AssetPackModel> _packs;
+	private Map<IFile, List<Entry<AssetModel>>> _packAssets;
+	private Map<IFile, List<Entry<IAssetElementModel>>> _packElements;
+	private Map<String, List<AssetModel>> _assetsByKey;
+	private Map<String, List<IAssetElementModel>> _elementsByName;
+	private Map<IPath, Set<String>> _fileReferences;
+	private Map<String, Set<IPath>> _referencingFiles;
+
+	public AssetIndex(IProject project) {
+		_project = project;
+		_packs = new LinkedHashMap<>();
+		_packAssets = new HashMap<>();
+		_packElements = new HashMap<>();
+		_assetsByKey = new HashMap<>();
+		_elementsByName = new HashMap<>();
+		_fileReferences = new HashMap<>();
+		_referencingFiles = new HashMap<>();
+	}
+
+	public IProject getProject() {
+		return _project;
+	}
+
+	/**
+	 * Indexes the assets of the pack again. It replaces the assets indexed for
+	 * the same file.
+	 */
+	public synchronized void updatePack(AssetPackModel pack) {
+		var file = pack.getFile();
+
+		removePack(file);
+
+		var assets = new ArrayList<Entry<AssetModel>>();
+		var elements = new ArrayList<Entry<IAssetElementModel>>();
+
+		for (var asset : pack.getAssets()) {
+			var key = asset.getKey();
+
+			assets.add(new Entry<>(key, asset));
+			_assetsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(asset);
+
+			for (var elem : asset.getSubElements()) {
+				var name = elem.getName();
+
+				elements.add(new Entry<>(name, elem));
+				_elementsByName.computeIfAbsent(name, k -> new ArrayList<>()).add(elem);
+			}
+		}
+
+		_packs.put(file, pack);
+		_packAssets.put(file, assets);
+		_packElements.put(file, elements);
+	}
+
+	public synchronized void removePack(IFile packFile) {
+		_packs.remove(packFile);
+
+		var assets = _packAssets.remove(packFile);
+
+		if (assets != null) {
+			for (var entry : assets) {
+				removeFromList(_assetsByKey, entry.key, entry.value);
+			}
+		}
+
+		var elements = _packElements.remove(packFile);
+
+		if (elements != null) {
+			for (var entry : elements) {
+				removeFromList(_elementsByName, entry.key, entry.value);
+			}
+		}
+	}
+
+	private static <T> void removeFromList(Map<String, List<T>> map, String key, T value) {
+		var list = map.get(key);
+
+		if (list != null) {
+			// compare by identity, the models may implement equals()
+			list.removeIf(e -> e == value);
+
+			if (list.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+
+	public synchronized List<AssetPackModel> getPacks() {
+		return new ArrayList<>(_packs.values());
+	}
+
+	public synchronized AssetPackModel getPack(IFile file) {
+		return _packs.get(file);
+	}
+
+	public synchronized List<AssetModel> findAssets(String key) {
+		var list = _assetsByKey.get(key);
+
+		if (list == null) {
+			return Collections.emptyList();
+		}
+
+		return new ArrayList<>(list);
+	}
+
+	public synchronized List<IAssetElementModel> findElements(String name) {
+		var list = _elementsByName.get(name);
+
+		if (list == null) {
+			return Collections.emptyList();
+		}
+
+		return new ArrayList<>(list);
+	}
+
+	/**
+	 * Sets the asset keys referenced by the given file.
+	 */
+	public synchronized void updateFileReferences(IFile file, Collection<String> keys) {
+		var path = file.getFullPath();
+
+		removeFileReferences(path);
+
+		if (keys.isEmpty()) {
+			return;
+		}
+
+		var set = new HashSet<>(keys);
+
+		_fileReferences.put(path, set);
+
+		for (var key : set) {
+			_referencingFiles.computeIfAbsent(key, k -> new HashSet<>()).add(path);
+		}
+	}
+
+	/**
+	 * @return The keys that were referenced by the file, or <code>null</code> if
+	 *         it was not indexed.
+	 */
+	public synchronized Set<String> removeFileReferences(IPath path) {
+		var keys = _fileReferences.remove(path);
+
+		if (keys == null) {
+			return null;
+		}
+
+		for (var key : keys) {
+			var files = _referencingFiles.get(key);
+
+			if (files != null) {
+				files.remove(path);
+
+				if (files.isEmpty()) {
+					_referencingFiles.remove(key);
+				}
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * The files that reference the given asset key.
+	 */
+	public synchronized Set<IFile> findReferencingFiles(String key) {
+		var paths = _referencingFiles.get(key);
+
+		if (paths == null) {
+			return Collections.emptySet();
+		}
+
+		var root = ResourcesPlugin.getWorkspace().getRoot();
+		var files = new HashSet<IFile>();
+
+		for (var path : paths) {
+			files.add(root.getFile(path));
+		}
+
+		return files;
+	}
+
+	public synchronized void clear() {
+		_packs.clear();
+		_packAssets.clear();
+		_packElements.clear();
+		_assetsByKey.clear();
+		_elementsByName.clear();
+		_fileReferences.clear();
+		_referencingFiles.clear();
+	}
+}
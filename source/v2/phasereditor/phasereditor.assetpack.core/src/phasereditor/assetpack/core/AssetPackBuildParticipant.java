@@ -67,6 +67,7 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 	@Override
 	public void projectDeleted(IProject project, Map<String, Object> env) {
 		AssetPackCore.removeAssetPackModels(project);
+		AssetPackCore.removeAssetIndex(project);
 	}
 
 	@Override
@@ -77,11 +78,16 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 
 		List<AssetPackModel> list = AssetPackCore.getAssetPackModels(project);
 
+		AssetIndex index = AssetPackCore.getAssetIndex(project);
+
 		for (AssetPackModel pack : list) {
 			var problems = pack.build();
 			for (var problem : problems) {
 				createAssetPackMarker(pack.getFile(), problem);
 			}
+
+			// the build could change the elements of the assets
+			index.updatePack(pack);
 		}
 	}
 
@@ -92,6 +98,7 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 			setData(env, packDelta);
 
 			IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+			AssetIndex index = AssetPackCore.getAssetIndex(project);
 
 			// check for the packs to delete
 
@@ -101,37 +108,40 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 				public boolean visit(IResourceDelta delta) throws CoreException {
 					IResource deltaResource = delta.getResource();
 
-					List<AssetPackModel> packs = AssetPackCore.getAssetPackModels(project);
-
 					if (deltaResource instanceof IFile) {
 						IFile deltaFile = (IFile) deltaResource;
 
 						int kind = delta.getKind();
 
 						switch (kind) {
-						case IResourceDelta.REMOVED:
-							for (AssetPackModel pack : packs) {
-								if (deltaFile.equals(pack.getFile())) {
-									IPath movedTo = delta.getMovedToPath();
-									if (movedTo == null) {
-										// removed: delete pack from map
-										AssetPackCore.removeAssetPackModel(pack);
+						case IResourceDelta.REMOVED: {
+							AssetPackCore.getContentTypeIndex().remove(deltaFile);
+							AtlasFrameIndex.remove(deltaFile);
+
+							// look up the pack in the index, instead of scanning all the packs for every
+							// resource of the delta
+							AssetPackModel pack = index.getPack(deltaFile);
+							if (pack != null) {
+								IPath movedTo = delta.getMovedToPath();
+								if (movedTo == null) {
+									// removed: delete pack from map
+									AssetPackCore.removeAssetPackModel(pack);
+								} else {
+									// moved: update the pack
+									if (movedTo.getFileExtension().equals("json")) {
+										AssetPackCore.moveAssetPackModel(root.getFile(movedTo), pack);
 									} else {
-										// moved: update the pack
-										if (movedTo.getFileExtension().equals("json")) {
-											AssetPackCore.moveAssetPackModel(root.getFile(movedTo), pack);
-										} else {
-											AssetPackCore.removeAssetPackModel(pack);
-										}
+										AssetPackCore.removeAssetPackModel(pack);
 									}
-
-									// add the pack and all assets to the
-									// delta
-									packDelta.add(pack);
-									packDelta.getAssets().addAll(pack.getAssets());
 								}
+
+								// add the pack and all assets to the
+								// delta
+								packDelta.add(pack);
+								packDelta.getAssets().addAll(pack.getAssets());
 							}
 							break;
+						}
 						case IResourceDelta.CHANGED:
 							if (AssetPackCore.isAssetPackFile(deltaFile)) {
 								try {
@@ -228,6 +238,8 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 					toBuild.addAll(pack.getAssets());
 				}
 
+				Set<AssetPackModel> toIndex = new LinkedHashSet<>();
+
 				for (AssetModel asset : toBuild) {
 					IFile file = asset.getPack().getFile();
 					if (!file.exists()) {
@@ -238,6 +250,15 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 					for (IStatus problem : problems) {
 						createAssetPackMarker(file, new BuildProblem(problem, asset));
 					}
+					toIndex.add(asset.getPack());
+				}
+
+				// the build could change the elements of the assets
+
+				for (AssetPackModel pack : toIndex) {
+					if (index.getPack(pack.getFile()) == pack) {
+						index.updatePack(pack);
+					}
 				}
 			}
 
@@ -25,13 +25,15 @@ import static java.lang.System.err;
 import static java.lang.System.out;
 import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -45,25 +47,24 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.content.IContentDescription;
-import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.ui.IMemento;
 import org.eclipse.ui.statushandlers.StatusManager;
-import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
+import phasereditor.assetpack.core.JSONSniffer.Kind;
 import phasereditor.assetpack.core.animations.AnimationsFileDataCache;
 import phasereditor.atlas.core.AtlasCore;
 import phasereditor.audiosprite.core.AudioSpriteCore;
@@ -89,6 +90,18 @@ public class AssetPackCore {
 	public static final String ASSET_PACK_PROBLEM_ID = "phasereditor.assetpack.core.problem";
 	private static final QualifiedName TILEMAP_TILESET_KEY = new QualifiedName("phasereditor2d.com", "tilemapCSV.data");
 
+	// the keys checked by the content describers
+
+	private static final JSONSniffer ASSET_PACK_SNIFFER = new JSONSniffer().key("meta", Kind.OBJECT,
+			new JSONSniffer().key("generated", Kind.ANY).key("version", Kind.ANY).key("app", Kind.ANY));
+
+	private static final JSONSniffer TILEMAP_JSON_SNIFFER = new JSONSniffer().key("layers", Kind.ARRAY)
+			.key("tilesets", Kind.ARRAY).key("tileheight", Kind.NUMBER).key("tilewidth", Kind.NUMBER);
+
+	private static final JSONSniffer TILEMAP_IMPACT_SNIFFER = new JSONSniffer().key("layer", Kind.ARRAY);
+
+	private static final JSONSniffer ANIMATIONS_SNIFFER = new JSONSniffer().key("anims", Kind.ARRAY);
+
 	public static final String[] IMAGE_EXTS = { "png", "jpg", "jpeg", "gif", "bmp" };
 	public static final String[] AUDIO_EXTS = { "wav", "ogg", "mp3", "flac", "wma", "au" };
 	public static final String[] VIDEO_EXTS = { "mp4", "ogv", "webm", "flv", "wmv", "avi", "mpg" };
@@ -501,14 +514,7 @@ public class AssetPackCore {
 		if (!file.exists() || !file.isSynchronized(IResource.DEPTH_ONE) || !ProjectCore.isWebContentFile(file)) {
 			return false;
 		}
-		IContentDescription desc = file.getContentDescription();
-		if (desc == null) {
-			return false;
-		}
-
-		IContentType contentType = desc.getContentType();
-		String id = contentType.getId();
-		return id.equals(AssetPackContentDescriber.CONTENT_TYPE_ID);
+		return hasContentType(file, AssetPackContentDescriber.CONTENT_TYPE_ID);
 	}
 
 	/**
@@ -526,13 +532,7 @@ public class AssetPackCore {
 		}
 
 		try {
-			IContentDescription desc = file.getContentDescription();
-			if (desc == null) {
-				return false;
-			}
-			IContentType contentType = desc.getContentType();
-			String id = contentType.getId();
-			return id.equals(TilemapJSONDescriber.CONTENT_TYPE_ID);
+			return hasContentType(file, TilemapJSONDescriber.CONTENT_TYPE_ID);
 		} catch (CoreException e) {
 			throw new RuntimeException(e);
 		}
@@ -544,13 +544,7 @@ public class AssetPackCore {
 		}
 
 		try {
-			IContentDescription desc = file.getContentDescription();
-			if (desc == null) {
-				return false;
-			}
-			IContentType contentType = desc.getContentType();
-			String id = contentType.getId();
-			return id.equals(TilemapImpactDescriber.CONTENT_TYPE_ID);
+			return hasContentType(file, TilemapImpactDescriber.CONTENT_TYPE_ID);
 		} catch (CoreException e) {
 			throw new RuntimeException(e);
 		}
@@ -565,17 +559,7 @@ public class AssetPackCore {
 	 *         return an error message.
 	 */
 	public static String isAssetPackContent(InputStream contents) {
-		try {
-			JSONTokener tokener = new JSONTokener(new InputStreamReader(contents));
-			JSONObject obj = new JSONObject(tokener);
-			JSONObject meta = obj.getJSONObject("meta");
-			meta.get("generated");
-			meta.get("version");
-			meta.get("app");
-		} catch (JSONException e) {
-			return e.getMessage();
-		}
-		return null;
+		return ASSET_PACK_SNIFFER.check(contents);
 	}
 
 	/**
@@ -588,48 +572,126 @@ public class AssetPackCore {
 	 *         message.
 	 */
 	public static String isTilemapJSONContent(InputStream contents) {
-		try {
-			JSONTokener tokener = new JSONTokener(new InputStreamReader(contents));
-			JSONObject obj = new JSONObject(tokener);
-			obj.getJSONArray("layers");
-			obj.getJSONArray("tilesets");
-			obj.getDouble("tileheight");
-			obj.getDouble("tilewidth");
-			return null;
-		} catch (JSONException e) {
-			return e.getMessage();
-		}
+		return TILEMAP_JSON_SNIFFER.check(contents);
 	}
 
 	public static String isTilemapImpactContent(InputStream contents) {
+		return TILEMAP_IMPACT_SNIFFER.check(contents);
+	}
+
+	/**
+	 * Test if the file has the given content type. The content type is taken from
+	 * the {@link ContentTypeIndex}, the describers are run only for the new or
+	 * modified files.
+	 */
+	private static boolean hasContentType(IFile file, String contentTypeId) throws CoreException {
+		return contentTypeId.equals(getContentTypeIndex().getContentTypeId(file));
+	}
+
+	public static synchronized ContentTypeIndex getContentTypeIndex() {
+		if (_contentTypeIndex == null) {
+			_contentTypeIndex = new ContentTypeIndex(
+					ProjectCore.getUserCacheFolder().resolve("assetpack/content-types.index"),
+					getContentTypesVersion());
+		}
+		return _contentTypeIndex;
+	}
+
+	/**
+	 * The version of the content type describers: the version of this bundle and
+	 * a hash of the registered content types, so the index is discarded when the
+	 * editor is updated or a plugin adds a content type.
+	 */
+	private static String getContentTypesVersion() {
+		var bundle = Platform.getBundle(PLUGIN_ID);
+		var version = bundle == null ? "0" : bundle.getVersion().toString();
+
+		var ids = Arrays.stream(Platform.getContentTypeManager().getAllContentTypes())
+				.map(type -> type.getId() + (type.getBaseType() == null ? "" : "<" + type.getBaseType().getId()))
+				.sorted().collect(toList());
+
+		return version + " " + Integer.toHexString(ids.hashCode());
+	}
+
+	static void saveContentTypeIndex() {
+		var index = _contentTypeIndex;
+
+		if (index == null) {
+			return;
+		}
+
 		try {
-			JSONTokener tokener = new JSONTokener(new InputStreamReader(contents));
-			JSONObject obj = new JSONObject(tokener);
-			obj.getJSONArray("layer");
-			return null;
-		} catch (JSONException e) {
-			return e.getMessage();
+			index.save();
+		} catch (IOException e) {
+			logError(e);
 		}
 	}
 
 	private static Map<IFile, AssetPackModel> _filePackMap = new HashMap<>();
 	private static Map<IProject, AssetFinder> _finderProjectMap = new HashMap<>();
+	private static Map<IProject, AssetIndex> _indexProjectMap = new HashMap<>();
 	private static AnimationsFileDataCache _animationsFileCache;
+	private static ContentTypeIndex _contentTypeIndex;
 
 	public static List<AssetPackModel> getAssetPackModels(IProject project) {
-		synchronized (_filePackMap) {
-			List<AssetPackModel> list = new ArrayList<>();
-			for (AssetPackModel model : _filePackMap.values()) {
-				IFile file = model.getFile();
-				IProject project2 = file.getProject();
-				if (project2.equals(project)) {
-					list.add(model);
-				}
+		return getAssetIndex(project).getPacks();
+	}
+
+	/**
+	 * The index of the assets of the project, and the files that reference them.
+	 */
+	public static AssetIndex getAssetIndex(IProject project) {
+		synchronized (_indexProjectMap) {
+			var index = _indexProjectMap.get(project);
+
+			if (index == null) {
+				index = new AssetIndex(project);
+				_indexProjectMap.put(project, index);
 			}
-			return list;
+
+			return index;
 		}
 	}
 
+	/**
+	 * Forgets the index of the project, when it is closed or deleted.
+	 */
+	public static void removeAssetIndex(IProject project) {
+		synchronized (_indexProjectMap) {
+			_indexProjectMap.remove(project);
+		}
+	}
+
+	/**
+	 * Moves the asset references of a file to its new path. The file could be
+	 * moved to other project, so it is removed from the index of the source
+	 * project.
+	 */
+	public static void moveFileReferences(IPath from, IPath to) {
+		var root = ResourcesPlugin.getWorkspace().getRoot();
+
+		var keys = getAssetIndex(root.getProject(from.segment(0))).removeFileReferences(from);
+
+		if (keys != null) {
+			var file = root.getFile(to);
+			getAssetIndex(file.getProject()).updateFileReferences(file, keys);
+		}
+	}
+
+	/**
+	 * Removes the asset index of the projects when they are closed. The deleted
+	 * projects are handled by the build participant.
+	 */
+	static void installProjectListener() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(event -> {
+			var resource = event.getResource();
+
+			if (resource instanceof IProject) {
+				removeAssetIndex((IProject) resource);
+			}
+		}, IResourceChangeEvent.PRE_CLOSE);
+	}
+
 	/**
 	 * Find the assets or asset elements with the same key of the given one.
 	 * 
@@ -640,22 +702,49 @@ public class AssetPackCore {
 	 * @return The list of the matching assets or asset elements.
 	 */
 	public static List<Object> findAssetObjects(IProject project, String key) {
+		AssetIndex index = getAssetIndex(project);
+
+		// compare by identity, the models may implement equals()
+		Set<Object> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<AssetModel> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for (AssetModel asset : index.findAssets(key)) {
+			// the model could be modified after it was indexed
+			if (asset.getKey().equals(key)) {
+				matches.add(asset);
+				owners.add(asset);
+			}
+		}
+
+		for (IAssetElementModel elem : index.findElements(key)) {
+			if (elem.getName().equals(key)) {
+				matches.add(elem);
+				owners.add(elem.getAsset());
+			}
+		}
+
+		// keep the order of the packs, and of the assets and elements in the packs
+
+		List<AssetPackModel> packs = index.getPacks();
+		List<AssetModel> sortedOwners = new ArrayList<>(owners);
+
+		sortedOwners.sort(Comparator.comparingInt((AssetModel asset) -> packs.indexOf(asset.getPack()))
+				.thenComparingInt(asset -> asset.getPack().getAssets().indexOf(asset)));
+
 		List<Object> list = new ArrayList<>();
-		List<AssetPackModel> packs = getAssetPackModels(project);
-		for (AssetPackModel pack : packs) {
-			List<AssetModel> assets = pack.getAssets();
-			for (AssetModel asset : assets) {
-				if (asset.getKey().equals(key)) {
-					list.add(asset);
-				}
-				List<? extends IAssetElementModel> elems = asset.getSubElements();
-				for (IAssetElementModel elem : elems) {
-					if (elem.getName().equals(key)) {
-						list.add(elem);
-					}
+
+		for (AssetModel asset : sortedOwners) {
+			if (matches.contains(asset)) {
+				list.add(asset);
+			}
+
+			for (IAssetElementModel elem : asset.getSubElements()) {
+				if (matches.contains(elem)) {
+					list.add(elem);
 				}
 			}
 		}
+
 		return list;
 	}
 
@@ -670,6 +759,17 @@ public class AssetPackCore {
 			discoverAssetPackModels(project);
 		}
 
+		// forget the files of the closed or deleted projects
+
+		var locations = Arrays.stream(projects).filter(IProject::isAccessible).map(IProject::getLocation)
+				.filter(location -> location != null).collect(toList());
+
+		getContentTypeIndex().retain(locations);
+
+		saveContentTypeIndex();
+
+		AtlasFrameIndex.pruneCacheFiles();
+
 		synchronized (_filePackMap) {
 			return new ArrayList<>(_filePackMap.values());
 		}
@@ -702,6 +802,8 @@ public class AssetPackCore {
 			logError(e);
 		}
 
+		saveContentTypeIndex();
+
 		synchronized (_filePackMap) {
 			rebuildFinder(project);
 		}
@@ -725,6 +827,7 @@ public class AssetPackCore {
 					model = new AssetPackModel(file);
 					_filePackMap.put(file, model);
 
+					getAssetIndex(file.getProject()).updatePack(model);
 					rebuildFinder(file.getProject());
 
 					return model;
@@ -745,12 +848,14 @@ public class AssetPackCore {
 				AssetPackModel model = new AssetPackModel(file);
 				_filePackMap.put(file, model);
 
+				getAssetIndex(file.getProject()).updatePack(model);
 				rebuildFinder(file.getProject());
 
 				return model;
 			}
 
 			_filePackMap.remove(file);
+			getAssetIndex(file.getProject()).removePack(file);
 
 			return null;
 		}
@@ -775,10 +880,12 @@ public class AssetPackCore {
 			IFile oldFile = model.getFile();
 
 			_filePackMap.remove(oldFile);
+			getAssetIndex(oldFile.getProject()).removePack(oldFile);
 
 			if (newFile != null) {
 				_filePackMap.put(newFile, model);
 				model.setFile(newFile);
+				getAssetIndex(newFile.getProject()).updatePack(model);
 			}
 		}
 	}
@@ -1025,14 +1132,7 @@ public class AssetPackCore {
 	}
 
 	public static boolean isAnimationsContentType(InputStream contents) {
-		try {
-			JSONObject jsonData = new JSONObject(new JSONTokener(contents));
-			jsonData.getJSONArray("anims");
-			return true;
-		} catch (Exception e) {
-			// nothing
-		}
-		return false;
+		return ANIMATIONS_SNIFFER.check(contents) == null;
 	}
 
 	public static boolean isAnimationsFile(IFile file) {
@@ -1042,13 +1142,7 @@ public class AssetPackCore {
 				return false;
 			}
 
-			var desc = file.getContentDescription();
-			if (desc != null) {
-				var contentType = desc.getContentType();
-				if (contentType != null) {
-					return contentType.getId().equals(AnimationsContentTypeDescriber.CONTENT_TYPE_ID);
-				}
-			}
+			return hasContentType(file, AnimationsContentTypeDescriber.CONTENT_TYPE_ID);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
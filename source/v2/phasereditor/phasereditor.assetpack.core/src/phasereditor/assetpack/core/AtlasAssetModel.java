@@ -21,26 +21,15 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.assetpack.core;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
-import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.RandomAccess;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.swt.graphics.Rectangle;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONTokener;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.yaml.snakeyaml.Yaml;
 
 import phasereditor.atlas.core.AtlasCore;
 import phasereditor.atlas.core.AtlasFrame;
@@ -52,6 +41,7 @@ public class AtlasAssetModel extends AssetModel {
 	private String _normalMap;
 	private String _atlasURL;
 	private String _format;
+	private AtlasFrameIndex _frameIndex;
 	private List<Frame> _frames;
 	private Rectangle _imageSize;
 
@@ -193,98 +183,50 @@ public class AtlasAssetModel extends AssetModel {
 		return getAtlasFrames();
 	}
 
-	@SuppressWarnings("rawtypes")
-	private synchronized void buildFrames() {
+	/**
+	 * The frames of the atlas, created the first time they are requested.
+	 */
+	private class FrameList extends AbstractList<Frame> implements RandomAccess {
+		private AtlasFrameIndex _index;
+		private Frame[] _array;
 
-		_imageSize = null;
-		getImageSize();
+		public FrameList(AtlasFrameIndex index) {
+			_index = index;
+			_array = new Frame[index.size()];
+		}
 
-		// TODO: use AtlasCore.readAtlasFrames(..) method.
+		@Override
+		public synchronized Frame get(int i) {
+			var frame = _array[i];
 
-		List<Frame> list = new ArrayList<>();
-		try {
-			IFile file = getFileFromUrl(_atlasURL);
-			if (file == null || !file.exists()) {
-				_frames = list;
-				return;
+			if (frame == null) {
+				frame = new Frame(AtlasAssetModel.this, _index.getFrameIndex(i));
+				_index.update(frame, i);
+				_array[i] = frame;
 			}
 
-			File ioFile = file.getLocation().toFile();
-
-			JSONObject obj;
-			switch (getType()) {
-			case atlas: {
-				if (AtlasCore.TEXTURE_ATLAS_JSON_ARRAY.equals(_format)) {
-					obj = new JSONObject(new JSONTokener(ioFile));
-					JSONArray array = obj.getJSONArray("frames");
-					for (int i = 0; i < array.length(); i++) {
-						JSONObject item = array.getJSONObject(i);
-						Frame fi = new Frame(this, i);
-						fi.update(AtlasFrame.fromArrayItem(i, item));
-						list.add(fi);
-					}
-				} else {
-					obj = new JSONObject(new JSONTokener(ioFile));
-					JSONObject frames = obj.getJSONObject("frames");
-					int i = 0;
-					for (String k : frames.keySet()) {
-						JSONObject item = frames.getJSONObject(k);
-						Frame fi = new Frame(this, i);
-						fi.update(AtlasFrame.fromHashItem(i, k, item));
-						list.add(fi);
-						i++;
-					}
-				}
-				break;
-			}
-			case atlasXML: {
-				try (FileInputStream input = new FileInputStream(ioFile)) {
-					Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
-					NodeList elems = doc.getElementsByTagName("SubTexture");
-					for (int i = 0; i < elems.getLength(); i++) {
-						Node elem = elems.item(i);
-						if (elem.getNodeType() == Node.ELEMENT_NODE) {
-							Frame fi = new Frame(this, i);
-							fi.update(AtlasFrame.fromXMLItem(i, (Element) elem));
-							list.add(fi);
-						}
-					}
-				}
-				break;
-			}
-			case unityAtlas: {
-				try (var input = new FileInputStream(ioFile)) {
-					var yaml = new Yaml();
-					var data = (Map) yaml.load(input);
-					Map data1 = (Map) data.get("TextureImporter");
-					Map data2 = (Map) data1.get("spriteSheet");
-					var data3 = (List) data2.get("sprites");
-					for (int i = 0; i < data3.size(); i++) {
-						var item = (Map) data3.get(i);
-						Frame fi = new Frame(this, i);
-						fi.update(AtlasFrame.fromUnitySprite(i, item));
-						list.add(fi);
-					}
-				}
-				break;
-			}
-			default:
-				break;
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
+			return frame;
 		}
 
-		// sort frames
+		@Override
+		public int size() {
+			return _array.length;
+		}
+	}
 
-		_frames = AssetPackCore.sortAssets(list);
+	private synchronized void buildFrames() {
 
-		{
-			IFile file = getTextureFile();
-			if (file != null && file.exists()) {
-				Rectangle size = PhaserEditorUI.getImageBounds(file);
-				_imageSize = size;
-			}
+		_imageSize = null;
+		getImageSize();
+
+		var index = AtlasFrameIndex.getIndex(getFileFromUrl(_atlasURL), getType());
+
+		// the same index means the atlas file did not change, so the frames are
+		// the same
+
+		if (index != _frameIndex || _frames == null) {
+			_frameIndex = index;
+			_frames = new FrameList(index);
 		}
 	}
 
@@ -0,0 +1,425 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.assetpack.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.core.resources.IFile;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.yaml.snakeyaml.Yaml;
+
+import phasereditor.atlas.core.AtlasCore;
+import phasereditor.atlas.core.AtlasFrame;
+import phasereditor.project.core.ProjectCore;
+
+/**
+ * The frames of an atlas file, in packed arrays, sorted by name like
+ * {@link AssetPackCore#sortAssets(List)} does.
+ * <p>
+ * An index is shared by all the atlas assets of the same file, and it is
+ * parsed again only when the modification time or the size of the file
+ * change. It is also written to the user cache folder, so the atlases that did
+ * not change are not parsed in the next sessions.
+ * <p>
+ * The indexes in memory are bounded by
+ * <code>AtlasFrameIndex.CACHE_SIZE</code> (256 by default), the least recently
+ * used are evicted. The cache files of the atlases that were deleted or
+ * changed are removed by {@link #pruneCacheFiles()}.
+ * 
+ * @author arian
+ *
+ */
+public class AtlasFrameIndex {
+
+	private static final int MAGIC = 0x50414649; // PAFI
+	public static final int FORMAT_VERSION = 1;
+
+	// original index, frame x y w h, sprite x y w h, source w h
+	private static final int STRIDE = 11;
+
+	private static final AtlasFrameIndex EMPTY = new AtlasFrameIndex("", 0, 0, new String[0], new int[0], false);
+
+	public static final int CACHE_SIZE = Math.max(1, Integer.getInteger("AtlasFrameIndex.CACHE_SIZE", 256).intValue());
+
+	private static final AssetType[] TYPES = { AssetType.atlas, AssetType.atlasXML, AssetType.unityAtlas };
+
+	private static final Map<String, AtlasFrameIndex> _cache = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, AtlasFrameIndex> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private String _key;
+	private long _time;
+	private long _size;
+	private String[] _names;
+	private int[] _data;
+	private boolean _bottomUp;
+
+	private AtlasFrameIndex(String key, long time, long size, String[] names, int[] data, boolean bottomUp) {
+		_key = key;
+		_time = time;
+		_size = size;
+		_names = names;
+		_data = data;
+		_bottomUp = bottomUp;
+	}
+
+	/**
+	 * @param type
+	 *            The atlas format, {@link AssetType#atlas},
+	 *            {@link AssetType#atlasXML} or {@link AssetType#unityAtlas}.
+	 * @return The index of the file, never <code>null</code>. If the file cannot
+	 *         be parsed, it has the frames read before the error.
+	 */
+	public static AtlasFrameIndex getIndex(IFile file, AssetType type) {
+		if (file == null || !file.exists() || file.getLocation() == null) {
+			return EMPTY;
+		}
+
+		var ioFile = file.getLocation().toFile();
+		var key = getKey(ioFile, type);
+		var time = ioFile.lastModified();
+		var size = ioFile.length();
+
+		synchronized (_cache) {
+			var index = _cache.get(key);
+
+			if (index != null && index._time == time && index._size == size) {
+				return index;
+			}
+		}
+
+		var cacheFile = getCacheFile(key);
+		var index = read(cacheFile, key, time, size);
+
+		if (index == null) {
+			var frames = new ArrayList<AtlasFrame>();
+
+			var complete = parse(ioFile, type, frames);
+
+			index = create(key, time, size, frames);
+
+			if (complete) {
+				try {
+					write(index, cacheFile);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		synchronized (_cache) {
+			_cache.put(key, index);
+		}
+
+		return index;
+	}
+
+	private static String getKey(File file, AssetType type) {
+		return type.name() + ":" + file.getAbsolutePath();
+	}
+
+	private static Path getCacheFolder() {
+		return ProjectCore.getUserCacheFolder().resolve("atlas-frames");
+	}
+
+	private static Path getCacheFile(String key) {
+		return getCacheFolder().resolve(Integer.toHexString(key.hashCode()) + ".frames");
+	}
+
+	/**
+	 * Forgets the indexes of the deleted file, in memory and in the cache folder.
+	 */
+	public static void remove(IFile file) {
+		var location = file.getLocation();
+
+		if (location == null) {
+			return;
+		}
+
+		for (var type : TYPES) {
+			var key = getKey(location.toFile(), type);
+
+			synchronized (_cache) {
+				_cache.remove(key);
+			}
+
+			try {
+				Files.deleteIfExists(getCacheFile(key));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Deletes the cache files of the atlases that do not exist anymore, or that
+	 * changed since the file was written, and the files of other format versions.
+	 */
+	public static void pruneCacheFiles() {
+		var folder = getCacheFolder();
+
+		if (!Files.exists(folder)) {
+			return;
+		}
+
+		try (var stream = Files.list(folder)) {
+			for (var file : (Iterable<Path>) stream::iterator) {
+				if (isStaleCacheFile(file)) {
+					Files.deleteIfExists(file);
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static boolean isStaleCacheFile(Path file) {
+		if (!file.getFileName().toString().endsWith(".frames")) {
+			// like a .tmp file of a failed write
+			return true;
+		}
+
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+				return true;
+			}
+
+			var key = input.readUTF();
+			var time = input.readLong();
+			var size = input.readLong();
+
+			var atlasFile = new File(key.substring(key.indexOf(':') + 1));
+
+			return !atlasFile.exists() || atlasFile.lastModified() != time || atlasFile.length() != size;
+		} catch (IOException | RuntimeException e) {
+			// a broken cache file
+			return true;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static boolean parse(File file, AssetType type, List<AtlasFrame> frames) {
+		try {
+			switch (type) {
+			case atlas:
+				frames.addAll(AtlasCore.readAtlasJSONFrames(file));
+				break;
+			case atlasXML:
+				try (var input = new FileInputStream(file)) {
+					var doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
+					var elems = doc.getElementsByTagName("SubTexture");
+					for (int i = 0; i < elems.getLength(); i++) {
+						var elem = elems.item(i);
+						if (elem.getNodeType() == Node.ELEMENT_NODE) {
+							frames.add(AtlasFrame.fromXMLItem(i, (Element) elem));
+						}
+					}
+				}
+				break;
+			case unityAtlas:
+				try (var input = new FileInputStream(file)) {
+					var yaml = new Yaml();
+					var data = (Map) yaml.load(input);
+					Map data1 = (Map) data.get("TextureImporter");
+					Map data2 = (Map) data1.get("spriteSheet");
+					var data3 = (List) data2.get("sprites");
+					for (int i = 0; i < data3.size(); i++) {
+						var item = (Map) data3.get(i);
+						frames.add(AtlasFrame.fromUnitySprite(i, item));
+					}
+				}
+				break;
+			default:
+				break;
+			}
+
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	private static AtlasFrameIndex create(String key, long time, long size, List<AtlasFrame> frames) {
+		// a stable sort, like sortAssets()
+		frames.sort(Comparator.comparing((AtlasFrame f) -> f.getName() == null ? "" : f.getName().toLowerCase()));
+
+		var count = frames.size();
+		var names = new String[count];
+		var data = new int[count * STRIDE];
+		var bottomUp = false;
+
+		for (int i = 0; i < count; i++) {
+			var frame = frames.get(i);
+			var k = i * STRIDE;
+
+			names[i] = frame.getName();
+
+			data[k] = frame.getIndex();
+			data[k + 1] = frame.getFrameX();
+			data[k + 2] = frame.getFrameY();
+			data[k + 3] = frame.getFrameW();
+			data[k + 4] = frame.getFrameH();
+			data[k + 5] = frame.getSpriteX();
+			data[k + 6] = frame.getSpriteY();
+			data[k + 7] = frame.getSpriteW();
+			data[k + 8] = frame.getSpriteH();
+			data[k + 9] = frame.getSourceW();
+			data[k + 10] = frame.getSourceH();
+
+			bottomUp |= frame.isBottomUp();
+		}
+
+		return new AtlasFrameIndex(key, time, size, names, data, bottomUp);
+	}
+
+	private static void write(AtlasFrameIndex index, Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+
+		var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			output.writeUTF(index._key);
+			output.writeLong(index._time);
+			output.writeLong(index._size);
+			output.writeBoolean(index._bottomUp);
+			output.writeInt(index._names.length);
+
+			for (var name : index._names) {
+				output.writeBoolean(name != null);
+				if (name != null) {
+					output.writeUTF(name);
+				}
+			}
+
+			for (var n : index._data) {
+				output.writeInt(n);
+			}
+		}
+
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * @return The index stored in the cache file, or <code>null</code> if it is
+	 *         missing or it is not of the same version of the atlas file.
+	 */
+	private static AtlasFrameIndex read(Path file, String key, long time, long size) {
+		if (!Files.exists(file)) {
+			return null;
+		}
+
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+
+			// a different file with the same key hash, or a different version
+
+			if (!input.readUTF().equals(key) || input.readLong() != time || input.readLong() != size) {
+				return null;
+			}
+
+			var bottomUp = input.readBoolean();
+			var count = input.readInt();
+			var names = new String[count];
+
+			for (int i = 0; i < count; i++) {
+				if (input.readBoolean()) {
+					names[i] = input.readUTF();
+				}
+			}
+
+			var data = new int[count * STRIDE];
+
+			for (int i = 0; i < data.length; i++) {
+				data[i] = input.readInt();
+			}
+
+			return new AtlasFrameIndex(key, time, size, names, data, bottomUp);
+		} catch (IOException e) {
+			// a broken cache is like a missing one
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public int size() {
+		return _names.length;
+	}
+
+	public String getName(int i) {
+		return _names[i];
+	}
+
+	/**
+	 * @return The index of the frame in the atlas file.
+	 */
+	public int getFrameIndex(int i) {
+		return _data[i * STRIDE];
+	}
+
+	/**
+	 * Sets the name and rectangles of the frame <code>i</code> to the given frame.
+	 */
+	public void update(AtlasFrame frame, int i) {
+		var data = _data;
+		var k = i * STRIDE;
+
+		frame.setName(_names[i]);
+		frame.setFrameX(data[k + 1]);
+		frame.setFrameY(data[k + 2]);
+		frame.setFrameW(data[k + 3]);
+		frame.setFrameH(data[k + 4]);
+		frame.setSpriteX(data[k + 5]);
+		frame.setSpriteY(data[k + 6]);
+		frame.setSpriteW(data[k + 7]);
+		frame.setSpriteH(data[k + 8]);
+		frame.setSourceW(data[k + 9]);
+		frame.setSourceH(data[k + 10]);
+		frame.setBottomUp(_bottomUp);
+	}
+}
@@ -0,0 +1,249 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.assetpack.core;
+
+import static java.lang.System.out;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Compares the detection of the asset pack, Tiled, Impact and animations
+ * content types by parsing the whole document with {@link JSONObject} (how it
+ * was done) and by the {@link JSONSniffer} of {@link AssetPackCore}. It checks
+ * both give the same result.
+ * <p>
+ * The arguments are the JSON files to test. Without arguments, it generates an
+ * asset pack, a Tiled map of 4 layers of 400x400 tiles and an atlas of 20000
+ * frames (that is not of any of the content types).
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("boxing")
+public class ContentSniffBenchmark {
+
+	private static final int WARMUP = 5;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) throws IOException {
+		List<File> files = new ArrayList<>();
+		List<File> generated = new ArrayList<>();
+
+		if (args.length == 0) {
+			generated.add(generatePack());
+			generated.add(generateTilemap());
+			generated.add(generateAtlas());
+			files.addAll(generated);
+		} else {
+			for (var arg : args) {
+				files.add(new File(arg));
+			}
+		}
+
+		for (var file : files) {
+			var data = Files.readAllBytes(file.toPath());
+
+			var expected = detectTree(data);
+			var actual = detectSniffer(data);
+
+			if (!expected.equals(actual)) {
+				throw new IllegalStateException(
+						"The sniffer result is different in " + file + ": " + actual + " != " + expected);
+			}
+
+			out.println(String.format("%s (%s, %.1f MB)", file.getName(), actual.isEmpty() ? "-" : actual,
+					data.length / 1024.0 / 1024.0));
+			out.println(String.format("  JSONObject  %8.2f ms", measure(ContentSniffBenchmark::detectTree, data)));
+			out.println(String.format("  JSONSniffer %8.2f ms", measure(ContentSniffBenchmark::detectSniffer, data)));
+		}
+
+		for (var file : generated) {
+			file.delete();
+		}
+	}
+
+	interface Detector {
+		String detect(byte[] data);
+	}
+
+	private static double measure(Detector detector, byte[] data) {
+		long time = 0;
+
+		for (int i = 0; i < WARMUP + ROUNDS; i++) {
+			long t = System.nanoTime();
+
+			detector.detect(data);
+
+			if (i >= WARMUP) {
+				time += System.nanoTime() - t;
+			}
+		}
+
+		return time / 1e6 / ROUNDS;
+	}
+
+	private static String detectSniffer(byte[] data) {
+		var list = new ArrayList<String>();
+
+		if (AssetPackCore.isAssetPackContent(new ByteArrayInputStream(data)) == null) {
+			list.add("pack");
+		}
+
+		if (AssetPackCore.isTilemapJSONContent(new ByteArrayInputStream(data)) == null) {
+			list.add("tiled");
+		}
+
+		if (AssetPackCore.isTilemapImpactContent(new ByteArrayInputStream(data)) == null) {
+			list.add("impact");
+		}
+
+		if (AssetPackCore.isAnimationsContentType(new ByteArrayInputStream(data))) {
+			list.add("animations");
+		}
+
+		return String.join(",", list);
+	}
+
+	private static String detectTree(byte[] data) {
+		var list = new ArrayList<String>();
+
+		if (treeCheck(data, obj -> {
+			var meta = obj.getJSONObject("meta");
+			meta.get("generated");
+			meta.get("version");
+			meta.get("app");
+			return true;
+		})) {
+			list.add("pack");
+		}
+
+		if (treeCheck(data, obj -> {
+			obj.getJSONArray("layers");
+			obj.getJSONArray("tilesets");
+			obj.getDouble("tileheight");
+			obj.getDouble("tilewidth");
+			return true;
+		})) {
+			list.add("tiled");
+		}
+
+		if (treeCheck(data, obj -> obj.getJSONArray("layer") != null)) {
+			list.add("impact");
+		}
+
+		if (treeCheck(data, obj -> obj.getJSONArray("anims") != null)) {
+			list.add("animations");
+		}
+
+		return String.join(",", list);
+	}
+
+	private static boolean treeCheck(byte[] data, Predicate<JSONObject> check) {
+		try {
+			var reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+			var obj = new JSONObject(new JSONTokener(reader));
+			return check.test(obj);
+		} catch (JSONException e) {
+			return false;
+		}
+	}
+
+	private static File generatePack() throws IOException {
+		var sb = new StringBuilder();
+		sb.append("{\"section1\":{\"files\":[");
+
+		for (int i = 0; i < 1000; i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append("{\"type\":\"image\",\"key\":\"image" + i + "\",\"url\":\"assets/image" + i + ".png\"}");
+		}
+
+		sb.append("]},\"meta\":{\"generated\":\"1550000000000\",\"app\":\"Phaser Editor 2D\",");
+		sb.append("\"url\":\"https://phasereditor2d.com\",\"version\":\"2\",\"copyright\":\"Arian Fornaris\"}}");
+
+		return write("pack", sb);
+	}
+
+	private static File generateTilemap() throws IOException {
+		var size = 400;
+		var sb = new StringBuilder();
+		sb.append("{\"height\":" + size + ",\"infinite\":false,\"layers\":[");
+
+		for (int l = 0; l < 4; l++) {
+			if (l > 0) {
+				sb.append(",");
+			}
+			sb.append("{\"data\":[");
+			for (int i = 0; i < size * size; i++) {
+				if (i > 0) {
+					sb.append(",");
+				}
+				sb.append(i % 97);
+			}
+			sb.append("],\"name\":\"layer" + l + "\",\"type\":\"tilelayer\"}");
+		}
+
+		sb.append("],\"orientation\":\"orthogonal\",\"tileheight\":32,");
+		sb.append("\"tilesets\":[{\"firstgid\":1,\"image\":\"tiles.png\",\"name\":\"tiles\"}],");
+		sb.append("\"tilewidth\":32,\"type\":\"map\",\"width\":" + size + "}");
+
+		return write("tilemap", sb);
+	}
+
+	private static File generateAtlas() throws IOException {
+		var sb = new StringBuilder();
+		sb.append("{\"frames\":{");
+
+		for (int i = 0; i < 20000; i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append("\"frame" + i + "\":{\"frame\":{\"x\":" + i + ",\"y\":0,\"w\":32,\"h\":32},\"rotated\":false,");
+			sb.append("\"trimmed\":false,\"spriteSourceSize\":{\"x\":0,\"y\":0,\"w\":32,\"h\":32},");
+			sb.append("\"sourceSize\":{\"w\":32,\"h\":32}}");
+		}
+
+		sb.append("},\"meta\":{\"app\":\"https://www.codeandweb.com/texturepacker\",\"version\":\"1.0\",");
+		sb.append("\"image\":\"atlas.png\"}}");
+
+		return write("atlas", sb);
+	}
+
+	private static File write(String name, StringBuilder sb) throws IOException {
+		var file = File.createTempFile(name, ".json");
+		Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -0,0 +1,164 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.assetpack.core;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+import phasereditor.inspect.core.LineIndexFile;
+
+/**
+ * The content types of the workspace files, so the describers are not run
+ * again for the files that did not change, even after a restart. Each line has
+ * the modification stamp and local time of the file, the content type id (or
+ * <code>-</code> if it has not one) and the file location:
+ * <code>stamp time id location</code>.
+ * <p>
+ * The first line is a header with the format version and the version of the
+ * describers, like the bundle version and the content types registered. If it
+ * does not match, the whole index is discarded, so the files are classified
+ * again.
+ * 
+ * @author arian
+ *
+ */
+public class ContentTypeIndex extends LineIndexFile<ContentTypeIndex.Entry> {
+
+	private static final String MAGIC = "PACT"; // Phaser Asset Content Types
+	public static final int FORMAT_VERSION = 1;
+
+	private static final String NO_CONTENT_TYPE = "-";
+
+	public static class Entry {
+		public final long stamp;
+		public final long time;
+		public final String contentType;
+
+		public Entry(long stamp, long time, String contentType) {
+			this.stamp = stamp;
+			this.time = time;
+			this.contentType = contentType;
+		}
+	}
+
+	/**
+	 * @param file
+	 *            The file where the index is stored.
+	 * @param version
+	 *            The version of the describers. The entries stored with a
+	 *            different version are discarded.
+	 */
+	public ContentTypeIndex(Path file, String version) {
+		super(file, MAGIC + " " + FORMAT_VERSION + " " + version, 3);
+		load();
+	}
+
+	@Override
+	protected Entry parseValue(String[] fields) {
+		var id = fields[2].equals(NO_CONTENT_TYPE) ? null : fields[2];
+		return new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), id);
+	}
+
+	@Override
+	protected String formatValue(Entry entry) {
+		var id = entry.contentType == null ? NO_CONTENT_TYPE : entry.contentType;
+		return entry.stamp + " " + entry.time + " " + id;
+	}
+
+	/**
+	 * The id of the content type of the file, like in
+	 * <code>file.getContentDescription().getContentType().getId()</code>. The
+	 * description is computed only if the file changed since it was indexed.
+	 * 
+	 * @return The content type id, or <code>null</code> if the file has not a
+	 *         content type.
+	 */
+	public String getContentTypeId(IFile file) throws CoreException {
+		var location = file.getLocation();
+
+		if (location == null) {
+			return computeContentTypeId(file);
+		}
+
+		var key = location.toPortableString();
+		var stamp = file.getModificationStamp();
+		var time = file.getLocalTimeStamp();
+
+		var entry = get(key);
+
+		if (entry != null && entry.stamp == stamp && entry.time == time) {
+			return entry.contentType;
+		}
+
+		var id = computeContentTypeId(file);
+
+		put(key, new Entry(stamp, time, id));
+
+		return id;
+	}
+
+	private static String computeContentTypeId(IFile file) throws CoreException {
+		var desc = file.getContentDescription();
+
+		if (desc == null) {
+			return null;
+		}
+
+		var contentType = desc.getContentType();
+
+		if (contentType == null) {
+			return null;
+		}
+
+		return contentType.getId();
+	}
+
+	public void remove(IFile file) {
+		var location = file.getLocation();
+
+		if (location != null) {
+			remove(location.toPortableString());
+		}
+	}
+
+	/**
+	 * Remove the entries of the files that are not inside the given locations,
+	 * like the files of the closed or deleted projects.
+	 * 
+	 * @param locations
+	 *            The locations of the open projects.
+	 */
+	public void retain(Collection<IPath> locations) {
+		var prefixes = new ArrayList<String>(locations.size());
+
+		for (var location : locations) {
+			prefixes.add(location.addTrailingSeparator().toPortableString());
+		}
+
+		removeIf(key -> prefixes.stream().noneMatch(key::startsWith));
+	}
+}
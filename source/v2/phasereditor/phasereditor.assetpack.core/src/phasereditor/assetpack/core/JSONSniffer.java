@@ -0,0 +1,191 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.assetpack.core;
+
+import java.io.InputStream;
+
+import org.json.JSONException;
+
+import com.phasereditor2d.json.JSONStreamReader;
+import com.phasereditor2d.json.JSONStreamReader.Token;
+
+/**
+ * Checks the top-level keys of a JSON document, to detect its content type,
+ * without building a {@link org.json.JSONObject} tree. The document is read
+ * until all the keys are found, the values of the other keys are skipped
+ * without decoding them, and the parser stops at the first key with a wrong
+ * type.
+ * 
+ * @author arian
+ *
+ */
+class JSONSniffer {
+
+	enum Kind {
+		ANY, OBJECT, ARRAY, NUMBER
+	}
+
+	private String[] _names;
+	private Kind[] _kinds;
+	private JSONSniffer[] _members;
+
+	public JSONSniffer() {
+		_names = new String[0];
+		_kinds = new Kind[0];
+		_members = new JSONSniffer[0];
+	}
+
+	public JSONSniffer key(String name, Kind kind) {
+		return key(name, kind, null);
+	}
+
+	/**
+	 * Adds a required key.
+	 * 
+	 * @param members
+	 *            The keys required in the object value. It can be
+	 *            <code>null</code>.
+	 */
+	public JSONSniffer key(String name, Kind kind, JSONSniffer members) {
+		var n = _names.length;
+
+		var names = new String[n + 1];
+		var kinds = new Kind[n + 1];
+		var sniffers = new JSONSniffer[n + 1];
+
+		System.arraycopy(_names, 0, names, 0, n);
+		System.arraycopy(_kinds, 0, kinds, 0, n);
+		System.arraycopy(_members, 0, sniffers, 0, n);
+
+		names[n] = name;
+		kinds[n] = kind;
+		sniffers[n] = members;
+
+		_names = names;
+		_kinds = kinds;
+		_members = sniffers;
+
+		return this;
+	}
+
+	/**
+	 * Check the content.
+	 * 
+	 * @return <code>null</code> if the content has all the keys, else an error
+	 *         message.
+	 */
+	public String check(InputStream contents) {
+		try {
+			var reader = new JSONStreamReader(contents);
+			check(reader);
+			return null;
+		} catch (JSONException e) {
+			return e.getMessage();
+		}
+	}
+
+	/**
+	 * Reads the object until all the keys are found. The rest of the object is
+	 * not consumed.
+	 */
+	private void check(JSONStreamReader reader) {
+		var found = new boolean[_names.length];
+		var count = 0;
+
+		reader.beginObject();
+
+		while (count < found.length) {
+
+			if (!reader.hasNext()) {
+				for (int i = 0; i < found.length; i++) {
+					if (!found[i]) {
+						throw new JSONException("JSONObject[\"" + _names[i] + "\"] not found.");
+					}
+				}
+			}
+
+			var name = reader.nextName();
+			var i = indexOf(name);
+
+			if (i == -1 || found[i]) {
+				reader.skipValue();
+				continue;
+			}
+
+			checkValue(reader, i);
+
+			found[i] = true;
+			count++;
+		}
+	}
+
+	private void checkValue(JSONStreamReader reader, int i) {
+		var token = reader.peek();
+		var name = _names[i];
+
+		switch (_kinds[i]) {
+		case OBJECT:
+			if (token != Token.BEGIN_OBJECT) {
+				throw new JSONException("JSONObject[\"" + name + "\"] is not a JSONObject.");
+			}
+
+			if (_members[i] == null) {
+				reader.skipValue();
+			} else {
+				_members[i].check(reader);
+
+				// skip the rest of the object
+				while (reader.hasNext()) {
+					reader.nextName();
+					reader.skipValue();
+				}
+				reader.endObject();
+			}
+			break;
+		case ARRAY:
+			if (token != Token.BEGIN_ARRAY) {
+				throw new JSONException("JSONObject[\"" + name + "\"] is not a JSONArray.");
+			}
+			reader.skipValue();
+			break;
+		case NUMBER:
+			if (token != Token.NUMBER && token != Token.STRING) {
+				throw new JSONException("JSONObject[\"" + name + "\"] is not a number.");
+			}
+			// like JSONObject.getDouble(), a string is parsed
+			reader.nextDouble();
+			break;
+		default:
+			reader.skipValue();
+			break;
+		}
+	}
+
+	private int indexOf(String name) {
+		for (int i = 0; i < _names.length; i++) {
+			if (_names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -21,17 +21,17 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.assetpack.core;
 
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.phasereditor2d.json.JSONStreamReader;
+
 import phasereditor.atlas.core.AtlasFrame;
 
 /**
@@ -109,50 +109,79 @@ public class MultiAtlasAssetModel extends AssetModel {
 	private void buildFrames(List<IStatus> problems) {
 		List<Frame> list = new ArrayList<>();
 		try {
-			String content = null;
-			{
-				IFile file = getFileFromUrl(_url);
-				if (file != null && file.exists()) {
-					content = new String(Files.readAllBytes(file.getLocation().toFile().toPath()));
-				}
-			}
+			IFile file = getFileFromUrl(_url);
 
-			if (content == null) {
+			if (file == null || !file.exists()) {
 				_frames = list;
 				return;
 			}
 
-			var jsonContent = new JSONObject(content);
-			var jsonTextures = jsonContent.getJSONArray("textures");
-			int j = 0;
-			for (var jsonTexture : jsonTextures.iterJSON()) {
-				String textureFilename = jsonTexture.getString("image");
-				JSONArray jsonFrames = jsonTexture.getJSONArray("frames");
-				for (int i = 0; i < jsonFrames.length(); i++) {
-					JSONObject jsonFrame = jsonFrames.getJSONObject(i);
-
-					Frame frame = new Frame(i, textureFilename);
-					frame.update(AtlasFrame.fromArrayItem(i, jsonFrame));
-
-					String path = getPath();
-					if (path == null) {
-						path = "";
-					} else {
-						if (path.length() > 0 && !path.endsWith("/")) {
-							path += "/";
-						}
+			String path = getPath();
+			if (path == null) {
+				path = "";
+			} else {
+				if (path.length() > 0 && !path.endsWith("/")) {
+					path += "/";
+				}
+			}
+
+			try (var reader = new JSONStreamReader(file.getLocation().toFile())) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					if (!reader.nextName().equals("textures")) {
+						reader.skipValue();
+						continue;
 					}
 
-					String finalUrl = path + textureFilename;
-					frame.setTextureUrl(finalUrl);
-					IFile file = getFileFromUrl(finalUrl);
-					frame.setImageFile(file);
+					reader.beginArray();
+					int j = 0;
+					while (reader.hasNext()) {
+						// the image could be written after the frames, so collect them first
+						String textureFilename = null;
+						List<AtlasFrame> atlasFrames = new ArrayList<>();
+
+						reader.beginObject();
+						while (reader.hasNext()) {
+							switch (reader.nextName()) {
+							case "image":
+								textureFilename = reader.nextString();
+								break;
+							case "frames":
+								reader.beginArray();
+								while (reader.hasNext()) {
+									atlasFrames.add(AtlasFrame.fromArrayItem(atlasFrames.size(), reader));
+								}
+								reader.endArray();
+								break;
+							default:
+								reader.skipValue();
+								break;
+							}
+						}
+						reader.endObject();
+
+						if (textureFilename == null) {
+							throw new JSONException("JSONObject[\"image\"] not found.");
+						}
+
+						String finalUrl = path + textureFilename;
+						IFile imageFile = getFileFromUrl(finalUrl);
 
-					validateUrl(problems, "texture[" + j + "].frame[" + i + "].image", finalUrl);
+						for (int i = 0; i < atlasFrames.size(); i++) {
+							Frame frame = new Frame(i, textureFilename);
+							frame.update(atlasFrames.get(i));
+							frame.setTextureUrl(finalUrl);
+							frame.setImageFile(imageFile);
 
-					list.add(frame);
+							validateUrl(problems, "texture[" + j + "].frame[" + i + "].image", finalUrl);
+
+							list.add(frame);
+						}
+						j++;
+					}
+					reader.endArray();
 				}
-				j++;
+				reader.endObject();
 			}
 
 		} catch (Exception e) {
@@ -21,15 +21,14 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.assetpack.core;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.json.JSONException;
@@ -50,6 +49,7 @@ public class SpritesheetAssetModel extends AssetModel {
 	private String _normalMap;
 
 	private List<FrameModel> _frames;
+	private int[] _gridKey;
 	private Rectangle _imageSize;
 
 	{
@@ -165,6 +165,7 @@ public class SpritesheetAssetModel extends AssetModel {
 
 	public void setFrames(List<FrameModel> frames) {
 		_frames = frames;
+		_gridKey = null;
 	}
 
 	public int getMargin() {
@@ -272,71 +273,124 @@ public class SpritesheetAssetModel extends AssetModel {
 		return _imageSize;
 	}
 
+	/**
+	 * The frames of the grid, created the first time they are requested.
+	 */
+	private class FrameList extends AbstractList<FrameModel> implements RandomAccess {
+		// index, row, column, x, y
+		private int[] _grid;
+		private int _frameWidth;
+		private int _frameHeight;
+		private FrameModel[] _array;
+
+		public FrameList(int[] grid, int count, int frameWidth, int frameHeight) {
+			_grid = grid;
+			_frameWidth = frameWidth;
+			_frameHeight = frameHeight;
+			_array = new FrameModel[count];
+		}
+
+		@Override
+		public synchronized FrameModel get(int i) {
+			var frame = _array[i];
+
+			if (frame == null) {
+				var k = i * 5;
+				frame = new FrameModel(SpritesheetAssetModel.this, _grid[k], _grid[k + 1], _grid[k + 2],
+						new Rectangle(_grid[k + 3], _grid[k + 4], _frameWidth, _frameHeight));
+				_array[i] = frame;
+			}
+
+			return frame;
+		}
+
+		@Override
+		public int size() {
+			return _array.length;
+		}
+	}
+
 	private void buildFrames() {
 		// taken from AssetPackUI.generateSpriteSheetRects(...) method.
 
-		List<FrameModel> list = new ArrayList<>();
-		try {
-			int w = getFrameWidth();
-			int h = getFrameHeight();
-			int margin = getMargin();
-			int spacing = getSpacing();
+		int w = getFrameWidth();
+		int h = getFrameHeight();
+		int margin = getMargin();
+		int spacing = getSpacing();
 
-			if (w <= 0 || h <= 0 || spacing < 0 || margin < 0) {
-				// invalid parameters
-				return;
-			}
+		if (w <= 0 || h <= 0 || spacing < 0 || margin < 0) {
+			// invalid parameters
+			_gridKey = null;
+			_frames = new ArrayList<>();
+			return;
+		}
 
-			IFile file = getUrlFile();
-			if (file == null) {
-				return;
-			}
+		IFile file = getUrlFile();
 
-			Rectangle b;
-			try (InputStream contents = file.getContents()) {
-				ImageData data = new ImageData(contents);
-				b = new Rectangle(0, 0, data.width, data.height);
-			} catch (IOException | CoreException e) {
-				e.printStackTrace();
-				return;
-			}
+		// only the size of the image is needed, it is read from the header
+		Rectangle b = file == null || !file.exists() ? null : PhaserEditorUI.getImageBounds(file);
 
-			int start = getStartFrame() < 0 ? 0 : getStartFrame();
-			int end = getEndFrame() < 0 ? Integer.MAX_VALUE : getEndFrame();
-
-			int i = 0;
-			int row = 0;
-			int column = 0;
-			int x = margin;
-			int y = margin;
-			while (true) {
-				if (i > end || y >= b.height) {
-					break;
-				}
+		if (b == null) {
+			_gridKey = null;
+			_frames = new ArrayList<>();
+			return;
+		}
 
-				if (i >= start) {
-					if (x + w <= b.width && y + h <= b.height) {
-						FrameModel frame = new FrameModel(this, i, row, column, new Rectangle(x, y, w, h));
-						list.add(frame);
-					}
-				}
+		int start = getStartFrame() < 0 ? 0 : getStartFrame();
+		int end = getEndFrame() < 0 ? Integer.MAX_VALUE : getEndFrame();
 
-				column++;
+		// the same grid, the frames are the same
 
-				x += w + spacing;
+		var key = new int[] { w, h, margin, spacing, start, end, b.width, b.height };
+
+		if (_frames != null && Arrays.equals(key, _gridKey)) {
+			return;
+		}
+
+		var grid = new int[64 * 5];
+		var count = 0;
+
+		int i = 0;
+		int row = 0;
+		int column = 0;
+		int x = margin;
+		int y = margin;
+		while (true) {
+			if (i > end || y >= b.height) {
+				break;
+			}
 
-				if (x >= b.width) {
-					x = margin;
-					y += h + spacing;
-					column = 0;
-					row++;
+			if (i >= start) {
+				if (x + w <= b.width && y + h <= b.height) {
+					if (count * 5 == grid.length) {
+						grid = Arrays.copyOf(grid, grid.length * 2);
+					}
+
+					var k = count++ * 5;
+					grid[k] = i;
+					grid[k + 1] = row;
+					grid[k + 2] = column;
+					grid[k + 3] = x;
+					grid[k + 4] = y;
 				}
+			}
+
+			column++;
 
-				i++;
+			x += w + spacing;
+
+			if (x >= b.width) {
+				x = margin;
+				y += h + spacing;
+				column = 0;
+				row++;
 			}
-		} finally {
-			_frames = list;
+
+			i++;
 		}
+
+		_gridKey = key;
+		_frames = new FrameList(grid, count, w, h);
 	}
 
 	@Override
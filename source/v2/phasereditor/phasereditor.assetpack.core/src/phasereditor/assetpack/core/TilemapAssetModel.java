@@ -21,20 +21,23 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.assetpack.core;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.file.Files;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.runtime.IStatus;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.phasereditor2d.json.JSONStreamReader;
+
 public class TilemapAssetModel extends AssetModel {
 	public static final String TILEMAP_CSV = "CSV";
 	public static final String TILEMAP_TILED_JSON = "TILED_JSON";
@@ -152,68 +155,116 @@ public class TilemapAssetModel extends AssetModel {
 		}
 	}
 
-	@SuppressWarnings("boxing")
 	private void buildTilemapCSV() {
-		List<List<Integer>> data = new ArrayList<>();
+		int[][] data = new int[0][0];
 
 		try {
 			IFile file = getFileFromUrl(_url);
 			if (file != null && file.exists()) {
 				try (InputStream input = file.getContents()) {
+					data = readCSV(new InputStreamReader(input, StandardCharsets.UTF_8));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 
-					StringBuilder token = new StringBuilder();
+		_csvData = data;
+	}
 
-					BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-					String line;
-					while ((line = reader.readLine()) != null) {
+	/**
+	 * Parse the tiles of a CSV map, in a row x column matrix. The chars are
+	 * parsed straight into the int rows, without creating token strings or
+	 * boxed integers, so it is fine with maps of millions of tiles.
+	 * <p>
+	 * The number of columns is given by the first row, the shorter rows are
+	 * padded with <code>-1</code> (empty tile) and the longer rows are
+	 * truncated. Invalid cells are <code>-1</code> too.
+	 */
+	public static int[][] readCSV(Reader reader) throws IOException {
+		var parser = new CSVTileParser();
+		char[] buf = new char[64 * 1024];
+		int len;
+
+		while ((len = reader.read(buf)) != -1) {
+			for (int i = 0; i < len; i++) {
+				parser.accept(buf[i]);
+			}
+		}
 
-						List<Integer> dataRow = new ArrayList<>();
+		return parser.finish();
+	}
 
-						for (char c : line.toCharArray()) {
-							if (c == ',') {
-								Integer tile;
-								try {
-									tile = Integer.valueOf(Integer.parseInt(token.toString()));
-								} catch (Exception e) {
-									tile = -1;
-								}
-								dataRow.add(tile);
-								token = new StringBuilder();
-							} else {
-								token.append(c);
-							}
-						}
+	private static class CSVTileParser {
+		private List<int[]> _rows = new ArrayList<>();
+		private int[] _row = new int[256];
+		private int _cols = -1;
+		private int _cells;
+		private int _value;
+		private boolean _negative;
+		private boolean _digits;
+		private boolean _invalid;
+		private boolean _lineHasContent;
+
+		public void accept(char c) {
+			if (c >= '0' && c <= '9') {
+				_value = _value * 10 + (c - '0');
+				_digits = true;
+				_lineHasContent = true;
+			} else if (c == ',') {
+				endCell();
+				_lineHasContent = true;
+			} else if (c == '\n') {
+				endRow();
+			} else if (c == '-' && !_digits && !_negative) {
+				_negative = true;
+				_lineHasContent = true;
+			} else if (c != ' ' && c != '\t' && c != '\r') {
+				_invalid = true;
+				_lineHasContent = true;
+			}
+		}
 
-						dataRow.add(Integer.valueOf(Integer.parseInt(token.toString())));
-						token = new StringBuilder();
+		private void endCell() {
+			int tile = _digits && !_invalid ? (_negative ? -_value : _value) : -1;
 
-						data.add(dataRow);
-					}
-				}
+			if (_cells == _row.length) {
+				_row = Arrays.copyOf(_row, _row.length * 2);
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+
+			_row[_cells++] = tile;
+
+			_value = 0;
+			_negative = false;
+			_digits = false;
+			_invalid = false;
 		}
 
-		int rows = data.size();
+		private void endRow() {
+			if (_lineHasContent) {
+				endCell();
 
-		if (rows == 0) {
-			_csvData = new int[0][0];
-		} else {
-			// row x column
-			int cols = data.get(0).size();
+				if (_cols == -1) {
+					_cols = _cells;
+				}
 
-			int[][] csvData = new int[rows][cols];
+				var row = Arrays.copyOf(_row, _cols);
 
-			for (int i = 0; i < rows; i++) {
-				List<Integer> row = data.get(i);
-				for (int j = 0; j < cols; j++) {
-					csvData[i][j] = row.get(j).intValue();
+				if (_cells < _cols) {
+					Arrays.fill(row, _cells, _cols, -1);
 				}
+
+				_rows.add(row);
 			}
-			_csvData = csvData;
+
+			_cells = 0;
+			_lineHasContent = false;
 		}
 
+		public int[][] finish() {
+			endRow();
+			return _rows.toArray(new int[_rows.size()][]);
+		}
 	}
 
 	public int[][] getCsvData() {
@@ -226,33 +277,63 @@ public class TilemapAssetModel extends AssetModel {
 	private void buildTilemapTiledJSON() {
 		TilemapJSON tilemap = new TilemapJSON();
 		try {
-			String data = null;
 			IFile file = getFileFromUrl(_url);
 			if (file != null && file.exists()) {
-				data = new String(Files.readAllBytes(file.getLocation().toFile().toPath()));
-			}
-			if (data != null) {
-				JSONObject obj = new JSONObject(data);
-				{
-					List<Layer> layers = tilemap.getLayers();
-					JSONArray array = obj.getJSONArray("layers");
-					for (int i = 0; i < array.length(); i++) {
-						JSONObject elem = array.getJSONObject(i);
-						Layer layerInfo = new Layer();
-						layerInfo.setName(elem.getString("name"));
-						layers.add(layerInfo);
-					}
-				}
-				{
-					List<Tileset> tilesets = tilemap.getTilesets();
-					JSONArray array = obj.getJSONArray("tilesets");
-					for (int i = 0; i < array.length(); i++) {
-						JSONObject elem = array.getJSONObject(i);
-						Tileset tileset = new Tileset();
-						tileset.setName(elem.getString("name"));
-						tileset.setImage(elem.getString("image"));
-						tilesets.add(tileset);
+				// only the names are needed, the big layer data arrays are skipped
+				try (var reader = new JSONStreamReader(file.getLocation().toFile())) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						switch (reader.nextName()) {
+						case "layers": {
+							List<Layer> layers = tilemap.getLayers();
+							reader.beginArray();
+							while (reader.hasNext()) {
+								Layer layerInfo = new Layer();
+								reader.beginObject();
+								while (reader.hasNext()) {
+									if (reader.nextName().equals("name")) {
+										layerInfo.setName(reader.nextString());
+									} else {
+										reader.skipValue();
+									}
+								}
+								reader.endObject();
+								layers.add(layerInfo);
+							}
+							reader.endArray();
+							break;
+						}
+						case "tilesets": {
+							List<Tileset> tilesets = tilemap.getTilesets();
+							reader.beginArray();
+							while (reader.hasNext()) {
+								Tileset tileset = new Tileset();
+								reader.beginObject();
+								while (reader.hasNext()) {
+									switch (reader.nextName()) {
+									case "name":
+										tileset.setName(reader.nextString());
+										break;
+									case "image":
+										tileset.setImage(reader.nextString());
+										break;
+									default:
+										reader.skipValue();
+										break;
+									}
+								}
+								reader.endObject();
+								tilesets.add(tileset);
+							}
+							reader.endArray();
+							break;
+						}
+						default:
+							reader.skipValue();
+							break;
+						}
 					}
+					reader.endObject();
 				}
 			}
 
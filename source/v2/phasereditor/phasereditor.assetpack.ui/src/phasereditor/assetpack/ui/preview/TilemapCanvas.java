@@ -21,18 +21,19 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.assetpack.ui.preview;
 
-import static java.lang.System.currentTimeMillis;
-import static java.lang.System.out;
 import static phasereditor.ui.PhaserEditorUI.swtRun;
 
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ListenerList;
@@ -58,6 +59,7 @@ import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.FontMetrics;
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Composite;
@@ -65,6 +67,7 @@ import org.eclipse.swt.widgets.Composite;
 import phasereditor.assetpack.core.AssetPackCore;
 import phasereditor.assetpack.core.ImageAssetModel;
 import phasereditor.assetpack.core.TilemapAssetModel;
+import phasereditor.assetpack.ui.AssetPackUI;
 import phasereditor.assetpack.ui.SelectTextureDialog;
 import phasereditor.assetpack.ui.TextureListContentProvider;
 import phasereditor.ui.Colors;
@@ -77,26 +80,53 @@ import phasereditor.ui.PhaserEditorUI;
 import phasereditor.ui.ZoomCanvas;
 
 /**
+ * The map is painted in chunks of {@link #CHUNK_TILES}x{@link #CHUNK_TILES}
+ * tiles. Only the visible chunks are rendered, in parallel, and the rendered
+ * chunks are kept in a cache of {@link #CHUNK_CACHE_PIXELS} pixels. When the
+ * map is zoomed out, the chunks are rendered at a lower resolution (a level of
+ * detail), so the whole map never needs a single giant image.
+ * 
  * @author arian
  *
  */
 public class TilemapCanvas extends ZoomCanvas
 		implements MouseMoveListener, MouseListener, ISelectionProvider {
 
+	/**
+	 * The tiles per side of a chunk. It can be set with the
+	 * <code>TilemapCanvas.CHUNK_TILES</code> system property.
+	 */
+	public static final int CHUNK_TILES = Math.max(1, Integer.getInteger("TilemapCanvas.CHUNK_TILES", 32).intValue());
+
+	/**
+	 * The max number of pixels of the rendered chunks kept in memory. It can be
+	 * set in MB with the <code>TilemapCanvas.CHUNK_CACHE_MB</code> system
+	 * property.
+	 */
+	public static final long CHUNK_CACHE_PIXELS = Long.getLong("TilemapCanvas.CHUNK_CACHE_MB", 192).longValue() * 1024
+			* 1024 / 4;
+
+	private static final int MAX_LEVEL = 8;
+
 	private TilemapAssetModel _model;
 	private Point _imageSize = new Point(1, 1);
 	private int _tileWidth;
 	private int _tileHeight;
 	private Color[] _colors;
+	private java.awt.Color[] _awtColors;
 	protected ImageAssetModel _imageModel;
 	private BufferedImage _tileSetImage;
-	private Image _renderImage;
 	private int _mouseX;
 	private int _mouseY;
 	private List<Point> _selectedCells;
 	private int _mouseMapX;
 	private int _mouseMapY;
-	private boolean _buildingImage;
+	private LinkedHashMap<Long, Image> _chunks;
+	private long _chunksPixels;
+	private Set<Long> _pendingChunks;
+	private Set<Long> _failedChunks;
+	private List<Future<?>> _chunkTasks;
+	private volatile int _renderVersion;
 	private static ExecutorService _pool;
 
 	public TilemapCanvas(Composite parent, int style) {
@@ -114,6 +144,11 @@ public class TilemapCanvas extends ZoomCanvas
 			}
 		};
 
+		_chunks = new LinkedHashMap<>(64, 0.75f, true);
+		_pendingChunks = new HashSet<>();
+		_failedChunks = new HashSet<>();
+		_chunkTasks = new ArrayList<>();
+
 		addPaintListener(this);
 		addMouseMoveListener(this);
 		addMouseListener(this);
@@ -125,16 +160,20 @@ public class TilemapCanvas extends ZoomCanvas
 	}
 
 	public void generateColors(int n) {
+		n = Math.max(n, 1);
 		_colors = new Color[n];
+		_awtColors = new java.awt.Color[n];
 		for (int i = 0; i < n; i++) {
 			java.awt.Color c = java.awt.Color.getHSBColor((float) i / (float) n, 0.85f, 1.0f);
 			_colors[i] = Colors.color(c.getRed(), c.getGreen(), c.getBlue());
+			_awtColors[i] = c;
 		}
 	}
 
 	public void setModel(TilemapAssetModel model) {
 
 		_imageModel = null;
+		_tileSetImage = null;
 		_tileWidth = 32;
 		_tileHeight = 32;
 
@@ -213,98 +252,260 @@ public class TilemapCanvas extends ZoomCanvas
 		}
 	}
 
+	/**
+	 * Discards the rendered chunks, and cancels the pending ones. The visible
+	 * chunks are rendered again in the next paint.
+	 */
 	void buildMapImage() {
-		_buildingImage = true;
+		disposeImages();
 		redraw();
+	}
 
+	private static synchronized ExecutorService getPool() {
 		if (_pool == null) {
-			_pool = Executors.newCachedThreadPool();
+			var count = new AtomicInteger();
+			int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+			_pool = Executors.newFixedThreadPool(threads, r -> {
+				var thread = new Thread(r, "Tilemap Renderer " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
 		}
+		return _pool;
+	}
 
-		_pool.execute(this::buildImageMap2);
+	private static long chunkKey(int level, int chunkRow, int chunkCol) {
+		return ((long) level << 56) | ((long) chunkRow << 28) | chunkCol;
 	}
 
-	private void buildImageMap2() {
-		try {
-			if (_model != null && _tileSetImage != null) {
+	/**
+	 * The level of detail of the given scale. The chunks of level
+	 * <code>n</code> are rendered at <code>1/2^n</code> of the map size.
+	 */
+	private static int computeLevel(float scale) {
+		int level = 0;
+		while (level < MAX_LEVEL && scale <= 0.5f / (1 << level)) {
+			level++;
+		}
+		return level;
+	}
 
-				var t = currentTimeMillis();
+	private void paintChunks(GC gc, int[][] map, ZoomCalculator calc) {
+		int rows = map.length;
+		int cols = map[0].length;
+		int chunkRows = (rows + CHUNK_TILES - 1) / CHUNK_TILES;
+		int chunkCols = (cols + CHUNK_TILES - 1) / CHUNK_TILES;
+		int chunkWidth = CHUNK_TILES * _tileWidth;
+		int chunkHeight = CHUNK_TILES * _tileHeight;
+		int mapWidth = cols * _tileWidth;
+		int mapHeight = rows * _tileHeight;
 
-				int[][] map = _model.getCsvData();
+		if (chunkWidth <= 0 || chunkHeight <= 0) {
+			return;
+		}
 
-				if (map != null && map.length > 0) {
+		int level = computeLevel(calc.scale);
 
-					Point size = getImageSize();
+		Rectangle area = getClientArea();
 
-					int mapWidth = size.x;
-					int mapHeight = size.y;
+		int firstCol = Math.max(0, (int) (calc.viewToModelX(0) / chunkWidth));
+		int lastCol = Math.min(chunkCols - 1, (int) (calc.viewToModelX(area.width) / chunkWidth));
+		int firstRow = Math.max(0, (int) (calc.viewToModelY(0) / chunkHeight));
+		int lastRow = Math.min(chunkRows - 1, (int) (calc.viewToModelY(area.height) / chunkHeight));
 
-					var t2 = currentTimeMillis();
+		for (int chunkRow = firstRow; chunkRow <= lastRow; chunkRow++) {
+			for (int chunkCol = firstCol; chunkCol <= lastCol; chunkCol++) {
 
-					out.println(
-							"Created buffer " + mapWidth + "," + mapHeight + ": " + (currentTimeMillis() - t2 + "ms"));
+				var key = chunkKey(level, chunkRow, chunkCol);
+				var image = _chunks.get(Long.valueOf(key));
 
-					var bounds = new Rectangle(0, 0, _tileSetImage.getWidth(), _tileSetImage.getHeight());
+				if (image == null) {
+					requestChunk(map, level, chunkRow, chunkCol);
 
-					var mapImage = new BufferedImage(mapWidth, mapHeight, BufferedImage.TYPE_INT_ARGB);
+					// meanwhile, paint the chunk with other level, if any
+					for (int i = 0; i <= MAX_LEVEL && image == null; i++) {
+						image = _chunks.get(Long.valueOf(chunkKey(i, chunkRow, chunkCol)));
+					}
+				}
 
-					var gc = mapImage.createGraphics();
+				if (image != null) {
+					int x1 = (int) calc.modelToViewX(chunkCol * chunkWidth);
+					int y1 = (int) calc.modelToViewY(chunkRow * chunkHeight);
+					int x2 = (int) calc.modelToViewX(Math.min((chunkCol + 1) * chunkWidth, mapWidth));
+					int y2 = (int) calc.modelToViewY(Math.min((chunkRow + 1) * chunkHeight, mapHeight));
 
-					for (int i = 0; i < map.length; i++) {
-						int[] row = map[i];
+					Rectangle b = image.getBounds();
 
-						for (int j = 0; j < row.length; j++) {
+					gc.drawImage(image, 0, 0, b.width, b.height, x1, y1, x2 - x1, y2 - y1);
+				}
+			}
+		}
+	}
 
-							int frame = map[i][j];
+	private void requestChunk(int[][] map, int level, int chunkRow, int chunkCol) {
+		var key = chunkKey(level, chunkRow, chunkCol);
 
-							if (frame < 0) {
-								continue;
-							}
+		// a chunk that failed is not requested again until the images are disposed
 
-							int w = getTileWidth();
-							int h = getTileHeight();
-							int x = j * getTileWidth();
-							int y = i * getTileHeight();
+		if (_failedChunks.contains(Long.valueOf(key)) || !_pendingChunks.add(Long.valueOf(key))) {
+			return;
+		}
 
-							int srcX = frame * _tileWidth % bounds.width;
-							int srcY = frame * _tileWidth / bounds.width * _tileHeight;
+		int version = _renderVersion;
+		var tileSetImage = _tileSetImage;
+		var colors = _awtColors;
+		int tileWidth = _tileWidth;
+		int tileHeight = _tileHeight;
 
-							try {
-								gc.drawImage(_tileSetImage, x, y, x + w, y + h, srcX, srcY, srcX + _tileWidth, srcY + _tileHeight, null);
-							} catch (IllegalArgumentException e) {
-								gc.drawString("Invalid parameters. Please check the tiles size.", 10, 10);
-							}
-						}
+		_chunkTasks.removeIf(Future::isDone);
+
+		_chunkTasks.add(getPool().submit(() -> {
+
+			ImageData data;
+
+			try {
+				data = renderChunk(version, map, tileSetImage, colors, tileWidth, tileHeight, level, chunkRow,
+						chunkCol);
+			} catch (Exception e) {
+				AssetPackUI.logError(e);
+
+				swtRun(() -> {
+					if (isDisposed() || version != _renderVersion) {
+						return;
 					}
 
-					gc.dispose();
+					_pendingChunks.remove(Long.valueOf(key));
+					_failedChunks.add(Long.valueOf(key));
+				});
 
-					var old = _renderImage;
-					
+				return;
+			}
 
-					try {
-						_renderImage = PhaserEditorUI.image_Swing_To_SWT(mapImage);
-						
-						if (old != null) {
-							old.dispose();
-						}
-						
-					} catch (IOException e) {
-						e.printStackTrace();
+			if (data == null) {
+				return;
+			}
+
+			swtRun(() -> {
+				if (isDisposed() || version != _renderVersion) {
+					return;
+				}
+
+				_pendingChunks.remove(Long.valueOf(key));
+
+				putChunk(key, new Image(getDisplay(), data));
+
+				redraw();
+			});
+		}));
+	}
+
+	/**
+	 * Renders a chunk in a background thread. Returns null if the chunk was
+	 * cancelled.
+	 */
+	private ImageData renderChunk(int version, int[][] map, BufferedImage tileSetImage, java.awt.Color[] colors,
+			int tileWidth, int tileHeight, int level, int chunkRow, int chunkCol) {
+
+		if (version != _renderVersion) {
+			return null;
+		}
+
+		int row1 = chunkRow * CHUNK_TILES;
+		int col1 = chunkCol * CHUNK_TILES;
+		int row2 = Math.min(row1 + CHUNK_TILES, map.length);
+		int col2 = Math.min(col1 + CHUNK_TILES, map[0].length);
+
+		int scale = 1 << level;
+		int width = Math.max(1, (col2 - col1) * tileWidth / scale);
+		int height = Math.max(1, (row2 - row1) * tileHeight / scale);
+
+		var chunkImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		var g = chunkImage.createGraphics();
+
+		try {
+			if (scale > 1) {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.scale(1.0 / scale, 1.0 / scale);
+			}
+
+			int tileSetWidth = tileSetImage == null ? 0 : tileSetImage.getWidth();
+
+			for (int i = row1; i < row2; i++) {
+
+				if (version != _renderVersion) {
+					return null;
+				}
+
+				int[] row = map[i];
+
+				for (int j = col1; j < col2; j++) {
+
+					int frame = row[j];
+
+					if (frame < 0) {
+						continue;
+					}
+
+					int x = (j - col1) * tileWidth;
+					int y = (i - row1) * tileHeight;
+
+					if (tileSetImage == null) {
+						// paint map with colors
+						g.setColor(colors[frame % colors.length]);
+						g.fillRect(x, y, tileWidth, tileHeight);
+						continue;
 					}
 
-					out.println("Building CSV tilemap image done: " + (currentTimeMillis() - t));
+					int srcX = frame * tileWidth % tileSetWidth;
+					int srcY = frame * tileWidth / tileSetWidth * tileHeight;
+
+					try {
+						g.drawImage(tileSetImage, x, y, x + tileWidth, y + tileHeight, srcX, srcY, srcX + tileWidth,
+								srcY + tileHeight, null);
+					} catch (IllegalArgumentException e) {
+						g.drawString("Invalid parameters. Please check the tiles size.", 10, 10);
+					}
 				}
 			}
 		} finally {
+			g.dispose();
+		}
 
-			_buildingImage = false;
+		return PhaserEditorUI.imageData_Swing_To_SWT(chunkImage);
+	}
+
+	/**
+	 * Adds a rendered chunk to the cache, and disposes the least recently painted
+	 * chunks if the cache is too big.
+	 */
+	private void putChunk(long key, Image image) {
+		var b = image.getBounds();
+
+		var old = _chunks.put(Long.valueOf(key), image);
 
+		if (old != null) {
+			var b2 = old.getBounds();
+			_chunksPixels -= (long) b2.width * b2.height;
+			old.dispose();
 		}
 
-		swtRun(() -> {
-			resetZoom();
-		});
+		_chunksPixels += (long) b.width * b.height;
+
+		var iter = _chunks.entrySet().iterator();
+
+		while (_chunksPixels > CHUNK_CACHE_PIXELS && _chunks.size() > 1) {
+			var entry = iter.next();
+
+			if (entry.getKey().longValue() == key) {
+				break;
+			}
+
+			var b2 = entry.getValue().getBounds();
+			_chunksPixels -= (long) b2.width * b2.height;
+			entry.getValue().dispose();
+			iter.remove();
+		}
 	}
 
 	@Override
@@ -315,10 +516,22 @@ public class TilemapCanvas extends ZoomCanvas
 	}
 
 	private void disposeImages() {
-		if (_renderImage != null) {
-			_renderImage.dispose();
-			_renderImage = null;
+		_renderVersion++;
+
+		for (var task : _chunkTasks) {
+			task.cancel(false);
+		}
+
+		_chunkTasks.clear();
+		_pendingChunks.clear();
+		_failedChunks.clear();
+
+		for (var image : _chunks.values()) {
+			image.dispose();
 		}
+
+		_chunks.clear();
+		_chunksPixels = 0;
 	}
 
 	public TilemapAssetModel getModel() {
@@ -338,13 +551,6 @@ public class TilemapCanvas extends ZoomCanvas
 	public void customPaintControl(PaintEvent e) {
 		GC gc = e.gc;
 
-		if (_buildingImage) {
-			var str = "Building tilemap image...";
-			var extent = gc.stringExtent(str);
-			gc.drawText(str, e.width / 2 - extent.x / 2, e.height / 2 - extent.y / 2);
-			return;
-		}
-
 		if (_model != null) {
 
 			int[][] map = _model.getCsvData();
@@ -357,41 +563,15 @@ public class TilemapCanvas extends ZoomCanvas
 				float offX = calc.offsetX;
 				float offY = calc.offsetY;
 
-				if (_renderImage == null) {
-
-					for (int i = 0; i < map.length; i++) {
-						int[] row = map[i];
-
-						for (int j = 0; j < row.length; j++) {
-
-							int frame = map[i][j];
-
-							if (frame < 0) {
-								continue;
-							}
-
-							int w = (int) (getTileWidth() * scale);
-							int h = (int) (getTileHeight() * scale);
-							int x = (int) (j * getTileWidth() * scale + offX);
-							int y = (int) (i * getTileHeight() * scale + offY);
-
-							// paint map with colors
-							Color c = _colors[frame % _colors.length];
-							gc.setBackground(c);
-							gc.fillRectangle(x, y, w + 1, h + 1);
-						}
-					}
-				} else {
-					Rectangle b = _renderImage.getBounds();
-
-					Rectangle dst = new Rectangle((int) offX, (int) offY, (int) (b.width * scale),
-							(int) (b.height * scale));
+				if (_tileSetImage != null) {
+					Rectangle dst = new Rectangle((int) offX, (int) offY, (int) (_imageSize.x * scale),
+							(int) (_imageSize.y * scale));
 
 					PhaserEditorUI.paintPreviewBackground(gc, dst);
-
-					gc.drawImage(_renderImage, 0, 0, b.width, b.height, dst.x, dst.y, dst.width, dst.height);
 				}
 
+				paintChunks(gc, map, calc);
+
 				// paint selection
 
 				Color borderColor = PhaserEditorUI.get_pref_Preview_Tilemap_overTileBorderColor();
@@ -722,7 +902,7 @@ public class TilemapCanvas extends ZoomCanvas
 
 	@Override
 	protected boolean hasImage() {
-		return _renderImage != null;
+		return _model != null && _imageSize.x > 1;
 	}
 
 }
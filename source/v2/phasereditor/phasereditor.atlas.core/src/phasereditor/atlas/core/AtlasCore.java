@@ -22,12 +22,15 @@
 package phasereditor.atlas.core;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -38,6 +41,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.yaml.snakeyaml.Yaml;
 
+import com.phasereditor2d.json.JSONStreamReader;
+import com.phasereditor2d.json.JSONStreamReader.Token;
+
 public class AtlasCore {
 	public static final String TEXTURE_ATLAS_MULTI = "TEXTURE_ATLAS_MULTI";
 	public static final String TEXTURE_ATLAS_JSON_ARRAY = "TEXTURE_ATLAS_JSON_ARRAY";
@@ -95,6 +101,51 @@ public class AtlasCore {
 		return null;
 	}
 
+	/**
+	 * Read the frames of an atlas JSON file, in the
+	 * {@link #TEXTURE_ATLAS_JSON_ARRAY} or {@link #TEXTURE_ATLAS_JSON_HASH}
+	 * format. The file is streamed, no {@link JSONObject} is created, so it is
+	 * cheap even for atlases with thousands of frames.
+	 * 
+	 * @param file
+	 *            The atlas JSON file.
+	 * @return The frames, in the order of the file.
+	 */
+	public static List<AtlasFrame> readAtlasJSONFrames(File file) throws IOException {
+		List<AtlasFrame> list = new ArrayList<>();
+
+		try (var reader = new JSONStreamReader(file)) {
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				if (!reader.nextName().equals("frames")) {
+					reader.skipValue();
+					continue;
+				}
+
+				// the format is given by the "frames" value, an array or an object
+				if (reader.peek() == Token.BEGIN_ARRAY) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						list.add(AtlasFrame.fromArrayItem(list.size(), reader));
+					}
+					reader.endArray();
+				} else {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						var name = reader.nextName();
+						list.add(AtlasFrame.fromHashItem(list.size(), name, reader));
+					}
+					reader.endObject();
+				}
+			}
+
+			reader.endObject();
+		}
+
+		return list;
+	}
+
 	/**
 	 * Check if the given content has an XML atlas format
 	 * {@link AtlasAssetModel#TEXTURE_ATLAS_XML_STARLING}.
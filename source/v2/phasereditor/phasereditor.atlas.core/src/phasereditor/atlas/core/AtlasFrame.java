@@ -26,9 +26,12 @@ import java.util.Map;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.w3c.dom.Element;
 
+import com.phasereditor2d.json.JSONStreamReader;
+
 import phasereditor.ui.FrameData;
 
 public class AtlasFrame implements IAdaptable {
@@ -122,6 +125,154 @@ public class AtlasFrame implements IAdaptable {
 		}
 	}
 
+	/**
+	 * Reads a frame of the JSON array format. The reader should be positioned
+	 * at the start of the frame object.
+	 */
+	public static AtlasFrame fromArrayItem(int index, JSONStreamReader reader) {
+		AtlasFrame fi = new AtlasFrame(index);
+		updateFrameFromJSON(fi, reader);
+
+		if (fi._name == null) {
+			throw new JSONException("The frame " + index + " has no \"filename\".");
+		}
+
+		return fi;
+	}
+
+	/**
+	 * Reads a frame of the JSON hash format. The reader should be positioned at
+	 * the start of the frame object, just after its name.
+	 */
+	public static AtlasFrame fromHashItem(int index, String name, JSONStreamReader reader) {
+		AtlasFrame fi = new AtlasFrame(index);
+		fi._name = name;
+		updateFrameFromJSON(fi, reader);
+		return fi;
+	}
+
+	/**
+	 * The streaming version of {@link #updateFrameFromJSON(AtlasFrame, JSONObject)}.
+	 * It consumes the whole frame object, the unknown fields are skipped. Like
+	 * the {@link JSONObject} version, it throws a {@link JSONException} if a
+	 * rectangle misses a field.
+	 */
+	public static void updateFrameFromJSON(AtlasFrame fi, JSONStreamReader reader) {
+		int[] frame = null;
+		int[] sprite = null;
+		int[] source = null;
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			var name = reader.nextName();
+
+			if (reader.peek() != JSONStreamReader.Token.BEGIN_OBJECT) {
+				if (name.equals("filename")) {
+					fi._name = reader.nextString();
+				} else {
+					reader.skipValue();
+				}
+				continue;
+			}
+
+			switch (name) {
+			case "frame":
+				frame = readRect(reader, "x", "y", "w", "h");
+				break;
+			case "spriteSourceSize":
+				sprite = readRect(reader, "x", "y", "w", "h");
+				break;
+			case "sourceSize":
+				source = readRect(reader, "w", "h");
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+
+		reader.endObject();
+
+		checkRect(fi, "frame", frame, "x", "y", "w", "h");
+
+		fi._frameX = frame[0];
+		fi._frameY = frame[1];
+		fi._frameW = frame[2];
+		fi._frameH = frame[3];
+
+		if (sprite == null) {
+			fi._spriteX = fi._frameX;
+			fi._spriteY = fi._frameY;
+			fi._spriteW = fi._frameW;
+			fi._spriteH = fi._frameH;
+		} else {
+			checkRect(fi, "spriteSourceSize", sprite, "x", "y", "w", "h");
+
+			fi._spriteX = sprite[0];
+			fi._spriteY = sprite[1];
+			fi._spriteW = sprite[2];
+			fi._spriteH = sprite[3];
+		}
+
+		if (source == null) {
+			fi._sourceW = fi._frameW;
+			fi._sourceH = fi._frameH;
+		} else {
+			checkRect(fi, "sourceSize", source, "w", "h");
+
+			fi._sourceW = source[0];
+			fi._sourceH = source[1];
+		}
+	}
+
+	/**
+	 * Reads the given fields of a rectangle object. The last element of the
+	 * result is a bit mask of the fields found.
+	 */
+	private static int[] readRect(JSONStreamReader reader, String... keys) {
+		var values = new int[keys.length + 1];
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			var name = reader.nextName();
+			var found = false;
+
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i].equals(name)) {
+					values[i] = reader.nextInt();
+					values[keys.length] |= 1 << i;
+					found = true;
+					break;
+				}
+			}
+
+			if (!found) {
+				reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		return values;
+	}
+
+	private static void checkRect(AtlasFrame fi, String rectName, int[] values, String... keys) {
+		if (values == null) {
+			throw new JSONException("The frame '" + fi._name + "' has no \"" + rectName + "\" rectangle.");
+		}
+
+		var mask = values[keys.length];
+
+		for (int i = 0; i < keys.length; i++) {
+			if ((mask & 1 << i) == 0) {
+				throw new JSONException(
+						"The \"" + rectName + "\" of the frame '" + fi._name + "' has no \"" + keys[i] + "\".");
+			}
+		}
+	}
+
 	@SuppressWarnings({ "rawtypes", "boxing" })
 	public static AtlasFrame fromUnitySprite(int index, Map yaml) {
 		AtlasFrame fi = new AtlasFrame(index);
@@ -0,0 +1,1303 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.atlas.core;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import phasereditor.atlas.core.internal.maxrects.MaxRectsBin;
+import phasereditor.atlas.core.internal.maxrects.MaxRectsBin.Heuristic;
+
+/**
+ * Packs images into atlas pages with the MaxRects algorithm.
+ * <p>
+ * The images are loaded and trimmed in parallel. Then, a trial is run for each
+ * combination of heuristic and sort order, also in parallel, and the trial
+ * with less pages and less total area wins. When all fits in a page, the best
+ * trials are run again with narrower bins. The trim of each image
+ * and the result of the last packings are cached, so packing again the same
+ * inputs (same files, sizes, modification times and settings) does not load
+ * the images again.
+ * <p>
+ * It follows the {@link SettingsBean} like the LibGDX packer does, but the
+ * images are not rotated and the bleeding of colors is not implemented.
+ * 
+ * @author arian
+ *
+ */
+public class AtlasPacker {
+
+	/**
+	 * The number of threads used to trim the images and to run the packing
+	 * trials. It can be set with the <code>AtlasPacker.THREADS</code> system
+	 * property.
+	 */
+	public static final int THREADS = Integer.getInteger("AtlasPacker.THREADS",
+			Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+	private static final int IMAGE_CACHE_SIZE = 10_000;
+	private static final int RESULT_CACHE_SIZE = 8;
+
+	private static final Pattern INDEX_PATTERN = Pattern.compile("(.+)_(\\d+)$");
+
+	private static final float[] BIN_WIDTH_FACTORS = { 1f, 1.05f, 1.1f, 1.2f, 1.35f, 1.5f, 2f };
+	private static final int BIN_WIDTH_TRIALS = 3;
+	private static final int CONTACT_POINT_MAX_REGIONS = 500;
+
+	private static ExecutorService _pool;
+
+	private static final Map<String, Trim> _trimCache = new LinkedHashMap<>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Trim> eldest) {
+			return size() > IMAGE_CACHE_SIZE;
+		}
+	};
+
+	private static final Map<String, Result> _resultCache = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+			return size() > RESULT_CACHE_SIZE;
+		}
+	};
+
+	private SettingsBean _settings;
+	private List<File> _files;
+	private List<String> _names;
+	private int _padX;
+	private int _padY;
+	private int _edgeX;
+	private int _edgeY;
+	private int _maxBinWidth;
+	private int _maxBinHeight;
+	private String _lastTrialName;
+	private int _lastTrialCount;
+
+	public AtlasPacker(SettingsBean settings) {
+		_settings = settings;
+		_files = new ArrayList<>();
+		_names = new ArrayList<>();
+	}
+
+	/**
+	 * Adds an image. Like in LibGDX, the name is the absolute path of the file,
+	 * without the extension.
+	 */
+	public void addImage(File file) {
+		var name = file.getAbsolutePath().replace('\\', '/');
+		var i = name.lastIndexOf('.');
+		if (i > name.lastIndexOf('/')) {
+			name = name.substring(0, i);
+		}
+		addImage(file, name);
+	}
+
+	public void addImage(File file, String name) {
+		_files.add(file);
+		_names.add(name);
+	}
+
+	/**
+	 * A region of a page.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class Region {
+		private String _name;
+		private int _index;
+		private File _file;
+		private Trim _trim;
+		private int _frameX;
+		private int _frameY;
+		private boolean _alias;
+
+		Region(String name, int index, File file, Trim trim) {
+			_name = name;
+			_index = index;
+			_file = file;
+			_trim = trim;
+		}
+
+		public String getName() {
+			return _name;
+		}
+
+		/**
+		 * @return The index parsed from the name, or <code>-1</code>.
+		 */
+		public int getIndex() {
+			return _index;
+		}
+
+		public File getFile() {
+			return _file;
+		}
+
+		public int getFrameX() {
+			return _frameX;
+		}
+
+		public int getFrameY() {
+			return _frameY;
+		}
+
+		public int getFrameW() {
+			return _trim.width;
+		}
+
+		public int getFrameH() {
+			return _trim.height;
+		}
+
+		/**
+		 * @return The x of the trimmed image in the source image.
+		 */
+		public int getSpriteX() {
+			return _trim.x;
+		}
+
+		/**
+		 * @return The y of the trimmed image in the source image.
+		 */
+		public int getSpriteY() {
+			return _trim.y;
+		}
+
+		public int getSourceW() {
+			return _trim.sourceWidth;
+		}
+
+		public int getSourceH() {
+			return _trim.sourceHeight;
+		}
+
+		/**
+		 * @return The hash of the trimmed pixels.
+		 */
+		public long getHash() {
+			return _trim.hash;
+		}
+
+		/**
+		 * @return If it has the same pixels of other region, and shares its frame.
+		 */
+		public boolean isAlias() {
+			return _alias;
+		}
+
+		@Override
+		public String toString() {
+			return _name + " [" + _frameX + ", " + _frameY + ", " + getFrameW() + ", " + getFrameH() + "]";
+		}
+	}
+
+	/**
+	 * A page of the atlas.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class Page {
+		private int _width;
+		private int _height;
+		private List<Region> _regions;
+		private boolean _dirty;
+
+		Page(int width, int height, List<Region> regions) {
+			_width = width;
+			_height = height;
+			_regions = regions;
+		}
+
+		/**
+		 * Adds a region of a previous packing, like the ones read from the atlas
+		 * file. The regions are matched with the new images by the file.
+		 */
+		public void addRegion(File file, long hash, int frameX, int frameY, int frameW, int frameH,
+				int spriteX, int spriteY, int sourceW, int sourceH) {
+			var trim = new Trim();
+			trim.x = spriteX;
+			trim.y = spriteY;
+			trim.width = frameW;
+			trim.height = frameH;
+			trim.sourceWidth = sourceW;
+			trim.sourceHeight = sourceH;
+			trim.hash = hash;
+
+			var region = new Region(file.getName(), -1, file, trim);
+			region._frameX = frameX;
+			region._frameY = frameY;
+
+			_regions.add(region);
+		}
+
+		public int getWidth() {
+			return _width;
+		}
+
+		public int getHeight() {
+			return _height;
+		}
+
+		public List<Region> getRegions() {
+			return Collections.unmodifiableList(_regions);
+		}
+
+		/**
+		 * @return If the pixels of the page changed since the previous packing,
+		 *         so it should be rendered and written again.
+		 */
+		public boolean isDirty() {
+			return _dirty;
+		}
+	}
+
+	/**
+	 * The result of a packing.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class Result {
+		private List<Page> _pages;
+		private String _trialName;
+		private int _trialCount;
+		private boolean _cached;
+		private String _settingsKey;
+
+		Result(List<Page> pages, String trialName, int trialCount, String settingsKey) {
+			_pages = pages;
+			_trialName = trialName;
+			_trialCount = trialCount;
+			_settingsKey = settingsKey;
+		}
+
+		/**
+		 * Creates an empty result, to be filled with the pages of a previous
+		 * packing and passed to {@link AtlasPacker#pack(Result)}.
+		 */
+		public static Result createLayout(SettingsBean settings) {
+			return new Result(new ArrayList<>(), null, 0, getSettingsKey(settings));
+		}
+
+		public Page addPage(int width, int height) {
+			var page = new Page(width, height, new ArrayList<>());
+			_pages.add(page);
+			return page;
+		}
+
+		public List<Page> getPages() {
+			return Collections.unmodifiableList(_pages);
+		}
+
+		/**
+		 * @return The heuristic, sort order and bin width of the winner trial.
+		 */
+		public String getTrialName() {
+			return _trialName;
+		}
+
+		public int getTrialCount() {
+			return _trialCount;
+		}
+
+		/**
+		 * @return If it is the result of a previous packing of the same inputs.
+		 */
+		public boolean isCached() {
+			return _cached;
+		}
+
+		Result cachedCopy() {
+			var result = new Result(_pages, _trialName, _trialCount, _settingsKey);
+			result._cached = true;
+			return result;
+		}
+	}
+
+	/**
+	 * The trimmed bounds of an image, and the hash of its trimmed pixels.
+	 */
+	static class Trim {
+		int sourceWidth;
+		int sourceHeight;
+		int x;
+		int y;
+		int width;
+		int height;
+		long hash;
+		boolean blank;
+	}
+
+	public Result pack() throws IOException {
+		return pack(null);
+	}
+
+	/**
+	 * Packs the images, starting from the layout of a previous packing. The
+	 * unchanged images keep their place, the changed ones are placed in the free
+	 * space of their page and only if they do not fit, that page is packed
+	 * again. Only the pages with new pixels are marked as dirty.
+	 * 
+	 * @param previous
+	 *            The previous packing, or <code>null</code> to pack it from
+	 *            scratch. It is ignored if it was packed with other settings.
+	 */
+	public Result pack(Result previous) throws IOException {
+		initMetrics();
+
+		var settingsKey = getSettingsKey(_settings);
+
+		if (previous != null && (previous._pages.isEmpty() || !settingsKey.equals(previous._settingsKey))) {
+			previous = null;
+		}
+
+		var keys = new ArrayList<String>(_files.size());
+
+		for (var file : _files) {
+			keys.add(getTrimKey(file));
+		}
+
+		var resultKey = settingsKey + "\n" + String.join("\n", _names) + "\n" + String.join("\n", keys);
+
+		if (previous == null) {
+			synchronized (_resultCache) {
+				var result = _resultCache.get(resultKey);
+				if (result != null) {
+					return result.cachedCopy();
+				}
+			}
+		}
+
+		var trims = computeTrims(keys);
+		var regions = createRegions(trims);
+
+		if (previous != null) {
+			// the layout depends on the previous one, so it is not cached
+			var result = packIncremental(regions, previous);
+
+			if (result._pages.size() <= previous._pages.size()) {
+				return result;
+			}
+
+			// the layout is fragmented, maybe packing all again needs less pages
+			var full = runTrials(createRegions(trims));
+
+			return full._pages.size() < result._pages.size() ? full : result;
+		}
+
+		var result = runTrials(regions);
+
+		synchronized (_resultCache) {
+			_resultCache.put(resultKey, result);
+		}
+
+		return result;
+	}
+
+	private static String getSettingsKey(SettingsBean s) {
+		return s.maxWidth + " " + s.maxHeight + " " + s.minWidth + " " + s.minHeight + " " + s.paddingX + " "
+				+ s.paddingY + " " + s.edgePadding + " " + s.duplicatePadding + " " + s.pot + " " + s.square + " "
+				+ s.stripWhitespaceX + " " + s.stripWhitespaceY + " " + s.alphaThreshold + " " + s.alias + " "
+				+ s.ignoreBlankImages + " " + s.useIndexes + " " + s.fast;
+	}
+
+	private String getTrimKey(File file) {
+		return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified() + "|"
+				+ _settings.stripWhitespaceX + "|" + _settings.stripWhitespaceY + "|" + _settings.alphaThreshold;
+	}
+
+	private Trim[] computeTrims(List<String> keys) throws IOException {
+		var trims = new Trim[_files.size()];
+		var futures = new ArrayList<Future<Trim>>();
+		var pending = new ArrayList<Integer>();
+
+		for (int i = 0; i < trims.length; i++) {
+			Trim trim;
+
+			synchronized (_trimCache) {
+				trim = _trimCache.get(keys.get(i));
+			}
+
+			if (trim == null) {
+				var file = _files.get(i);
+				futures.add(getPool().submit(() -> computeTrim(file)));
+				pending.add(Integer.valueOf(i));
+			} else {
+				trims[i] = trim;
+			}
+		}
+
+		for (int j = 0; j < futures.size(); j++) {
+			var i = pending.get(j).intValue();
+			trims[i] = get(futures.get(j));
+
+			synchronized (_trimCache) {
+				_trimCache.put(keys.get(i), trims[i]);
+			}
+		}
+
+		return trims;
+	}
+
+	private Trim computeTrim(File file) throws IOException {
+		var img = ImageIO.read(file);
+
+		if (img == null) {
+			throw new IOException("Cannot read the image " + file);
+		}
+
+		var w = img.getWidth();
+		var h = img.getHeight();
+		var pixels = getPixels(img);
+		var threshold = _settings.alphaThreshold;
+
+		var trim = new Trim();
+		trim.sourceWidth = w;
+		trim.sourceHeight = h;
+
+		var top = 0;
+		var bottom = h;
+
+		if (_settings.stripWhitespaceY) {
+			while (top < h && rowMaxAlpha(pixels, top * w, w) <= threshold) {
+				top++;
+			}
+
+			while (bottom > top && rowMaxAlpha(pixels, (bottom - 1) * w, w) <= threshold) {
+				bottom--;
+			}
+		}
+
+		var left = 0;
+		var right = w;
+
+		if (_settings.stripWhitespaceX && top < bottom) {
+			// the max alpha of each column, computed row by row, so the scan is
+			// sequential
+			var columns = new int[w];
+
+			for (int y = top; y < bottom; y++) {
+				var offset = y * w;
+				for (int x = 0; x < w; x++) {
+					columns[x] = Math.max(columns[x], pixels[offset + x] >>> 24);
+				}
+			}
+
+			while (left < w && columns[left] <= threshold) {
+				left++;
+			}
+
+			while (right > left && columns[right - 1] <= threshold) {
+				right--;
+			}
+		}
+
+		if (top >= bottom || left >= right) {
+			trim.blank = true;
+			trim.width = 1;
+			trim.height = 1;
+			return trim;
+		}
+
+		trim.x = left;
+		trim.y = top;
+		trim.width = right - left;
+		trim.height = bottom - top;
+
+		// FNV-1a of the trimmed pixels, for the aliases
+
+		var hash = 0xcbf29ce484222325L;
+
+		for (int y = top; y < bottom; y++) {
+			var offset = y * w;
+			for (int x = left; x < right; x++) {
+				hash = (hash ^ pixels[offset + x]) * 0x100000001b3L;
+			}
+		}
+
+		trim.hash = hash;
+
+		return trim;
+	}
+
+	private static int rowMaxAlpha(int[] pixels, int offset, int width) {
+		var max = 0;
+		for (int i = offset, end = offset + width; i < end; i++) {
+			max = Math.max(max, pixels[i] >>> 24);
+		}
+		return max;
+	}
+
+	private static int[] getPixels(BufferedImage img) {
+		var w = img.getWidth();
+		var h = img.getHeight();
+
+		if (img.getType() == BufferedImage.TYPE_INT_ARGB) {
+			return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+		}
+
+		return img.getRGB(0, 0, w, h, null, 0, w);
+	}
+
+	private List<Region> createRegions(Trim[] trims) {
+		var regions = new ArrayList<Region>();
+
+		for (int i = 0; i < trims.length; i++) {
+			var trim = trims[i];
+
+			if (trim.blank && _settings.ignoreBlankImages) {
+				continue;
+			}
+
+			var name = _names.get(i);
+			var index = -1;
+
+			if (_settings.useIndexes) {
+				var matcher = INDEX_PATTERN.matcher(name);
+				if (matcher.matches()) {
+					name = matcher.group(1);
+					index = Integer.parseInt(matcher.group(2));
+				}
+			}
+
+			regions.add(new Region(name, index, _files.get(i), trim));
+		}
+
+		return regions;
+	}
+
+	private static class Trial {
+		Heuristic heuristic;
+		Comparator<Region> sort;
+		String sortName;
+		int binWidth;
+		int binHeight;
+
+		Trial(Heuristic heuristic, String sortName, Comparator<Region> sort, int binWidth, int binHeight) {
+			this.heuristic = heuristic;
+			this.sortName = sortName;
+			this.sort = sort;
+			this.binWidth = binWidth;
+			this.binHeight = binHeight;
+		}
+
+		List<MaxRectsBin> bins;
+		int[] positions;
+		int[] binIndexes;
+		long area;
+
+		String getName() {
+			return heuristic + ", " + sortName + ", " + binWidth + "x" + binHeight;
+		}
+	}
+
+	private void initMetrics() {
+		_padX = _settings.paddingX;
+		_padY = _settings.paddingY;
+
+		// the usable area of a page, the rects include the right/bottom padding
+		_edgeX = _settings.edgePadding ? _padX : 0;
+		_edgeY = _settings.edgePadding ? _padY : 0;
+		_maxBinWidth = _settings.maxWidth - 2 * _edgeX + _padX;
+		_maxBinHeight = _settings.maxHeight - 2 * _edgeY + _padY;
+	}
+
+	private Result runTrials(List<Region> allRegions) throws IOException {
+		// the aliases are not packed, they share the frame of the original
+
+		var aliases = new LinkedHashMap<Region, Region>();
+		var regions = splitAliases(allRegions, aliases);
+
+		var pageRegions = packFresh(regions);
+
+		var regionPages = new HashMap<Region, List<Region>>();
+
+		for (var list : pageRegions) {
+			for (var region : list) {
+				regionPages.put(region, list);
+			}
+		}
+
+		addAliases(aliases, regionPages);
+
+		var pages = new ArrayList<Page>();
+
+		for (var list : pageRegions) {
+			pages.add(createPage(list, true));
+		}
+
+		return new Result(pages, _lastTrialName, _lastTrialCount, getSettingsKey(_settings));
+	}
+
+	/**
+	 * @return The regions that are not aliases of other region.
+	 */
+	private List<Region> splitAliases(List<Region> allRegions, Map<Region, Region> aliases) {
+		if (!_settings.alias) {
+			return allRegions;
+		}
+
+		var regions = new ArrayList<Region>();
+		var originals = new HashMap<String, Region>();
+
+		for (var region : allRegions) {
+			var trim = region._trim;
+			var key = trim.width + "x" + trim.height + "#" + trim.hash + "#" + trim.blank;
+			var original = originals.putIfAbsent(key, region);
+			if (original == null) {
+				regions.add(region);
+			} else {
+				region._alias = true;
+				aliases.put(region, original);
+			}
+		}
+
+		return regions;
+	}
+
+	private static void addAliases(Map<Region, Region> aliases, Map<Region, List<Region>> regionPages) {
+		for (var e : aliases.entrySet()) {
+			var alias = e.getKey();
+			var original = e.getValue();
+			alias._frameX = original._frameX;
+			alias._frameY = original._frameY;
+			regionPages.get(original).add(alias);
+		}
+	}
+
+	private Page createPage(List<Region> regions, boolean dirty) {
+		regions.sort((a, b) -> a._name.compareTo(b._name));
+
+		var right = 0;
+		var bottom = 0;
+
+		for (var region : regions) {
+			right = Math.max(right, region._frameX + region._trim.width);
+			bottom = Math.max(bottom, region._frameY + region._trim.height);
+		}
+
+		var size = computePageSize(right + _edgeX, bottom + _edgeY);
+
+		var page = new Page(size[0], size[1], regions);
+		page._dirty = dirty;
+
+		return page;
+	}
+
+	/**
+	 * Packs the regions from scratch, running all the trials.
+	 * 
+	 * @return The regions of each page.
+	 */
+	private List<List<Region>> packFresh(List<Region> regions) throws IOException {
+		// first, all the heuristics and sort orders with the max bin width
+
+		var trials = createTrials(regions, _maxBinWidth, _maxBinHeight);
+		var trialCount = trials.size();
+
+		runTrials(trials, regions);
+
+		// then, the best of them with narrower bins, if all fits in a single page
+
+		var best = trials.get(0);
+
+		if (!_settings.fast && best.bins != null && best.bins.size() == 1) {
+			var binWidths = createBinWidths(regions, _maxBinWidth, _padX, _padY);
+			var trials2 = new ArrayList<Trial>();
+
+			for (int i = 0; i < Math.min(BIN_WIDTH_TRIALS, trials.size()); i++) {
+				var trial = trials.get(i);
+
+				for (var binWidth : binWidths) {
+					trials2.add(new Trial(trial.heuristic, trial.sortName, trial.sort, binWidth, _maxBinHeight));
+				}
+			}
+
+			trials2.add(best);
+			trialCount += trials2.size() - 1;
+
+			runTrials(trials2, regions);
+
+			best = trials2.get(0);
+		}
+
+		if (best.bins == null) {
+			throw new IOException("There are images bigger than the maximum page size.");
+		}
+
+		_lastTrialName = best.getName();
+		_lastTrialCount = trialCount;
+
+		var pageRegions = new ArrayList<List<Region>>();
+
+		for (int i = 0; i < best.bins.size(); i++) {
+			pageRegions.add(new ArrayList<>());
+		}
+
+		for (int i = 0; i < regions.size(); i++) {
+			var region = regions.get(i);
+			region._frameX = (best.positions[i] >>> 16) + _edgeX;
+			region._frameY = (best.positions[i] & 0xFFFF) + _edgeY;
+			pageRegions.get(best.binIndexes[i]).add(region);
+		}
+
+		return pageRegions;
+	}
+
+	/**
+	 * Places the regions in the layout of the previous packing.
+	 */
+	private Result packIncremental(List<Region> allRegions, Result previous) throws IOException {
+		var aliases = new LinkedHashMap<Region, Region>();
+		var regions = splitAliases(allRegions, aliases);
+
+		// the previous regions that own a frame, the others are aliases
+
+		var prevPageCount = previous._pages.size();
+		var prevRegions = new HashMap<File, Region>();
+		var prevPageIndexes = new HashMap<File, Integer>();
+
+		for (int i = 0; i < prevPageCount; i++) {
+			var frames = new HashMap<String, Region>();
+
+			for (var region : previous._pages.get(i)._regions) {
+				var trim = region._trim;
+				var frameKey = region._frameX + "," + region._frameY + "," + trim.width + "," + trim.height;
+				var original = frames.putIfAbsent(frameKey, region);
+
+				if (original == null || original._trim.hash != trim.hash) {
+					prevRegions.put(region._file, region);
+					prevPageIndexes.put(region._file, Integer.valueOf(i));
+				}
+			}
+		}
+
+		var pageRegions = new ArrayList<List<Region>>();
+		var dirty = new boolean[prevPageCount];
+
+		for (int i = 0; i < prevPageCount; i++) {
+			pageRegions.add(new ArrayList<>());
+		}
+
+		var pending = new ArrayList<Region>();
+		var pendingPages = new HashMap<Region, Integer>();
+
+		for (var region : regions) {
+			var prev = prevRegions.remove(region._file);
+
+			if (prev == null) {
+				pending.add(region);
+				pendingPages.put(region, Integer.valueOf(-1));
+				continue;
+			}
+
+			var pageIndex = prevPageIndexes.get(region._file).intValue();
+			var trim = region._trim;
+			var prevTrim = prev._trim;
+
+			if (trim.width <= prevTrim.width && trim.height <= prevTrim.height) {
+				// it fits in its old place
+
+				region._frameX = prev._frameX;
+				region._frameY = prev._frameY;
+				pageRegions.get(pageIndex).add(region);
+
+				if (!sameTrim(trim, prevTrim)) {
+					dirty[pageIndex] = true;
+				}
+
+			} else {
+				pending.add(region);
+				pendingPages.put(region, Integer.valueOf(pageIndex));
+				dirty[pageIndex] = true;
+			}
+		}
+
+		// the removed regions leave a hole in their page
+
+		for (var file : prevRegions.keySet()) {
+			dirty[prevPageIndexes.get(file).intValue()] = true;
+		}
+
+		// place the changed regions in the free space of the pages
+
+		var bins = new ArrayList<MaxRectsBin>();
+
+		for (var list : pageRegions) {
+			var bin = new MaxRectsBin(_maxBinWidth, _maxBinHeight);
+
+			for (var region : list) {
+				bin.occupy(region._frameX - _edgeX, region._frameY - _edgeY, region._trim.width + _padX,
+						region._trim.height + _padY);
+			}
+
+			bins.add(bin);
+		}
+
+		pending.sort(Comparator.comparingInt(r -> -r._trim.width * r._trim.height));
+
+		var overflows = new HashMap<Integer, List<Region>>();
+
+		for (var region : pending) {
+			var w = region._trim.width + _padX;
+			var h = region._trim.height + _padY;
+
+			if (w > _maxBinWidth || h > _maxBinHeight) {
+				throw new IOException("There are images bigger than the maximum page size.");
+			}
+
+			var oldPage = pendingPages.get(region).intValue();
+			var placed = false;
+
+			for (int i = -1; i < prevPageCount && !placed; i++) {
+				// first in its old page, then in the first page with space
+				var pageIndex = i == -1 ? oldPage : i;
+
+				if (pageIndex != -1 && !overflows.containsKey(Integer.valueOf(pageIndex))) {
+					var pos = bins.get(pageIndex).insert(w, h, Heuristic.BEST_SHORT_SIDE_FIT);
+
+					if (pos != -1) {
+						region._frameX = (int) (pos >>> 32) + _edgeX;
+						region._frameY = (int) pos + _edgeY;
+						pageRegions.get(pageIndex).add(region);
+						dirty[pageIndex] = true;
+						placed = true;
+					}
+				}
+			}
+
+			if (!placed) {
+				var pageIndex = oldPage == -1 ? prevPageCount - 1 : oldPage;
+				overflows.computeIfAbsent(Integer.valueOf(pageIndex), k -> new ArrayList<>()).add(region);
+			}
+		}
+
+		// the pages with regions that do not fit are packed again
+
+		var trialNames = new ArrayList<String>();
+		var trialCount = 0;
+		var newPages = new ArrayList<List<Region>>();
+
+		for (var e : overflows.entrySet()) {
+			var pageIndex = e.getKey().intValue();
+			var list = pageRegions.get(pageIndex);
+			list.addAll(e.getValue());
+
+			var packed = packFresh(list);
+
+			pageRegions.set(pageIndex, packed.get(0));
+			dirty[pageIndex] = true;
+			newPages.addAll(packed.subList(1, packed.size()));
+
+			trialNames.add(_lastTrialName);
+			trialCount += _lastTrialCount;
+		}
+
+		// the empty pages are removed, the pages after them change the name
+
+		var pages = new ArrayList<Page>();
+		var shifted = false;
+		var regionPages = new HashMap<Region, List<Region>>();
+
+		for (var list : pageRegions) {
+			for (var region : list) {
+				regionPages.put(region, list);
+			}
+		}
+
+		for (var list : newPages) {
+			for (var region : list) {
+				regionPages.put(region, list);
+			}
+		}
+
+		addAliases(aliases, regionPages);
+
+		for (int i = 0; i < prevPageCount; i++) {
+			var list = pageRegions.get(i);
+
+			if (list.isEmpty()) {
+				shifted = true;
+				continue;
+			}
+
+			var page = createPage(list, dirty[i] || shifted);
+			var prevPage = previous._pages.get(i);
+
+			if (page._width != prevPage._width || page._height != prevPage._height) {
+				page._dirty = true;
+			}
+
+			pages.add(page);
+		}
+
+		for (var list : newPages) {
+			pages.add(createPage(list, true));
+		}
+
+		var trialName = "incremental";
+
+		if (!trialNames.isEmpty()) {
+			trialName += " (" + String.join(", ", trialNames) + ")";
+		}
+
+		return new Result(pages, trialName, trialCount, getSettingsKey(_settings));
+	}
+
+	private static boolean sameTrim(Trim a, Trim b) {
+		return a.hash == b.hash && a.x == b.x && a.y == b.y && a.width == b.width && a.height == b.height
+				&& a.sourceWidth == b.sourceWidth && a.sourceHeight == b.sourceHeight;
+	}
+
+	/**
+	 * Runs the trials in parallel, and sorts them, the best first.
+	 */
+	private void runTrials(List<Trial> trials, List<Region> regions) throws IOException {
+		var futures = new ArrayList<Future<Trial>>();
+
+		for (var trial : trials) {
+			if (trial.bins == null) {
+				futures.add(getPool().submit(() -> runTrial(trial, regions)));
+			}
+		}
+
+		for (var future : futures) {
+			get(future);
+		}
+
+		trials.sort((a, b) -> {
+			if (a.bins == null || b.bins == null) {
+				return a.bins == null ? (b.bins == null ? 0 : 1) : -1;
+			}
+
+			var c = Integer.compare(a.bins.size(), b.bins.size());
+			return c == 0 ? Long.compare(a.area, b.area) : c;
+		});
+	}
+
+	private List<Trial> createTrials(List<Region> regions, int binWidth, int binHeight) {
+		var heuristics = new ArrayList<Heuristic>();
+		var sorts = new LinkedHashMap<String, Comparator<Region>>();
+
+		Comparator<Region> byArea = Comparator.comparingInt(r -> -r._trim.width * r._trim.height);
+		Comparator<Region> byName = Comparator.comparing(r -> r._name);
+
+		sorts.put("area", byArea.thenComparing(byName));
+		heuristics.add(Heuristic.BEST_SHORT_SIDE_FIT);
+
+		if (!_settings.fast) {
+			heuristics.add(Heuristic.BEST_LONG_SIDE_FIT);
+			heuristics.add(Heuristic.BEST_AREA_FIT);
+			heuristics.add(Heuristic.BOTTOM_LEFT);
+
+			// the contact point heuristic is quadratic
+			if (regions.size() <= CONTACT_POINT_MAX_REGIONS) {
+				heuristics.add(Heuristic.CONTACT_POINT);
+			}
+
+			sorts.put("max-side", Comparator
+					.comparingInt((Region r) -> -Math.max(r._trim.width, r._trim.height)).thenComparing(byArea)
+					.thenComparing(byName));
+			sorts.put("height", Comparator.comparingInt((Region r) -> -r._trim.height).thenComparing(byArea)
+					.thenComparing(byName));
+			sorts.put("width", Comparator.comparingInt((Region r) -> -r._trim.width).thenComparing(byArea)
+					.thenComparing(byName));
+			sorts.put("perimeter", Comparator.comparingInt((Region r) -> -r._trim.width - r._trim.height)
+					.thenComparing(byName));
+		}
+
+		var trials = new ArrayList<Trial>();
+
+		for (var heuristic : heuristics) {
+			for (var sort : sorts.entrySet()) {
+				trials.add(new Trial(heuristic, sort.getKey(), sort.getValue(), binWidth, binHeight));
+			}
+		}
+
+		return trials;
+	}
+
+	/**
+	 * The bin widths around the square root of the total area, to get less empty
+	 * space when all fits in a page.
+	 */
+	private static List<Integer> createBinWidths(List<Region> regions, int maxBinWidth, int padX, int padY) {
+		long area = 0;
+		var maxRegionWidth = 0;
+
+		for (var region : regions) {
+			area += (long) (region._trim.width + padX) * (region._trim.height + padY);
+			maxRegionWidth = Math.max(maxRegionWidth, region._trim.width + padX);
+		}
+
+		var binWidths = new ArrayList<Integer>();
+
+		for (var factor : BIN_WIDTH_FACTORS) {
+			var w = (int) Math.ceil(Math.sqrt(area) * factor);
+			if (w >= maxRegionWidth && w < maxBinWidth && !binWidths.contains(Integer.valueOf(w))) {
+				binWidths.add(Integer.valueOf(w));
+			}
+		}
+
+		return binWidths;
+	}
+
+	private Trial runTrial(Trial trial, List<Region> regions) {
+		var order = new ArrayList<Integer>(regions.size());
+
+		for (int i = 0; i < regions.size(); i++) {
+			order.add(Integer.valueOf(i));
+		}
+
+		order.sort((a, b) -> trial.sort.compare(regions.get(a.intValue()), regions.get(b.intValue())));
+
+		var bins = new ArrayList<MaxRectsBin>();
+		var positions = new int[regions.size()];
+		var binIndexes = new int[regions.size()];
+
+		for (var index : order) {
+			var i = index.intValue();
+			var trim = regions.get(i)._trim;
+			var w = trim.width + _padX;
+			var h = trim.height + _padY;
+
+			if (w > trial.binWidth || h > trial.binHeight) {
+				// it does not fit in this trial
+				return trial;
+			}
+
+			var placed = false;
+
+			for (int b = 0; b < bins.size(); b++) {
+				var pos = bins.get(b).insert(w, h, trial.heuristic);
+				if (pos != -1) {
+					positions[i] = (int) (pos >>> 32) << 16 | (int) pos;
+					binIndexes[i] = b;
+					placed = true;
+					break;
+				}
+			}
+
+			if (!placed) {
+				var bin = new MaxRectsBin(trial.binWidth, trial.binHeight);
+				var pos = bin.insert(w, h, trial.heuristic);
+				positions[i] = (int) (pos >>> 32) << 16 | (int) pos;
+				binIndexes[i] = bins.size();
+				bins.add(bin);
+			}
+		}
+
+		long area = 0;
+
+		for (var bin : bins) {
+			// the last padding is not needed, but the edge padding
+			var size = computePageSize(bin.getUsedWidth() - _padX + 2 * _edgeX,
+					bin.getUsedHeight() - _padY + 2 * _edgeY);
+			area += (long) size[0] * size[1];
+		}
+
+		trial.bins = bins;
+		trial.positions = positions;
+		trial.binIndexes = binIndexes;
+		trial.area = area;
+
+		return trial;
+	}
+
+	/**
+	 * The size of a page with the given used area, following the min size, power
+	 * of two and square settings.
+	 */
+	private int[] computePageSize(int usedWidth, int usedHeight) {
+		var w = Math.max(1, usedWidth);
+		var h = Math.max(1, usedHeight);
+
+		w = Math.max(w, _settings.minWidth);
+		h = Math.max(h, _settings.minHeight);
+
+		if (_settings.pot) {
+			w = nextPowerOfTwo(w);
+			h = nextPowerOfTwo(h);
+		}
+
+		if (_settings.square) {
+			w = h = Math.max(w, h);
+		}
+
+		return new int[] { w, h };
+	}
+
+	private static int nextPowerOfTwo(int n) {
+		return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+	/**
+	 * Draws the regions of the page. The images are loaded again, in parallel.
+	 */
+	public static BufferedImage renderPage(Page page, SettingsBean settings) throws IOException {
+		var img = new BufferedImage(page.getWidth(), page.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		var pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+
+		var futures = new ArrayList<Future<Object>>();
+
+		for (var region : page._regions) {
+			if (region._alias || region._trim.blank) {
+				continue;
+			}
+
+			futures.add(getPool().submit(() -> {
+				drawRegion(region, pixels, page.getWidth(), page.getHeight(), settings);
+				return null;
+			}));
+		}
+
+		for (var future : futures) {
+			get(future);
+		}
+
+		return img;
+	}
+
+	private static void drawRegion(Region region, int[] pixels, int pageWidth, int pageHeight,
+			SettingsBean settings) throws IOException {
+		var src = ImageIO.read(region._file);
+
+		if (src == null) {
+			throw new IOException("Cannot read the image " + region._file);
+		}
+
+		var trim = region._trim;
+		var w = trim.width;
+		var h = trim.height;
+		var x0 = region._frameX;
+		var y0 = region._frameY;
+
+		// the regions do not overlap, so each thread writes its own pixels
+		for (int y = 0; y < h; y++) {
+			src.getRGB(trim.x, trim.y + y, w, 1, pixels, (y0 + y) * pageWidth + x0, w);
+		}
+
+		if (settings.duplicatePadding) {
+			var padLeft = settings.paddingX / 2;
+			var padRight = settings.paddingX - padLeft;
+			var padTop = settings.paddingY / 2;
+			var padBottom = settings.paddingY - padTop;
+
+			for (int y = 0; y < h; y++) {
+				var row = (y0 + y) * pageWidth;
+				var first = pixels[row + x0];
+				var last = pixels[row + x0 + w - 1];
+
+				for (int i = 1; i <= padLeft && x0 - i >= 0; i++) {
+					pixels[row + x0 - i] = first;
+				}
+
+				for (int i = 0; i < padRight && x0 + w + i < pageWidth; i++) {
+					pixels[row + x0 + w + i] = last;
+				}
+			}
+
+			var left = Math.max(0, x0 - padLeft);
+			var right = Math.min(pageWidth, x0 + w + padRight);
+
+			for (int i = 1; i <= padTop && y0 - i >= 0; i++) {
+				System.arraycopy(pixels, y0 * pageWidth + left, pixels, (y0 - i) * pageWidth + left, right - left);
+			}
+
+			for (int i = 0; i < padBottom && y0 + h + i < pageHeight; i++) {
+				System.arraycopy(pixels, (y0 + h - 1) * pageWidth + left, pixels, (y0 + h + i) * pageWidth + left,
+						right - left);
+			}
+		}
+	}
+
+	/**
+	 * Renders the page and encodes it as PNG directly into the output.
+	 */
+	public static void writePage(Page page, SettingsBean settings, OutputStream output) throws IOException {
+		ImageIO.write(renderPage(page, settings), "png", output);
+	}
+
+	public static void writePage(Page page, SettingsBean settings, Path file) throws IOException {
+		try (var output = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+			writePage(page, settings, output);
+		}
+	}
+
+	private static <T> T get(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			var cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if (_pool == null) {
+			int[] count = { 0 };
+			_pool = Executors.newFixedThreadPool(THREADS, r -> {
+				var thread = new Thread(r, "Atlas Packer " + count[0]++);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return _pool;
+	}
+}
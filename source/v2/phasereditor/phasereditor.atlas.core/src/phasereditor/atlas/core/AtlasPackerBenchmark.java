@@ -0,0 +1,163 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.atlas.core;
+
+import static java.lang.System.out;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+
+/**
+ * Packs 500 to 5000 random sprites (with transparent margins and some
+ * duplicates) with the {@link AtlasPacker} and with the LibGDX packer. It shows
+ * the cold time (loading and trimming the images), the time of the trials, the
+ * time of a packing of the same inputs (cached) and the time to write the
+ * pages.
+ * <p>
+ * Pass <code>-nogdx</code> to skip the LibGDX packer.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("boxing")
+public class AtlasPackerBenchmark {
+
+	private static final int[] SIZES = { 500, 1000, 2000, 5000 };
+
+	public static void main(String[] args) throws IOException {
+		var gdx = args.length == 0 || !args[0].equals("-nogdx");
+
+		for (var size : SIZES) {
+			var dir = Files.createTempDirectory("atlas-packer");
+
+			try {
+				var files = createSprites(dir, size);
+
+				var settings = new SettingsBean();
+				settings.maxWidth = 4096;
+				settings.maxHeight = 4096;
+				settings.paddingX = 2;
+				settings.paddingY = 2;
+
+				var t = System.nanoTime();
+				var result = pack(settings, files);
+				var coldTime = System.nanoTime() - t;
+
+				t = System.nanoTime();
+				var cached = pack(settings, files);
+				var cachedTime = System.nanoTime() - t;
+
+				if (!cached.isCached()) {
+					throw new IllegalStateException("The result is not cached");
+				}
+
+				var outDir = Files.createDirectories(dir.resolve("out"));
+
+				t = System.nanoTime();
+				long pagesArea = 0;
+				long spritesArea = 0;
+				int i = 0;
+				for (var page : result.getPages()) {
+					AtlasPacker.writePage(page, settings, outDir.resolve("page" + i++ + ".png"));
+					pagesArea += (long) page.getWidth() * page.getHeight();
+					for (var region : page.getRegions()) {
+						if (!region.isAlias()) {
+							spritesArea += (long) region.getFrameW() * region.getFrameH();
+						}
+					}
+				}
+				var writeTime = System.nanoTime() - t;
+
+				out.println(String.format(
+						"%5d sprites: %d pages (%.1f%% used, %d trials, best %s)%n       cold %.1fms, cached %.2fms, write pages %.1fms",
+						size, result.getPages().size(), spritesArea * 100.0 / pagesArea, result.getTrialCount(),
+						result.getTrialName(), coldTime / 1e6, cachedTime / 1e6, writeTime / 1e6));
+
+				if (gdx) {
+					t = System.nanoTime();
+					var packer = new TexturePacker(settings);
+					for (var file : files) {
+						packer.addImage(file);
+					}
+					packer.pack(Files.createDirectories(dir.resolve("gdx")).toFile(), "atlas");
+					out.println(String.format("       LibGDX %.1fms", (System.nanoTime() - t) / 1e6));
+				}
+
+			} finally {
+				try (var walk = Files.walk(dir)) {
+					walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+				}
+			}
+		}
+	}
+
+	private static AtlasPacker.Result pack(SettingsBean settings, List<File> files) throws IOException {
+		var packer = new AtlasPacker(settings);
+		for (var file : files) {
+			packer.addImage(file);
+		}
+		return packer.pack();
+	}
+
+	private static List<File> createSprites(Path dir, int count) throws IOException {
+		var random = new Random(count);
+		var files = new ArrayList<File>();
+		BufferedImage last = null;
+
+		for (int i = 0; i < count; i++) {
+			BufferedImage img;
+
+			if (last != null && random.nextInt(10) == 0) {
+				// a duplicate
+				img = last;
+			} else {
+				var w = 8 + random.nextInt(120);
+				var h = 8 + random.nextInt(120);
+				var margin = random.nextInt(8);
+				img = new BufferedImage(w + margin * 2, h + margin * 2, BufferedImage.TYPE_INT_ARGB);
+				var g2 = img.createGraphics();
+				g2.setColor(new Color(random.nextInt() | 0xFF000000, true));
+				g2.fillOval(margin, margin, w, h);
+				g2.dispose();
+			}
+
+			var file = dir.resolve("sprite" + i + ".png").toFile();
+			ImageIO.write(img, "png", file);
+			files.add(file);
+			last = img;
+		}
+
+		return files;
+	}
+}
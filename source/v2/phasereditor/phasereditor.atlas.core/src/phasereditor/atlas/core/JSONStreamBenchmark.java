@@ -0,0 +1,393 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.atlas.core;
+
+import static java.lang.System.out;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.phasereditor2d.json.JSONStreamReader;
+import com.phasereditor2d.json.JSONStreamWriter;
+
+/**
+ * Compares the {@link JSONObject} tree with the {@link JSONStreamReader} in the
+ * reading of big atlas and Tiled map files, the time and the bytes allocated
+ * by each read. The atlas frames are read like in
+ * {@link AtlasCore#readAtlasJSONFrames(File)} and the maps like in the
+ * <code>TilemapAssetModel</code>, that only needs the layer and tileset
+ * names.
+ * <p>
+ * The arguments are the atlas or Tiled JSON files to read. Without arguments,
+ * it generates an atlas of 20000 frames, in the array and the hash formats,
+ * and a map of 4 layers of 400x400 tiles.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("boxing")
+public class JSONStreamBenchmark {
+
+	private static final int WARMUP = 3;
+	private static final int ROUNDS = 10;
+
+	private static com.sun.management.ThreadMXBean _threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	interface FileReader {
+		List<String> read(File file) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<File> files = new ArrayList<>();
+		List<File> generated = new ArrayList<>();
+
+		if (args.length == 0) {
+			generated.add(generateAtlas(true));
+			generated.add(generateAtlas(false));
+			generated.add(generateTilemap());
+			files.addAll(generated);
+		} else {
+			for (var arg : args) {
+				files.add(new File(arg));
+			}
+		}
+
+		for (var file : files) {
+			boolean tilemap = isTilemap(file);
+
+			out.println(String.format("%s (%s, %.1f MB)", file.getName(), tilemap ? "tilemap" : "atlas",
+					file.length() / 1024.0 / 1024.0));
+
+			FileReader treeReader = tilemap ? JSONStreamBenchmark::readTilemapTree
+					: JSONStreamBenchmark::readAtlasTree;
+			FileReader streamReader = tilemap ? JSONStreamBenchmark::readTilemapStream
+					: JSONStreamBenchmark::readAtlasStream;
+
+			var expected = treeReader.read(file);
+			var actual = streamReader.read(file);
+
+			if (!expected.equals(actual)) {
+				throw new IllegalStateException("The stream reader results are different in " + file);
+			}
+
+			var treeResult = measure(treeReader, file);
+			var streamResult = measure(streamReader, file);
+
+			out.println(String.format("  JSONObject       %8.1f ms %8.1f MB", treeResult[0], treeResult[1]));
+			out.println(String.format("  JSONStreamReader %8.1f ms %8.1f MB (%d items)", streamResult[0],
+					streamResult[1], actual.size()));
+		}
+
+		for (var file : generated) {
+			file.delete();
+		}
+	}
+
+	private static double[] measure(FileReader reader, File file) throws IOException {
+		long time = 0;
+		long bytes = 0;
+		long threadId = Thread.currentThread().getId();
+
+		for (int i = 0; i < WARMUP + ROUNDS; i++) {
+			long b = _threads.getThreadAllocatedBytes(threadId);
+			long t = System.nanoTime();
+
+			reader.read(file);
+
+			if (i >= WARMUP) {
+				time += System.nanoTime() - t;
+				bytes += _threads.getThreadAllocatedBytes(threadId) - b;
+			}
+		}
+
+		return new double[] { time / 1e6 / ROUNDS, bytes / 1024.0 / 1024.0 / ROUNDS };
+	}
+
+	private static boolean isTilemap(File file) throws IOException {
+		try (var reader = new JSONStreamReader(file)) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				var name = reader.nextName();
+				if (name.equals("layers")) {
+					return true;
+				}
+				if (name.equals("frames")) {
+					return false;
+				}
+				reader.skipValue();
+			}
+		}
+		return false;
+	}
+
+	private static String toString(AtlasFrame frame) {
+		return frame.getName() + " " + frame.getFrameX() + "," + frame.getFrameY() + "," + frame.getFrameW() + ","
+				+ frame.getFrameH() + " " + frame.getSpriteX() + "," + frame.getSpriteY() + "," + frame.getSpriteW()
+				+ "," + frame.getSpriteH() + " " + frame.getSourceW() + "," + frame.getSourceH();
+	}
+
+	private static List<String> readAtlasTree(File file) throws IOException {
+		List<AtlasFrame> frames = new ArrayList<>();
+
+		var obj = new JSONObject(new JSONTokener(file));
+		var jsonFrames = obj.get("frames");
+
+		if (jsonFrames instanceof JSONArray) {
+			var array = (JSONArray) jsonFrames;
+			for (int i = 0; i < array.length(); i++) {
+				frames.add(AtlasFrame.fromArrayItem(i, array.getJSONObject(i)));
+			}
+		} else {
+			var hash = (JSONObject) jsonFrames;
+			int i = 0;
+			for (var k : hash.keySet()) {
+				frames.add(AtlasFrame.fromHashItem(i, k, hash.getJSONObject(k)));
+				i++;
+			}
+		}
+
+		return summary(frames);
+	}
+
+	private static List<String> readAtlasStream(File file) throws IOException {
+		return summary(AtlasCore.readAtlasJSONFrames(file));
+	}
+
+	private static List<String> summary(List<AtlasFrame> frames) {
+		List<String> list = new ArrayList<>();
+		for (var frame : frames) {
+			list.add(toString(frame));
+		}
+		return list;
+	}
+
+	private static List<String> readTilemapTree(File file) throws IOException {
+		List<String> list = new ArrayList<>();
+
+		var obj = new JSONObject(new String(Files.readAllBytes(file.toPath())));
+
+		for (var layer : obj.getJSONArray("layers").iterJSON()) {
+			list.add(layer.getString("name"));
+		}
+
+		for (var tileset : obj.getJSONArray("tilesets").iterJSON()) {
+			list.add(tileset.getString("name") + " " + tileset.getString("image"));
+		}
+
+		return list;
+	}
+
+	private static List<String> readTilemapStream(File file) throws IOException {
+		List<String> layers = new ArrayList<>();
+		List<String> tilesets = new ArrayList<>();
+
+		try (var reader = new JSONStreamReader(file)) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "layers":
+					reader.beginArray();
+					while (reader.hasNext()) {
+						reader.beginObject();
+						while (reader.hasNext()) {
+							if (reader.nextName().equals("name")) {
+								layers.add(reader.nextString());
+							} else {
+								reader.skipValue();
+							}
+						}
+						reader.endObject();
+					}
+					reader.endArray();
+					break;
+				case "tilesets":
+					reader.beginArray();
+					while (reader.hasNext()) {
+						String name = null;
+						String image = null;
+						reader.beginObject();
+						while (reader.hasNext()) {
+							switch (reader.nextName()) {
+							case "name":
+								name = reader.nextString();
+								break;
+							case "image":
+								image = reader.nextString();
+								break;
+							default:
+								reader.skipValue();
+								break;
+							}
+						}
+						reader.endObject();
+						tilesets.add(name + " " + image);
+					}
+					reader.endArray();
+					break;
+				default:
+					reader.skipValue();
+					break;
+				}
+			}
+			reader.endObject();
+		}
+
+		layers.addAll(tilesets);
+
+		return layers;
+	}
+
+	private static File generateAtlas(boolean arrayFormat) throws IOException {
+		var file = File.createTempFile(arrayFormat ? "atlas-array" : "atlas-hash", ".json");
+		var random = new Random(1);
+
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			var writer = new JSONStreamWriter(out, 2);
+			writer.beginObject();
+
+			if (arrayFormat) {
+				writer.name("frames").beginArray();
+			} else {
+				writer.name("frames").beginObject();
+			}
+
+			for (int i = 0; i < 20_000; i++) {
+				var name = String.format("sprites/character-%d/walk_%05d.png", i % 50, i);
+
+				if (arrayFormat) {
+					writer.beginObject();
+					writer.name("filename").value(name);
+				} else {
+					writer.name(name).beginObject();
+				}
+
+				int w = 16 + random.nextInt(200);
+				int h = 16 + random.nextInt(200);
+				int dx = random.nextInt(8);
+				int dy = random.nextInt(8);
+
+				writer.name("frame").beginObject();
+				writer.name("x").value(random.nextInt(4096));
+				writer.name("y").value(random.nextInt(4096));
+				writer.name("w").value(w);
+				writer.name("h").value(h);
+				writer.endObject();
+				writer.name("rotated").value(false);
+				writer.name("trimmed").value(true);
+				writer.name("spriteSourceSize").beginObject();
+				writer.name("x").value(dx);
+				writer.name("y").value(dy);
+				writer.name("w").value(w);
+				writer.name("h").value(h);
+				writer.endObject();
+				writer.name("sourceSize").beginObject();
+				writer.name("w").value(w + dx * 2);
+				writer.name("h").value(h + dy * 2);
+				writer.endObject();
+				writer.name("pivot").beginObject();
+				writer.name("x").value(0.5);
+				writer.name("y").value(0.5);
+				writer.endObject();
+				writer.endObject();
+			}
+
+			if (arrayFormat) {
+				writer.endArray();
+			} else {
+				writer.endObject();
+			}
+
+			writer.name("meta").beginObject();
+			writer.name("app").value("https://www.codeandweb.com/texturepacker");
+			writer.name("image").value("atlas.png");
+			writer.name("scale").value("1");
+			writer.endObject();
+
+			writer.endObject();
+		}
+
+		return file;
+	}
+
+	private static File generateTilemap() throws IOException {
+		var file = File.createTempFile("tilemap", ".json");
+		var random = new Random(1);
+		int size = 400;
+
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			// Tiled writes the maps in a single line
+			var writer = new JSONStreamWriter(out);
+			writer.beginObject();
+			writer.name("width").value(size);
+			writer.name("height").value(size);
+			writer.name("tilewidth").value(32);
+			writer.name("tileheight").value(32);
+			writer.name("orientation").value("orthogonal");
+
+			writer.name("layers").beginArray();
+			for (int i = 0; i < 4; i++) {
+				writer.beginObject();
+				writer.name("data").beginArray();
+				for (int j = 0; j < size * size; j++) {
+					writer.value(random.nextInt(10) < 3 ? 0 : 1 + random.nextInt(256));
+				}
+				writer.endArray();
+				writer.name("width").value(size);
+				writer.name("height").value(size);
+				writer.name("name").value("Layer " + i);
+				writer.name("opacity").value(1);
+				writer.name("type").value("tilelayer");
+				writer.name("visible").value(true);
+				writer.endObject();
+			}
+			writer.endArray();
+
+			writer.name("tilesets").beginArray();
+			for (int i = 0; i < 2; i++) {
+				writer.beginObject();
+				writer.name("firstgid").value(1 + i * 128);
+				writer.name("image").value("tiles-" + i + ".png");
+				writer.name("name").value("tiles-" + i);
+				writer.name("tilewidth").value(32);
+				writer.name("tileheight").value(32);
+				writer.endObject();
+			}
+			writer.endArray();
+
+			writer.endObject();
+		}
+
+		return file;
+	}
+}
@@ -0,0 +1,389 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.atlas.core.internal.maxrects;
+
+import java.util.Arrays;
+
+/**
+ * A bin of the MaxRects algorithm (Jukka Jylänki, "A Thousand Ways to Pack the
+ * Bin"). It keeps the list of maximal free rectangles, a new rectangle is
+ * placed in the free rectangle chosen by the {@link Heuristic}, and the free
+ * rectangles it intersects are split.
+ * <p>
+ * The rectangles are stored in flat int arrays. When a rectangle is placed,
+ * only the pairs with a new free rectangle are checked for containment, the
+ * old ones are already maximal.
+ * 
+ * @author arian
+ *
+ */
+public class MaxRectsBin {
+
+	public enum Heuristic {
+		BEST_SHORT_SIDE_FIT, BEST_LONG_SIDE_FIT, BEST_AREA_FIT, BOTTOM_LEFT, CONTACT_POINT
+	}
+
+	private int _width;
+	private int _height;
+
+	// free rects: x, y, w, h
+	private int[] _free;
+	private int _freeCount;
+
+	// used rects: x, y, w, h
+	private int[] _used;
+	private int _usedCount;
+
+	private boolean[] _dead;
+
+	// the max width and height of the free rects, to reject a rect fast
+	private int _maxFreeWidth;
+	private int _maxFreeHeight;
+
+	public MaxRectsBin(int width, int height) {
+		_width = width;
+		_height = height;
+		_free = new int[64 * 4];
+		_used = new int[64 * 4];
+		_dead = new boolean[64];
+		addFree(0, 0, width, height);
+		_maxFreeWidth = width;
+		_maxFreeHeight = height;
+	}
+
+	public int getWidth() {
+		return _width;
+	}
+
+	public int getHeight() {
+		return _height;
+	}
+
+	/**
+	 * The right-most used coordinate.
+	 */
+	public int getUsedWidth() {
+		var w = 0;
+		for (int i = 0; i < _usedCount; i++) {
+			w = Math.max(w, _used[i * 4] + _used[i * 4 + 2]);
+		}
+		return w;
+	}
+
+	/**
+	 * The bottom-most used coordinate.
+	 */
+	public int getUsedHeight() {
+		var h = 0;
+		for (int i = 0; i < _usedCount; i++) {
+			h = Math.max(h, _used[i * 4 + 1] + _used[i * 4 + 3]);
+		}
+		return h;
+	}
+
+	/**
+	 * Places a rectangle.
+	 * 
+	 * @return The position, as <code>x << 32 | y</code>, or <code>-1</code> if it
+	 *         does not fit.
+	 */
+	public long insert(int width, int height, Heuristic heuristic) {
+		var best = findPosition(width, height, heuristic);
+
+		if (best < 0) {
+			return -1;
+		}
+
+		var x = (int) (best >>> 32);
+		var y = (int) best;
+
+		place(x, y, width, height);
+
+		return best;
+	}
+
+	/**
+	 * Marks a rectangle at the given position as used, like the rects of a
+	 * previous packing. The part outside the bin is ignored.
+	 */
+	public void occupy(int x, int y, int width, int height) {
+		var x2 = Math.min(_width, x + width);
+		var y2 = Math.min(_height, y + height);
+		x = Math.max(0, x);
+		y = Math.max(0, y);
+
+		if (x2 <= x || y2 <= y) {
+			return;
+		}
+
+		place(x, y, x2 - x, y2 - y);
+	}
+
+	private long findPosition(int width, int height, Heuristic heuristic) {
+		if (width > _maxFreeWidth || height > _maxFreeHeight) {
+			return -1;
+		}
+
+		var bestScore1 = Integer.MAX_VALUE;
+		var bestScore2 = Integer.MAX_VALUE;
+		var bestX = -1;
+		var bestY = -1;
+		var free = _free;
+
+		for (int i = 0; i < _freeCount; i++) {
+			var k = i * 4;
+			var fx = free[k];
+			var fy = free[k + 1];
+			var fw = free[k + 2];
+			var fh = free[k + 3];
+
+			if (fw < width || fh < height) {
+				continue;
+			}
+
+			int score1;
+			int score2;
+
+			switch (heuristic) {
+			case BEST_SHORT_SIDE_FIT: {
+				var leftoverH = fw - width;
+				var leftoverV = fh - height;
+				score1 = Math.min(leftoverH, leftoverV);
+				score2 = Math.max(leftoverH, leftoverV);
+				break;
+			}
+			case BEST_LONG_SIDE_FIT: {
+				var leftoverH = fw - width;
+				var leftoverV = fh - height;
+				score1 = Math.max(leftoverH, leftoverV);
+				score2 = Math.min(leftoverH, leftoverV);
+				break;
+			}
+			case BEST_AREA_FIT:
+				score1 = fw * fh - width * height;
+				score2 = Math.min(fw - width, fh - height);
+				break;
+			case BOTTOM_LEFT:
+				score1 = fy + height;
+				score2 = fx;
+				break;
+			default:
+				// the bigger the contact, the better
+				score1 = -contactScore(fx, fy, width, height);
+				score2 = 0;
+				break;
+			}
+
+			if (score1 < bestScore1 || score1 == bestScore1 && score2 < bestScore2) {
+				bestScore1 = score1;
+				bestScore2 = score2;
+				bestX = fx;
+				bestY = fy;
+			}
+		}
+
+		if (bestX == -1) {
+			return -1;
+		}
+
+		return (long) bestX << 32 | bestY;
+	}
+
+	private int contactScore(int x, int y, int width, int height) {
+		var score = 0;
+
+		if (x == 0 || x + width == _width) {
+			score += height;
+		}
+
+		if (y == 0 || y + height == _height) {
+			score += width;
+		}
+
+		var used = _used;
+
+		for (int i = 0; i < _usedCount; i++) {
+			var k = i * 4;
+			var ux = used[k];
+			var uy = used[k + 1];
+			var uw = used[k + 2];
+			var uh = used[k + 3];
+
+			if (ux == x + width || ux + uw == x) {
+				score += commonInterval(uy, uy + uh, y, y + height);
+			}
+
+			if (uy == y + height || uy + uh == y) {
+				score += commonInterval(ux, ux + uw, x, x + width);
+			}
+		}
+
+		return score;
+	}
+
+	private static int commonInterval(int start1, int end1, int start2, int end2) {
+		if (end1 < start2 || end2 < start1) {
+			return 0;
+		}
+		return Math.min(end1, end2) - Math.max(start1, start2);
+	}
+
+	private void place(int x, int y, int width, int height) {
+		var oldCount = _freeCount;
+
+		if (_dead.length < oldCount) {
+			_dead = new boolean[oldCount * 2];
+		}
+
+		for (int i = 0; i < oldCount; i++) {
+			_dead[i] = splitFreeRect(i, x, y, width, height);
+		}
+
+		pruneFreeList(oldCount);
+
+		if (_usedCount * 4 == _used.length) {
+			_used = Arrays.copyOf(_used, _used.length * 2);
+		}
+
+		var k = _usedCount++ * 4;
+		_used[k] = x;
+		_used[k + 1] = y;
+		_used[k + 2] = width;
+		_used[k + 3] = height;
+	}
+
+	/**
+	 * Adds the parts of the free rect that are not covered by the used one.
+	 * 
+	 * @return If the free rect intersects the used one, so it should be removed.
+	 */
+	private boolean splitFreeRect(int i, int x, int y, int width, int height) {
+		var k = i * 4;
+		var fx = _free[k];
+		var fy = _free[k + 1];
+		var fw = _free[k + 2];
+		var fh = _free[k + 3];
+
+		if (x >= fx + fw || x + width <= fx || y >= fy + fh || y + height <= fy) {
+			return false;
+		}
+
+		if (x < fx + fw && x + width > fx) {
+			// top side
+			if (y > fy && y < fy + fh) {
+				addFree(fx, fy, fw, y - fy);
+			}
+
+			// bottom side
+			if (y + height < fy + fh) {
+				addFree(fx, y + height, fw, fy + fh - (y + height));
+			}
+		}
+
+		if (y < fy + fh && y + height > fy) {
+			// left side
+			if (x > fx && x < fx + fw) {
+				addFree(fx, fy, x - fx, fh);
+			}
+
+			// right side
+			if (x + width < fx + fw) {
+				addFree(x + width, fy, fx + fw - (x + width), fh);
+			}
+		}
+
+		return true;
+	}
+
+	private void pruneFreeList(int oldCount) {
+		if (_dead.length < _freeCount) {
+			_dead = Arrays.copyOf(_dead, _freeCount * 2);
+		}
+
+		Arrays.fill(_dead, oldCount, _freeCount, false);
+
+		// the old rects are maximal between them, so only the pairs with a new
+		// rect are checked
+
+		for (int i = oldCount; i < _freeCount; i++) {
+			if (_dead[i]) {
+				continue;
+			}
+
+			for (int j = 0; j < _freeCount; j++) {
+				if (i == j || _dead[j]) {
+					continue;
+				}
+
+				if (contains(j, i)) {
+					_dead[i] = true;
+					break;
+				}
+
+				if (contains(i, j)) {
+					_dead[j] = true;
+				}
+			}
+		}
+
+		// compact
+
+		var count = 0;
+		var maxWidth = 0;
+		var maxHeight = 0;
+
+		for (int i = 0; i < _freeCount; i++) {
+			if (!_dead[i]) {
+				if (count != i) {
+					System.arraycopy(_free, i * 4, _free, count * 4, 4);
+				}
+				maxWidth = Math.max(maxWidth, _free[count * 4 + 2]);
+				maxHeight = Math.max(maxHeight, _free[count * 4 + 3]);
+				count++;
+			}
+		}
+
+		_freeCount = count;
+		_maxFreeWidth = maxWidth;
+		_maxFreeHeight = maxHeight;
+	}
+
+	private boolean contains(int a, int b) {
+		var ka = a * 4;
+		var kb = b * 4;
+		var f = _free;
+		return f[kb] >= f[ka] && f[kb + 1] >= f[ka + 1] && f[kb] + f[kb + 2] <= f[ka] + f[ka + 2]
+				&& f[kb + 1] + f[kb + 3] <= f[ka + 1] + f[ka + 3];
+	}
+
+	private void addFree(int x, int y, int width, int height) {
+		if (_freeCount * 4 == _free.length) {
+			_free = Arrays.copyOf(_free, _free.length * 2);
+		}
+
+		var k = _freeCount++ * 4;
+		_free[k] = x;
+		_free[k + 1] = y;
+		_free[k + 2] = width;
+		_free[k + 3] = height;
+	}
+}
@@ -21,6 +21,7 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.atlas.ui.editor;
 
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 
 import org.eclipse.core.resources.IFile;
@@ -32,7 +33,9 @@ public class EditorPage extends ArrayList<TexturePackerEditorFrame> implements I
 	private int _index;
 	private TexturePackerEditorModel _model;
 	private Image _image;
+	private BufferedImage _awtImage;
 	private IFile _imageFile;
+	private boolean _dirty;
 
 	public EditorPage(TexturePackerEditorModel model, int index) {
 		super();
@@ -75,6 +78,18 @@ public class EditorPage extends ArrayList<TexturePackerEditorFrame> implements I
 		return _image;
 	}
 
+	/**
+	 * The image made by the packer, it is encoded directly into the page file
+	 * when the editor is saved.
+	 */
+	public void setAwtImage(BufferedImage awtImage) {
+		_awtImage = awtImage;
+	}
+
+	public BufferedImage getAwtImage() {
+		return _awtImage;
+	}
+
 	public void setImageFile(IFile imageFile) {
 		_imageFile = imageFile;
 	}
@@ -83,9 +98,22 @@ public class EditorPage extends ArrayList<TexturePackerEditorFrame> implements I
 		return _imageFile;
 	}
 
+	/**
+	 * If the image changed since it was saved.
+	 */
+	public boolean isDirty() {
+		return _dirty;
+	}
+
+	public void setDirty(boolean dirty) {
+		_dirty = dirty;
+	}
+
 	public void dispose() {
 		if (_image != null) {
 			_image.dispose();
 		}
+
+		_awtImage = null;
 	}
 }
\ No newline at end of file
@@ -25,15 +25,19 @@ import static java.lang.System.out;
 import static phasereditor.ui.PhaserEditorUI.eclipseFileToJavaPath;
 import static phasereditor.ui.PhaserEditorUI.swtRun;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.imageio.ImageIO;
+
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
@@ -89,13 +93,9 @@ import org.eclipse.ui.views.contentoutline.IContentOutlinePage;
 import org.eclipse.ui.views.properties.IPropertySheetPage;
 import org.json.JSONObject;
 
-import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Region;
-import com.badlogic.gdx.tools.texturepacker.TexturePacker;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.StringBuilder;
 
+import phasereditor.atlas.core.AtlasPacker;
 import phasereditor.atlas.core.SettingsBean;
 import phasereditor.atlas.ui.AtlasCanvas_Unmanaged;
 import phasereditor.atlas.ui.ITexturePackerEditor;
@@ -448,21 +448,12 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 			protected IStatus run(IProgressMonitor monitor) {
 				monitor.beginTask("Building atlas '" + _model.getFile().getName() + "'", 2);
 
-				// build new atlas
-				SettingsBean settings = _model.getSettings();
+				// build new atlas, with a copy of the settings, they are kept with the pages
+				SettingsBean settings = _model.getSettings().clone();
 
-				TexturePacker packer;
-				try {
-					packer = new TexturePacker(settings);
-				} catch (Exception e) {
-					swtRun(() -> {
-						MessageDialog.openError(getEditorSite().getShell(), "Packer Error", e.getMessage());
-					});
+				AtlasPacker packer = new AtlasPacker(settings);
 
-					e.printStackTrace();
-
-					return Status.OK_STATUS;
-				}
+				var sourceFiles = new HashMap<File, IFile>();
 
 				List<IFile> missingFiles = new ArrayList<>();
 				List<IFile> oversizedFiles = new ArrayList<>();
@@ -480,6 +471,7 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 								oversizedFiles.add(wsFile);
 							} else {
 								packer.addImage(file);
+								sourceFiles.put(file, wsFile);
 							}
 
 						} catch (IOException e) {
@@ -531,23 +523,21 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 				}
 
 				monitor.worked(1);
-				File tempDir = null;
+
 				try {
-					// create atlas files in temporal folder
-					tempDir = Files.createTempDirectory("PhaserEditor_Atlas_").toFile();
 					String atlasName = _model.getAtlasName();
-					packer.pack(tempDir, atlasName);
-
-					// read generated atlas file
 
-					File libgdxAtlasFile = new File(tempDir, atlasName + ".atlas");
+					long t = System.currentTimeMillis();
 
-					out.println("Temporal atlas file " + libgdxAtlasFile);
+					// the unchanged images keep their place, and only the changed pages are
+					// rendered again
 
-					// out.println(new String(Files.readAllBytes(libgdxAtlasFile.toPath())));
+					var result = packer.pack(createPreviousLayout());
 
-					TextureAtlasData data = new TextureAtlasData(new FileHandle(libgdxAtlasFile),
-							new FileHandle(tempDir), false);
+					out.println("Packed atlas " + atlasName + " in " + (System.currentTimeMillis() - t) + "ms ("
+							+ (result.isCached() ? "cached" : result.getTrialCount() + " trials, best "
+									+ result.getTrialName())
+							+ ")");
 
 					// create result model
 
@@ -555,59 +545,61 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 
 					List<EditorPage> newEditorPages = new ArrayList<>();
 
-					ImageLoader loader = new ImageLoader();
-
-					Array<Region> regions = data.getRegions();
-
-					for (TextureAtlasData.Page packerPage : data.getPages()) {
-						File textureFile = packerPage.textureFile.file();
-
-						ImageData[] imgData = loader.load(textureFile.getAbsolutePath());
-						Image img = new Image(Display.getDefault(), imgData[0]);
+					var reusedImages = new HashSet<Image>();
 
+					for (AtlasPacker.Page packerPage : result.getPages()) {
 						int index = newEditorPages.size();
 						EditorPage newEditorPage = new EditorPage(_model, index);
 
-						newEditorPage.setImage(img);
+						if (packerPage.isDirty()) {
+							var awtImage = AtlasPacker.renderPage(packerPage, settings);
 
-						for (Region region : regions) {
-							if (region.page == packerPage) {
+							Image img = new Image(Display.getDefault(),
+									PhaserEditorUI.imageData_Swing_To_SWT(awtImage));
 
-								String regionFilename = region.name;
-								if (region.index != -1) {
-									regionFilename += "_" + region.index;
-								}
+							newEditorPage.setImage(img);
+							newEditorPage.setAwtImage(awtImage);
+							newEditorPage.setDirty(true);
+						} else {
+							// a clean page has the same index and size of the old one
+							var oldEditorPage = oldEditorPages.get(index);
 
-								TexturePackerEditorFrame frame = new TexturePackerEditorFrame(region.index,
-										newEditorPage);
+							newEditorPage.setImage(oldEditorPage.getImage());
+							newEditorPage.setAwtImage(oldEditorPage.getAwtImage());
+							newEditorPage.setDirty(oldEditorPage.isDirty());
 
-								var frameName = computeFrameName(regionFilename);
+							reusedImages.add(oldEditorPage.getImage());
+						}
 
-								frame.setName(frameName);
-								frame.setFrameX(region.left);
-								frame.setFrameY(region.top);
-								frame.setFrameW(region.width);
-								frame.setFrameH(region.height);
+						for (AtlasPacker.Region region : packerPage.getRegions()) {
+							String regionFilename = region.getName();
+							if (region.getIndex() != -1) {
+								regionFilename += "_" + region.getIndex();
+							}
 
-								// todo: only if trimmed!
-								frame.setSpriteX((int) (region.offsetX));
+							TexturePackerEditorFrame frame = new TexturePackerEditorFrame(region.getIndex(),
+									newEditorPage);
 
-								// this happens when white spaces are stripped!
-								if (region.offsetY != 0) {
-									// LibGDX uses the OpenGL Y order (from
-									// bottom to top)
-									frame.setSpriteY((int) (region.originalHeight - region.offsetY - region.height));
-								}
+							var frameName = computeFrameName(regionFilename);
 
-								frame.setSpriteW(region.width);
-								frame.setSpriteH(region.height);
+							frame.setName(frameName);
+							frame.setFrameX(region.getFrameX());
+							frame.setFrameY(region.getFrameY());
+							frame.setFrameW(region.getFrameW());
+							frame.setFrameH(region.getFrameH());
 
-								frame.setSourceW(region.originalWidth);
-								frame.setSourceH(region.originalHeight);
+							frame.setSpriteX(region.getSpriteX());
+							frame.setSpriteY(region.getSpriteY());
+							frame.setSpriteW(region.getFrameW());
+							frame.setSpriteH(region.getFrameH());
 
-								newEditorPage.add(frame);
-							}
+							frame.setSourceW(region.getSourceW());
+							frame.setSourceH(region.getSourceH());
 
+							frame.setSourceFile(sourceFiles.get(region.getFile()));
+							frame.setHash(region.getHash());
+
+							newEditorPage.add(frame);
 						}
 
 						if (settings.useIndexes) {
@@ -618,6 +610,7 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 					}
 
 					_model.setPages(newEditorPages);
+					_model.setPagesSettings(settings);
 
 					for (EditorPage page : _model.getPages()) {
 						String atlasImageName = _model.getAtlasImageName(page.getIndex());
@@ -638,7 +631,9 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 							try {
 								if (oldEditorPages != null) {
 									for (EditorPage page : oldEditorPages) {
-										page.dispose();
+										if (!reusedImages.contains(page.getImage())) {
+											page.dispose();
+										}
 									}
 								}
 							} catch (Exception e) {
@@ -650,11 +645,6 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 							}
 						}
 					});
-				} catch (
-
-				IOException e) {
-					e.printStackTrace();
-					throw new RuntimeException(e);
 				} catch (Exception e) {
 					e.printStackTrace();
 					swtRun(new Runnable() {
@@ -664,24 +654,49 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 							MessageDialog.openError(getEditorSite().getShell(), "Build Atlas", e.getMessage());
 						}
 					});
-				} finally {
-					try {
-						// delete temporal files
-						if (tempDir != null) {
-							for (File f : tempDir.listFiles()) {
-								f.delete();
-							}
-							tempDir.delete();
-						}
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
 				}
 
 				return Status.OK_STATUS;
 
 			}
 
+			/**
+			 * The layout of the current pages, or <code>null</code> if it cannot be
+			 * reused, like when the atlas was built by an older version.
+			 */
+			private AtlasPacker.Result createPreviousLayout() {
+				var pagesSettings = _model.getPagesSettings();
+
+				if (pagesSettings == null) {
+					return null;
+				}
+
+				var layout = AtlasPacker.Result.createLayout(pagesSettings);
+
+				for (EditorPage page : _model.getPages()) {
+					var img = page.getImage();
+
+					if (img == null || img.isDisposed()) {
+						return null;
+					}
+
+					var bounds = img.getBounds();
+					var packerPage = layout.addPage(bounds.width, bounds.height);
+
+					for (TexturePackerEditorFrame frame : page) {
+						if (frame.getSourceFile() == null) {
+							return null;
+						}
+
+						packerPage.addRegion(eclipseFileToJavaPath(frame.getSourceFile()).toFile(), frame.getHash(),
+								frame.getFrameX(), frame.getFrameY(), frame.getFrameW(), frame.getFrameH(),
+								frame.getSpriteX(), frame.getSpriteY(), frame.getSourceW(), frame.getSourceH());
+					}
+				}
+
+				return layout;
+			}
+
 			private String computeFrameName(String filename) {
 				IPath path = new Path(filename);
 
@@ -733,16 +748,30 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 					String atlasImageName = _model.getAtlasImageName(i);
 					IFile file = _model.getFile().getParent().getFile(new Path(atlasImageName));
 					page.setImageFile(file);
-					ImageLoader loader = new ImageLoader();
-					loader.data = new ImageData[] { page.getImage().getImageData() };
-					ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-					loader.save(buffer, SWT.IMAGE_PNG);
-					ByteArrayInputStream source = new ByteArrayInputStream(buffer.toByteArray());
-					if (file.exists()) {
-						file.setContents(source, true, false, monitor);
-					} else {
-						file.create(source, true, monitor);
+
+					var path = eclipseFileToJavaPath(file);
+
+					if (!page.isDirty() && Files.exists(path)) {
+						// the pixels did not change since the last save
+						toDelete.remove(file);
+						i++;
+						continue;
+					}
+
+					// encode the page directly into the file, and then sync the workspace
+					try (var output = new BufferedOutputStream(
+							Files.newOutputStream(path), 64 * 1024)) {
+						if (page.getAwtImage() == null) {
+							ImageLoader loader = new ImageLoader();
+							loader.data = new ImageData[] { page.getImage().getImageData() };
+							loader.save(output, SWT.IMAGE_PNG);
+						} else {
+							ImageIO.write(page.getAwtImage(), "png", output);
+						}
 					}
+					file.refreshLocal(IResource.DEPTH_ZERO, monitor);
+					page.setDirty(false);
+
 					toDelete.remove(file);
 					i++;
 				}
@@ -761,8 +790,8 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 
 				if (_model.getSettings().multiatlas) {
 					out.println("Generating with the multiatlas format");
-					JSONObject json = _model.toPhaser3MultiatlasJSON();
-					ByteArrayInputStream source = new ByteArrayInputStream(json.toString(2).getBytes());
+					String json = _model.toPhaser3MultiatlasJSON();
+					ByteArrayInputStream source = new ByteArrayInputStream(json.getBytes());
 					String atlasJSONName = _model.getAtlasName() + ".json";
 					IFile file = _model.getFile().getParent().getFile(new Path(atlasJSONName));
 					if (file.exists()) {
@@ -773,9 +802,9 @@ public class TexturePackerEditor extends EditorPart implements IEditorSharedImag
 					toDelete.remove(file);
 				} else {
 					int i = 0;
-					JSONObject[] list = _model.toPhaserHashJSON();
-					for (JSONObject json : list) {
-						ByteArrayInputStream source = new ByteArrayInputStream(json.toString(2).getBytes());
+					String[] list = _model.toPhaserHashJSON();
+					for (String json : list) {
+						ByteArrayInputStream source = new ByteArrayInputStream(json.getBytes());
 						String atlasJSONName = _model.getAtlasJSONName(i);
 						IFile file = _model.getFile().getParent().getFile(new Path(atlasJSONName));
 						if (file.exists()) {
@@ -21,6 +21,8 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.atlas.ui.editor;
 
+import org.eclipse.core.resources.IFile;
+
 import phasereditor.atlas.core.AtlasFrame;
 
 /**
@@ -30,6 +32,8 @@ import phasereditor.atlas.core.AtlasFrame;
 public class TexturePackerEditorFrame extends AtlasFrame {
 
 	private EditorPage _page;
+	private IFile _sourceFile;
+	private long _hash;
 
 	public TexturePackerEditorFrame(int regionIndex, EditorPage page) {
 		super(regionIndex);
@@ -40,4 +44,28 @@ public class TexturePackerEditorFrame extends AtlasFrame {
 		return _page;
 	}
 
+	/**
+	 * The image packed in this frame, or <code>null</code> if the atlas was
+	 * built by an older version.
+	 */
+	public IFile getSourceFile() {
+		return _sourceFile;
+	}
+
+	public void setSourceFile(IFile sourceFile) {
+		_sourceFile = sourceFile;
+	}
+
+	/**
+	 * The hash of the trimmed pixels, to know if the image changed since the
+	 * last build.
+	 */
+	public long getHash() {
+		return _hash;
+	}
+
+	public void setHash(long hash) {
+		_hash = hash;
+	}
+
 }
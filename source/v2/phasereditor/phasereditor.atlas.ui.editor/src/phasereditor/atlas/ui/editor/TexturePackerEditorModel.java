@@ -45,6 +45,8 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
+import com.phasereditor2d.json.JSONStreamWriter;
+
 import phasereditor.atlas.core.AtlasFrame;
 import phasereditor.atlas.core.SettingsBean;
 import phasereditor.ui.PhaserEditorUI;
@@ -55,6 +57,7 @@ public class TexturePackerEditorModel implements IAdaptable {
 	private IFile _file;
 	private SettingsBean _settings;
 	private List<EditorPage> _pages;
+	private SettingsBean _pagesSettings;
 	private int _version;
 	private TexturePackerEditor _editor;
 
@@ -113,6 +116,7 @@ public class TexturePackerEditorModel implements IAdaptable {
 			{
 				JSONObject jsonSettings = obj.getJSONObject("settings");
 				_settings.read(jsonSettings);
+				_pagesSettings = _settings.clone();
 			}
 
 			// pages
@@ -165,6 +169,14 @@ public class TexturePackerEditorModel implements IAdaptable {
 							AtlasFrame.updateFrameFromJSON(frame, jsonFrame);
 							frame.setName(jsonFrame.getString("name"));
 
+							var sourceFile = jsonFrame.optString("file", null);
+							var hash = jsonFrame.optString("hash", null);
+
+							if (sourceFile != null && hash != null) {
+								frame.setSourceFile(file.getProject().getFile(new Path(sourceFile)));
+								frame.setHash(Long.parseUnsignedLong(hash, 16));
+							}
+
 							page.add(frame);
 						}
 
@@ -208,6 +220,18 @@ public class TexturePackerEditorModel implements IAdaptable {
 		return _pages;
 	}
 
+	/**
+	 * The settings used to build the current pages, they are needed to reuse the
+	 * layout of the pages in the next build.
+	 */
+	public SettingsBean getPagesSettings() {
+		return _pagesSettings;
+	}
+
+	public void setPagesSettings(SettingsBean pagesSettings) {
+		_pagesSettings = pagesSettings;
+	}
+
 	public JSONObject toJSON() {
 
 		JSONObject obj = new JSONObject();
@@ -253,6 +277,11 @@ public class TexturePackerEditorModel implements IAdaptable {
 					writeFrameJsonData(frame, jsonFrame);
 					jsonFrame.put("name", frame.getName());
 					jsonFrame.put("regionIndex", frame.getIndex());
+
+					if (frame.getSourceFile() != null) {
+						jsonFrame.put("file", frame.getSourceFile().getProjectRelativePath().toPortableString());
+						jsonFrame.put("hash", Long.toHexString(frame.getHash()));
+					}
 				}
 			}
 		}
@@ -260,63 +289,78 @@ public class TexturePackerEditorModel implements IAdaptable {
 		return obj;
 	}
 
-	public JSONObject toPhaser3MultiatlasJSON() {
-		JSONObject jsonData = new JSONObject();
+	/**
+	 * The content of the multiatlas JSON file. It is written with a
+	 * {@link JSONStreamWriter} because it can have thousands of frames.
+	 */
+	public String toPhaser3MultiatlasJSON() {
+		var writer = new JSONStreamWriter(2);
+
+		writer.beginObject();
 
-		JSONArray jsonTextures = new JSONArray();
-		jsonData.put("textures", jsonTextures);
+		writer.name("textures").beginArray();
 
 		int pageIndex = 0;
 		for (EditorPage page : _pages) {
-			JSONObject jsonTexture = new JSONObject();
-			jsonTextures.put(jsonTexture);
-			jsonTexture.put("image", getAtlasImageName(pageIndex));
+			writer.beginObject();
+			writer.name("image").value(getAtlasImageName(pageIndex));
 
-			JSONArray jsonFrames = new JSONArray();
-			jsonTexture.put("frames", jsonFrames);
+			writer.name("frames").beginArray();
 
 			for (TexturePackerEditorFrame frame : page) {
-				JSONObject jsonFrame = new JSONObject();
-				jsonFrames.put(jsonFrame);
-
-				jsonFrame.put("filename", frame.getName());
-				writeFrameJsonData(frame, jsonFrame);
+				writer.beginObject();
+				writer.name("filename").value(frame.getName());
+				writeFrameJsonData(frame, writer);
+				writer.endObject();
 			}
+
+			writer.endArray();
+			writer.endObject();
+
 			pageIndex++;
 		}
 
-		JSONObject meta = new JSONObject();
-		jsonData.put("meta", meta);
-		writeJsonMeta(meta);
+		writer.endArray();
 
-		return jsonData;
+		writer.name("meta").beginObject();
+		writeJsonMeta(writer);
+		writer.endObject();
+
+		writer.endObject();
+
+		return writer.toString();
 	}
 
-	public JSONObject[] toPhaserHashJSON() {
-		JSONObject[] list = new JSONObject[_pages.size()];
+	/**
+	 * The content of the hash JSON file of each page.
+	 */
+	public String[] toPhaserHashJSON() {
+		String[] list = new String[_pages.size()];
 
 		int i = 0;
 		for (EditorPage page : _pages) {
-			JSONObject obj = new JSONObject();
-			list[i] = obj;
+			var writer = new JSONStreamWriter(2);
 
-			JSONObject jsonFrames = new JSONObject();
-			obj.put("frames", jsonFrames);
+			writer.beginObject();
 
-			for (AtlasFrame frame : page) {
+			writer.name("frames").beginObject();
 
-				JSONObject jsonEntry = new JSONObject();
-				jsonFrames.put(frame.getName(), jsonEntry);
+			for (AtlasFrame frame : page) {
+				writer.name(frame.getName()).beginObject();
+				writeFrameJsonData(frame, writer);
+				writer.endObject();
+			}
 
-				writeFrameJsonData(frame, jsonEntry);
+			writer.endObject();
 
-			}
-			JSONObject jsonMeta = new JSONObject();
-			obj.put("meta", jsonMeta);
+			writer.name("meta").beginObject();
+			writer.name("image").value(getAtlasImageName(i));
+			writeJsonMeta(writer);
+			writer.endObject();
 
-			jsonMeta.put("image", getAtlasImageName(i));
+			writer.endObject();
 
-			writeJsonMeta(jsonMeta);
+			list[i] = writer.toString();
 
 			i++;
 		}
@@ -324,15 +368,41 @@ public class TexturePackerEditorModel implements IAdaptable {
 		return list;
 	}
 
-	private static void writeJsonMeta(JSONObject jsonMeta) {
-		jsonMeta.put("app", "Phaser Editor - Atlas Generator");
-		jsonMeta.put("version", "2");
+	private static void writeJsonMeta(JSONStreamWriter writer) {
+		writer.name("app").value("Phaser Editor - Atlas Generator");
+		writer.name("version").value("2");
+	}
+
+	private void writeFrameJsonData(AtlasFrame frame, JSONStreamWriter writer) {
+		writer.name("trimmed").value(_settings.stripWhitespaceX || _settings.stripWhitespaceY);
+		// the AtlasPacker does not rotate the sprites
+		writer.name("rotated").value(false);
+
+		writer.name("frame").beginObject();
+		writer.name("x").value(frame.getFrameX());
+		writer.name("y").value(frame.getFrameY());
+		writer.name("w").value(frame.getFrameW());
+		writer.name("h").value(frame.getFrameH());
+		writer.endObject();
+
+		writer.name("spriteSourceSize").beginObject();
+		writer.name("x").value(frame.getSpriteX());
+		writer.name("y").value(frame.getSpriteY());
+		writer.name("w").value(frame.getSpriteW());
+		writer.name("h").value(frame.getSpriteH());
+		writer.endObject();
+
+		writer.name("sourceSize").beginObject();
+		writer.name("w").value(frame.getSourceW());
+		writer.name("h").value(frame.getSourceH());
+		writer.endObject();
 	}
 
 	private void writeFrameJsonData(AtlasFrame frame, JSONObject jsonEntry) {
 		JSONObject jsonFrame = new JSONObject();
 		jsonEntry.put("trimmed", _settings.stripWhitespaceX || _settings.stripWhitespaceY);
-		jsonEntry.put("rotated", _settings.rotation);
+		// the AtlasPacker does not rotate the sprites
+		jsonEntry.put("rotated", false);
 		jsonEntry.put("frame", jsonFrame);
 
 		jsonFrame.put("x", frame.getFrameX());
@@ -33,10 +33,18 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
+import javax.imageio.ImageIO;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
@@ -74,6 +82,29 @@ public class AudioCore {
 
 	private static Path _silencePath;
 
+	/**
+	 * The number of threads used to make the waves of the sounds. It can be set
+	 * with the <code>AudioCore.THREADS</code> system property.
+	 */
+	public static final int THREADS = Integer.getInteger("AudioCore.THREADS",
+			Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+
+	private static final int WAVES_WIDTH = 800;
+	private static final int WAVES_HEIGHT = 600;
+	private static final int WAVES_COLOR = 0xFFFF0000;
+
+	private static final List<IAudioDecoder> _decoders = new CopyOnWriteArrayList<>(List.of(new WavDecoder()));
+	private static final IAudioDecoder _fallbackDecoder = new FFMpegAudioDecoder();
+	// the files share a fixed number of locks, so there is not a lock per path
+	private static final Object[] _fileLocks = new Object[64];
+
+	static {
+		for (int i = 0; i < _fileLocks.length; i++) {
+			_fileLocks[i] = new Object();
+		}
+	}
+
+	private static ExecutorService _pool;
 
 	public static boolean isSupportedAudio(IFile file) {
 		return isSupportedAudio(file.getLocation().toFile());
@@ -203,10 +234,24 @@ public class AudioCore {
 	}
 
 	public static double computeAudioDuration(IFile file) {
+		try {
+			var peaks = getSoundPeaks(file);
+			if (peaks != null) {
+				return peaks.getDuration();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 		return getSoundDuration(eclipseFileToJavaPath(file));
 	}
 
 	public static double getSoundDuration(Path file) {
+		double wavDuration = WavDecoder.readDuration(file);
+
+		if (wavDuration >= 0) {
+			return wavDuration;
+		}
+
 		String path = file.toFile().getAbsolutePath();
 		ProcessBuilder pb = AudioCore.createFFProbeProcessBuilder("-v", "quiet", "-hide_banner", "-show_format",
 				"-print_format", "json", path);
@@ -260,60 +305,190 @@ public class AudioCore {
 		return InspectCore.createProcessBuilder("ffmpeg/ffprobe", args);
 	}
 
+	/**
+	 * Resets the cached data of the sound. The waves image and the peaks are
+	 * deleted, the next request computes them with a new name.
+	 */
 	public static void removeSoundProperties(IFile file) {
-		try {
-			file.setPersistentProperty(WAVEFORM_FILENAME_KEY, null);
-			file.setPersistentProperty(DURATION_KEY, null);
-		} catch (CoreException e) {
-			throw new RuntimeException(e);
+		synchronized (getFileLock(file)) {
+			try {
+				String filename = file.getPersistentProperty(WAVEFORM_FILENAME_KEY);
+
+				file.setPersistentProperty(WAVEFORM_FILENAME_KEY, null);
+				file.setPersistentProperty(DURATION_KEY, null);
+
+				if (filename != null) {
+					Path wavesFile = InspectCore.getUserCacheFolder().resolve("waves").resolve(filename);
+					Files.deleteIfExists(wavesFile);
+					Files.deleteIfExists(getPeaksFile(wavesFile));
+				}
+			} catch (CoreException | IOException e) {
+				throw new RuntimeException(e);
+			}
 		}
 	}
 
-	public synchronized static Path getSoundWavesFile(IFile file) {
+	/**
+	 * Registers a decoder for the sound waves. The decoders are tested in order,
+	 * before the FFMpeg fallback.
+	 */
+	public static void addAudioDecoder(IAudioDecoder decoder) {
+		_decoders.add(decoder);
+	}
+
+	private static Object getFileLock(IFile file) {
+		return _fileLocks[Math.floorMod(file.getFullPath().hashCode(), _fileLocks.length)];
+	}
+
+	public static Path getSoundWavesFile(IFile file) {
 		return getSoundWavesFile(file, true);
 	}
 
-	public synchronized static Path getSoundWavesFile(IFile file, boolean forceMake) {
+	public static Path getSoundWavesFile(IFile file, boolean forceMake) {
 		if (file == null) {
 			return null;
 		}
-		
-		try {
-			String filename = file.getPersistentProperty(WAVEFORM_FILENAME_KEY);
-			Path dir = InspectCore.getUserCacheFolder().resolve("waves");
-			Path path;
-			if (filename == null) {
-				filename = UUID.randomUUID().toString() + ".png";
-				path = dir.resolve(filename);
-				file.setPersistentProperty(WAVEFORM_FILENAME_KEY, filename);
-			} else {
-				path = dir.resolve(filename);
+
+		synchronized (getFileLock(file)) {
+			try {
+				String filename = file.getPersistentProperty(WAVEFORM_FILENAME_KEY);
+				Path dir = InspectCore.getUserCacheFolder().resolve("waves");
+				Path path;
+				if (filename == null) {
+					filename = UUID.randomUUID().toString() + ".png";
+					path = dir.resolve(filename);
+					file.setPersistentProperty(WAVEFORM_FILENAME_KEY, filename);
+				} else {
+					path = dir.resolve(filename);
+				}
+
+				if (forceMake) {
+					if (!Files.exists(path)) {
+						makeSoundWaves(file, path);
+					}
+				}
+
+				return path;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
 			}
+		}
+	}
 
-			if (forceMake) {
-				if (!Files.exists(path)) {
-					makeSoundWaves(file, path);
+	private static Path getPeaksFile(Path wavesFile) {
+		var name = wavesFile.getFileName().toString();
+		return wavesFile.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".peaks");
+	}
+
+	/**
+	 * The min/max peaks of the sound, at multiple zoom levels. They are computed
+	 * with the waves image.
+	 */
+	public static SoundPeaks getSoundPeaks(IFile file) throws IOException {
+		synchronized (getFileLock(file)) {
+			var wavesFile = getSoundWavesFile(file);
+			var peaksFile = getPeaksFile(wavesFile);
+
+			if (Files.exists(peaksFile)) {
+				var peaks = SoundPeaks.read(peaksFile);
+				if (peaks != null) {
+					return peaks;
 				}
 			}
 
-			return path;
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+			return makeSoundWaves(file, wavesFile);
 		}
 	}
 
-	private static void makeSoundWaves(IFile file, Path path) throws IOException {
+	/**
+	 * Decodes the file with the first decoder that supports it, or with FFMpeg.
+	 */
+	public static SoundPeaks computeSoundPeaks(Path file) throws IOException {
+		for (var decoder : _decoders) {
+			if (decoder.canDecode(file)) {
+				try {
+					var builder = new SoundPeaks.Builder();
+					decoder.decode(file, builder);
+					return builder.build();
+				} catch (IOException e) {
+					out.println("Cannot decode " + file + " with " + decoder.getClass().getSimpleName() + ": "
+							+ e.getMessage());
+				}
+			}
+		}
+
+		var builder = new SoundPeaks.Builder();
+		_fallbackDecoder.decode(file, builder);
+		return builder.build();
+	}
+
+	private static SoundPeaks makeSoundWaves(IFile file, Path path) throws IOException {
 		out.println("Make waves " + file);
 		Files.createDirectories(path.getParent());
 
-		String soundPath = eclipseFileToJavaPath(file).toString();
+		var peaks = computeSoundPeaks(eclipseFileToJavaPath(file));
+
+		peaks.write(getPeaksFile(path));
+
+		// write to a temporary file, so nobody reads a half written image
+		var tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+		ImageIO.write(peaks.renderImage(WAVES_WIDTH, WAVES_HEIGHT, WAVES_COLOR), "png", tmpPath.toFile());
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+
+		try {
+			file.setPersistentProperty(DURATION_KEY, Double.toString(peaks.getDuration()));
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+
+		return peaks;
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if (_pool == null) {
+			int[] count = { 0 };
+			_pool = Executors.newFixedThreadPool(THREADS, r -> {
+				var thread = new Thread(r, "Audio Waves Builder " + count[0]++);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return _pool;
+	}
+
+	/**
+	 * Makes the waves and metadata of the files in parallel, and waits until all
+	 * of them are done.
+	 */
+	public static void makeSoundWavesAndMetadata(Collection<IFile> files) {
+		if (files.isEmpty()) {
+			return;
+		}
+
+		var futures = new ArrayList<Future<?>>();
 
-		ProcessBuilder pb = createFFMpegProcessBuilder("-i", soundPath, "-lavfi",
-				"showwavespic=split_channels=1:s=800x600", path.toString());
-		pb.start();
+		for (var file : files) {
+			futures.add(getPool().submit(() -> {
+				getSoundWavesFile(file);
+				getSoundDuration(file);
+			}));
+		}
+
+		for (var future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				logError(new RuntimeException(e.getCause()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
 	}
 
 	public static void makeSoundWavesAndMetadata(IResourceDelta projectDelta) {
+		var files = new ArrayList<IFile>();
+
 		try {
 			projectDelta.accept(new IResourceDeltaVisitor() {
 
@@ -326,8 +501,7 @@ public class AudioCore {
 							if (delta.getKind() == IResourceDelta.CHANGED) {
 								removeSoundProperties(file);
 							}
-							getSoundWavesFile(file);
-							getSoundDuration(file);
+							files.add(file);
 						}
 					}
 					return true;
@@ -336,24 +510,28 @@ public class AudioCore {
 		} catch (CoreException e) {
 			e.printStackTrace();
 		}
+
+		makeSoundWavesAndMetadata(files);
 	}
 
-	public synchronized static double getSoundDuration(IFile file) {
-		try {
-			String value = file.getPersistentProperty(DURATION_KEY);
+	public static double getSoundDuration(IFile file) {
+		synchronized (getFileLock(file)) {
+			try {
+				String value = file.getPersistentProperty(DURATION_KEY);
 
-			if (value == null) {
-				double duration = computeAudioDuration(file);
-				value = Double.toString(duration);
-				file.setPersistentProperty(DURATION_KEY, value);
-				return duration;
-			}
+				if (value == null) {
+					double duration = computeAudioDuration(file);
+					value = Double.toString(duration);
+					file.setPersistentProperty(DURATION_KEY, value);
+					return duration;
+				}
 
-			return Double.parseDouble(value);
+				return Double.parseDouble(value);
 
-		} catch (Exception e) {
-			e.printStackTrace();
-			return 0;
+			} catch (Exception e) {
+				e.printStackTrace();
+				return 0;
+			}
 		}
 	}
 
@@ -0,0 +1,77 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import phasereditor.ui.FileUtils;
+
+/**
+ * The fallback decoder. It runs FFMpeg to convert the file into a 16 bits WAV
+ * stream and reads it from the process output with the {@link WavDecoder}, so
+ * the samples never touch the disk.
+ * 
+ * @author arian
+ *
+ */
+public class FFMpegAudioDecoder implements IAudioDecoder {
+
+	@Override
+	public boolean canDecode(Path file) {
+		return true;
+	}
+
+	@Override
+	public void decode(Path file, IPCMConsumer consumer) throws IOException {
+		var pb = AudioCore.createFFMpegProcessBuilder("-v", "error", "-hide_banner", "-i",
+				file.toAbsolutePath().toString(), "-f", "wav", "-acodec", "pcm_s16le", "-");
+
+		var proc = pb.start();
+
+		var errors = new StringBuilder();
+
+		var errorReader = new Thread(() -> FileUtils.readStream(proc.getErrorStream(), line -> {
+			errors.append(line).append("\n");
+		}), "FFMpeg Audio Decoder Errors");
+		errorReader.setDaemon(true);
+		errorReader.start();
+
+		try (var input = new BufferedInputStream(proc.getInputStream(), 64 * 1024)) {
+			WavDecoder.decode(input, consumer);
+		} finally {
+			try {
+				var exitValue = proc.waitFor();
+				errorReader.join();
+
+				if (exitValue != 0) {
+					throw new IOException("FFMpeg termination exitValue " + exitValue + "\n" + errors);
+				}
+			} catch (InterruptedException e) {
+				proc.destroy();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted FFMpeg decoding of " + file, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Decodes an audio file into PCM samples. Decoders are registered with
+ * {@link AudioCore#addAudioDecoder(IAudioDecoder)}, when no decoder can read a
+ * file, it is decoded with FFMpeg.
+ * 
+ * @author arian
+ *
+ */
+public interface IAudioDecoder {
+
+	/**
+	 * If this decoder supports the given file. It should be cheap, like checking
+	 * the extension or the file header.
+	 */
+	public boolean canDecode(Path file);
+
+	/**
+	 * Streams the PCM samples of the file to the consumer.
+	 */
+	public void decode(Path file, IPCMConsumer consumer) throws IOException;
+}
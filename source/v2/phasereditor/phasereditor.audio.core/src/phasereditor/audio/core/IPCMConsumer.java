@@ -0,0 +1,55 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+/**
+ * Receives the PCM samples produced by an {@link IAudioDecoder}.
+ * 
+ * @author arian
+ *
+ */
+public interface IPCMConsumer {
+
+	/**
+	 * Called once, before any sample.
+	 * 
+	 * @param sampleRate
+	 *            The frames per second.
+	 * @param channels
+	 *            The number of channels.
+	 * @param totalFrames
+	 *            The expected number of frames, or <code>-1</code> if it is not
+	 *            known (like when the audio is streamed).
+	 */
+	public void start(int sampleRate, int channels, long totalFrames);
+
+	/**
+	 * A block of samples.
+	 * 
+	 * @param samples
+	 *            The interleaved samples, normalized to the <code>[-1, 1]</code>
+	 *            range. The array is reused by the decoder, do not keep it.
+	 * @param frames
+	 *            The number of frames in the block.
+	 */
+	public void samples(float[] samples, int frames);
+}
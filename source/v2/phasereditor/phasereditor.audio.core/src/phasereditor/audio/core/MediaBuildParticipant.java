@@ -1,5 +1,6 @@
 package phasereditor.audio.core;
 
+import java.util.ArrayList;
 import java.util.Map;
 
 import org.eclipse.core.resources.IFile;
@@ -20,6 +21,8 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 	@Override
 	public void build(IProject project, IResourceDelta resDelta, Map<String, Object> env) {
 
+		var audioFiles = new ArrayList<IFile>();
+
 		try {
 			resDelta.accept(new IResourceDeltaVisitor() {
 
@@ -39,8 +42,7 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 									AudioCore.removeSoundProperties(file);
 								}
 
-								AudioCore.getSoundWavesFile(file);
-								AudioCore.getSoundDuration(file);
+								audioFiles.add(file);
 
 							} else if (AudioCore.isSupportedVideo(file)) {
 
@@ -61,6 +63,7 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 			AudioCore.logError(e);
 		}
 
+		AudioCore.makeSoundWavesAndMetadata(audioFiles);
 	}
 
 	@Override
@@ -100,6 +103,8 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 
 	@Override
 	public void fullBuild(IProject project, Map<String, Object> env) {
+		var audioFiles = new ArrayList<IFile>();
+
 		try {
 			project.accept(new IResourceVisitor() {
 
@@ -111,8 +116,7 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 							if (AudioCore.isSupportedVideo(file)) {
 								AudioCore.getVideoSnapshotFile(file);
 							} else if (AudioCore.isSupportedAudio(file)) {
-								AudioCore.getSoundWavesFile(file);
-								AudioCore.getSoundDuration(file);
+								audioFiles.add(file);
 							}
 						}
 					}
@@ -122,6 +126,8 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 		} catch (CoreException e) {
 			AudioCore.logError(e);
 		}
+
+		AudioCore.makeSoundWavesAndMetadata(audioFiles);
 	}
 
 }
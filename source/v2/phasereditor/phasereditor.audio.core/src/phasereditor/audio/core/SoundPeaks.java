@@ -0,0 +1,344 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The min/max peaks of a sound, at multiple zoom levels. The level
+ * <code>0</code> has a bucket for each {@link #BASE_BUCKET_FRAMES} frames, each
+ * next level merges two buckets of the previous one. The peaks are quantized
+ * to a signed byte per value, so an hour of stereo audio takes a few MB.
+ * <p>
+ * The peaks are computed in a single pass over the samples, with the
+ * {@link Builder}, and stored in the compact binary format of
+ * {@link #write(Path)} and {@link #read(Path)}.
+ * 
+ * @author arian
+ *
+ */
+public class SoundPeaks {
+
+	public static final int BASE_BUCKET_FRAMES = 256;
+
+	private static final int MAGIC = 0x5045414B; // PEAK
+	private static final int VERSION = 1;
+	private static final int MIN_LEVEL_BUCKETS = 64;
+
+	private int _sampleRate;
+	private int _channels;
+	private long _frames;
+	/**
+	 * For each level, the min and max of each channel of each bucket:
+	 * <code>[bucket][channel][min, max]</code>.
+	 */
+	private byte[][] _levels;
+
+	SoundPeaks(int sampleRate, int channels, long frames, byte[][] levels) {
+		_sampleRate = sampleRate;
+		_channels = channels;
+		_frames = frames;
+		_levels = levels;
+	}
+
+	public int getSampleRate() {
+		return _sampleRate;
+	}
+
+	public int getChannels() {
+		return _channels;
+	}
+
+	public long getFrames() {
+		return _frames;
+	}
+
+	/**
+	 * @return The duration in seconds.
+	 */
+	public double getDuration() {
+		return _sampleRate == 0 ? 0 : (double) _frames / _sampleRate;
+	}
+
+	public int getLevelCount() {
+		return _levels.length;
+	}
+
+	public int getBucketFrames(int level) {
+		return BASE_BUCKET_FRAMES << level;
+	}
+
+	public int getBucketCount(int level) {
+		return _levels[level].length / (_channels * 2);
+	}
+
+	/**
+	 * @return The min of the bucket, in the <code>[-1, 1]</code> range.
+	 */
+	public float getMin(int level, int bucket, int channel) {
+		return _levels[level][(bucket * _channels + channel) * 2] / 127f;
+	}
+
+	/**
+	 * @return The max of the bucket, in the <code>[-1, 1]</code> range.
+	 */
+	public float getMax(int level, int bucket, int channel) {
+		return _levels[level][(bucket * _channels + channel) * 2 + 1] / 127f;
+	}
+
+	/**
+	 * The coarsest level that has at least the given number of buckets, for a
+	 * view of that width.
+	 */
+	public int getLevelForWidth(int width) {
+		var level = 0;
+		while (level + 1 < _levels.length && getBucketCount(level + 1) >= width) {
+			level++;
+		}
+		return level;
+	}
+
+	public void write(Path file) throws IOException {
+		try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			output.writeInt(MAGIC);
+			output.writeShort(VERSION);
+			output.writeInt(_sampleRate);
+			output.writeShort(_channels);
+			output.writeLong(_frames);
+			output.writeShort(BASE_BUCKET_FRAMES);
+			output.writeByte(_levels.length);
+
+			for (var level : _levels) {
+				output.writeInt(level.length);
+				output.write(level);
+			}
+		}
+	}
+
+	/**
+	 * Reads the peaks written by {@link #write(Path)}.
+	 * 
+	 * @return The peaks, or <code>null</code> if the file is not in the current
+	 *         format.
+	 */
+	public static SoundPeaks read(Path file) throws IOException {
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readShort() != VERSION) {
+				return null;
+			}
+
+			var sampleRate = input.readInt();
+			var channels = input.readShort();
+			var frames = input.readLong();
+
+			if (input.readShort() != BASE_BUCKET_FRAMES) {
+				return null;
+			}
+
+			var levels = new byte[input.readByte()][];
+
+			for (int i = 0; i < levels.length; i++) {
+				levels[i] = new byte[input.readInt()];
+				input.readFully(levels[i]);
+			}
+
+			return new SoundPeaks(sampleRate, channels, frames, levels);
+		}
+	}
+
+	/**
+	 * Renders the waves, a band for each channel, like the FFMpeg
+	 * <code>showwavespic</code> filter with <code>split_channels=1</code>.
+	 */
+	public BufferedImage renderImage(int width, int height, int argb) {
+		var img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		if (_frames == 0 || _channels == 0) {
+			return img;
+		}
+
+		var pixels = new int[width * height];
+		var level = getLevelForWidth(width);
+		var buckets = getBucketCount(level);
+		var bandHeight = height / _channels;
+
+		for (int x = 0; x < width; x++) {
+			var start = (int) ((long) x * buckets / width);
+			var end = Math.max(start + 1, (int) ((long) (x + 1) * buckets / width));
+			end = Math.min(end, buckets);
+
+			for (int c = 0; c < _channels; c++) {
+				var min = 127;
+				var max = -128;
+
+				for (int b = start; b < end; b++) {
+					var i = (b * _channels + c) * 2;
+					min = Math.min(min, _levels[level][i]);
+					max = Math.max(max, _levels[level][i + 1]);
+				}
+
+				if (min > max) {
+					continue;
+				}
+
+				var center = c * bandHeight + bandHeight / 2;
+				var y1 = center - max * bandHeight / 2 / 127;
+				var y2 = center - min * bandHeight / 2 / 127;
+
+				y1 = Math.max(c * bandHeight, y1);
+				y2 = Math.min((c + 1) * bandHeight - 1, y2);
+
+				for (int y = y1; y <= y2; y++) {
+					pixels[y * width + x] = argb;
+				}
+			}
+		}
+
+		img.setRGB(0, 0, width, height, pixels, 0, width);
+
+		return img;
+	}
+
+	/**
+	 * Computes the peaks while the decoder streams the samples.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class Builder implements IPCMConsumer {
+
+		private int _sampleRate;
+		private int _channels;
+		private long _frames;
+		private float[] _min;
+		private float[] _max;
+		private int _bucketFrames;
+		private byte[] _data;
+		private int _size;
+
+		@Override
+		public void start(int sampleRate, int channels, long totalFrames) {
+			_sampleRate = sampleRate;
+			_channels = channels;
+			_min = new float[channels];
+			_max = new float[channels];
+			resetBucket();
+
+			var buckets = totalFrames < 0 ? 1024 : totalFrames / BASE_BUCKET_FRAMES + 1;
+			_data = new byte[(int) Math.min(Integer.MAX_VALUE - 8, buckets * channels * 2)];
+		}
+
+		@Override
+		public void samples(float[] samples, int frames) {
+			var channels = _channels;
+			var min = _min;
+			var max = _max;
+			var k = 0;
+
+			for (int f = 0; f < frames; f++) {
+				for (int c = 0; c < channels; c++) {
+					var v = samples[k++];
+					if (v < min[c]) {
+						min[c] = v;
+					}
+					if (v > max[c]) {
+						max[c] = v;
+					}
+				}
+
+				if (++_bucketFrames == BASE_BUCKET_FRAMES) {
+					flushBucket();
+				}
+			}
+
+			_frames += frames;
+		}
+
+		private void resetBucket() {
+			Arrays.fill(_min, Float.POSITIVE_INFINITY);
+			Arrays.fill(_max, Float.NEGATIVE_INFINITY);
+			_bucketFrames = 0;
+		}
+
+		private void flushBucket() {
+			if (_size + _channels * 2 > _data.length) {
+				_data = Arrays.copyOf(_data, Math.max(_data.length * 2, _size + _channels * 2));
+			}
+
+			for (int c = 0; c < _channels; c++) {
+				_data[_size++] = quantize(_min[c]);
+				_data[_size++] = quantize(_max[c]);
+			}
+
+			resetBucket();
+		}
+
+		private static byte quantize(float v) {
+			return (byte) Math.round(Math.max(-1, Math.min(1, v)) * 127);
+		}
+
+		public SoundPeaks build() {
+			if (_data == null) {
+				throw new IllegalStateException("The decoder did not start");
+			}
+
+			if (_bucketFrames > 0) {
+				flushBucket();
+			}
+
+			var levels = new ArrayList<byte[]>();
+			var level = Arrays.copyOf(_data, _size);
+			levels.add(level);
+
+			var stride = _channels * 2;
+
+			while (level.length / stride > MIN_LEVEL_BUCKETS && levels.size() < Byte.MAX_VALUE) {
+				var buckets = level.length / stride;
+				var next = new byte[(buckets + 1) / 2 * stride];
+
+				for (int b = 0; b < buckets; b += 2) {
+					for (int c = 0; c < _channels; c++) {
+						var i = b * stride + c * 2;
+						var j = b / 2 * stride + c * 2;
+						var hasPair = b + 1 < buckets;
+						next[j] = hasPair ? (byte) Math.min(level[i], level[i + stride]) : level[i];
+						next[j + 1] = hasPair ? (byte) Math.max(level[i + 1], level[i + 1 + stride]) : level[i + 1];
+					}
+				}
+
+				levels.add(next);
+				level = next;
+			}
+
+			return new SoundPeaks(_sampleRate, _channels, _frames, levels.toArray(new byte[levels.size()][]));
+		}
+	}
+}
@@ -0,0 +1,275 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A RIFF/WAVE decoder. It supports integer PCM of 8, 16, 24 and 32 bits and
+ * IEEE float PCM of 32 and 64 bits, also in the <code>WAVE_FORMAT_EXTENSIBLE</code>
+ * form. The samples are streamed in blocks, so the whole file is never loaded
+ * in memory.
+ * <p>
+ * A <code>data</code> chunk with a size of <code>0</code> or
+ * <code>0xFFFFFFFF</code> is read until the end of the stream, it is what
+ * FFMpeg writes when the output is a pipe.
+ * 
+ * @author arian
+ *
+ */
+public class WavDecoder implements IAudioDecoder {
+
+	private static final int FORMAT_PCM = 1;
+	private static final int FORMAT_FLOAT = 3;
+	private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+	private static final int BLOCK_FRAMES = 4096;
+
+	@Override
+	public boolean canDecode(Path file) {
+		try (var input = Files.newInputStream(file)) {
+			var header = input.readNBytes(12);
+			return header.length == 12 && isTag(header, 0, "RIFF") && isTag(header, 8, "WAVE");
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void decode(Path file, IPCMConsumer consumer) throws IOException {
+		try (var input = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+			decode(input, consumer);
+		}
+	}
+
+	/**
+	 * Computes the duration (in seconds) from the header, without reading the
+	 * samples.
+	 * 
+	 * @return The duration, or <code>-1</code> if it is not a supported WAV file.
+	 */
+	public static double readDuration(Path file) {
+		try (var input = new BufferedInputStream(Files.newInputStream(file))) {
+			var format = readHeader(input);
+			if (format == null || format.dataSize < 0) {
+				return -1;
+			}
+			return (double) (format.dataSize / format.blockAlign) / format.sampleRate;
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	static class Format {
+		int tag;
+		int channels;
+		int sampleRate;
+		int blockAlign;
+		int bits;
+		/**
+		 * The size of the data chunk, or <code>-1</code> if it should be read until
+		 * the end of the stream.
+		 */
+		long dataSize;
+	}
+
+	/**
+	 * Reads the chunks until the start of the <code>data</code> chunk.
+	 * 
+	 * @return The format, or <code>null</code> if it is not a WAV stream.
+	 */
+	static Format readHeader(InputStream input) throws IOException {
+		var header = input.readNBytes(12);
+
+		if (header.length < 12 || !isTag(header, 0, "RIFF") || !isTag(header, 8, "WAVE")) {
+			return null;
+		}
+
+		Format format = null;
+		var chunk = new byte[8];
+
+		while (true) {
+			if (input.readNBytes(chunk, 0, 8) < 8) {
+				throw new EOFException("Missing WAV data chunk");
+			}
+
+			var size = readInt(chunk, 4) & 0xFFFF_FFFFL;
+
+			if (isTag(chunk, 0, "fmt ")) {
+				var fmt = input.readNBytes((int) size);
+
+				if (fmt.length < 16) {
+					throw new EOFException("Truncated WAV format chunk");
+				}
+
+				format = new Format();
+				format.tag = readShort(fmt, 0);
+				format.channels = readShort(fmt, 2);
+				format.sampleRate = readInt(fmt, 4);
+				format.blockAlign = readShort(fmt, 12);
+				format.bits = readShort(fmt, 14);
+
+				if (format.tag == FORMAT_EXTENSIBLE && fmt.length >= 26) {
+					// the first two bytes of the sub-format GUID are the format tag
+					format.tag = readShort(fmt, 24);
+				}
+
+				skipPadding(input, size);
+
+			} else if (isTag(chunk, 0, "data")) {
+
+				if (format == null) {
+					throw new IOException("WAV data chunk before the format chunk");
+				}
+
+				format.dataSize = size == 0 || size == 0xFFFF_FFFFL ? -1 : size;
+
+				return format;
+
+			} else {
+				skipFully(input, size + (size & 1));
+			}
+		}
+	}
+
+	public static void decode(InputStream input, IPCMConsumer consumer) throws IOException {
+		var format = readHeader(input);
+
+		if (format == null) {
+			throw new IOException("It is not a WAV file");
+		}
+
+		var bytesPerSample = format.bits / 8;
+
+		if (format.channels <= 0 || format.sampleRate <= 0 || bytesPerSample <= 0
+				|| format.blockAlign < bytesPerSample * format.channels) {
+			throw new IOException("Invalid WAV format");
+		}
+
+		var supported = format.tag == FORMAT_PCM && format.bits >= 8 && format.bits <= 32 && format.bits % 8 == 0
+				|| format.tag == FORMAT_FLOAT && (format.bits == 32 || format.bits == 64);
+
+		if (!supported) {
+			throw new IOException(
+					"Unsupported WAV format (tag " + format.tag + ", " + format.bits + " bits per sample)");
+		}
+
+		var channels = format.channels;
+		var blockAlign = format.blockAlign;
+
+		consumer.start(format.sampleRate, channels, format.dataSize < 0 ? -1 : format.dataSize / blockAlign);
+
+		var buf = new byte[BLOCK_FRAMES * blockAlign];
+		var samples = new float[BLOCK_FRAMES * channels];
+		var remaining = format.dataSize < 0 ? Long.MAX_VALUE : format.dataSize;
+
+		while (remaining >= blockAlign) {
+			var len = input.readNBytes(buf, 0, (int) Math.min(buf.length, remaining / blockAlign * blockAlign));
+
+			var frames = len / blockAlign;
+
+			if (frames == 0) {
+				break;
+			}
+
+			remaining -= len;
+
+			var k = 0;
+			for (int f = 0; f < frames; f++) {
+				var offset = f * blockAlign;
+				for (int c = 0; c < channels; c++) {
+					samples[k++] = readSample(buf, offset + c * bytesPerSample, format);
+				}
+			}
+
+			consumer.samples(samples, frames);
+
+			if (len < buf.length && format.dataSize < 0) {
+				// end of the stream
+				break;
+			}
+		}
+	}
+
+	private static float readSample(byte[] buf, int i, Format format) {
+		if (format.tag == FORMAT_FLOAT) {
+			if (format.bits == 32) {
+				return Float.intBitsToFloat(readInt(buf, i));
+			}
+
+			var bits = readInt(buf, i) & 0xFFFF_FFFFL | (long) readInt(buf, i + 4) << 32;
+			return (float) Double.longBitsToDouble(bits);
+		}
+
+		switch (format.bits) {
+		case 8:
+			return ((buf[i] & 0xFF) - 128) / 128f;
+		case 16:
+			return (short) readShort(buf, i) / 32768f;
+		case 24:
+			return ((buf[i] & 0xFF) | (buf[i + 1] & 0xFF) << 8 | buf[i + 2] << 16) / 8388608f;
+		default:
+			return readInt(buf, i) / 2147483648f;
+		}
+	}
+
+	private static boolean isTag(byte[] buf, int i, String tag) {
+		for (int j = 0; j < 4; j++) {
+			if (buf[i + j] != tag.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int readShort(byte[] buf, int i) {
+		return (buf[i] & 0xFF) | (buf[i + 1] & 0xFF) << 8;
+	}
+
+	private static int readInt(byte[] buf, int i) {
+		return (buf[i] & 0xFF) | (buf[i + 1] & 0xFF) << 8 | (buf[i + 2] & 0xFF) << 16 | (buf[i + 3] & 0xFF) << 24;
+	}
+
+	private static void skipPadding(InputStream input, long size) throws IOException {
+		if ((size & 1) == 1) {
+			skipFully(input, 1);
+		}
+	}
+
+	private static void skipFully(InputStream input, long n) throws IOException {
+		while (n > 0) {
+			var skipped = input.skip(n);
+			if (skipped <= 0) {
+				if (input.read() == -1) {
+					throw new EOFException();
+				}
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+}
@@ -317,16 +317,16 @@ public class AudioSpriteCore {
 				}
 			}
 
+			monitor.subTask("Making waves...");
+
 			for (IFile file : model.getResources()) {
-				monitor.subTask("Making waves of " + file.getName() + "...");
 				file.refreshLocal(IResource.DEPTH_ONE, monitor);
 				AudioCore.removeSoundProperties(file);
-				AudioCore.getSoundWavesFile(file);
-				monitor.worked(1);
-				AudioCore.getSoundDuration(file);
-				monitor.worked(1);
 			}
 
+			AudioCore.makeSoundWavesAndMetadata(model.getResources());
+			monitor.worked(model.getResources().size() * 2);
+
 			return jsonAudioSpritesFile;
 		} catch (Exception e) {
 			for (java.nio.file.Path file : cancelFiles) {
@@ -0,0 +1,152 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.bmpfont.core;
+
+import static java.lang.System.out;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import phasereditor.bmpfont.core.BitmapFontModel.Align;
+import phasereditor.bmpfont.core.BitmapFontModel.RasterRenderer;
+import phasereditor.bmpfont.core.BitmapFontModel.RenderArgs;
+
+/**
+ * Lays out and draws 1000 labels with the Desyrel font (and a random texture).
+ * It shows the time of the layouts (computed and cached), and the time to draw
+ * the labels with <code>Graphics2D</code> and with the {@link RasterRenderer}.
+ * 
+ * @author arian
+ *
+ */
+public class BitmapFontBenchmark {
+
+	private static final int LABELS = 1000;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		BitmapFontModel font;
+
+		try (var input = BitmapFontBenchmark.class.getResourceAsStream("desyrel.xml")) {
+			font = BitmapFontModel.createFromXml(input);
+		}
+
+		var texture = createTexture();
+		var texturePixels = ((DataBufferInt) texture.getRaster().getDataBuffer()).getData();
+
+		var labels = createLabels();
+
+		for (int round = 0; round < ROUNDS; round++) {
+			out.println("Round " + (round + 1));
+
+			// the first round computes the layouts, the others get them from the cache
+
+			var t = System.nanoTime();
+			var chars = 0;
+
+			for (var label : labels) {
+				chars += font.getLayout(label).getCharCount();
+			}
+
+			print("layout", t, chars);
+
+			t = System.nanoTime();
+
+			for (var label : labels) {
+				var layout = font.getLayout(label);
+				var img = new BufferedImage(Math.max(1, layout.getWidth()), Math.max(1, layout.getHeight()),
+						BufferedImage.TYPE_INT_ARGB);
+				var g2 = img.createGraphics();
+
+				layout.render((c, x, y, width, height, srcX, srcY, srcW, srcH) -> g2.drawImage(texture, x, y,
+						x + width, y + height, srcX, srcY, srcX + srcW, srcY + srcH, null));
+
+				g2.dispose();
+			}
+
+			print("draw Graphics2D", t, chars);
+
+			t = System.nanoTime();
+
+			for (var label : labels) {
+				var layout = font.getLayout(label);
+				var w = Math.max(1, layout.getWidth());
+				var h = Math.max(1, layout.getHeight());
+				var img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+				var pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+
+				layout.render(new RasterRenderer(texturePixels, texture.getWidth(), texture.getHeight(), pixels, w, h));
+			}
+
+			print("draw raster", t, chars);
+		}
+	}
+
+	private static void print(String name, long start, int chars) {
+		var time = (System.nanoTime() - start) / 1_000_000.0;
+		out.println(String.format("  %-16s %8.2fms  %6.2fns/char", name, time, time * 1_000_000 / chars));
+	}
+
+	private static List<RenderArgs> createLabels() {
+		var random = new Random(1);
+		var words = new String[] { "Score", "Level", "Game Over", "Press Start", "Lives", "High Score", "Player",
+				"Time", "Bonus", "Ready?", "WAVE", "Coins", "Quit", "Options", "AVATAR" };
+		var labels = new ArrayList<RenderArgs>();
+
+		for (int i = 0; i < LABELS; i++) {
+			var sb = new StringBuilder();
+			var n = 1 + random.nextInt(6);
+
+			for (int j = 0; j < n; j++) {
+				if (j > 0) {
+					sb.append(random.nextInt(5) == 0 ? "\n" : " ");
+				}
+				sb.append(words[random.nextInt(words.length)]);
+			}
+
+			sb.append(": ").append(random.nextInt(100_000));
+
+			var args = new RenderArgs(sb.toString(), 16 + random.nextInt(80), random.nextBoolean() ? 0 : 400,
+					Align.values()[random.nextInt(3)]);
+			args.setLetterSpacing(random.nextInt(3) - 1);
+			labels.add(args);
+		}
+
+		return labels;
+	}
+
+	private static BufferedImage createTexture() {
+		var random = new Random(2);
+		var texture = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+		var pixels = ((DataBufferInt) texture.getRaster().getDataBuffer()).getData();
+
+		for (int i = 0; i < pixels.length; i++) {
+			var alpha = random.nextInt(4) == 0 ? 0 : 255;
+			pixels[i] = alpha << 24 | random.nextInt(0xFFFFFF);
+		}
+
+		return texture;
+	}
+}
@@ -23,9 +23,12 @@ package phasereditor.bmpfont.core;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -223,11 +226,32 @@ public class BitmapFontModel {
 
 	}
 
+	/**
+	 * The number of layouts cached by each font.
+	 */
+	public static final int LAYOUT_CACHE_SIZE = Integer.getInteger("BitmapFontModel.LAYOUT_CACHE_SIZE", 1024)
+			.intValue();
+
 	private Map<Integer, CharTag> _chars;
 	private CommonTag _commonTag;
 	private InfoTag _infoTag;
 	private Map<String, KerningTag> _kernings;
 
+	// the compiled font, used by the layout
+
+	private CharTag[] _glyphs;
+	private int _fallbackChar;
+	private KerningTable _kerningTable;
+
+	private final Map<LayoutKey, Layout> _layoutCache = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<LayoutKey, Layout> eldest) {
+			return size() > LAYOUT_CACHE_SIZE;
+		}
+	};
+
 	public static BitmapFontModel createFromXml(InputStream input) throws Exception {
 		BitmapFontModel model = new BitmapFontModel();
 		model.initXml(input);
@@ -311,6 +335,7 @@ public class BitmapFontModel {
 			}
 		}
 
+		compile();
 	}
 
 	public static BitmapFontModel createFromJson(InputStream input) throws Exception {
@@ -385,6 +410,108 @@ public class BitmapFontModel {
 			}
 		}
 
+		compile();
+	}
+
+	/**
+	 * Builds the tables used by the layout: the chars in an array indexed by the
+	 * char code, and the kernings in a hash table of packed <code>long</code>
+	 * keys.
+	 */
+	private void compile() {
+		var maxId = -1;
+
+		for (var id : _chars.keySet()) {
+			if (id <= Character.MAX_VALUE) {
+				maxId = Math.max(maxId, id);
+			}
+		}
+
+		_glyphs = new CharTag[maxId + 1];
+
+		for (var charTag : _chars.values()) {
+			var id = charTag.getId();
+			if (id >= 0 && id <= maxId) {
+				_glyphs[id] = charTag;
+			}
+		}
+
+		// the same char of the old map lookup, when the space is missing
+		_fallbackChar = _chars.isEmpty() ? ' ' : _chars.keySet().iterator().next();
+
+		_kerningTable = new KerningTable(_kernings.size());
+
+		for (var kerning : _kernings.values()) {
+			_kerningTable.put(kerning.getFirst(), kerning.getSecond(), kerning.getAmount());
+		}
+
+		synchronized (_layoutCache) {
+			_layoutCache.clear();
+		}
+	}
+
+	private CharTag getGlyph(int c) {
+		return c >= 0 && c < _glyphs.length ? _glyphs[c] : null;
+	}
+
+	/**
+	 * An open addressing hash table of kerning amounts, the key is
+	 * <code>first << 32 | second</code>.
+	 */
+	private static class KerningTable {
+		private static final long EMPTY = Long.MIN_VALUE;
+
+		private long[] _keys;
+		private int[] _amounts;
+		private int _mask;
+
+		public KerningTable(int size) {
+			var capacity = Integer.highestOneBit(Math.max(4, size * 2) - 1) << 1;
+			_keys = new long[capacity];
+			_amounts = new int[capacity];
+			_mask = capacity - 1;
+			Arrays.fill(_keys, EMPTY);
+		}
+
+		private static long key(int first, int second) {
+			return (long) first << 32 | second & 0xFFFFFFFFL;
+		}
+
+		private int slot(long key) {
+			var h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ h >>> 32) & _mask;
+		}
+
+		public void put(int first, int second, int amount) {
+			var key = key(first, second);
+			var i = slot(key);
+
+			while (_keys[i] != EMPTY && _keys[i] != key) {
+				i = i + 1 & _mask;
+			}
+
+			_keys[i] = key;
+			_amounts[i] = amount;
+		}
+
+		public int get(int first, int second) {
+			var key = key(first, second);
+			var i = slot(key);
+
+			while (true) {
+				var k = _keys[i];
+
+				if (k == key) {
+					return _amounts[i];
+				}
+
+				if (k == EMPTY) {
+					return 0;
+				}
+
+				i = i + 1 & _mask;
+			}
+		}
 	}
 
 	public String getInfoFace() {
@@ -511,19 +638,220 @@ public class BitmapFontModel {
 
 	}
 
+	/**
+	 * The chars of a text, placed and scaled, ready to be rendered. It is
+	 * immutable, so it is shared by the renders of the same arguments.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class Layout {
+		private static final int STRIDE = 8;
+
+		private char[] _chars;
+		// x, y, width, height, srcX, srcY, srcW, srcH
+		private int[] _data;
+		private int[] _lineEnds;
+		private int _width;
+		private int _height;
+
+		Layout(List<LineRenderInfo> lines) {
+			var count = 0;
+
+			for (var line : lines) {
+				count += line.size();
+			}
+
+			_chars = new char[count];
+			_data = new int[count * STRIDE];
+			_lineEnds = new int[lines.size()];
+
+			var i = 0;
+			var lineIndex = 0;
+
+			for (var line : lines) {
+				for (var c : line) {
+					_chars[i] = c.c;
+
+					var k = i * STRIDE;
+					_data[k] = c.x;
+					_data[k + 1] = c.y;
+					_data[k + 2] = c.width;
+					_data[k + 3] = c.height;
+					_data[k + 4] = c.srcX;
+					_data[k + 5] = c.srcY;
+					_data[k + 6] = c.srcW;
+					_data[k + 7] = c.srcH;
+
+					_width = Math.max(_width, c.x + c.width);
+					_height = Math.max(_height, c.y + c.height);
+
+					i++;
+				}
+
+				_lineEnds[lineIndex++] = i;
+			}
+		}
+
+		/**
+		 * @return The right-most pixel of the chars, like the
+		 *         {@link MetricsRenderer}.
+		 */
+		public int getWidth() {
+			return _width;
+		}
+
+		/**
+		 * @return The bottom-most pixel of the chars, like the
+		 *         {@link MetricsRenderer}.
+		 */
+		public int getHeight() {
+			return _height;
+		}
+
+		public int getCharCount() {
+			return _chars.length;
+		}
+
+		public void render(BitmapFontRenderer renderer) {
+			renderer.renderStart();
+
+			var i = 0;
+
+			for (var lineEnd : _lineEnds) {
+				renderer.lineStart();
+
+				for (; i < lineEnd; i++) {
+					var k = i * STRIDE;
+					var d = _data;
+					renderer.render(_chars[i], d[k], d[k + 1], d[k + 2], d[k + 3], d[k + 4], d[k + 5], d[k + 6],
+							d[k + 7]);
+				}
+
+				renderer.lineEnd();
+			}
+
+			renderer.renderEnd();
+		}
+	}
+
+	/**
+	 * The key of the layout cache.
+	 */
+	private static class LayoutKey {
+		private String _text;
+		private int _fontSize;
+		private int _maxWidth;
+		private Align _align;
+		private float _letterSpacing;
+		private int _hash;
+
+		public LayoutKey(RenderArgs args) {
+			_text = args.getText();
+			_fontSize = args.getFontSize();
+			_maxWidth = args.getMaxWidth();
+			_align = args.getAlign();
+			_letterSpacing = args.getLetterSpacing();
+			_hash = Objects.hash(_text, _fontSize, _maxWidth, _align, _letterSpacing);
+		}
+
+		@Override
+		public int hashCode() {
+			return _hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof LayoutKey)) {
+				return false;
+			}
+
+			var other = (LayoutKey) obj;
+
+			return _hash == other._hash && _fontSize == other._fontSize && _maxWidth == other._maxWidth
+					&& _align == other._align && Float.compare(_letterSpacing, other._letterSpacing) == 0
+					&& Objects.equals(_text, other._text);
+		}
+	}
+
 	public void render(RenderArgs args, BitmapFontRenderer renderer) {
+		getLayout(args).render(renderer);
+	}
+
+	/**
+	 * The layout of the text. The layouts are cached, so texts that are rendered
+	 * often with the same arguments are not computed again.
+	 */
+	public Layout getLayout(RenderArgs args) {
+		var key = new LayoutKey(args);
+
+		synchronized (_layoutCache) {
+			var layout = _layoutCache.get(key);
+
+			if (layout != null) {
+				return layout;
+			}
+		}
+
+		var layout = new Layout(computeLines(args));
+
+		synchronized (_layoutCache) {
+			_layoutCache.put(key, layout);
+		}
+
+		return layout;
+	}
+
+	/**
+	 * Replaces the line breaks by <code>\n</code>, like
+	 * <code>replaceAll("\\R", "\n")</code>.
+	 */
+	private static String normalizeLineBreaks(String text) {
+		var len = text.length();
+		var i = 0;
+
+		while (i < len && !isLineBreak(text.charAt(i))) {
+			i++;
+		}
+
+		if (i == len) {
+			return text;
+		}
+
+		var sb = new StringBuilder(len);
+		sb.append(text, 0, i);
+
+		for (; i < len; i++) {
+			var c = text.charAt(i);
+
+			if (c == '\r' && i + 1 < len && text.charAt(i + 1) == '\n') {
+				i++;
+			}
 
-		String text = args.getText();
-		text = text.replaceAll("\\R", "\n");
+			sb.append(isLineBreak(c) ? '\n' : c);
+		}
+
+		return sb.toString();
+	}
+
+	private static boolean isLineBreak(char c) {
+		return c >= '\n' && c <= '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private List<LineRenderInfo> computeLines(RenderArgs args) {
 
-		String normalText = "";
+		String text = normalizeLineBreaks(args.getText());
+
+		char[] normalText;
 
 		{
-			StringBuilder sb = new StringBuilder();
-			for (int c : text.toCharArray()) {
-				sb.append(_chars.containsKey(c) || c == '\n' ? (char) c : ' ');
+			normalText = text.toCharArray();
+			for (int i = 0; i < normalText.length; i++) {
+				var c = normalText[i];
+				if (c != '\n' && getGlyph(c) == null) {
+					normalText[i] = ' ';
+				}
 			}
-			normalText = sb.toString();
 		}
 
 		List<LineRenderInfo> lines;
@@ -542,10 +870,10 @@ public class BitmapFontModel {
 			int lastSpaceIndex = -1;
 			int lineStart = 0;
 
-			int len = normalText.length();
+			int len = normalText.length;
 
 			for (int i = 0; i < len; i++) {
-				int c = normalText.charAt(i);
+				int c = normalText[i];
 				int first = c;
 				int second = i == len - 1 ? -1 : text.charAt(i + 1);
 
@@ -559,14 +887,10 @@ public class BitmapFontModel {
 					continue;
 				}
 
-				CharTag charTag = _chars.get(c);
+				CharTag charTag = getGlyph(c);
 
 				if (charTag == null) {
-					charTag = _chars.get((int) ' ');
-				}
-
-				if (charTag == null) {
-					c = _chars.keySet().iterator().next();
+					c = _fallbackChar;
 					charTag = _chars.get(c);
 				}
 
@@ -583,10 +907,7 @@ public class BitmapFontModel {
 				int k = 0;
 
 				if (second != -1) {
-					KerningTag kerning = _kernings.get(first + "-" + second);
-					if (kerning != null) {
-						k = kerning.getAmount();
-					}
+					k = _kerningTable.get(first, second);
 				}
 
 				x += charTag.getXadvance() + k;
@@ -595,22 +916,12 @@ public class BitmapFontModel {
 				charRenderInfo.x2 = x;
 
 				if (wrap && x > maxWidth && lastSpaceIndex != -1) {
-					// get the new line to add, from the line start to the current position
-					// String newLine = normalText.substring(i + 1 - line.size(), lastSpaceIndex);
-
 					// remove the line chars from the last space
-					line.removeAll(line.subList(lastSpaceIndex - lineStart, line.size()));
+					line.subList(lastSpaceIndex - lineStart, line.size()).clear();
 
 					// remove trailing spaces
-					while (true) {
-						if (!line.isEmpty()) {
-							int last = line.size() - 1;
-							if (line.get(last).c == ' ') {
-								line.remove(last);
-							} else {
-								break;
-							}
-						}
+					while (!line.isEmpty() && line.get(line.size() - 1).c == ' ') {
+						line.remove(line.size() - 1);
 					}
 
 					// move the cursor to the last space position
@@ -705,22 +1016,7 @@ public class BitmapFontModel {
 			}
 		}
 
-		// render lines
-
-		renderer.renderStart();
-
-		for (var line : lines) {
-
-			renderer.lineStart();
-
-			for (var c : line) {
-				renderer.render(c.c, c.x, c.y, c.width, c.height, c.srcX, c.srcY, c.srcW, c.srcH);
-			}
-
-			renderer.lineEnd();
-		}
-
-		renderer.renderEnd();
+		return lines;
 	}
 
 	public static class MetricsRenderer implements BitmapFontRenderer {
@@ -749,14 +1045,164 @@ public class BitmapFontModel {
 
 	}
 
+	/**
+	 * Draws the chars directly into the pixels of an image, taking them from the
+	 * pixels of the font texture. Both are in the ARGB format, not
+	 * pre-multiplied. The chars are blended over the image, and scaled with the
+	 * nearest neighbor, like a <code>Graphics2D</code> with the default hints.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class RasterRenderer implements BitmapFontRenderer {
+		private int[] _texture;
+		private int _textureWidth;
+		private int _textureHeight;
+		private int[] _pixels;
+		private int _width;
+		private int _height;
+		private int _translateX;
+		private int _translateY;
+		private int _clipX;
+		private int _clipY;
+		private int _clipX2;
+		private int _clipY2;
+		private int[] _columns = new int[256];
+
+		public RasterRenderer(int[] texture, int textureWidth, int textureHeight, int[] pixels, int width,
+				int height) {
+			_texture = texture;
+			_textureWidth = textureWidth;
+			_textureHeight = textureHeight;
+			_pixels = pixels;
+			_width = width;
+			_height = height;
+			_clipX2 = width;
+			_clipY2 = height;
+		}
+
+		/**
+		 * Sets the area of the image where the chars are drawn.
+		 */
+		public void setClip(int x, int y, int width, int height) {
+			_clipX = Math.max(0, x);
+			_clipY = Math.max(0, y);
+			_clipX2 = Math.min(_width, x + width);
+			_clipY2 = Math.min(_height, y + height);
+		}
+
+		/**
+		 * Sets the offset added to the position of the chars.
+		 */
+		public void setTranslate(int x, int y) {
+			_translateX = x;
+			_translateY = y;
+		}
+
+		@Override
+		public void render(char c, int x, int y, int width, int height, int srcX, int srcY, int srcW, int srcH) {
+			if (width <= 0 || height <= 0 || srcW <= 0 || srcH <= 0) {
+				return;
+			}
+
+			x += _translateX;
+			y += _translateY;
+
+			var x1 = Math.max(x, _clipX);
+			var y1 = Math.max(y, _clipY);
+			var x2 = Math.min(x + width, _clipX2);
+			var y2 = Math.min(y + height, _clipY2);
+
+			if (x1 >= x2 || y1 >= y2) {
+				return;
+			}
+
+			// the texture column of each pixel of the char
+
+			var columnCount = x2 - x1;
+
+			if (_columns.length < columnCount) {
+				_columns = new int[columnCount * 2];
+			}
+
+			var columns = _columns;
+
+			for (int dx = x1; dx < x2; dx++) {
+				var sx = srcX + (int) ((2L * (dx - x) + 1) * srcW / (2L * width));
+				columns[dx - x1] = sx < 0 || sx >= _textureWidth ? -1 : sx;
+			}
+
+			var texture = _texture;
+			var pixels = _pixels;
+
+			for (int dy = y1; dy < y2; dy++) {
+				var sy = srcY + (int) ((2L * (dy - y) + 1) * srcH / (2L * height));
+
+				if (sy < 0 || sy >= _textureHeight) {
+					continue;
+				}
+
+				var srcRow = sy * _textureWidth;
+				var i = dy * _width + x1;
+
+				for (int j = 0; j < columnCount; j++, i++) {
+					var sx = columns[j];
+
+					if (sx != -1) {
+						var src = texture[srcRow + sx];
+
+						if (src >>> 24 == 0xFF) {
+							pixels[i] = src;
+						} else if (src >>> 24 != 0) {
+							pixels[i] = blend(src, pixels[i]);
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * The source-over composition of two ARGB pixels.
+		 */
+		private static int blend(int src, int dst) {
+			var sa = src >>> 24;
+
+			if (sa == 0xFF) {
+				return src;
+			}
+
+			if (sa == 0) {
+				return dst;
+			}
+
+			var da = dst >>> 24;
+
+			if (da == 0) {
+				return src;
+			}
+
+			var dw = (da * (255 - sa) + 127) / 255;
+			var oa = sa + dw;
+			var half = oa / 2;
+
+			var r = ((src >> 16 & 0xFF) * sa + (dst >> 16 & 0xFF) * dw + half) / oa;
+			var g = ((src >> 8 & 0xFF) * sa + (dst >> 8 & 0xFF) * dw + half) / oa;
+			var b = ((src & 0xFF) * sa + (dst & 0xFF) * dw + half) / oa;
+
+			return oa << 24 | r << 16 | g << 8 | b;
+		}
+	}
+
 	public MetricsRenderer metrics(String text) {
 		RenderArgs args = new RenderArgs(text);
 		return metrics(args);
 	}
 
 	public MetricsRenderer metrics(RenderArgs args) {
+		var layout = getLayout(args);
 		MetricsRenderer result = new MetricsRenderer();
-		render(args, result);
+		result._width = layout.getWidth();
+		result._height = layout.getHeight();
 		return result;
 	}
 
@@ -21,9 +21,16 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.canvas.core;
 
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IPath;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 
+import phasereditor.assetpack.core.AssetPackCore;
 import phasereditor.project.core.FileDataCache;
 
 /**
@@ -39,6 +46,8 @@ public class CanvasFileDataCache extends FileDataCache<CanvasFile> {
 			return null;
 		}
 
+		updateAssetReferences(file);
+
 		if (type.isPrefab()) {
 			return new Prefab(file, type);
 		}
@@ -46,8 +55,40 @@ public class CanvasFileDataCache extends FileDataCache<CanvasFile> {
 		return new CanvasFile(file, type);
 	}
 
+	/**
+	 * Registers the keys of the assets referenced by the canvas in the asset
+	 * index, so the reference search only has to open the files that contain the
+	 * key.
+	 */
+	private static void updateAssetReferences(IFile file) {
+		var index = AssetPackCore.getAssetIndex(file.getProject());
+
+		Set<String> keys = new HashSet<>();
+
+		try (InputStream contents = file.getContents()) {
+			JSONObject data = new JSONObject(new JSONTokener(contents));
+
+			CanvasCore.forEachJSONReference(data, ref -> {
+				var key = ref.optString("asset", null);
+				if (key != null) {
+					keys.add(key);
+				}
+			});
+		} catch (Exception e) {
+			CanvasCore.logError(e);
+		}
+
+		index.updateFileReferences(file, keys);
+	}
+
 	@Override
 	protected void updateDataWithMove(CanvasFile data, IFile file, IPath movedFromPath, IPath movedToPath) {
 		data.setFile(file);
+		AssetPackCore.moveFileReferences(movedFromPath, movedToPath);
+	}
+
+	@Override
+	protected void dataRemoved(IPath path, CanvasFile data) {
+		AssetPackCore.getAssetIndex(data.getFile().getProject()).removeFileReferences(path);
 	}
 }
@@ -107,7 +107,7 @@ public abstract class JSLikeCanvasCodeGenerator extends BaseCodeGenerator {
 	protected void internalGenerate() {
 		{
 			String content = getReplaceContent();
-			int i = content.indexOf(START_GENERATED_CODE);
+			int i = indexOfSection(START_GENERATED_CODE);
 			if (i >= 0) {
 				line(content.substring(0, i) + START_GENERATED_CODE);
 			} else {
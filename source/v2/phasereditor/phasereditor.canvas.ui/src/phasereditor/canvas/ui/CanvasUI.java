@@ -88,6 +88,7 @@ import javafx.scene.layout.CornerRadii;
 import javafx.scene.paint.Color;
 import javafx.scene.transform.Scale;
 import phasereditor.assetpack.core.AssetModel;
+import phasereditor.assetpack.core.AssetPackCore;
 import phasereditor.assetpack.core.FindAssetReferencesResult;
 import phasereditor.assetpack.core.IAssetFrameModel;
 import phasereditor.assetpack.core.IAssetKey;
@@ -256,9 +257,18 @@ public class CanvasUI {
 
 		List<CanvasFile> cfiles = CanvasCore.getCanvasFileCache().getProjectData(project);
 
+		// only the files that reference the asset key are opened
+		Set<IFile> referencingFiles = AssetPackCore.getAssetIndex(project)
+				.findReferencingFiles(assetKey.getAsset().getKey());
+
 		monitor.beginTask("Find prefab references in files", cfiles.size());
 
 		for (CanvasFile cfile : cfiles) {
+			if (!referencingFiles.contains(cfile.getFile())) {
+				monitor.worked(1);
+				continue;
+			}
+
 			List<IAssetReference> fileRefs = findInFileMethod.apply(assetKey, cfile.getFile()); // CanvasCore.findAssetKeyReferencesInFileContent(assetKey,
 																								// cfile.getFile());
 			result.addAll(fileRefs);
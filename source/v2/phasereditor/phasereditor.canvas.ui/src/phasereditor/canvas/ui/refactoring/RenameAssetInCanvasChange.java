@@ -23,7 +23,9 @@ package phasereditor.canvas.ui.refactoring;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -91,9 +93,15 @@ public class RenameAssetInCanvasChange extends Change {
 		IProject project = _file.getProject();
 		List<CanvasFile> cfiles = CanvasCore.getCanvasFileCache().getProjectData(project);
 
-		// update files
+		// update files, only the ones that reference the asset
+
+		Set<IFile> referencingFiles = AssetPackCore.getAssetIndex(project).findReferencingFiles(_initialName);
 
 		for (CanvasFile cfile : cfiles) {
+			if (!referencingFiles.contains(cfile.getFile())) {
+				continue;
+			}
+
 			try {
 				renameInFile(cfile.getFile(), pm);
 			} catch (Exception e) {
@@ -123,16 +131,24 @@ public class RenameAssetInCanvasChange extends Change {
 			data = JSONObject.read(contents);
 		}
 
+		Set<String> keys = new HashSet<>();
+
 		CanvasCore.forEachJSONReference(data, ref -> {
 			String name = ref.getString("asset");
 			if (_initialName.equals(name)) {
 				ref.put("asset", _newName);
+				name = _newName;
 			}
+			keys.add(name);
 		});
 
 		try (ByteArrayInputStream source = new ByteArrayInputStream(data.toString(2).getBytes())) {
 			file.setContents(source, false, false, monitor);
 		}
+
+		// update the index now, the undo change could be performed before the next
+		// build
+		AssetPackCore.getAssetIndex(file.getProject()).updateFileReferences(file, keys);
 	}
 
 	private void renameInModel(CanvasModel canvasModel) throws Exception {
@@ -22,19 +22,20 @@
 package phasereditor.chains.core;
 
 import static java.lang.System.out;
-import static java.util.stream.Collectors.joining;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import phasereditor.chains.core.SearchIndex.Hit;
 import phasereditor.inspect.core.InspectCore;
 import phasereditor.inspect.core.examples.PhaserExampleCategoryModel;
 import phasereditor.inspect.core.examples.PhaserExampleModel;
@@ -53,6 +54,9 @@ public class ChainsModel {
 	private List<PhaserExampleModel> _exampleItems;
 	private List<Line> _examplesLines;
 	private PhaserJsdocModel _jsdoc;
+	private SearchIndex<ChainItem> _chainsIndex;
+	private SearchIndex<PhaserExampleModel> _examplesIndex;
+	private SearchIndex<Line> _examplesLinesIndex;
 
 	public ChainsModel() {
 		_jsdoc = PhaserJsdocModel.getInstance();
@@ -106,6 +110,16 @@ public class ChainsModel {
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+
+		// indexes
+
+		long t = System.currentTimeMillis();
+
+		_chainsIndex = new SearchIndex<>(_chains, ChainItem::getDisplay, true);
+		_examplesIndex = new SearchIndex<>(_exampleItems, PhaserExampleModel::getFullName, false);
+		_examplesLinesIndex = new SearchIndex<>(_examplesLines, line -> line.text, false);
+
+		out.println("Built chains indexes: " + (System.currentTimeMillis() - t) + "ms");
 	}
 
 	private void processCategory(PhaserExampleCategoryModel category) throws IOException {
@@ -132,136 +146,81 @@ public class ChainsModel {
 	}
 
 	public List<Match> searchChains(String aQuery, int limit) {
-		String query = aQuery.toLowerCase();
-		boolean showall = query.trim().length() == 0;
+		return searchChains(aQuery, limit, new NullProgressMonitor());
+	}
 
-		if (query.startsWith("this.")) {
-			query = "scene." + query.substring(5);
-		}
+	/**
+	 * Search the chains. If the monitor is canceled (because there is a new query)
+	 * it returns an empty list.
+	 */
+	public List<Match> searchChains(String aQuery, int limit, IProgressMonitor monitor) {
+		String query = aQuery;
 
-		List<Match> matches = new ArrayList<>();
-		query = quote(query);
-		Pattern pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
-
-		for (ChainItem item : _chains) {
-			Matcher matcher = pattern.matcher(item.getDisplay());
-			if (showall || matcher.matches()) {
-				Match match = new Match();
-				match.item = item;
-				if (showall) {
-					match.start = 0;
-					match.length = 0;
-				} else {
-					match.start = matcher.start(1);
-					match.length = matcher.end(1) - match.start;
-				}
-				matches.add(match);
-				if (matches.size() >= limit) {
-					break;
-				}
-			}
+		if (query.toLowerCase().startsWith("this.")) {
+			query = "scene." + query.substring(5);
 		}
-		return matches;
-	}
 
-	
-	private static String querySpaceToAster(String query) {
-		return  Arrays.stream(query.split(" ")).filter( s -> s.trim().length() > 0).collect(joining("*"));
-	}
-	
-	private static String quote(String query) {
-		var query2 = querySpaceToAster(query);
-		String patternStart = query2.startsWith("*") ? "" : ".*";
-		String patternEnd = query2.endsWith("*") ? "" : ".*";
-
-		// String pattern = query.replace(".", "\\.").replace("*", ".*").replace("(",
-		// "\\(").replace(")", "\\)")
-		// .replace(":", "\\:");
+		var hits = _chainsIndex.search(query, limit, monitor::isCanceled);
 
-		var sb = new StringBuilder();
+		if (hits == null) {
+			return Collections.emptyList();
+		}
 
-		boolean open = false;
+		List<Match> matches = new ArrayList<>();
 
-		for (char c : query2.toCharArray()) {
+		addMatches(hits, matches);
 
-			if (c == '*') {
-				if (open) {
-					sb.append("\\E");
-					sb.append(".*");
-					open = false;
-				} else {
-					sb.append(".*");
-					sb.append("\\Q");
-					open = true;
-				}
-			} else {
-				if (!open) {
-					sb.append("\\Q");
-					open = true;
-				}
-				sb.append(c);
-			}
-		}
+		return matches;
+	}
 
-		if (open) {
-			sb.append("\\E");
+	private static void addMatches(List<? extends Hit<?>> hits, List<Match> matches) {
+		for (var hit : hits) {
+			Match match = new Match();
+			match.item = hit.item;
+			match.start = hit.start;
+			match.length = hit.length;
+			matches.add(match);
 		}
-
-		var pattern = sb.toString();
-
-		return patternStart + "(" + pattern + ")" + patternEnd;
 	}
 
 	public List<Match> searchExamples(String aQuery, int limit) {
-		String query = aQuery.toLowerCase();
+		return searchExamples(aQuery, limit, new NullProgressMonitor());
+	}
+
+	/**
+	 * Search the examples, first in the file names and then in the lines of code.
+	 * If the monitor is canceled (because there is a new query) it returns an
+	 * empty list.
+	 */
+	public List<Match> searchExamples(String query, int limit, IProgressMonitor monitor) {
 		boolean showall = query.trim().length() == 0;
 		List<Match> matches = new ArrayList<>();
+
 		if (query.length() > 1 || showall) {
-			query = quote(query);
-			Pattern pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
 
 			// search of file names
 
-			for (PhaserExampleModel example : _exampleItems) {
-				Matcher matcher = pattern.matcher(example.getFullName());
-				if (showall || matcher.matches()) {
-					Match match = new Match();
-					match.item = example;
-					if (showall) {
-						match.start = 0;
-						match.length = 0;
-					} else {
-						match.start = matcher.start(1);
-						match.length = matcher.end(1) - match.start;
-					}
-					matches.add(match);
-					if (matches.size() >= limit) {
-						break;
-					}
-				}
+			var hits = _examplesIndex.search(query, limit, monitor::isCanceled);
+
+			if (hits == null) {
+				return Collections.emptyList();
 			}
 
+			addMatches(hits, matches);
+
 			// search on lines
 
-			for (Line line : _examplesLines) {
-				if (matches.size() >= limit) {
-					break;
-				}
-				Matcher matcher = pattern.matcher(line.text);
-				if (showall || matcher.matches()) {
-					Match match = new Match();
-					match.item = line;
-					if (showall) {
-						match.start = 0;
-						match.length = 0;
-					} else {
-						match.start = matcher.start(1);
-						match.length = matcher.end(1) - match.start;
-					}
-					matches.add(match);
+			if (matches.size() < limit) {
+				var lineHits = _examplesLinesIndex.search(query, limit - matches.size(), monitor::isCanceled);
+
+				if (lineHits == null) {
+					return Collections.emptyList();
 				}
+
+				addMatches(lineHits, matches);
 			}
 		}
+
 		return matches;
 	}
 
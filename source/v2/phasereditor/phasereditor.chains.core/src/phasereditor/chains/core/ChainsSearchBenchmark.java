@@ -0,0 +1,162 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.chains.core;
+
+import static java.lang.System.out;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Simulates the typing of some queries in the Chains view, over the lines of
+ * the bundled Phaser examples, comparing the regex scan of all the lines with
+ * the {@link SearchIndex}.
+ * <p>
+ * The first argument is the examples folder, by default it is the one of the
+ * <code>phasereditor.resources.phaser.examples</code> project.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("boxing")
+public class ChainsSearchBenchmark {
+
+	private static final String[] QUERIES = { "this.add.sprite", "setvelocity", "physics add", "tweens.add",
+			"input.on pointerdown", "cameras.main.startfollow" };
+
+	private static final int LIMIT = 100;
+
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+		var root = Paths
+				.get(args.length > 0 ? args[0] : "../phasereditor.resources.phaser.examples/phaser3-examples/public/src");
+
+		var lines = readLines(root);
+
+		var t = System.currentTimeMillis();
+		var index = new SearchIndex<>(lines, s -> s, false);
+		out.println(String.format("%d lines, index built in %dms, %d trigrams", lines.size(),
+				System.currentTimeMillis() - t, index.getTrigramCount()));
+
+		// check the index finds the same lines of the regex
+
+		for (var query : QUERIES) {
+			var expected = new HashSet<>(regexSearch(lines, query, Integer.MAX_VALUE));
+			var hits = index.search(query, Integer.MAX_VALUE, () -> false);
+			var found = hits.stream().map(hit -> hit.item).collect(Collectors.toSet());
+
+			if (!expected.equals(found)) {
+				throw new IllegalStateException("Different results for '" + query + "': " + expected.size() + " / "
+						+ found.size());
+			}
+		}
+
+		for (int i = 0; i < 3; i++) {
+			typeQueries(lines, null);
+			typeQueries(lines, index);
+		}
+
+		t = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			typeQueries(lines, null);
+		}
+		var regexTime = (System.nanoTime() - t) / ROUNDS;
+
+		t = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			typeQueries(lines, index);
+		}
+		var indexTime = (System.nanoTime() - t) / ROUNDS;
+
+		var keystrokes = Arrays.stream(QUERIES).mapToInt(String::length).sum();
+
+		out.println(String.format("%d keystrokes, per keystroke: regex %.3fms, index %.3fms (x%.1f)", keystrokes,
+				regexTime / 1e6 / keystrokes, indexTime / 1e6 / keystrokes, (double) regexTime / indexTime));
+	}
+
+	private static int typeQueries(List<String> lines, SearchIndex<String> index) {
+		int count = 0;
+
+		for (var query : QUERIES) {
+			for (int i = 1; i <= query.length(); i++) {
+				var prefix = query.substring(0, i);
+
+				if (index == null) {
+					count += regexSearch(lines, prefix, LIMIT).size();
+				} else {
+					count += index.search(prefix, LIMIT, () -> false).size();
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * The search like it was done before the index.
+	 */
+	private static List<String> regexSearch(List<String> lines, String query, int limit) {
+		var parts = SearchIndex.parseQuery(query);
+		var pattern = Pattern.compile(
+				".*(" + parts.stream().map(Pattern::quote).collect(Collectors.joining(".*")) + ").*",
+				Pattern.CASE_INSENSITIVE);
+
+		var result = new ArrayList<String>();
+
+		for (var line : lines) {
+			if (pattern.matcher(line).matches()) {
+				result.add(line);
+				if (result.size() >= limit) {
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static List<String> readLines(Path root) throws IOException {
+		var files = Files.walk(root).filter(p -> p.toString().endsWith(".js")).sorted().collect(Collectors.toList());
+
+		var result = new ArrayList<String>();
+
+		for (var file : files) {
+			for (var text : Files.readAllLines(file)) {
+				text = text.trim();
+				if (text.length() > 0 && !text.startsWith("//")) {
+					result.add(text);
+				}
+			}
+		}
+
+		return result;
+	}
+}
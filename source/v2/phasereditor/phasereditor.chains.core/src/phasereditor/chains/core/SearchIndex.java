@@ -0,0 +1,499 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.chains.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * A search index over the texts of a list of items, used by the Chains view.
+ * <p>
+ * The query is split in parts (by spaces and <code>*</code>) and an item
+ * matches if all the parts are found in its text, in the same order, ignoring
+ * the case. A trigram index gives the items that contain all the trigrams of
+ * the query, so only those are tested. The hits are ranked: first the items
+ * where the query starts in a word boundary, then the other items, and at the
+ * end, if the index is fuzzy, the items that contain the query characters in
+ * the same order but not together.
+ * <p>
+ * The index remembers the hits of the last query, so if the next query
+ * extends it (like when the user is typing) only those hits are tested.
+ * 
+ * @author arian
+ *
+ */
+public class SearchIndex<T> {
+
+	/**
+	 * Fuzzy matches are computed only for queries with at least this length,
+	 * shorter queries match almost everything.
+	 */
+	private static final int FUZZY_MIN_LENGTH = 3;
+
+	private static final int CHECK_CANCEL_INTERVAL = 1024;
+
+	private static final int TIER_BOUNDARY = 0;
+	private static final int TIER_INNER = 1;
+	private static final int TIER_FUZZY = 2;
+
+	public static class Hit<T> {
+		public T item;
+		public int index;
+		public int start;
+		public int length;
+		public int tier;
+
+		public Hit(T item, int index, int start, int length, int tier) {
+			this.item = item;
+			this.index = index;
+			this.start = start;
+			this.length = length;
+			this.tier = tier;
+		}
+	}
+
+	private List<T> _items;
+	private String[] _texts;
+	private String[] _lowerTexts;
+	private long[] _charMasks;
+	private Map<Long, int[]> _trigrams;
+	private boolean _fuzzy;
+
+	private List<String> _lastParts;
+	private int[] _lastHits;
+	private boolean _lastFuzzy;
+
+	public SearchIndex(List<T> items, Function<T, String> toText, boolean fuzzy) {
+		_items = new ArrayList<>(items);
+		_fuzzy = fuzzy;
+
+		int n = _items.size();
+
+		_texts = new String[n];
+		_lowerTexts = new String[n];
+		_charMasks = new long[n];
+
+		Map<Long, IntList> trigrams = new HashMap<>();
+
+		for (int i = 0; i < n; i++) {
+			var text = toText.apply(_items.get(i));
+			var lower = toLowerCase(text);
+
+			_texts[i] = text;
+			_lowerTexts[i] = lower;
+			_charMasks[i] = charMask(lower);
+
+			for (int j = 0; j + 3 <= lower.length(); j++) {
+				var list = trigrams.computeIfAbsent(trigram(lower, j), k -> new IntList());
+				// the items are visited in order, so a repeated trigram is at the end
+				if (list.size == 0 || list.data[list.size - 1] != i) {
+					list.add(i);
+				}
+			}
+		}
+
+		_trigrams = new HashMap<>(trigrams.size() * 2);
+
+		for (var entry : trigrams.entrySet()) {
+			_trigrams.put(entry.getKey(), entry.getValue().toArray());
+		}
+	}
+
+	public List<T> getItems() {
+		return Collections.unmodifiableList(_items);
+	}
+
+	public int size() {
+		return _items.size();
+	}
+
+	public int getTrigramCount() {
+		return _trigrams.size();
+	}
+
+	/**
+	 * Search the items that match the query.
+	 * 
+	 * @param query
+	 *            The query. If it is empty, the first items are returned.
+	 * @param limit
+	 *            The max number of hits.
+	 * @param canceled
+	 *            Checked in the middle of the search, if it returns
+	 *            <code>true</code> the search is aborted.
+	 * @return The hits, sorted by rank, or <code>null</code> if the search was
+	 *         canceled.
+	 */
+	public synchronized List<Hit<T>> search(String query, int limit, BooleanSupplier canceled) {
+		var parts = parseQuery(query);
+
+		if (parts.isEmpty()) {
+			var hits = new ArrayList<Hit<T>>();
+
+			for (int i = 0; i < _items.size() && hits.size() < limit; i++) {
+				hits.add(new Hit<>(_items.get(i), i, 0, 0, TIER_BOUNDARY));
+			}
+
+			return hits;
+		}
+
+		var fuzzyQuery = _fuzzy ? String.join("", parts) : null;
+
+		if (fuzzyQuery != null && fuzzyQuery.length() < FUZZY_MIN_LENGTH) {
+			fuzzyQuery = null;
+		}
+
+		// the items to test
+
+		int[] candidates = null;
+
+		// the previous hits do not include the fuzzy matches if the previous query
+		// was short
+		if (_lastParts != null && (_lastFuzzy || fuzzyQuery == null) && extendsQuery(parts, _lastParts)) {
+			candidates = _lastHits;
+		}
+
+		BitSet strictCandidates = null;
+
+		{
+			var postings = findPostings(parts);
+
+			if (postings != null) {
+				if (fuzzyQuery == null) {
+					// only the items with all the trigrams can match
+					candidates = candidates == null ? postings : intersect(candidates, postings);
+				} else {
+					// the other items could be fuzzy matches
+					strictCandidates = new BitSet(_items.size());
+					for (int i : postings) {
+						strictCandidates.set(i);
+					}
+				}
+			}
+		}
+
+		var fuzzyMask = fuzzyQuery == null ? 0 : charMask(fuzzyQuery);
+
+		// test the candidates
+
+		var tiers = new IntList[] { new IntList(), new IntList(), new IntList() };
+		var starts = new int[_items.size()];
+		var ends = new int[_items.size()];
+
+		int count = candidates == null ? _items.size() : candidates.length;
+
+		for (int k = 0; k < count; k++) {
+
+			if (k % CHECK_CANCEL_INTERVAL == 0 && canceled.getAsBoolean()) {
+				return null;
+			}
+
+			int i = candidates == null ? k : candidates[k];
+
+			if (strictCandidates == null || strictCandidates.get(i)) {
+				var tier = matchParts(i, parts, starts, ends);
+
+				if (tier != -1) {
+					tiers[tier].add(i);
+					continue;
+				}
+			}
+
+			if (fuzzyQuery != null && (_charMasks[i] & fuzzyMask) == fuzzyMask
+					&& matchFuzzy(i, fuzzyQuery, starts, ends)) {
+				tiers[TIER_FUZZY].add(i);
+			}
+		}
+
+		// remember all the hits, for the next query
+
+		var all = new IntList();
+		for (var tier : tiers) {
+			for (int j = 0; j < tier.size; j++) {
+				all.add(tier.data[j]);
+			}
+		}
+		var allHits = all.toArray();
+		Arrays.sort(allHits);
+
+		_lastParts = parts;
+		_lastHits = allHits;
+		_lastFuzzy = fuzzyQuery != null;
+
+		// the hits are ranked by tier, and in a tier, by the order of the items
+
+		var hits = new ArrayList<Hit<T>>();
+
+		for (int t = 0; t < tiers.length && hits.size() < limit; t++) {
+			var tier = tiers[t];
+			for (int j = 0; j < tier.size && hits.size() < limit; j++) {
+				int i = tier.data[j];
+				hits.add(new Hit<>(_items.get(i), i, starts[i], ends[i] - starts[i], t));
+			}
+		}
+
+		return hits;
+	}
+
+	/**
+	 * Tests if the parts are found in the text of the item, in order.
+	 * 
+	 * @return The tier of the match or <code>-1</code> if it does not match.
+	 */
+	private int matchParts(int i, List<String> parts, int[] starts, int[] ends) {
+		var lower = _lowerTexts[i];
+		var first = parts.get(0);
+
+		int firstStart = -1;
+		int firstEnd = -1;
+
+		int pos = lower.indexOf(first);
+
+		while (pos != -1) {
+			int end = matchRest(lower, parts, pos + first.length());
+
+			if (end == -1) {
+				// if the rest is not found after this one, it is not found after the next
+				// ones
+				break;
+			}
+
+			if (firstStart == -1) {
+				firstStart = pos;
+				firstEnd = end;
+			}
+
+			if (isBoundary(_texts[i], pos)) {
+				starts[i] = pos;
+				ends[i] = end;
+				return TIER_BOUNDARY;
+			}
+
+			pos = lower.indexOf(first, pos + 1);
+		}
+
+		if (firstStart == -1) {
+			return -1;
+		}
+
+		starts[i] = firstStart;
+		ends[i] = firstEnd;
+
+		return TIER_INNER;
+	}
+
+	private static int matchRest(String lower, List<String> parts, int from) {
+		int end = from;
+
+		for (int j = 1; j < parts.size(); j++) {
+			var part = parts.get(j);
+			int pos = lower.indexOf(part, end);
+
+			if (pos == -1) {
+				return -1;
+			}
+
+			end = pos + part.length();
+		}
+
+		return end;
+	}
+
+	private boolean matchFuzzy(int i, String query, int[] starts, int[] ends) {
+		var lower = _lowerTexts[i];
+
+		int start = -1;
+		int pos = -1;
+
+		for (int j = 0; j < query.length(); j++) {
+			pos = lower.indexOf(query.charAt(j), pos + 1);
+
+			if (pos == -1) {
+				return false;
+			}
+
+			if (start == -1) {
+				start = pos;
+			}
+		}
+
+		starts[i] = start;
+		ends[i] = pos + 1;
+
+		return true;
+	}
+
+	private static boolean isBoundary(String text, int pos) {
+		if (pos == 0) {
+			return true;
+		}
+
+		char prev = text.charAt(pos - 1);
+		char c = text.charAt(pos);
+
+		if (!Character.isLetterOrDigit(prev)) {
+			return true;
+		}
+
+		// camel case
+		return Character.isUpperCase(c) && Character.isLowerCase(prev);
+	}
+
+	/**
+	 * The items that contain all the trigrams of the query, or <code>null</code>
+	 * if the query has not trigrams.
+	 */
+	private int[] findPostings(List<String> parts) {
+		List<int[]> lists = new ArrayList<>();
+
+		for (var part : parts) {
+			for (int j = 0; j + 3 <= part.length(); j++) {
+				var list = _trigrams.get(trigram(part, j));
+
+				if (list == null) {
+					return new int[0];
+				}
+
+				lists.add(list);
+			}
+		}
+
+		if (lists.isEmpty()) {
+			return null;
+		}
+
+		// start with the shortest lists
+		lists.sort((a, b) -> Integer.compare(a.length, b.length));
+
+		var result = lists.get(0);
+
+		for (int j = 1; j < lists.size() && result.length > 0; j++) {
+			result = intersect(result, lists.get(j));
+		}
+
+		return result;
+	}
+
+	private static int[] intersect(int[] a, int[] b) {
+		var result = new int[Math.min(a.length, b.length)];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * If all the hits of the query are hits of the previous query. It is true when
+	 * the query only adds text at the end of the previous query.
+	 */
+	private static boolean extendsQuery(List<String> parts, List<String> prevParts) {
+		if (parts.size() < prevParts.size()) {
+			return false;
+		}
+
+		int last = prevParts.size() - 1;
+
+		for (int i = 0; i < last; i++) {
+			if (!parts.get(i).equals(prevParts.get(i))) {
+				return false;
+			}
+		}
+
+		return parts.get(last).contains(prevParts.get(last));
+	}
+
+	static List<String> parseQuery(String query) {
+		var parts = new ArrayList<String>();
+
+		for (var part : toLowerCase(query).split("[ *]")) {
+			if (part.length() > 0) {
+				parts.add(part);
+			}
+		}
+
+		return parts;
+	}
+
+	/**
+	 * Like {@link String#toLowerCase()} but it keeps the length of the string, so
+	 * the positions of the matches are valid in the original text.
+	 */
+	private static String toLowerCase(String text) {
+		var chars = text.toCharArray();
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(chars[i]);
+		}
+
+		return new String(chars);
+	}
+
+	private static Long trigram(String text, int i) {
+		return Long.valueOf(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+	}
+
+	private static long charMask(String text) {
+		long mask = 0;
+
+		for (int i = 0; i < text.length(); i++) {
+			mask |= 1L << (text.charAt(i) & 63);
+		}
+
+		return mask;
+	}
+
+	private static class IntList {
+		int[] data = new int[4];
+		int size;
+
+		void add(int value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
@@ -268,6 +268,18 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 	private Action _showExamplesAction;
 	private IPreferenceChangeListener _tmPrefsListener;
 	private IPropertyChangeListener _jfaceListener;
+	private Job _searchJob = new Job("Search chains") {
+
+		{
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			searchAndUpdateTables(monitor);
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	};
 
 	protected void queryTextModified() {
 
@@ -276,7 +288,9 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 			return;
 		}
 
-		new Thread(this::searchAndUpdateTables).start();
+		// the search of the previous query is not needed anymore
+		_searchJob.cancel();
+		_searchJob.schedule();
 
 	}
 
@@ -346,6 +360,8 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 	@Override
 	public void dispose() {
 
+		_searchJob.cancel();
+
 		getTMPreferencesNode().removePreferenceChangeListener(_tmPrefsListener);
 		getE4CSSThemePreferencesNode().removePreferenceChangeListener(_tmPrefsListener);
 		JFaceResources.getColorRegistry().removeListener(_jfaceListener);
@@ -365,7 +381,7 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 
 			@Override
 			public void run() {
-				searchAndUpdateTables();
+				queryTextModified();
 			}
 		};
 
@@ -377,7 +393,7 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 
 			@Override
 			public void run() {
-				searchAndUpdateTables();
+				queryTextModified();
 			}
 
 		};
@@ -434,15 +450,21 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 		return super.getAdapter(adapter);
 	}
 
-	void searchAndUpdateTables() {
+	void searchAndUpdateTables(IProgressMonitor monitor) {
 		int token = _token.incrementAndGet();
 
 		String[] query = new String[1];
 
 		getSite().getShell().getDisplay().syncExec(() -> {
-			query[0] = _queryText.getText();
+			if (!_queryText.isDisposed()) {
+				query[0] = _queryText.getText();
+			}
 		});
 
+		if (query[0] == null) {
+			return;
+		}
+
 		int chainsLimit = 100;
 
 		if (_chainsModel == null) {
@@ -453,12 +475,12 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 		List<Match> list2 = new ArrayList<>();
 
 		if (_showChainsAction.isChecked()) {
-			list1 = _chainsModel.searchChains(query[0], chainsLimit);
+			list1 = _chainsModel.searchChains(query[0], chainsLimit, monitor);
 			prepareChainsMatches(list1);
 		}
 
 		if (_showExamplesAction.isChecked()) {
-			list2 = _chainsModel.searchExamples(query[0], chainsLimit);
+			list2 = _chainsModel.searchExamples(query[0], chainsLimit, monitor);
 			prepareExamplesMatches(list2);
 		}
 
@@ -467,7 +489,7 @@ public class ChainsView extends ViewPart implements IPropertyChangeListener {
 		matches.addAll(list1);
 		matches.addAll(list2);
 
-		if (_token.get() != token) {
+		if (_token.get() != token || monitor.isCanceled()) {
 			return;
 		}
 
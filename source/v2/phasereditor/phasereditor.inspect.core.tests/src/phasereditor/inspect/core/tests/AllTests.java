@@ -34,6 +34,8 @@ import org.junit.runners.Suite.SuiteClasses;
 
 		Canvas_Phaser_Help_Test.class,
 
+		Jsdoc_Snapshot_Test.class,
+
 		Phaser_Member_Exists_Test.class
 
 })
@@ -0,0 +1,229 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.inspect.core.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import phasereditor.inspect.core.jsdoc.IPhaserMember;
+import phasereditor.inspect.core.jsdoc.JsdocSnapshot;
+import phasereditor.inspect.core.jsdoc.PhaserEventConstant;
+import phasereditor.inspect.core.jsdoc.PhaserJsdocModel;
+import phasereditor.inspect.core.jsdoc.PhaserMethod;
+import phasereditor.inspect.core.jsdoc.PhaserProperty;
+import phasereditor.inspect.core.jsdoc.PhaserType;
+
+/**
+ * Writes a model built from a small docs file to a snapshot, reads it again and
+ * compares them.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("static-method")
+public class Jsdoc_Snapshot_Test {
+
+	@Test
+	public void test() throws IOException {
+		var folder = Files.createTempDirectory("jsdoc-snapshot-test");
+		var docsFile = folder.resolve("docs.json");
+		var snapshotFile = folder.resolve("docs.jsdoc");
+
+		Files.write(docsFile, createDocs().toString().getBytes());
+
+		var srcFolder = folder.resolve("src");
+
+		var model = new PhaserJsdocModel(srcFolder, docsFile);
+
+		JsdocSnapshot.write(model, snapshotFile);
+
+		var model2 = JsdocSnapshot.read(snapshotFile, srcFolder);
+
+		Assert.assertEquals(model.getMembersMap().keySet(), model2.getMembersMap().keySet());
+		Assert.assertEquals(model.getContainerMap().keySet(), model2.getContainerMap().keySet());
+		Assert.assertEquals(model.getRootNamespaces().size(), model2.getRootNamespaces().size());
+		Assert.assertEquals(model.getGlobalScope().getMembers().size(), model2.getGlobalScope().getMembers().size());
+
+		for (var name : model.getMembersMap().keySet()) {
+			assertMember(model.getMembersMap().get(name), model2.getMembersMap().get(name));
+		}
+
+		// the members are not duplicated
+
+		var foo = model2.getType("Phaser.Foo");
+		var base = model2.getType("Phaser.Base");
+
+		Assert.assertSame(base, foo.getExtending().iterator().next());
+		Assert.assertSame(base.getMemberMap().get("baseMethod"), foo.getMemberMap().get("baseMethod"));
+		Assert.assertSame(foo, ((PhaserMethod) model2.getMembersMap().get("Phaser.Foo.bar")).getDeclType());
+
+		var method = (PhaserMethod) foo.getMemberMap().get("bar");
+
+		Assert.assertEquals("The bar method.", method.getHelp());
+		Assert.assertEquals("The result.", method.getReturnHelp());
+		Assert.assertEquals("x", method.getArgs().get(0).getName());
+		Assert.assertSame(method.getArgs().get(0), method.getArgsMap().get("x"));
+		Assert.assertEquals(Integer.valueOf(10), method.getArgs().get(0).getDefaultValue());
+
+		var event = (PhaserEventConstant) model2.getMembersMap().get("Phaser.Events.BOOT");
+		Assert.assertSame(event, method.getFiresEventList().get(0));
+
+		Assert.assertEquals(model.getMemberPath(method), model2.getMemberPath(method));
+
+		// other format version is not read
+
+		var bytes = Files.readAllBytes(snapshotFile);
+		bytes[7]++;
+		Files.write(snapshotFile, bytes);
+
+		try {
+			JsdocSnapshot.read(snapshotFile, srcFolder);
+			Assert.fail("The snapshot version is not checked");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static void assertMember(IPhaserMember a, IPhaserMember b) {
+		Assert.assertEquals(a.getClass(), b.getClass());
+		Assert.assertEquals(a.getName(), b.getName());
+		Assert.assertEquals(a.getHelp(), b.getHelp());
+		Assert.assertEquals(a.getFile(), b.getFile());
+		Assert.assertEquals(a.getLine(), b.getLine());
+		Assert.assertEquals(a.getOffset(), b.getOffset());
+		Assert.assertEquals(a.isStatic(), b.isStatic());
+
+		if (a.getContainer() == null) {
+			Assert.assertNull(b.getContainer());
+		} else {
+			Assert.assertEquals(a.getContainer().getName(), b.getContainer().getName());
+		}
+
+		if (a instanceof PhaserType) {
+			var ta = (PhaserType) a;
+			var tb = (PhaserType) b;
+
+			Assert.assertEquals(ta.getExtends(), tb.getExtends());
+			Assert.assertEquals(ta.getMemberMap().keySet(), tb.getMemberMap().keySet());
+			Assert.assertEquals(ta.getAllMethods().size(), tb.getAllMethods().size());
+			Assert.assertEquals(ta.getAllProperties().size(), tb.getAllProperties().size());
+			Assert.assertEquals(ta.getConstructorArgs().size(), tb.getConstructorArgs().size());
+		}
+
+		if (a instanceof PhaserProperty) {
+			Assert.assertArrayEquals(((PhaserProperty) a).getTypes(), ((PhaserProperty) b).getTypes());
+			Assert.assertEquals(((PhaserProperty) a).isReadOnly(), ((PhaserProperty) b).isReadOnly());
+		}
+
+		if (a instanceof PhaserMethod) {
+			Assert.assertArrayEquals(((PhaserMethod) a).getReturnTypes(), ((PhaserMethod) b).getReturnTypes());
+		}
+	}
+
+	private static JSONObject createDocs() {
+		var docs = new JSONArray();
+
+		docs.put(element("namespace", "Phaser", "Phaser", null, "The Phaser namespace."));
+		docs.put(element("namespace", "Events", "Phaser.Events", "Phaser", "The events."));
+
+		{
+			var event = element("event", "BOOT", "Phaser.Events#event:BOOT", "Phaser.Events", "The boot event.");
+			docs.put(event);
+		}
+
+		{
+			var base = element("class", "Base", "Phaser.Base", "Phaser", "The base class.");
+			docs.put(base);
+			docs.put(element("function", "baseMethod", "Phaser.Base#baseMethod", "Phaser.Base", "A base method."));
+		}
+
+		{
+			var foo = element("class", "Foo", "Phaser.Foo", "Phaser", "The foo class.");
+			foo.put("augments", new JSONArray().put("Phaser.Base"));
+			foo.put("params", new JSONArray().put(param("scene", "Phaser.Scene", null)));
+			docs.put(foo);
+
+			var bar = element("function", "bar", "Phaser.Foo#bar", "Phaser.Foo", "The bar method.");
+			bar.put("params", new JSONArray().put(param("x", "number", Integer.valueOf(10))));
+			bar.put("returns", new JSONArray().put(new JSONObject().put("description", "The result.").put("type",
+					new JSONObject().put("names", new JSONArray().put("number")))));
+			bar.put("fires", new JSONArray().put("Phaser.Events#event:BOOT"));
+			docs.put(bar);
+
+			var width = element("member", "width", "Phaser.Foo#width", "Phaser.Foo", "The width.");
+			width.put("type", new JSONObject().put("names", new JSONArray().put("number")));
+			width.put("readonly", true);
+			width.put("defaultvalue", 1.5);
+			docs.put(width);
+
+			var max = element("constant", "MAX", "Phaser.Foo.MAX", "Phaser.Foo", "The max.");
+			max.put("scope", "static");
+			max.put("type", new JSONObject().put("names", new JSONArray().put("integer")));
+			max.put("defaultvalue", "100");
+			docs.put(max);
+		}
+
+		return new JSONObject().put("docs", docs);
+	}
+
+	private static JSONObject element(String kind, String name, String longname, String memberof, String desc) {
+		var obj = new JSONObject();
+
+		obj.put("kind", kind);
+		obj.put("name", name);
+		obj.put("longname", longname);
+		obj.put("description", desc);
+
+		if (memberof != null) {
+			obj.put("memberof", memberof);
+		}
+
+		var meta = new JSONObject();
+		meta.put("lineno", 10);
+		meta.put("path", "/phaser/src/gameobjects");
+		meta.put("filename", name + ".js");
+		meta.put("range", new JSONArray().put(100).put(200));
+		obj.put("meta", meta);
+
+		return obj;
+	}
+
+	private static JSONObject param(String name, String type, Object defaultValue) {
+		var obj = new JSONObject();
+
+		obj.put("name", name);
+		obj.put("description", "The " + name + " param.");
+		obj.put("type", new JSONObject().put("names", new JSONArray().put(type)));
+
+		if (defaultValue != null) {
+			obj.put("defaultvalue", defaultValue);
+		}
+
+		return obj;
+	}
+}
@@ -0,0 +1,159 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.inspect.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A map stored in a text file of the user cache folder, with an entry per
+ * line. A line has the fields of the value, separated by spaces, and the key at
+ * the end, so the key can contain spaces: <code>field1 field2 ... key</code>.
+ * <p>
+ * If a header is given, it is the first line of the file, and the whole file
+ * is discarded if it does not match, like when the format or the data it was
+ * computed with changes. A missing or broken file is like an empty one.
+ *
+ * @author arian
+ *
+ */
+public abstract class LineIndexFile<T> {
+
+	private Path _file;
+	private String _header;
+	private int _fields;
+	private Map<String, T> _map;
+	private boolean _dirty;
+
+	/**
+	 * @param file
+	 *            The file where the index is stored.
+	 * @param header
+	 *            The first line of the file, or <code>null</code> if it has not a
+	 *            header.
+	 * @param fields
+	 *            The number of fields of the values.
+	 */
+	protected LineIndexFile(Path file, String header, int fields) {
+		_file = file;
+		_header = header;
+		_fields = fields;
+		_map = new HashMap<>();
+	}
+
+	/**
+	 * Reads the entries of the file. It should be called by the constructor of
+	 * the subclasses.
+	 */
+	protected final void load() {
+		if (!Files.exists(_file)) {
+			return;
+		}
+
+		try {
+			var lines = Files.readAllLines(_file, StandardCharsets.UTF_8);
+
+			if (_header != null) {
+				if (lines.isEmpty() || !lines.get(0).equals(_header)) {
+					// other version, it is overwritten in the next save
+					_dirty = true;
+					return;
+				}
+
+				lines = lines.subList(1, lines.size());
+			}
+
+			for (var line : lines) {
+				var parts = line.split(" ", _fields + 1);
+
+				if (parts.length == _fields + 1) {
+					_map.put(parts[_fields], parseValue(parts));
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			InspectCore.logError(e);
+			_map.clear();
+		}
+	}
+
+	/**
+	 * @param fields
+	 *            The fields of the line. The key is in the last position.
+	 */
+	protected abstract T parseValue(String[] fields);
+
+	/**
+	 * @return The fields of the value, separated by spaces.
+	 */
+	protected abstract String formatValue(T value);
+
+	public synchronized T get(String key) {
+		return _map.get(key);
+	}
+
+	public synchronized void put(String key, T value) {
+		_map.put(key, value);
+		_dirty = true;
+	}
+
+	public synchronized void remove(String key) {
+		_dirty |= _map.remove(key) != null;
+	}
+
+	/**
+	 * Removes the entries of the keys that match the filter.
+	 */
+	public synchronized void removeIf(Predicate<String> filter) {
+		_dirty |= _map.keySet().removeIf(filter);
+	}
+
+	public synchronized void save() throws IOException {
+		if (!_dirty) {
+			return;
+		}
+
+		var lines = new ArrayList<String>(_map.size() + 1);
+
+		if (_header != null) {
+			lines.add(_header);
+		}
+
+		for (var e : _map.entrySet()) {
+			lines.add(formatValue(e.getValue()) + " " + e.getKey());
+		}
+
+		Files.createDirectories(_file.getParent());
+
+		var tmp = _file.resolveSibling(_file.getFileName() + ".tmp");
+		Files.write(tmp, lines, StandardCharsets.UTF_8);
+		Files.move(tmp, _file, StandardCopyOption.REPLACE_EXISTING);
+
+		_dirty = false;
+	}
+}
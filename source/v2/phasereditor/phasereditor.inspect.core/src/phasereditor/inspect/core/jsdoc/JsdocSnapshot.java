@@ -0,0 +1,715 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.inspect.core.jsdoc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A binary snapshot of the {@link PhaserJsdocModel}, used as the cache of the
+ * model. It replaces the Java serialization of the whole object graph.
+ * <p>
+ * The format is:
+ * 
+ * <pre>
+ * header:   magic, format version
+ * strings:  count, offsets, UTF-8 bytes (every string is stored once)
+ * index:    containers, members, root namespaces, globals
+ * members:  count, offsets, records
+ * </pre>
+ * 
+ * The file is memory-mapped. The strings are decoded when they are requested,
+ * and every string is decoded only once, so the members share the same
+ * instances. The member graph is created in one pass over the records, but the
+ * help of the members, the bigger part of the file, is read only when the
+ * editor shows it.
+ * 
+ * @author arian
+ *
+ */
+public class JsdocSnapshot {
+
+	private static final int MAGIC = 0x504A5344; // PJSD
+
+	/**
+	 * Increment it when the format changes, the old snapshots are ignored.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final byte KIND_NAMESPACE = 1;
+	private static final byte KIND_TYPE = 2;
+	private static final byte KIND_METHOD = 3;
+	private static final byte KIND_PROPERTY = 4;
+	private static final byte KIND_CONSTANT = 5;
+	private static final byte KIND_EVENT = 6;
+	private static final byte KIND_ARG = 7;
+
+	private static final byte VALUE_NULL = 0;
+	private static final byte VALUE_JSON_NULL = 1;
+	private static final byte VALUE_STRING = 2;
+	private static final byte VALUE_INT = 3;
+	private static final byte VALUE_LONG = 4;
+	private static final byte VALUE_DOUBLE = 5;
+	private static final byte VALUE_BOOLEAN = 6;
+	private static final byte VALUE_JSON_OBJECT = 7;
+	private static final byte VALUE_JSON_ARRAY = 8;
+
+	private ByteBuffer _buffer;
+	private int[] _stringOffsets;
+	private int _stringsStart;
+	private String[] _strings;
+
+	private JsdocSnapshot(ByteBuffer buffer) {
+		_buffer = buffer;
+	}
+
+	/**
+	 * Get a string of the snapshot.
+	 * 
+	 * @param id
+	 *            The string id, <code>-1</code> is <code>null</code>.
+	 */
+	public synchronized String getString(int id) {
+		if (id == -1) {
+			return null;
+		}
+
+		var str = _strings[id];
+
+		if (str == null) {
+			int start = _stringOffsets[id];
+			int len = _stringOffsets[id + 1] - start;
+
+			var bytes = new byte[len];
+
+			var buf = _buffer.duplicate();
+			buf.position(_stringsStart + start);
+			buf.get(bytes);
+
+			str = new String(bytes, UTF_8);
+
+			_strings[id] = str;
+		}
+
+		return str;
+	}
+
+	public int getStringCount() {
+		return _strings.length;
+	}
+
+	// write
+
+	public static void write(PhaserJsdocModel model, Path file) throws IOException {
+		var writer = new Writer();
+
+		var index = writer.writeIndex(model);
+		var records = writer.writeMembers();
+
+		var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (var output = new DataOutputStream(Files.newOutputStream(tmp))) {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+
+			writer.writeStrings(output);
+
+			output.writeInt(index.length);
+			output.write(index);
+
+			output.writeInt(writer._recordOffsets.size());
+			for (int offset : writer._recordOffsets) {
+				output.writeInt(offset);
+			}
+			output.write(records);
+		}
+
+		// the snapshot is complete or it does not exist
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static class Writer {
+		private Map<String, Integer> _stringIds = new LinkedHashMap<>();
+		private Map<IPhaserMember, Integer> _memberIds = new IdentityHashMap<>();
+		private Deque<IPhaserMember> _pending = new ArrayDeque<>();
+		private List<Integer> _recordOffsets = new ArrayList<>();
+
+		int str(String str) {
+			if (str == null) {
+				return -1;
+			}
+
+			var id = _stringIds.get(str);
+
+			if (id == null) {
+				id = Integer.valueOf(_stringIds.size());
+				_stringIds.put(str, id);
+			}
+
+			return id.intValue();
+		}
+
+		int ref(IPhaserMember member) {
+			if (member == null) {
+				return -1;
+			}
+
+			var id = _memberIds.get(member);
+
+			if (id == null) {
+				id = Integer.valueOf(_memberIds.size());
+				_memberIds.put(member, id);
+				_pending.add(member);
+			}
+
+			return id.intValue();
+		}
+
+		void writeStr(DataOutputStream out, String str) throws IOException {
+			out.writeInt(str(str));
+		}
+
+		void writeStrs(DataOutputStream out, Collection<String> list) throws IOException {
+			if (list == null) {
+				out.writeInt(-1);
+				return;
+			}
+
+			out.writeInt(list.size());
+			for (var str : list) {
+				writeStr(out, str);
+			}
+		}
+
+		void writeStrs(DataOutputStream out, String[] array) throws IOException {
+			writeStrs(out, array == null ? null : Arrays.asList(array));
+		}
+
+		void writeRefs(DataOutputStream out, Collection<? extends IPhaserMember> list) throws IOException {
+			out.writeInt(list.size());
+			for (var member : list) {
+				out.writeInt(ref(member));
+			}
+		}
+
+		void writeMap(DataOutputStream out, Map<String, ? extends IPhaserMember> map) throws IOException {
+			out.writeInt(map.size());
+			for (var entry : map.entrySet()) {
+				writeStr(out, entry.getKey());
+				out.writeInt(ref(entry.getValue()));
+			}
+		}
+
+		byte[] writeIndex(PhaserJsdocModel model) throws IOException {
+			var bytes = new ByteArrayOutputStream();
+			var out = new DataOutputStream(bytes);
+
+			writeMap(out, model.getContainerMap());
+			writeMap(out, model.getMembersMap());
+			writeRefs(out, model.getRootNamespaces());
+			writeStrs(out, model.getElementsWithMembers());
+			writeRefs(out, model.getGlobalScope().getMembers());
+
+			out.flush();
+
+			return bytes.toByteArray();
+		}
+
+		byte[] writeMembers() throws IOException {
+			var bytes = new ByteArrayOutputStream();
+			var out = new DataOutputStream(bytes);
+
+			// writing a member could reference new members, those are added to the queue
+			while (!_pending.isEmpty()) {
+				var member = _pending.removeFirst();
+
+				_recordOffsets.add(Integer.valueOf(out.size()));
+
+				writeMember(out, member);
+			}
+
+			out.flush();
+
+			return bytes.toByteArray();
+		}
+
+		private void writeMember(DataOutputStream out, IPhaserMember member) throws IOException {
+			out.writeByte(kindOf(member));
+
+			var m = (PhaserMember) member;
+
+			writeStr(out, m.getName());
+			writeStr(out, m.getHelp());
+			out.writeInt(m.getLine());
+			out.writeInt(m.getOffset());
+			out.writeBoolean(m.isStatic());
+			writeStr(out, m.getFile());
+			out.writeInt(ref(m.getContainer()));
+			writeRefs(out, m.getFiresEventList());
+
+			if (member instanceof PhaserVariable) {
+				var var = (PhaserVariable) member;
+
+				writeValue(out, var.getDefaultValue());
+				out.writeBoolean(var.isOptional());
+				writeStrs(out, var.getTypes());
+				out.writeInt(ref(var.getDeclType()));
+
+				if (member instanceof PhaserProperty) {
+					out.writeBoolean(((PhaserProperty) member).isReadOnly());
+				}
+
+				if (member instanceof PhaserEventConstant) {
+					writeRefs(out, ((PhaserEventConstant) member).getArgs());
+				}
+
+			} else if (member instanceof PhaserMethod) {
+				var method = (PhaserMethod) member;
+
+				writeRefs(out, method.getArgs());
+				writeStrs(out, method.getReturnTypes());
+				writeStr(out, method.getReturnHelp());
+				out.writeInt(ref(method.getDeclType()));
+
+			} else if (member instanceof PhaserNamespace) {
+				var namespace = (PhaserNamespace) member;
+
+				writeStr(out, namespace.getSimpleName());
+				writeMap(out, namespace.getMemberMap());
+				writeRefs(out, namespace.getInheritedMembers());
+
+				// the lists are stored, calling build() again could change the containers of
+				// the inherited members
+				writeRefs(out, namespace.getNamespaces());
+				writeRefs(out, namespace.getTypes());
+				writeRefs(out, namespace.getProperties());
+				writeRefs(out, namespace.getMethods());
+				writeRefs(out, namespace.getConstants());
+				writeRefs(out, namespace.getAllProperties());
+				writeRefs(out, namespace.getAllMethods());
+				writeRefs(out, namespace.getAllConstants());
+
+				if (member instanceof PhaserType) {
+					var type = (PhaserType) member;
+
+					writeStrs(out, type.getExtends());
+					out.writeBoolean(type.isConstructor());
+					writeRefs(out, type.getConstructorArgs());
+					out.writeBoolean(type.isEnum());
+					writeStrs(out, type.getEnumElementsType());
+					writeRefs(out, type.getExtenders());
+					writeRefs(out, type.getExtending());
+					out.writeBoolean(type.isTypeDef());
+				}
+			}
+		}
+
+		private void writeValue(DataOutputStream out, Object value) throws IOException {
+			if (value == null) {
+				out.writeByte(VALUE_NULL);
+			} else if (value == JSONObject.NULL) {
+				out.writeByte(VALUE_JSON_NULL);
+			} else if (value instanceof String) {
+				out.writeByte(VALUE_STRING);
+				writeStr(out, (String) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(VALUE_INT);
+				out.writeInt(((Integer) value).intValue());
+			} else if (value instanceof Long) {
+				out.writeByte(VALUE_LONG);
+				out.writeLong(((Long) value).longValue());
+			} else if (value instanceof Number) {
+				out.writeByte(VALUE_DOUBLE);
+				out.writeDouble(((Number) value).doubleValue());
+			} else if (value instanceof Boolean) {
+				out.writeByte(VALUE_BOOLEAN);
+				out.writeBoolean(((Boolean) value).booleanValue());
+			} else if (value instanceof JSONArray) {
+				out.writeByte(VALUE_JSON_ARRAY);
+				writeStr(out, value.toString());
+			} else if (value instanceof JSONObject) {
+				out.writeByte(VALUE_JSON_OBJECT);
+				writeStr(out, value.toString());
+			} else {
+				out.writeByte(VALUE_STRING);
+				writeStr(out, value.toString());
+			}
+		}
+
+		void writeStrings(DataOutputStream output) throws IOException {
+			var data = new ByteArrayOutputStream();
+			var offsets = new int[_stringIds.size() + 1];
+
+			int i = 0;
+			for (var str : _stringIds.keySet()) {
+				offsets[i++] = data.size();
+				data.write(str.getBytes(UTF_8));
+			}
+			offsets[i] = data.size();
+
+			output.writeInt(_stringIds.size());
+
+			for (int offset : offsets) {
+				output.writeInt(offset);
+			}
+
+			data.writeTo((OutputStream) output);
+		}
+	}
+
+	private static byte kindOf(IPhaserMember member) {
+		// the order is important, the subclasses first
+		if (member instanceof PhaserType) {
+			return KIND_TYPE;
+		}
+
+		if (member instanceof PhaserNamespace) {
+			return KIND_NAMESPACE;
+		}
+
+		if (member instanceof PhaserMethod) {
+			return KIND_METHOD;
+		}
+
+		if (member instanceof PhaserProperty) {
+			return KIND_PROPERTY;
+		}
+
+		if (member instanceof PhaserEventConstant) {
+			return KIND_EVENT;
+		}
+
+		if (member instanceof PhaserConstant) {
+			return KIND_CONSTANT;
+		}
+
+		if (member instanceof PhaserMethodArg) {
+			return KIND_ARG;
+		}
+
+		throw new IllegalArgumentException("Unknown member " + member.getClass().getName());
+	}
+
+	// read
+
+	/**
+	 * Read a model from a snapshot.
+	 * 
+	 * @throws IOException
+	 *             If the snapshot cannot be read or it has other format version.
+	 */
+	public static PhaserJsdocModel read(Path file, Path srcFolder) throws IOException {
+		ByteBuffer buffer;
+
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		var snapshot = new JsdocSnapshot(buffer);
+
+		try {
+			return snapshot.readModel(srcFolder);
+		} catch (RuntimeException e) {
+			// a truncated or corrupted file
+			throw new IOException("Invalid jsdoc snapshot " + file, e);
+		}
+	}
+
+	private PhaserJsdocModel readModel(Path srcFolder) throws IOException {
+		var buf = _buffer.duplicate();
+
+		if (buf.getInt() != MAGIC) {
+			throw new IOException("It is not a jsdoc snapshot.");
+		}
+
+		int version = buf.getInt();
+
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported jsdoc snapshot version " + version);
+		}
+
+		// strings
+
+		int stringCount = buf.getInt();
+		_stringOffsets = new int[stringCount + 1];
+		for (int i = 0; i <= stringCount; i++) {
+			_stringOffsets[i] = buf.getInt();
+		}
+		_stringsStart = buf.position();
+		_strings = new String[stringCount];
+		buf.position(_stringsStart + _stringOffsets[stringCount]);
+
+		// index, it is read at the end, when all the members are created
+
+		int indexLength = buf.getInt();
+		var indexBuf = buf.duplicate();
+		buf.position(buf.position() + indexLength);
+
+		// members
+
+		int memberCount = buf.getInt();
+		var offsets = new int[memberCount];
+		for (int i = 0; i < memberCount; i++) {
+			offsets[i] = buf.getInt();
+		}
+		int recordsStart = buf.position();
+
+		var members = new IPhaserMember[memberCount];
+
+		for (int i = 0; i < memberCount; i++) {
+			members[i] = newMember(buf.get(recordsStart + offsets[i]));
+		}
+
+		for (int i = 0; i < memberCount; i++) {
+			buf.position(recordsStart + offsets[i] + 1);
+			readMember(buf, members[i], members);
+		}
+
+		// the names of the args are known only when all the members are read
+
+		for (var member : members) {
+			if (member instanceof PhaserMethod) {
+				var method = (PhaserMethod) member;
+
+				for (var arg : method.getArgs()) {
+					method.getArgsMap().put(arg.getName(), arg);
+				}
+			}
+		}
+
+		// index
+
+		var containers = new HashMap<String, IMemberContainer>();
+		readMap(indexBuf, members, containers);
+
+		var membersMap = new HashMap<String, IPhaserMember>();
+		readMap(indexBuf, members, membersMap);
+
+		var roots = new ArrayList<IPhaserMember>();
+		readRefs(indexBuf, members, roots);
+
+		var elementsWithMembers = new HashSet<String>();
+		readStrs(indexBuf, elementsWithMembers);
+
+		var globals = new ArrayList<IPhaserMember>();
+		readRefs(indexBuf, members, globals);
+
+		return new PhaserJsdocModel(srcFolder, containers, membersMap, roots, elementsWithMembers,
+				new PhaserGlobalScope(globals));
+	}
+
+	private static IPhaserMember newMember(byte kind) {
+		switch (kind) {
+		case KIND_NAMESPACE:
+			return new PhaserNamespace(null);
+		case KIND_TYPE:
+			return new PhaserType(null);
+		case KIND_METHOD:
+			return new PhaserMethod(null);
+		case KIND_PROPERTY:
+			return new PhaserProperty(null);
+		case KIND_CONSTANT:
+			return new PhaserConstant(null);
+		case KIND_EVENT:
+			return new PhaserEventConstant(null);
+		case KIND_ARG:
+			return new PhaserMethodArg(null);
+		default:
+			throw new IllegalArgumentException("Unknown member kind " + kind);
+		}
+	}
+
+	private void readMember(ByteBuffer buf, IPhaserMember member, IPhaserMember[] members) {
+		var m = (PhaserMember) member;
+
+		m.setName(str(buf));
+		m.setHelp(this, buf.getInt());
+		m.setLine(buf.getInt());
+		m.setOffset(buf.getInt());
+		m.setStatic(buf.get() != 0);
+		m.setFile(str(buf));
+		m.setContainer((IMemberContainer) ref(buf, members));
+		readRefs(buf, members, m.getFiresEventList());
+
+		if (member instanceof PhaserVariable) {
+			var var = (PhaserVariable) member;
+
+			var.setDefaultValue(readValue(buf));
+			var.setOptional(buf.get() != 0);
+			var.setTypes(strArray(buf));
+			var.setDeclType((PhaserType) ref(buf, members));
+
+			if (member instanceof PhaserProperty) {
+				((PhaserProperty) member).setReadOnly(buf.get() != 0);
+			}
+
+			if (member instanceof PhaserEventConstant) {
+				var args = new ArrayList<PhaserMethodArg>();
+				readRefs(buf, members, args);
+				((PhaserEventConstant) member).setArgs(args);
+			}
+
+		} else if (member instanceof PhaserMethod) {
+			var method = (PhaserMethod) member;
+
+			readRefs(buf, members, method.getArgs());
+			method.setReturnTypes(strArray(buf));
+			method.setReturnHelp(buf.getInt());
+			method.setDeclType((PhaserType) ref(buf, members));
+
+		} else if (member instanceof PhaserNamespace) {
+			var namespace = (PhaserNamespace) member;
+
+			namespace.setSimpleName(str(buf));
+			readMap(buf, members, namespace.getMemberMap());
+			readRefs(buf, members, namespace.getInheritedMembers());
+
+			readRefs(buf, members, namespace.getNamespaces());
+			readRefs(buf, members, namespace.getTypes());
+			readRefs(buf, members, namespace.getProperties());
+			readRefs(buf, members, namespace.getMethods());
+			readRefs(buf, members, namespace.getConstants());
+			readRefs(buf, members, namespace.getAllProperties());
+			readRefs(buf, members, namespace.getAllMethods());
+			readRefs(buf, members, namespace.getAllConstants());
+
+			if (member instanceof PhaserType) {
+				var type = (PhaserType) member;
+
+				var extend = new ArrayList<String>();
+				readStrs(buf, extend);
+				type.setExtends(extend);
+				type.setConstructor(buf.get() != 0);
+				readRefs(buf, members, type.getConstructorArgs());
+				type.setEnum(buf.get() != 0);
+				type.setEnumElementsType(strArray(buf));
+				readRefs(buf, members, type.getExtenders());
+				readRefs(buf, members, type.getExtending());
+				type.setTypeDef(buf.get() != 0);
+			}
+		}
+	}
+
+	private Object readValue(ByteBuffer buf) {
+		byte tag = buf.get();
+
+		switch (tag) {
+		case VALUE_NULL:
+			return null;
+		case VALUE_JSON_NULL:
+			return JSONObject.NULL;
+		case VALUE_STRING:
+			return str(buf);
+		case VALUE_INT:
+			return Integer.valueOf(buf.getInt());
+		case VALUE_LONG:
+			return Long.valueOf(buf.getLong());
+		case VALUE_DOUBLE:
+			return Double.valueOf(buf.getDouble());
+		case VALUE_BOOLEAN:
+			return Boolean.valueOf(buf.get() != 0);
+		case VALUE_JSON_ARRAY:
+			return new JSONArray(str(buf));
+		case VALUE_JSON_OBJECT:
+			return new JSONObject(str(buf));
+		default:
+			throw new IllegalArgumentException("Unknown value tag " + tag);
+		}
+	}
+
+	private String str(ByteBuffer buf) {
+		return getString(buf.getInt());
+	}
+
+	private String[] strArray(ByteBuffer buf) {
+		int size = buf.getInt();
+
+		if (size == -1) {
+			return null;
+		}
+
+		var array = new String[size];
+
+		for (int i = 0; i < size; i++) {
+			array[i] = str(buf);
+		}
+
+		return array;
+	}
+
+	private void readStrs(ByteBuffer buf, Collection<String> list) {
+		int size = buf.getInt();
+
+		// size is -1 for a null list
+		for (int i = 0; i < size; i++) {
+			list.add(str(buf));
+		}
+	}
+
+	private static IPhaserMember ref(ByteBuffer buf, IPhaserMember[] members) {
+		int id = buf.getInt();
+		return id == -1 ? null : members[id];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void readRefs(ByteBuffer buf, IPhaserMember[] members, Collection<T> list) {
+		int size = buf.getInt();
+
+		for (int i = 0; i < size; i++) {
+			list.add((T) ref(buf, members));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> void readMap(ByteBuffer buf, IPhaserMember[] members, Map<String, T> map) {
+		int size = buf.getInt();
+
+		for (int i = 0; i < size; i++) {
+			var key = str(buf);
+			map.put(key, (T) ref(buf, members));
+		}
+	}
+}
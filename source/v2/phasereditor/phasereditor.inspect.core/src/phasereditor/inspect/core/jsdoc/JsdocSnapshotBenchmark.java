@@ -0,0 +1,99 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.inspect.core.jsdoc;
+
+import static java.lang.System.out;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Measures the load of the Phaser docs: the cold load parses the docs JSON and
+ * builds the model, the warm load reads the {@link JsdocSnapshot}. It also
+ * measures the time to read the help of all the members, that is lazy in the
+ * warm load.
+ * <p>
+ * The first argument is the docs JSON file, by default it is the one of the
+ * <code>phasereditor.resources.phaser.metadata</code> project.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("boxing")
+public class JsdocSnapshotBenchmark {
+
+	private static final int ROUNDS = 10;
+
+	public static void main(String[] args) throws IOException {
+		var docsFile = Paths.get(args.length > 0 ? args[0]
+				: "../phasereditor.resources.phaser.metadata/phaser-custom/phaser3-docs/json/phaser.json");
+		var srcFolder = Paths.get(".");
+		var snapshotFile = Files.createTempFile("phaser", ".jsdoc");
+
+		var t = System.nanoTime();
+		var model = new PhaserJsdocModel(srcFolder, docsFile);
+		var coldTime = System.nanoTime() - t;
+
+		t = System.nanoTime();
+		JsdocSnapshot.write(model, snapshotFile);
+		var writeTime = System.nanoTime() - t;
+
+		out.println(String.format("%d members, snapshot of %d KB", model.getMembersMap().size(),
+				Files.size(snapshotFile) / 1024));
+
+		long warmTime = 0;
+		long firstWarmTime = 0;
+		long helpTime = 0;
+
+		for (int i = 0; i < ROUNDS; i++) {
+			t = System.nanoTime();
+			var model2 = JsdocSnapshot.read(snapshotFile, srcFolder);
+			var time = System.nanoTime() - t;
+
+			if (i == 0) {
+				firstWarmTime = time;
+			}
+
+			warmTime += time;
+
+			t = System.nanoTime();
+			int len = 0;
+			for (var member : model2.getMembersMap().values()) {
+				var help = member.getHelp();
+				len += help == null ? 0 : help.length();
+			}
+			helpTime += System.nanoTime() - t;
+
+			if (len == 0 && !model2.getMembersMap().isEmpty()) {
+				throw new IllegalStateException("Missing help");
+			}
+		}
+
+		out.println(String.format(
+				"cold (JSON) %.1fms, snapshot write %.1fms, warm (snapshot) first %.1fms avg %.1fms, all help %.1fms",
+				coldTime / 1e6, writeTime / 1e6, firstWarmTime / 1e6, warmTime / 1e6 / ROUNDS,
+				helpTime / 1e6 / ROUNDS));
+
+		Files.delete(snapshotFile);
+	}
+}
@@ -27,9 +27,6 @@ import static java.lang.System.out;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -48,11 +45,9 @@ import org.json.JSONTokener;
 
 import phasereditor.inspect.core.InspectCore;
 
-public class PhaserJsdocModel implements Serializable {
+public class PhaserJsdocModel {
 
-	private static final long serialVersionUID = 1L;
-
-	private transient static PhaserJsdocModel _instance;
+	private static PhaserJsdocModel _instance;
 
 	public synchronized static PhaserJsdocModel getInstance() {
 		if (_instance == null) {
@@ -67,17 +62,17 @@ public class PhaserJsdocModel implements Serializable {
 
 				var size = Files.getLastModifiedTime(docsJsonFile).toMillis();
 
-				var cacheFile = InspectCore.getUserCacheFolder().resolve("phaser.json." + size + ".binary");
+				var cacheFile = InspectCore.getUserCacheFolder()
+						.resolve("phaser.json." + size + ".jsdoc" + JsdocSnapshot.FORMAT_VERSION);
 
 				if (Files.exists(cacheFile)) {
-					try (var input = new ObjectInputStream(Files.newInputStream(cacheFile))) {
-						_instance = (PhaserJsdocModel) input.readObject();
-						_instance._srcFolder = srcFolder;
+					try {
+						_instance = JsdocSnapshot.read(cacheFile, srcFolder);
 
 						out.println("Read cached docs..." + (currentTimeMillis() - t) + "ms");
 
 						return _instance;
-					} catch (IOException | ClassNotFoundException e) {
+					} catch (IOException e) {
 						e.printStackTrace();
 					}
 				}
@@ -86,9 +81,7 @@ public class PhaserJsdocModel implements Serializable {
 
 				var t2 = currentTimeMillis();
 
-				try (var serilizer = new ObjectOutputStream(Files.newOutputStream(cacheFile))) {
-					serilizer.writeObject(_instance);
-				}
+				JsdocSnapshot.write(_instance, cacheFile);
 
 				out.println("Write phaser.jsdoc cache in " + (currentTimeMillis() - t2) + "ms");
 
@@ -106,7 +99,7 @@ public class PhaserJsdocModel implements Serializable {
 	private List<IPhaserMember> _rootNamespaces;
 	private Set<String> _elementsWithMembers;
 
-	private transient Path _srcFolder;
+	private Path _srcFolder;
 	private PhaserGlobalScope _globalScope;
 
 	public PhaserJsdocModel(Path srcFolder, Path docsJsonFile) throws IOException {
@@ -115,6 +108,19 @@ public class PhaserJsdocModel implements Serializable {
 		buildPhaserJSDoc(docsJsonFile);
 	}
 
+	/**
+	 * Used to create the model from a {@link JsdocSnapshot}.
+	 */
+	PhaserJsdocModel(Path srcFolder, Map<String, IMemberContainer> containersMap, Map<String, IPhaserMember> membersMap,
+			List<IPhaserMember> rootNamespaces, Set<String> elementsWithMembers, PhaserGlobalScope globalScope) {
+		_srcFolder = srcFolder;
+		_containersMap = containersMap;
+		_membersMap = membersMap;
+		_rootNamespaces = rootNamespaces;
+		_elementsWithMembers = elementsWithMembers;
+		_globalScope = globalScope;
+	}
+
 	public Path getMemberPath(IPhaserMember member) {
 		return _srcFolder.resolve(member.getFile());
 	}
@@ -307,6 +313,10 @@ public class PhaserJsdocModel implements Serializable {
 		return _rootNamespaces;
 	}
 
+	Set<String> getElementsWithMembers() {
+		return _elementsWithMembers;
+	}
+
 	@SuppressWarnings("unused")
 	private static void printElementKinds(JSONArray jsdocElements) {
 		Set<String> kinds = new HashSet<>();
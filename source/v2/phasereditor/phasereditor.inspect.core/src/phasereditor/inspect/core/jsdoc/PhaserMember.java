@@ -41,6 +41,8 @@ public abstract class PhaserMember implements IPhaserMember, IAdaptable {
 	private List<PhaserEventConstant> _firesEventList;
 
 	private String _filename;
+	private transient JsdocSnapshot _snapshot;
+	private transient int _helpId;
 
 	public PhaserMember(JSONObject json) {
 		_static = false;
@@ -125,6 +127,10 @@ public abstract class PhaserMember implements IPhaserMember, IAdaptable {
 
 	@Override
 	public String getHelp() {
+		if (_help == null && _snapshot != null) {
+			// the help is read from the snapshot the first time it is requested
+			_help = _snapshot.getString(_helpId);
+		}
 		return _help;
 	}
 
@@ -132,6 +138,19 @@ public abstract class PhaserMember implements IPhaserMember, IAdaptable {
 		_help = help;
 	}
 
+	/**
+	 * Set the help as a string of the snapshot, it is read when it is requested.
+	 */
+	void setHelp(JsdocSnapshot snapshot, int helpId) {
+		_help = null;
+		_snapshot = snapshot;
+		_helpId = helpId;
+	}
+
+	JsdocSnapshot getSnapshot() {
+		return _snapshot;
+	}
+
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Override
 	public Object getAdapter(Class adapter) {
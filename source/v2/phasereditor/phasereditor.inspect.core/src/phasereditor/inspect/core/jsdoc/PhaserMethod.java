@@ -36,6 +36,7 @@ public class PhaserMethod extends PhaserMember implements ITypeMember {
 	private Map<String, PhaserVariable> _argsMap;
 	private String[] _returnTypes;
 	private String _returnHelp;
+	private transient int _returnHelpId = -1;
 	private PhaserType _declType;
 
 	public PhaserMethod(JSONObject json) {
@@ -55,9 +56,17 @@ public class PhaserMethod extends PhaserMember implements ITypeMember {
 	}
 
 	public String getReturnHelp() {
+		if (_returnHelp == null && _returnHelpId != -1) {
+			_returnHelp = getSnapshot().getString(_returnHelpId);
+		}
 		return _returnHelp;
 	}
 
+	void setReturnHelp(int returnHelpId) {
+		_returnHelp = null;
+		_returnHelpId = returnHelpId;
+	}
+
 	public void setReturnHelp(String returnHelp) {
 		_returnHelp = returnHelp;
 	}
@@ -57,7 +57,8 @@ public class PhaserNamespace extends PhaserMember implements IMemberContainer {
 
 	public PhaserNamespace(JSONObject json) {
 		super(json);
-		_simpleName = json.getString("name");
+		// the json is null when the namespace is read from a snapshot
+		_simpleName = json == null ? null : json.getString("name");
 		_namespaces = new ArrayList<>();
 
 		_types = new ArrayList<>();
@@ -77,6 +78,10 @@ public class PhaserNamespace extends PhaserMember implements IMemberContainer {
 		return _simpleName;
 	}
 
+	void setSimpleName(String simpleName) {
+		_simpleName = simpleName;
+	}
+
 	private int computeHeight() {
 		int h = 1;
 
@@ -21,19 +21,29 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.optipng.core;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.QualifiedName;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.preference.IPreferenceStore;
 
 import phasereditor.inspect.core.InspectCore;
@@ -41,15 +51,212 @@ import phasereditor.inspect.core.InspectCore;
 public class OptiPNGCore {
 	public static final String PLUGIN_ID = Activator.PLUGIN_ID;
 
-	private static QualifiedName PERSIST_KEY = new QualifiedName("phasereditor.optipng", "hash");
-
 	public static final String PREF_OPTI_PNG_LEVEL = PLUGIN_ID + "compressionLeve;";
 
 	public static final String PREF_OPTI_PNG_EXTRA_PARAMS = PLUGIN_ID + "extraParams";
 
+	/**
+	 * The number of OptiPNG processes running in parallel in a batch. It can be
+	 * set with the <code>OptiPNGCore.THREADS</code> system property.
+	 */
+	public static final int THREADS = Integer.getInteger("OptiPNGCore.THREADS",
+			Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+	private static final int HASH_BUFFER_SIZE = 256 * 1024;
+
+	private static OptiPNGHashIndex _hashIndex;
+
+	/**
+	 * The result of the optimization of a file in a batch.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class OptimizeResult {
+		private IResource _resource;
+		private long _oldSize;
+		private long _newSize;
+		private long _time;
+		private boolean _skipped;
+		private Exception _error;
+
+		OptimizeResult(IResource resource) {
+			_resource = resource;
+		}
+
+		public IResource getResource() {
+			return _resource;
+		}
+
+		public long getOldSize() {
+			return _oldSize;
+		}
+
+		public long getNewSize() {
+			return _newSize;
+		}
+
+		public long getSavedBytes() {
+			return _oldSize - _newSize;
+		}
+
+		/**
+		 * @return The time spent in the file, in milliseconds.
+		 */
+		public long getTime() {
+			return _time;
+		}
+
+		/**
+		 * @return If the file was not optimized because it did not change since the
+		 *         last optimization.
+		 */
+		public boolean isSkipped() {
+			return _skipped;
+		}
+
+		public Exception getError() {
+			return _error;
+		}
+	}
+
+	public static synchronized OptiPNGHashIndex getHashIndex() {
+		if (_hashIndex == null) {
+			_hashIndex = new OptiPNGHashIndex(InspectCore.getUserCacheFolder().resolve("optipng/hashes.index"));
+		}
+		return _hashIndex;
+	}
+
+	private static String getIndexKey(IResource resource) {
+		return resource.getFullPath().toPortableString();
+	}
+
 	public static void updateHashCache(IResource resource) throws Exception {
-		String hash2 = computeHash(resource);
-		resource.setPersistentProperty(PERSIST_KEY, hash2);
+		if (resource instanceof IFile) {
+			var path = resource.getLocation().toFile().toPath();
+			var index = getHashIndex();
+			index.put(getIndexKey(resource), new OptiPNGHashIndex.Entry(computeHash(path), Files.size(path),
+					Files.getLastModifiedTime(path).toMillis()));
+			index.save();
+		}
+	}
+
+	/**
+	 * Optimizes the files with a bounded number of OptiPNG processes running in
+	 * parallel. The files with the same content of the last time they were
+	 * optimized are skipped.
+	 * 
+	 * @param listener
+	 *            Called, in the caller thread, with the result of each file, in
+	 *            the order they are completed.
+	 * @param monitor
+	 *            It is advanced a unit per file. When it is cancelled, the pending
+	 *            files are not optimized.
+	 */
+	public static List<OptimizeResult> optimize(List<? extends IResource> resources,
+			Consumer<OptimizeResult> listener, IProgressMonitor monitor) {
+		var index = getHashIndex();
+		var results = new ArrayList<OptimizeResult>();
+
+		int[] count = { 0 };
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(THREADS, Math.max(1, resources.size())), r -> {
+			var thread = new Thread(r, "OptiPNG " + count[0]++);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			var service = new ExecutorCompletionService<OptimizeResult>(pool);
+			var futures = new ArrayList<Future<OptimizeResult>>();
+
+			for (var resource : resources) {
+				futures.add(service.submit(() -> optimize(resource, index)));
+			}
+
+			for (int i = 0; i < futures.size(); i++) {
+				if (monitor.isCanceled()) {
+					for (var future : futures) {
+						future.cancel(false);
+					}
+				}
+
+				OptimizeResult result;
+
+				try {
+					result = service.take().get();
+				} catch (CancellationException e) {
+					continue;
+				} catch (ExecutionException e) {
+					// optimize(IResource, ...) catches the errors
+					e.printStackTrace();
+					continue;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+				results.add(result);
+				listener.accept(result);
+				monitor.worked(1);
+			}
+		} finally {
+			pool.shutdownNow();
+
+			// forget the deleted or renamed files
+
+			var root = ResourcesPlugin.getWorkspace().getRoot();
+			index.removeIf(key -> root.findMember(key) == null);
+
+			try {
+				index.save();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		return results;
+	}
+
+	private static OptimizeResult optimize(IResource resource, OptiPNGHashIndex index) {
+		var result = new OptimizeResult(resource);
+		var start = System.currentTimeMillis();
+
+		try {
+			var location = resource.getLocation();
+			var path = location.toFile().toPath();
+			var key = getIndexKey(resource);
+
+			result._oldSize = Files.size(path);
+
+			var entry = index.get(key);
+			var time = Files.getLastModifiedTime(path).toMillis();
+
+			if (entry != null && entry.size == result._oldSize && entry.time == time) {
+				result._skipped = true;
+			} else {
+				var hash = computeHash(path);
+
+				if (entry != null && entry.size == result._oldSize && entry.hash.equals(hash)) {
+					result._skipped = true;
+					index.put(key, new OptiPNGHashIndex.Entry(hash, result._oldSize, time));
+				} else {
+					optimize(location);
+
+					index.put(key, new OptiPNGHashIndex.Entry(computeHash(path), Files.size(path),
+							Files.getLastModifiedTime(path).toMillis()));
+				}
+			}
+
+			result._newSize = Files.size(path);
+
+		} catch (Exception e) {
+			result._error = e;
+			result._newSize = result._oldSize;
+		}
+
+		result._time = System.currentTimeMillis() - start;
+
+		return result;
 	}
 
 	public static void optimize(IPath path) {
@@ -78,19 +285,27 @@ public class OptiPNGCore {
 		}
 	}
 
-	private static String computeHash(IResource resource) throws Exception {
-		if (resource instanceof IFile) {
-			return getMD5Checksum(getInputStreamFromFileSystem(resource));
+	/**
+	 * The MD5 of the file content, read through a file channel with a large
+	 * direct buffer.
+	 */
+	public static String computeHash(Path file) throws Exception {
+		var digest = MessageDigest.getInstance("MD5");
+		var buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+
+		try (var channel = FileChannel.open(file)) {
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
 		}
-		return "";
-	}
 
-	private static InputStream getInputStreamFromFileSystem(IResource resource) throws FileNotFoundException {
-		return new FileInputStream(resource.getLocation().toFile());
+		return toHex(digest.digest());
 	}
 
 	private static byte[] createChecksum(InputStream input) throws Exception {
-		byte[] buffer = new byte[1024];
+		byte[] buffer = new byte[64 * 1024];
 		MessageDigest complete = MessageDigest.getInstance("MD5");
 		int numRead;
 
@@ -106,13 +321,18 @@ public class OptiPNGCore {
 	}
 
 	public static String getMD5Checksum(InputStream input) throws Exception {
-		byte[] b = createChecksum(input);
-		String result = "";
+		return toHex(createChecksum(input));
+	}
+
+	private static String toHex(byte[] b) {
+		var sb = new StringBuilder(b.length * 2);
 
 		for (int i = 0; i < b.length; i++) {
-			result += Integer.toString((b[i] & 0xff) + 0x100, 16).substring(1);
+			sb.append(Character.forDigit((b[i] >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b[i] & 0xF, 16));
 		}
-		return result;
+
+		return sb.toString();
 	}
 
 	public static IPreferenceStore getPreferenceStore() {
@@ -0,0 +1,66 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.optipng.core;
+
+import java.nio.file.Path;
+
+import phasereditor.inspect.core.LineIndexFile;
+
+/**
+ * The hashes of the optimized files, stored in a single file instead of a
+ * persistent property per resource. Each line has the hash, the size and the
+ * modification time of the file, and the workspace path:
+ * <code>hash size time path</code>. The size and time let to skip the hashing
+ * of the files that did not change since they were optimized.
+ * 
+ * @author arian
+ *
+ */
+public class OptiPNGHashIndex extends LineIndexFile<OptiPNGHashIndex.Entry> {
+
+	public static class Entry {
+		public final String hash;
+		public final long size;
+		public final long time;
+
+		public Entry(String hash, long size, long time) {
+			this.hash = hash;
+			this.size = size;
+			this.time = time;
+		}
+	}
+
+	public OptiPNGHashIndex(Path file) {
+		super(file, null, 3);
+		load();
+	}
+
+	@Override
+	protected Entry parseValue(String[] fields) {
+		return new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+	}
+
+	@Override
+	protected String formatValue(Entry entry) {
+		return entry.hash + " " + entry.size + " " + entry.time;
+	}
+}
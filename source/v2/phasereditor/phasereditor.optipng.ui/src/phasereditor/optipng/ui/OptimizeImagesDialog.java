@@ -24,8 +24,9 @@ package phasereditor.optipng.ui;
 import static java.lang.System.out;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceVisitor;
@@ -62,9 +63,11 @@ public class OptimizeImagesDialog extends Dialog {
 	List<IResource> _selection;
 	Label _labelTitle;
 	TableViewer _tableViewer;
-	HashMap<IResource, String> _oldSizeMap;
-	HashMap<IResource, String> _newSizeMap;
-	HashMap<IResource, String> _reductionMap;
+	Map<IResource, String> _oldSizeMap;
+	Map<IResource, String> _newSizeMap;
+	Map<IResource, String> _reductionMap;
+	Map<IResource, String> _timeMap;
+	String _summary;
 
 	/**
 	 * Create the dialog.
@@ -154,6 +157,17 @@ public class OptimizeImagesDialog extends Dialog {
 		tblclmnReduction.setWidth(100);
 		tblclmnReduction.setText("Reduction %");
 
+		TableViewerColumn tableViewerColumn_5 = new TableViewerColumn(_tableViewer, SWT.NONE);
+		tableViewerColumn_5.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				return _timeMap.get(element);
+			}
+		});
+		TableColumn tblclmnTime = tableViewerColumn_5.getColumn();
+		tblclmnTime.setWidth(90);
+		tblclmnTime.setText("Time");
+
 		TableViewerColumn tableViewerColumn_4 = new TableViewerColumn(_tableViewer, SWT.NONE);
 		tableViewerColumn_4.setLabelProvider(new ColumnLabelProvider() {
 			@Override
@@ -184,9 +198,10 @@ public class OptimizeImagesDialog extends Dialog {
 		_labelTitle.setText("Running OptiPNG");
 		try {
 			List<IResource> list = new ArrayList<>();
-			_oldSizeMap = new HashMap<>();
-			_newSizeMap = new HashMap<>();
-			_reductionMap = new HashMap<>();
+			_oldSizeMap = new ConcurrentHashMap<>();
+			_newSizeMap = new ConcurrentHashMap<>();
+			_reductionMap = new ConcurrentHashMap<>();
+			_timeMap = new ConcurrentHashMap<>();
 			for (IResource res : _selection) {
 				res.accept(new IResourceVisitor() {
 
@@ -215,33 +230,31 @@ public class OptimizeImagesDialog extends Dialog {
 				public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
 					try {
 						monitor.beginTask("Optimizing PNGs", list.size());
-						for (IResource resource : list) {
-
-							Display.getDefault().asyncExec(new Runnable() {
-
-								@Override
-								public void run() {
-									_labelTitle.setText("Optimizing " + resource.getName());
-								}
-							});
 
-							IPath path = resource.getLocation();
+						long start = System.currentTimeMillis();
 
-							long len1 = path.toFile().length();
+						Display.getDefault().asyncExec(() -> _labelTitle
+								.setText("Optimizing " + list.size() + " files with " + OptiPNGCore.THREADS + " processes..."));
 
-							out.println("OptiPNG Dialog: optimize " + path.toFile().getAbsolutePath());
+						var results = OptiPNGCore.optimize(list, result -> {
+							var resource = result.getResource();
 
-							OptiPNGCore.optimize(path);
-							OptiPNGCore.updateHashCache(resource);
-
-							long len2 = path.toFile().length();
+							if (result.getError() != null) {
+								result.getError().printStackTrace();
+								_reductionMap.put(resource, "Error");
+							} else if (result.isSkipped()) {
+								_reductionMap.put(resource, "Skipped");
+							} else {
+								int reduction = result.getOldSize() == 0 ? 0
+										: (int) (100 - (double) result.getNewSize() / result.getOldSize() * 100);
+								_reductionMap.put(resource, reduction + "%");
+							}
 
-							int reduction = (int) (100 - (double) len2 / (double) len1 * 100);
+							out.println("OptiPNG Dialog: " + resource.getFullPath() + " " + _reductionMap.get(resource)
+									+ " in " + result.getTime() + "ms");
 
-							_reductionMap.put(resource, reduction + "%");
 							_newSizeMap.put(resource, getFileSize(resource));
-
-							monitor.worked(1);
+							_timeMap.put(resource, result.getTime() + "ms");
 
 							Display.getDefault().asyncExec(new Runnable() {
 
@@ -251,7 +264,29 @@ public class OptimizeImagesDialog extends Dialog {
 									_tableViewer.reveal(resource);
 								}
 							});
+						}, monitor);
+
+						long saved = 0;
+						int optimized = 0;
+						int skipped = 0;
+						int failed = 0;
+
+						for (var result : results) {
+							saved += result.getSavedBytes();
+
+							if (result.getError() != null) {
+								failed++;
+							} else if (result.isSkipped()) {
+								skipped++;
+							} else {
+								optimized++;
+							}
 						}
+
+						_summary = "Done, " + optimized + " files optimized, " + skipped
+								+ " unchanged files skipped, " + failed + " failed, " + saved / 1024 + "KB saved in "
+								+ (System.currentTimeMillis() - start) / 1000.0 + "s.";
+
 						monitor.done();
 						return Status.OK_STATUS;
 					} catch (Exception e) {
@@ -263,7 +298,7 @@ public class OptimizeImagesDialog extends Dialog {
 							@SuppressWarnings("synthetic-access")
 							@Override
 							public void run() {
-								_labelTitle.setText("Done, all files are optimized.");
+								_labelTitle.setText(_summary == null ? "Done." : _summary);
 								getButton(OK).setEnabled(true);
 							}
 						});
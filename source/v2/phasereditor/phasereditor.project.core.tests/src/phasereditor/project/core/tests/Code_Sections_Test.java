@@ -0,0 +1,262 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core.tests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import phasereditor.project.core.codegen.BaseCodeGenerator;
+import phasereditor.project.core.codegen.SectionIndex;
+
+/**
+ * Merges the user code sections of the scene files of the templates, and of
+ * other contents, and compares the result with the merge done by searching the
+ * tags in the whole content, like the generators did before the tags were
+ * indexed.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("static-method")
+public class Code_Sections_Test {
+
+	private static final String[] TAGS = {
+
+			"/* START OF COMPILED CODE */",
+
+			"/* END OF COMPILED CODE */",
+
+			"/* START-USER-CODE */",
+
+			"/* END-USER-CODE */",
+
+			"/* --- start generated code --- */",
+
+			"/* --- end generated code --- */",
+
+			"/* --- pre-init-begin --- */",
+
+			"/* --- pre-init-end --- */",
+
+			"/* --- post-init-begin --- */",
+
+			"/* --- post-init-end --- */",
+
+			"/* state-methods-begin */",
+
+			"/* state-methods-end */",
+
+			"papa(--o^^o--)pig"
+
+	};
+
+	@Test
+	public void testTemplates() throws IOException {
+		var wsPath = Paths.get(".").toAbsolutePath().getParent().getParent();
+		var templatesPath = wsPath.resolve("phasereditor.resources.templates");
+
+		List<Path> files;
+
+		try (var stream = Files.walk(templatesPath)) {
+			files = stream.filter(p -> p.toString().endsWith(".js")).collect(Collectors.toList());
+		}
+
+		var count = 0;
+
+		for (var file : files) {
+			var content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+			if (content.contains("/* START OF COMPILED CODE */")) {
+				assertMerge(file.toString(), content);
+				count++;
+			}
+		}
+
+		Assert.assertTrue("No scene files in " + templatesPath, count > 0);
+	}
+
+	@Test
+	public void testContents() {
+		// @formatter:off
+		String[] contents = {
+				"",
+				"var a = 1;",
+				"/* START OF COMPILED CODE */",
+				"/* END OF COMPILED CODE */ before /* START OF COMPILED CODE */",
+				"a /* START-USER-CODE */ b /* START-USER-CODE */ c /* END-USER-CODE */ d /* END-USER-CODE */",
+				"/* x /* START-USER-CODE */ y */ /* END-USER-CODE */",
+				"/*/* START-USER-CODE */*/ /**/ /*/ /* END-USER-CODE",
+				"/* START-USER-CODE */ no end",
+				"/* --- start generated code --- */\n/* --- pre-init-begin --- */\n\tuser\n/* --- pre-init-end --- */\n"
+						+ "/* --- post-init-begin --- */\n/* --- post-init-end --- */\n/* --- end generated code --- */\n",
+				"head /* END OF COMPILED CODE */ tail papa(--o^^o--)pig",
+				"/* unclosed /* START OF COMPILED CODE"
+		};
+		// @formatter:on
+
+		for (var content : contents) {
+			assertMerge(content, content);
+		}
+	}
+
+	@Test
+	public void testIndexOf() {
+		var random = new Random(1);
+		String[] tokens = { "/*", "*/", "/", "*", " ", "a", "b", "/* a */", "/*a*/", "/**/" };
+
+		for (int i = 0; i < 2000; i++) {
+			var content = randomText(random, tokens, random.nextInt(40));
+			var index = new SectionIndex(content);
+
+			for (int j = 0; j < 20; j++) {
+				var tag = randomText(random, tokens, 1 + random.nextInt(4));
+
+				Assert.assertEquals("'" + tag + "' in '" + content + "'", content.indexOf(tag), index.indexOf(tag));
+			}
+		}
+	}
+
+	private static String randomText(Random random, String[] tokens, int count) {
+		var sb = new StringBuilder();
+
+		for (int i = 0; i < count; i++) {
+			sb.append(tokens[random.nextInt(tokens.length)]);
+		}
+
+		return sb.toString();
+	}
+
+	private static void assertMerge(String name, String content) {
+		var expected = new LegacyMerge(content).merge();
+		var actual = new MergeGenerator().generate(content);
+
+		Assert.assertEquals(name, expected, actual);
+
+		for (var tag : TAGS) {
+			var generator = new MergeGenerator();
+			generator.generate(content);
+			Assert.assertEquals(name + " " + tag, content.indexOf(tag), generator.indexOfSection(tag));
+		}
+	}
+
+	/**
+	 * Merges the sections like the scene and canvas generators.
+	 */
+	static class MergeGenerator extends BaseCodeGenerator {
+
+		@Override
+		protected void internalGenerate() {
+			sectionStart("/* START OF COMPILED CODE */", "\n// You can write more code here\n\n");
+			line();
+			section("/* START-USER-CODE */", "/* END-USER-CODE */", "\n\n\t// Write your code here.\n\n\t");
+			line();
+			section("/* --- pre-init-begin --- */", "/* --- pre-init-end --- */", "\n\t// pre-init\n");
+			section("/* --- post-init-begin --- */", "/* --- post-init-end --- */", "\n\t// post-init\n");
+			section("/* state-methods-begin */", "/* state-methods-end */", "\n\t// methods\n");
+			line();
+			section("/* --- end generated code --- */", "// You can insert code here\n");
+			section("/* END OF COMPILED CODE */", "\n\n// You can write more code here\n");
+		}
+	}
+
+	/**
+	 * The merge searching the tags in the whole content, for each section.
+	 */
+	static class LegacyMerge {
+		private String _replace;
+		private List<String> _out;
+
+		public LegacyMerge(String replace) {
+			_replace = replace;
+			_out = new ArrayList<>();
+		}
+
+		public String merge() {
+			// the same calls of MergeGenerator
+
+			sectionStart("/* START OF COMPILED CODE */", "\n// You can write more code here\n\n");
+			_out.add("\n");
+			section("/* START-USER-CODE */", "/* END-USER-CODE */", "\n\n\t// Write your code here.\n\n\t");
+			_out.add("\n");
+			section("/* --- pre-init-begin --- */", "/* --- pre-init-end --- */", "\n\t// pre-init\n");
+			section("/* --- post-init-begin --- */", "/* --- post-init-end --- */", "\n\t// post-init\n");
+			section("/* state-methods-begin */", "/* state-methods-end */", "\n\t// methods\n");
+			_out.add("\n");
+			section("/* --- end generated code --- */", "// You can insert code here\n");
+			section("/* END OF COMPILED CODE */", "\n\n// You can write more code here\n");
+
+			return String.join("", _out);
+		}
+
+		private String getSectionContent(String closeTag, String defaultContent) {
+			var j = _replace.indexOf(closeTag);
+
+			if (_replace.length() > 0 && j != -1) {
+				return _replace.substring(0, j);
+			}
+
+			return defaultContent;
+		}
+
+		private String getSectionContent(String openTag, String closeTag, String defaultContent) {
+			int i = _replace.indexOf(openTag);
+			int j = _replace.indexOf(closeTag);
+
+			if (j == -1) {
+				j = _replace.length();
+			}
+
+			if (i != -1 && j != -1) {
+				return _replace.substring(i + openTag.length(), j);
+			}
+
+			return defaultContent;
+		}
+
+		private void sectionStart(String endTag, String defaultContent) {
+			_out.add(getSectionContent(endTag, defaultContent));
+			_out.add(endTag);
+		}
+
+		private void section(String openTag, String defaultContent) {
+			_out.add(openTag);
+			_out.add(getSectionContent(openTag, "papa(--o^^o--)pig", defaultContent));
+		}
+
+		private void section(String openTag, String closeTag, String defaultContent) {
+			var content = getSectionContent(openTag, closeTag, defaultContent);
+			_out.add(openTag);
+			_out.add(content);
+			_out.add(closeTag);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core;
+
+import static java.lang.System.out;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Runs the build participants following their dependencies.
+ * <p>
+ * A participant that declares the <code>after</code> attribute depends only on
+ * the listed participants, and it runs in a worker thread as soon as they are
+ * done. A participant without the <code>after</code> attribute depends on all
+ * the participants before it (by <code>order</code>), and it runs in the
+ * builder thread, like always.
+ * <p>
+ * The participants that run in the worker threads should not modify the
+ * workspace resources, the builder thread holds the workspace lock.
+ * 
+ * @author arian
+ *
+ */
+public class BuildParticipantScheduler {
+
+	/**
+	 * The number of worker threads. It can be set with the
+	 * <code>PhaserProjectBuilder.THREADS</code> system property.
+	 */
+	public static final int THREADS = Math.max(1, Integer.getInteger("PhaserProjectBuilder.THREADS",
+			Math.min(4, Runtime.getRuntime().availableProcessors())).intValue());
+
+	private static ExecutorService _pool;
+
+	private static synchronized ExecutorService getPool() {
+		if (_pool == null) {
+			var count = new AtomicInteger();
+
+			_pool = Executors.newFixedThreadPool(THREADS, r -> {
+				var thread = new Thread(r, "Phaser Project Builder " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		return _pool;
+	}
+
+	private static Map<String, Long> _lastTimes = new ConcurrentHashMap<>();
+
+	/**
+	 * The time (in milliseconds) of the last run of every participant, by stage
+	 * and participant id. Like <code>fullBuild/phasereditor.atlas.core.atlasDataBuilder</code>.
+	 */
+	public static Map<String, Long> getLastTimes() {
+		return new HashMap<>(_lastTimes);
+	}
+
+	public interface IParticipantAction {
+		public void run(IProjectBuildParticipant participant) throws Exception;
+	}
+
+	public static class Node {
+		private IProjectBuildParticipant _participant;
+		private String _id;
+		private Set<String> _after;
+		private List<Node> _dependencies;
+
+		/**
+		 * @param after
+		 *            The ids of the participants it depends on, or
+		 *            <code>null</code> if it depends on all the previous
+		 *            participants.
+		 */
+		public Node(IProjectBuildParticipant participant, String id, Set<String> after) {
+			_participant = participant;
+			_id = id;
+			_after = after;
+			_dependencies = new ArrayList<>();
+		}
+
+		public IProjectBuildParticipant getParticipant() {
+			return _participant;
+		}
+
+		public String getId() {
+			return _id;
+		}
+
+		public boolean isParallel() {
+			return _after != null;
+		}
+
+		public List<Node> getDependencies() {
+			return _dependencies;
+		}
+
+		@Override
+		public String toString() {
+			return _id;
+		}
+	}
+
+	private List<Node> _nodes;
+
+	/**
+	 * @param nodes
+	 *            The participants, sorted by order.
+	 */
+	public BuildParticipantScheduler(List<Node> nodes) {
+		var byId = new HashMap<String, Node>();
+
+		for (var node : nodes) {
+			byId.put(node._id, node);
+		}
+
+		for (int i = 0; i < nodes.size(); i++) {
+			var node = nodes.get(i);
+
+			if (node._after == null) {
+				node._dependencies.addAll(nodes.subList(0, i));
+			} else {
+				for (var id : node._after) {
+					var dep = byId.get(id);
+
+					if (dep == null) {
+						out.println("BuildParticipantScheduler: unknown participant '" + id + "' required by " + node);
+					} else {
+						node._dependencies.add(dep);
+					}
+				}
+			}
+		}
+
+		_nodes = sort(nodes);
+	}
+
+	/**
+	 * Sorts the nodes so every node is after its dependencies, keeping the order
+	 * of the independent nodes. If there is a cycle, all the nodes are executed
+	 * in order, one after the other.
+	 */
+	private static List<Node> sort(List<Node> nodes) {
+		var sorted = new ArrayList<Node>();
+		var done = new HashSet<Node>();
+
+		while (sorted.size() < nodes.size()) {
+			Node next = null;
+
+			for (var node : nodes) {
+				if (!done.contains(node) && done.containsAll(node._dependencies)) {
+					next = node;
+					break;
+				}
+			}
+
+			if (next == null) {
+				out.println("BuildParticipantScheduler: cycle in the participants dependencies, running them in order.");
+
+				for (int i = 0; i < nodes.size(); i++) {
+					var node = nodes.get(i);
+					node._after = null;
+					node._dependencies.clear();
+					node._dependencies.addAll(nodes.subList(0, i));
+				}
+
+				return new ArrayList<>(nodes);
+			}
+
+			done.add(next);
+			sorted.add(next);
+		}
+
+		return sorted;
+	}
+
+	public List<Node> getNodes() {
+		return _nodes;
+	}
+
+	public List<IProjectBuildParticipant> getParticipants() {
+		var list = new ArrayList<IProjectBuildParticipant>();
+
+		for (var node : _nodes) {
+			list.add(node._participant);
+		}
+
+		return list;
+	}
+
+	/**
+	 * Runs the action on all the participants, and waits until all of them are
+	 * done. The errors are logged, and they do not stop the other participants.
+	 * 
+	 * @param stage
+	 *            The name of the stage, used in the log and the timings.
+	 * @param monitor
+	 *            The progress monitor, it is updated only from the calling
+	 *            thread. It can be <code>null</code>.
+	 */
+	public void run(String stage, IProgressMonitor monitor, IParticipantAction action) {
+		var futures = new HashMap<Node, CompletableFuture<Void>>();
+
+		for (var node : _nodes) {
+			futures.put(node, new CompletableFuture<>());
+		}
+
+		// start the parallel participants, they wait for their dependencies in the
+		// pool
+
+		for (var node : _nodes) {
+			if (node.isParallel()) {
+				var future = futures.get(node);
+				var deps = node._dependencies.stream().map(futures::get).toArray(CompletableFuture[]::new);
+
+				CompletableFuture.allOf(deps).thenRunAsync(() -> runNode(stage, node, action), getPool())
+						.whenComplete((r, e) -> future.complete(null));
+			}
+		}
+
+		// run the others in this thread
+
+		for (var node : _nodes) {
+			if (!node.isParallel()) {
+				var deps = node._dependencies.stream().map(futures::get).toArray(CompletableFuture[]::new);
+
+				CompletableFuture.allOf(deps).join();
+
+				if (monitor != null) {
+					monitor.subTask("Building " + node._participant.getClass().getSimpleName());
+				}
+
+				runNode(stage, node, action);
+
+				if (monitor != null) {
+					monitor.worked(1);
+				}
+
+				futures.get(node).complete(null);
+			}
+		}
+
+		for (var node : _nodes) {
+			if (node.isParallel()) {
+				futures.get(node).join();
+
+				if (monitor != null) {
+					monitor.worked(1);
+				}
+			}
+		}
+
+		for (var node : _nodes) {
+			out.println("\t" + node._participant + " (" + _lastTimes.get(stage + "/" + node._id) + "ms)");
+		}
+	}
+
+	private static void runNode(String stage, Node node, IParticipantAction action) {
+		var start = System.currentTimeMillis();
+
+		try {
+			action.run(node._participant);
+		} catch (Exception e) {
+			ProjectCore.logError(e);
+		}
+
+		_lastTimes.put(stage + "/" + node._id, Long.valueOf(System.currentTimeMillis() - start));
+	}
+}
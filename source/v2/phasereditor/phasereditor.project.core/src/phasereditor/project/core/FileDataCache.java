@@ -22,11 +22,16 @@
 package phasereditor.project.core;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -38,112 +43,369 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 
 /**
+ * A cache of data computed from the files of the projects.
+ * <p>
+ * The readers do not lock: every project has its own concurrent map, and the
+ * list of the project data is a snapshot that is created again only after a
+ * change. The writers (builds) lock only the project they are building. The
+ * full build creates the data of the files in parallel, in a bounded pool
+ * shared by all the caches.
+ * 
  * @author arian
  *
  */
 public abstract class FileDataCache<TData> {
-	private Map<IProject, Map<IPath, TData>> _cache;
+
+	/**
+	 * The number of threads used to create the data in a full build. It can be
+	 * set with the <code>FileDataCache.BUILD_THREADS</code> system property.
+	 */
+	public static final int BUILD_THREADS = Math.max(1, Integer.getInteger("FileDataCache.BUILD_THREADS",
+			Math.min(4, Runtime.getRuntime().availableProcessors())).intValue());
+
+	private static ExecutorService _buildPool;
+
+	private static synchronized ExecutorService getBuildPool() {
+		if (_buildPool == null) {
+			var count = new AtomicInteger();
+
+			_buildPool = Executors.newFixedThreadPool(BUILD_THREADS, r -> {
+				var thread = new Thread(r, "FileDataCache Builder " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		return _buildPool;
+	}
+
+	private static class Snapshot<TData> {
+		private int _version;
+		private List<TData> _list;
+
+		public Snapshot(int version, List<TData> list) {
+			_version = version;
+			_list = list;
+		}
+	}
+
+	private static class ProjectData<TData> {
+		private Map<IPath, TData> _map;
+		private volatile int _version;
+		private volatile Snapshot<TData> _snapshot;
+
+		public ProjectData(Map<IPath, TData> map) {
+			_map = map;
+		}
+
+		/**
+		 * Called by the writers, with the project lock, after a change in the map.
+		 */
+		public void changed() {
+			_version++;
+		}
+
+		public List<TData> getSnapshot() {
+			var snapshot = _snapshot;
+			var version = _version;
+
+			if (snapshot != null && snapshot._version == version) {
+				return snapshot._list;
+			}
+
+			var list = Collections.unmodifiableList(new ArrayList<>(_map.values()));
+
+			if (_version == version) {
+				// it is not changed while we were copying it
+				_snapshot = new Snapshot<>(version, list);
+			}
+
+			return list;
+		}
+	}
+
+	/**
+	 * The build metrics of a cache.
+	 */
+	public static class Stats {
+		private AtomicLong _fullBuilds = new AtomicLong();
+		private AtomicLong _fullBuildTime = new AtomicLong();
+		private AtomicLong _deltaBuilds = new AtomicLong();
+		private AtomicLong _deltaBuildTime = new AtomicLong();
+		private volatile int _lastFiles;
+		private volatile int _lastEntries;
+		private volatile long _lastFullBuildTime;
+
+		public long getFullBuilds() {
+			return _fullBuilds.get();
+		}
+
+		/**
+		 * The total time of the full builds, in milliseconds.
+		 */
+		public long getFullBuildTime() {
+			return _fullBuildTime.get();
+		}
+
+		public long getLastFullBuildTime() {
+			return _lastFullBuildTime;
+		}
+
+		/**
+		 * The files visited by the last full build.
+		 */
+		public int getLastFiles() {
+			return _lastFiles;
+		}
+
+		/**
+		 * The entries created by the last full build.
+		 */
+		public int getLastEntries() {
+			return _lastEntries;
+		}
+
+		public long getDeltaBuilds() {
+			return _deltaBuilds.get();
+		}
+
+		/**
+		 * The total time of the delta builds, in milliseconds.
+		 */
+		public long getDeltaBuildTime() {
+			return _deltaBuildTime.get();
+		}
+
+		@Override
+		public String toString() {
+			return "full builds " + getFullBuilds() + " (" + getFullBuildTime() + "ms, last " + _lastFiles
+					+ " files, " + _lastEntries + " entries, " + _lastFullBuildTime + "ms), delta builds "
+					+ getDeltaBuilds() + " (" + getDeltaBuildTime() + "ms)";
+		}
+	}
+
+	private Map<IProject, ProjectData<TData>> _cache;
+	private Map<IProject, Object> _locks;
+	private Stats _stats;
 
 	public FileDataCache() {
-		_cache = new HashMap<>();
+		_cache = new ConcurrentHashMap<>();
+		_locks = new ConcurrentHashMap<>();
+		_stats = new Stats();
+	}
+
+	public Stats getStats() {
+		return _stats;
+	}
+
+	private Object getProjectLock(IProject project) {
+		return _locks.computeIfAbsent(project, p -> new Object());
 	}
 
-	public synchronized void buildProject(IProject project) throws CoreException {
-		Map<IPath, TData> map = new HashMap<>();
+	public void buildProject(IProject project) throws CoreException {
+		var start = System.currentTimeMillis();
+
+		List<IFile> files = new ArrayList<>();
+
 		IContainer webContent = ProjectCore.getWebContentFolder(project);
 		webContent.accept(new IResourceVisitor() {
 
 			@Override
 			public boolean visit(IResource resource) throws CoreException {
 				if (resource instanceof IFile) {
-					TData data = createData((IFile) resource);
-					if (data != null) {
-						map.put(resource.getFullPath(), data);
-					}
+					files.add((IFile) resource);
 				}
 				return true;
 			}
 		});
-		_cache.put(project, map);
-	}
 
-	public synchronized void buildDelta(IProject project, IResourceDelta delta) throws CoreException {
-		Map<IPath, TData> map = getProjectMap(project);
+		Map<IPath, TData> map = new ConcurrentHashMap<>();
 
-		delta.accept(new IResourceDeltaVisitor2() {
+		synchronized (getProjectLock(project)) {
 
-			@Override
-			public void fileAdded(IFile file) {
-				TData data = createData(file);
-				if (data != null) {
-					map.put(file.getFullPath(), data);
+			if (files.size() < BUILD_THREADS * 2) {
+
+				for (var file : files) {
+					putData(map, file);
 				}
-			}
 
-			@Override
-			public void fileRemoved(IFile file) {
-				map.remove(file.getFullPath());
-			}
+			} else {
 
-			@Override
-			public void fileMovedTo(IFile file, IPath movedFromPath, IPath movedToPath) {
-				TData data = map.remove(movedFromPath);
+				var pool = getBuildPool();
+				var chunkSize = Math.max(1, files.size() / (BUILD_THREADS * 4));
+				var futures = new ArrayList<Future<?>>();
 
-				if (!ProjectCore.isWebContentFile(file)) {
-					// the file is going out of the web content so we are not
-					// interested on it, so just keep it deleted!!!
-					return;
+				for (int i = 0; i < files.size(); i += chunkSize) {
+					var chunk = files.subList(i, Math.min(files.size(), i + chunkSize));
+
+					futures.add(pool.submit(() -> {
+						for (var file : chunk) {
+							putData(map, file);
+						}
+					}));
 				}
 
-				if (data == null) {
-					// maybe moved from outside the WebContent folder
-					data = createData(file);
-					if (data == null) {
-						// this is not the kind of file we are interested on
-						return;
+				for (var future : futures) {
+					try {
+						future.get();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					} catch (ExecutionException e) {
+						ProjectCore.logError(e);
 					}
-				} else {
-					updateDataWithMove(data, file, movedFromPath, movedToPath);
 				}
-
-				map.put(movedToPath, data);
 			}
 
-			@Override
-			public void fileChanged(IFile file) {
-				TData data = createData(file);
-				if (data != null) {
-					map.put(file.getFullPath(), data);
+			var oldData = _cache.put(project, new ProjectData<>(map));
+
+			if (oldData != null) {
+				for (var entry : oldData._map.entrySet()) {
+					if (!map.containsKey(entry.getKey())) {
+						dataRemoved(entry.getKey(), entry.getValue());
+					}
 				}
 			}
+		}
 
-		});
+		var time = System.currentTimeMillis() - start;
+
+		_stats._fullBuilds.incrementAndGet();
+		_stats._fullBuildTime.addAndGet(time);
+		_stats._lastFullBuildTime = time;
+		_stats._lastFiles = files.size();
+		_stats._lastEntries = map.size();
+	}
+
+	private void putData(Map<IPath, TData> map, IFile file) {
+		try {
+			TData data = createData(file);
+			if (data != null) {
+				map.put(file.getFullPath(), data);
+			}
+		} catch (Exception e) {
+			ProjectCore.logError(e);
+		}
+	}
+
+	public void buildDelta(IProject project, IResourceDelta delta) throws CoreException {
+		var start = System.currentTimeMillis();
+
+		synchronized (getProjectLock(project)) {
+			var projectData = getProjectData_(project);
+			Map<IPath, TData> map = projectData._map;
+
+			try {
+				delta.accept(new IResourceDeltaVisitor2() {
+
+					@Override
+					public void fileAdded(IFile file) {
+						TData data = createData(file);
+						if (data != null) {
+							map.put(file.getFullPath(), data);
+						}
+					}
+
+					@Override
+					public void fileRemoved(IFile file) {
+						var path = file.getFullPath();
+						TData data = map.remove(path);
+						if (data != null) {
+							dataRemoved(path, data);
+						}
+					}
+
+					@Override
+					public void fileMovedTo(IFile file, IPath movedFromPath, IPath movedToPath) {
+						TData data = map.remove(movedFromPath);
+
+						if (!ProjectCore.isWebContentFile(file)) {
+							// the file is going out of the web content so we are not
+							// interested on it, so just keep it deleted!!!
+							if (data != null) {
+								dataRemoved(movedFromPath, data);
+							}
+							return;
+						}
+
+						if (data == null) {
+							// maybe moved from outside the WebContent folder
+							data = createData(file);
+							if (data == null) {
+								// this is not the kind of file we are interested on
+								return;
+							}
+						} else {
+							updateDataWithMove(data, file, movedFromPath, movedToPath);
+						}
+
+						map.put(movedToPath, data);
+					}
+
+					@Override
+					public void fileChanged(IFile file) {
+						TData data = createData(file);
+						if (data != null) {
+							map.put(file.getFullPath(), data);
+						}
+					}
+
+				});
+			} finally {
+				projectData.changed();
+			}
+		}
+
+		_stats._deltaBuilds.incrementAndGet();
+		_stats._deltaBuildTime.addAndGet(System.currentTimeMillis() - start);
 	}
 
 	protected abstract void updateDataWithMove(TData data, IFile file, IPath movedFromPath, IPath movedToPath);
 
-	public synchronized void clean(IProject project) {
-		_cache.remove(project);
+	/**
+	 * Called when the data of a file is removed from the cache, because the file
+	 * was deleted, moved out of the web content, or the project was cleaned or
+	 * built again. Subclasses can override it to release the information derived
+	 * from the data.
+	 */
+	protected void dataRemoved(IPath path, TData data) {
+		// nothing by default
 	}
 
-	public synchronized List<TData> getProjectData(IProject project) {
-		Map<IPath, TData> map = _cache.get(project);
+	public void clean(IProject project) {
+		synchronized (getProjectLock(project)) {
+			var projectData = _cache.remove(project);
 
-		if (map == null) {
+			if (projectData != null) {
+				for (var entry : projectData._map.entrySet()) {
+					dataRemoved(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The data of the project. It is a read-only snapshot, it is not affected by
+	 * the next changes in the cache.
+	 */
+	public List<TData> getProjectData(IProject project) {
+		var projectData = _cache.get(project);
+
+		if (projectData == null) {
 			return Collections.emptyList();
 		}
-		Collection<TData> values = map.values();
-		return new ArrayList<>(values);
+
+		return projectData.getSnapshot();
 	}
 
-	public synchronized TData getFileData(IFile file) {
-		Map<IPath, TData> map = _cache.get(file.getProject());
+	public TData getFileData(IFile file) {
+		var projectData = _cache.get(file.getProject());
 
-		if (map == null) {
+		if (projectData == null) {
 			return null;
 		}
 
-		TData data = map.get(file.getFullPath());
+		TData data = projectData._map.get(file.getFullPath());
 
 		return data;
 	}
@@ -153,13 +415,15 @@ public abstract class FileDataCache<TData> {
 		return data != null;
 	}
 
-	private Map<IPath, TData> getProjectMap(IProject project) {
-		return _cache.computeIfAbsent(project, p -> new HashMap<>());
+	private ProjectData<TData> getProjectData_(IProject project) {
+		return _cache.computeIfAbsent(project, p -> new ProjectData<>(new ConcurrentHashMap<>()));
 	}
 
 	/**
 	 * Create the data associated to the file. Return null the file is not a
 	 * candidate to be cached (a way to filter the files).
+	 * <p>
+	 * In a full build, it is called from different threads at the same time.
 	 * 
 	 * @param file
 	 * @return The data of the file or null if the file has to be ignored.
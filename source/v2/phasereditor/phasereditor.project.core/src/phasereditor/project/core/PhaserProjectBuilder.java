@@ -24,8 +24,8 @@ package phasereditor.project.core;
 import static java.lang.System.out;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -102,20 +102,12 @@ public class PhaserProjectBuilder extends IncrementalProjectBuilder {
 
 		IProject project = getProject();
 
-		Map<String, Object> env = new HashMap<>();
+		Map<String, Object> env = new ConcurrentHashMap<>();
 
 		out.println("PhaserProjectBuilder.startupOnInitialize (start) [" + project.getName() + "]");
 
-		List<IProjectBuildParticipant> list = ProjectCore.getBuildParticipants();
-
-		for (IProjectBuildParticipant participant : list) {
-			try {
-				out.println("\t" + participant + " (building)");
-				participant.startupOnInitialize(project, env);
-			} catch (Exception e) {
-				ProjectCore.logError(e);
-			}
-		}
+		ProjectCore.getBuildParticipantScheduler().run("startupOnInitialize", null,
+				participant -> participant.startupOnInitialize(project, env));
 
 		out.println("PhaserProjectBuilder.startupOnInitialize (done) [" + project.getName() + "]");
 
@@ -129,35 +121,21 @@ public class PhaserProjectBuilder extends IncrementalProjectBuilder {
 
 		out.println("PhaserProjectBuilder.clean (start) [" + project.getName() + "]");
 
-		Map<String, Object> env = new HashMap<>();
-		List<IProjectBuildParticipant> list = ProjectCore.getBuildParticipants();
-		for (IProjectBuildParticipant participant : list) {
-			try {
-				out.println("\t" + participant + " (building)");
-				participant.clean(project, env);
-			} catch (Exception e) {
-				ProjectCore.logError(e);
-			}
-		}
+		Map<String, Object> env = new ConcurrentHashMap<>();
+
+		ProjectCore.getBuildParticipantScheduler().run("clean", null,
+				participant -> participant.clean(project, env));
 
 		out.println("PhaserProjectBuilder.clean (done) [" + project.getName() + "]");
 	}
 
 	protected static void projectDeleted(IProject project) {
-		Map<String, Object> env = new HashMap<>();
+		Map<String, Object> env = new ConcurrentHashMap<>();
 
 		out.println("PhaserProjectBuilder.projectDeleted (start) [" + project.getName() + "]");
 
-		List<IProjectBuildParticipant> list = ProjectCore.getBuildParticipants();
-
-		for (IProjectBuildParticipant participant : list) {
-			try {
-				out.println("\t" + participant + " (building)");
-				participant.projectDeleted(project, env);
-			} catch (Exception e) {
-				ProjectCore.logError(e);
-			}
-		}
+		ProjectCore.getBuildParticipantScheduler().run("projectDeleted", null,
+				participant -> participant.projectDeleted(project, env));
 
 		out.println("PhaserProjectBuilder.projectDeleted (done) [" + project.getName() + "]");
 	}
@@ -177,26 +155,18 @@ public class PhaserProjectBuilder extends IncrementalProjectBuilder {
 
 		// call all build participant!!!
 
-		Map<String, Object> env = new HashMap<>();
-		List<IProjectBuildParticipant> list = ProjectCore.getBuildParticipants();
+		Map<String, Object> env = new ConcurrentHashMap<>();
+		var scheduler = ProjectCore.getBuildParticipantScheduler();
 
-		monitor.beginTask("Building Phaser elements", list.size());
+		monitor.beginTask("Building Phaser elements", scheduler.getNodes().size());
 
-		for (IProjectBuildParticipant participant : list) {
-			try {
-				monitor.subTask("Building " + participant.getClass().getSimpleName());
-				out.println("\t" + participant + " (building)");
-
-				if (fullBuild) {
-					participant.fullBuild(project, env);
-				} else {
-					participant.build(project, delta, env);
-				}
-				monitor.worked(1);
-			} catch (Exception e) {
-				ProjectCore.logError(e);
+		scheduler.run(fullBuild ? "fullBuild" : "build", monitor, participant -> {
+			if (fullBuild) {
+				participant.fullBuild(project, env);
+			} else {
+				participant.build(project, delta, env);
 			}
-		}
+		});
 
 		monitor.done();
 
@@ -30,8 +30,10 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -95,18 +97,52 @@ public class ProjectCore {
 
 	public static List<IProjectBuildParticipant> getBuildParticipants() {
 		List<IProjectBuildParticipant> list = new ArrayList<>();
+
+		for (var node : getBuildParticipantNodes()) {
+			list.add(node.getParticipant());
+		}
+
+		return list;
+	}
+
+	/**
+	 * The build participants, with the dependencies declared in the
+	 * <code>after</code> attribute, ready to be executed.
+	 */
+	public static BuildParticipantScheduler getBuildParticipantScheduler() {
+		return new BuildParticipantScheduler(getBuildParticipantNodes());
+	}
+
+	private static List<BuildParticipantScheduler.Node> getBuildParticipantNodes() {
+		List<BuildParticipantScheduler.Node> list = new ArrayList<>();
 		IExtensionPoint point = Platform.getExtensionRegistry()
 				.getExtensionPoint("phasereditor.project.core.buildParticipant");
 
-		Map<IProjectBuildParticipant, String> orderMap = new HashMap<>();
+		Map<BuildParticipantScheduler.Node, String> orderMap = new HashMap<>();
 
 		for (IConfigurationElement element : point.getConfigurationElements()) {
 			try {
 				IProjectBuildParticipant participant = (IProjectBuildParticipant) element
 						.createExecutableExtension("handler");
-				list.add(participant);
+
+				Set<String> after = null;
+				String afterAttr = element.getAttribute("after");
+
+				if (afterAttr != null) {
+					after = new HashSet<>();
+
+					for (var id : afterAttr.split(",")) {
+						id = id.trim();
+						if (id.length() > 0) {
+							after.add(id);
+						}
+					}
+				}
+
+				var node = new BuildParticipantScheduler.Node(participant, element.getAttribute("id"), after);
+				list.add(node);
 				String order = element.getAttribute("order");
-				orderMap.put(participant, order);
+				orderMap.put(node, order);
 			} catch (Exception e) {
 				ProjectCore.logError(e);
 			}
@@ -32,19 +32,41 @@ import org.eclipse.swt.graphics.RGB;
 public abstract class BaseCodeGenerator implements ICodeGenerator {
 	private final StringBuilder _sb;
 	private String _replace;
+	private SectionIndex _sections;
 	private int _indent;
 
 	public BaseCodeGenerator() {
-		_sb = new StringBuilder();
+		this(new StringBuilder());
+	}
+
+	/**
+	 * @param buffer
+	 *            The buffer where the code is written. It is cleared before each
+	 *            generation, so the same buffer can be reused by many
+	 *            generators.
+	 */
+	public BaseCodeGenerator(StringBuilder buffer) {
+		_sb = buffer;
 	}
 
 	@Override
 	public final String generate(String replace) {
+		return generateBuffer(replace).toString();
+	}
+
+	/**
+	 * Like {@link #generate(String)} but it does not create the string, the code
+	 * is left in the buffer.
+	 */
+	public final StringBuilder generateBuffer(String replace) {
 		_replace = replace == null ? "" : replace;
+		_sections = null;
+		_indent = 0;
+		_sb.setLength(0);
 
 		internalGenerate();
 
-		return _sb.toString();
+		return _sb;
 	}
 
 	protected abstract void internalGenerate();
@@ -52,8 +74,20 @@ public abstract class BaseCodeGenerator implements ICodeGenerator {
 	public int length() {
 		return _sb.length();
 	}
+	/**
+	 * The position of a tag in the replace content, like
+	 * <code>getReplaceContent().indexOf(tag)</code>. The tags are indexed the
+	 * first time, so the content is not searched again for each section.
+	 */
+	public int indexOfSection(String tag) {
+		if (_sections == null) {
+			_sections = new SectionIndex(_replace);
+		}
+		return _sections.indexOf(tag);
+	}
+
 	public String getSectionContent(String closeTag, String defaultContent) {
-		var j = _replace.indexOf(closeTag);
+		var j = indexOfSection(closeTag);
 		
 		var size = _replace.length();
 		
@@ -66,8 +100,8 @@ public abstract class BaseCodeGenerator implements ICodeGenerator {
 	}
 	
 	public String getSectionContent(String openTag, String closeTag, String defaultContent) {
-		int i = _replace.indexOf(openTag);
-		int j = _replace.indexOf(closeTag);
+		int i = indexOfSection(openTag);
+		int j = indexOfSection(closeTag);
 		
 		if (j == -1) {
 			j = _replace.length();
@@ -148,7 +182,10 @@ public abstract class BaseCodeGenerator implements ICodeGenerator {
 	public void line(String line) {
 		append(line);
 		append("\n");
-		append(getIndentTabs());
+
+		for (int i = 0; i < _indent; i++) {
+			_sb.append('\t');
+		}
 	}
 
 	public static String escapeStringLiterals(String text) {
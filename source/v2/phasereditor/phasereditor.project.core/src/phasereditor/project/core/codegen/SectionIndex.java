@@ -0,0 +1,116 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core.codegen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The positions of the section tags in the content of a generated file, like
+ * <code>/* START-USER-CODE *&#47;</code>.
+ * <p>
+ * The content is tokenized once: every <code>/* ... *&#47;</code> comment is
+ * indexed by its text, at the position of its first occurrence. A tag with that
+ * form is found with a map lookup, and any other tag is searched in the content
+ * only the first time. The result is always the same of
+ * {@link String#indexOf(String)}.
+ * 
+ * @author arian
+ *
+ */
+public class SectionIndex {
+
+	/**
+	 * The longer comments are not indexed, they are not section tags.
+	 */
+	private static final int MAX_TAG_LENGTH = 256;
+
+	private String _content;
+	private Map<String, Integer> _map;
+
+	public SectionIndex(String content) {
+		_content = content;
+		_map = new HashMap<>();
+
+		build();
+	}
+
+	private void build() {
+		var content = _content;
+
+		// the comment closed by the first "*/" after each "/*", also the nested
+		// ones, so an indexed tag is found at the same position of indexOf()
+
+		var end = -1;
+		var start = content.indexOf("/*");
+
+		while (start != -1) {
+			if (end < start + 2) {
+				end = content.indexOf("*/", start + 2);
+
+				if (end == -1) {
+					break;
+				}
+			}
+
+			var length = end + 2 - start;
+
+			if (length <= MAX_TAG_LENGTH) {
+				_map.putIfAbsent(content.substring(start, end + 2), Integer.valueOf(start));
+			}
+
+			start = content.indexOf("/*", start + 1);
+		}
+	}
+
+	private static boolean isIndexed(String tag) {
+		var length = tag.length();
+		return length >= 4 && length <= MAX_TAG_LENGTH && tag.startsWith("/*")
+				&& tag.indexOf("*/", 2) == length - 2;
+	}
+
+	public String getContent() {
+		return _content;
+	}
+
+	/**
+	 * @return The position of the first occurrence of the tag, or
+	 *         <code>-1</code>.
+	 */
+	public int indexOf(String tag) {
+		var i = _map.get(tag);
+
+		if (i != null) {
+			return i.intValue();
+		}
+
+		if (isIndexed(tag)) {
+			return -1;
+		}
+
+		var j = _content.indexOf(tag);
+
+		_map.put(tag, Integer.valueOf(j));
+
+		return j;
+	}
+}
@@ -0,0 +1,98 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core.codegen;
+
+import static java.lang.System.out;
+
+/**
+ * Merges the user code of a generated file of 10k lines with 200 user code
+ * sections, comparing the indexed tags with a search of each tag in the whole
+ * content.
+ * 
+ * @author arian
+ *
+ */
+public class SectionIndexBenchmark {
+
+	private static final int SECTIONS = 200;
+	private static final int LINES = 10_000;
+	private static final int RUNS = 50;
+
+	static class Generator extends BaseCodeGenerator {
+
+		@Override
+		protected void internalGenerate() {
+			sectionStart("/* START OF COMPILED CODE */", "\n");
+
+			for (int i = 0; i < SECTIONS; i++) {
+				line("method" + i + "() {");
+
+				for (int j = 0; j < LINES / SECTIONS - 4; j++) {
+					line("\tthis.add.sprite(" + i + ", " + j + ", 'atlas', 'frame" + j + "');");
+				}
+
+				section("/* method" + i + "-begin */", "/* method" + i + "-end */", "\n\t// user code\n\t");
+				line();
+				line("}");
+			}
+
+			section("/* END OF COMPILED CODE */", "\n");
+		}
+	}
+
+	static class SearchGenerator extends Generator {
+
+		@Override
+		public int indexOfSection(String tag) {
+			return getReplaceContent().indexOf(tag);
+		}
+	}
+
+	public static void main(String[] args) {
+		var replace = new Generator().generate(null);
+
+		out.println(String.format("%d lines, %d sections, %d chars", replace.split("\n").length, SECTIONS,
+				replace.length()));
+
+		for (int i = 0; i < 5; i++) {
+			new SearchGenerator().generate(replace);
+			new Generator().generate(replace);
+		}
+
+		var t = System.nanoTime();
+		var code1 = "";
+		for (int i = 0; i < RUNS; i++) {
+			code1 = new SearchGenerator().generate(replace);
+		}
+		var searchTime = (System.nanoTime() - t) / RUNS;
+
+		t = System.nanoTime();
+		var code2 = "";
+		for (int i = 0; i < RUNS; i++) {
+			code2 = new Generator().generate(replace);
+		}
+		var indexTime = (System.nanoTime() - t) / RUNS;
+
+		out.println(String.format("per file: search %.2fms, index %.2fms (x%.1f) [%s]", searchTime / 1e6,
+				indexTime / 1e6, (double) searchTime / indexTime, code1.equals(code2) && code1.equals(replace)));
+	}
+}
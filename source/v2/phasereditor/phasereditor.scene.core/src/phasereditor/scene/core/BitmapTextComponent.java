@@ -28,7 +28,6 @@ import phasereditor.assetpack.core.BitmapFontAssetModel;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface BitmapTextComponent {
 
 	// fontSize
@@ -38,11 +37,11 @@ public interface BitmapTextComponent {
 	static int fontSize_default = 0;
 
 	static int get_fontSize(ObjectModel obj) {
-		return (int) obj.get("fontSize");
+		return obj.getInt(ComponentSlots.FONT_SIZE);
 	}
 
 	static void set_fontSize(ObjectModel obj, int fontSize) {
-		obj.put("fontSize", fontSize);
+		obj.setInt(ComponentSlots.FONT_SIZE, fontSize);
 	}
 
 	// align
@@ -56,11 +55,11 @@ public interface BitmapTextComponent {
 	static int align_default = ALIGN_LEFT;
 
 	static int get_align(ObjectModel obj) {
-		return (int) obj.get("align");
+		return obj.getInt(ComponentSlots.ALIGN);
 	}
 
 	static void set_align(ObjectModel obj, int align) {
-		obj.put("align", align);
+		obj.setInt(ComponentSlots.ALIGN, align);
 	}
 
 	// letterSpacing
@@ -70,11 +69,11 @@ public interface BitmapTextComponent {
 	static float letterSpacing_default = 0;
 
 	static float get_letterSpacing(ObjectModel obj) {
-		return (float) obj.get("letterSpacing");
+		return obj.getFloat(ComponentSlots.LETTER_SPACING);
 	}
 
 	static void set_letterSpacing(ObjectModel obj, float letterSpacing) {
-		obj.put("letterSpacing", letterSpacing);
+		obj.setFloat(ComponentSlots.LETTER_SPACING, letterSpacing);
 	}
 
 	// fontAssetKey
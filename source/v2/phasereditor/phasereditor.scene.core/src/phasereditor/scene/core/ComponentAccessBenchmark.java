@@ -0,0 +1,118 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.core;
+
+import static java.lang.System.out;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the access to the transform, origin and flip properties, like the
+ * scene renderer does in every paint, comparing the typed component storage
+ * with a boxed property map.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("boxing")
+public class ComponentAccessBenchmark {
+
+	private static final int OBJECTS = 10_000;
+	private static final int FRAMES = 200;
+
+	public static void main(String[] args) {
+		var models = new ArrayList<ObjectModel>();
+		var maps = new ArrayList<Map<String, Object>>();
+
+		for (int i = 0; i < OBJECTS; i++) {
+			var model = new ImageModel();
+			TransformComponent.set_x(model, i);
+			TransformComponent.set_y(model, i * 2);
+			models.add(model);
+
+			var map = new HashMap<String, Object>();
+			map.put("x", (float) i);
+			map.put("y", (float) i * 2);
+			map.put("scaleX", 1f);
+			map.put("scaleY", 1f);
+			map.put("angle", 0f);
+			map.put("originX", 0.5f);
+			map.put("originY", 0.5f);
+			map.put("flipX", false);
+			map.put("flipY", false);
+			maps.add(map);
+		}
+
+		for (int i = 0; i < 3; i++) {
+			renderMaps(maps);
+			renderModels(models);
+		}
+
+		var t = System.nanoTime();
+		var sum1 = 0f;
+		for (int i = 0; i < FRAMES; i++) {
+			sum1 += renderMaps(maps);
+		}
+		var mapTime = (System.nanoTime() - t) / FRAMES;
+
+		t = System.nanoTime();
+		var sum2 = 0f;
+		for (int i = 0; i < FRAMES; i++) {
+			sum2 += renderModels(models);
+		}
+		var slotTime = (System.nanoTime() - t) / FRAMES;
+
+		out.println(String.format("%d objects, per frame: boxed map %.3fms, typed slots %.3fms (x%.1f) [%s]", OBJECTS,
+				mapTime / 1e6, slotTime / 1e6, (double) mapTime / slotTime, sum1 == sum2));
+	}
+
+	private static float renderModels(List<ObjectModel> models) {
+		var sum = 0f;
+
+		for (var model : models) {
+			sum += TransformComponent.get_x(model) + TransformComponent.get_y(model);
+			sum += TransformComponent.get_scaleX(model) * TransformComponent.get_scaleY(model);
+			sum += TransformComponent.get_angle(model);
+			sum += OriginComponent.get_originX(model) + OriginComponent.get_originY(model);
+			sum += FlipComponent.get_flipX(model) || FlipComponent.get_flipY(model) ? 1 : 0;
+		}
+
+		return sum;
+	}
+
+	private static float renderMaps(List<Map<String, Object>> maps) {
+		var sum = 0f;
+
+		for (var map : maps) {
+			sum += (float) map.get("x") + (float) map.get("y");
+			sum += (float) map.get("scaleX") * (float) map.get("scaleY");
+			sum += (float) map.get("angle");
+			sum += (float) map.get("originX") + (float) map.get("originY");
+			sum += (boolean) map.get("flipX") || (boolean) map.get("flipY") ? 1 : 0;
+		}
+
+		return sum;
+	}
+}
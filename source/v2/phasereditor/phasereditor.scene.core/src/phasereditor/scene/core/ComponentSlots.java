@@ -0,0 +1,106 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.core;
+
+/**
+ * The indexes of the primitive properties of the components, in the typed
+ * storage of the {@link ObjectModel}. The boolean slots are bits, so there
+ * can be up to 64 of them.
+ * 
+ * @author arian
+ *
+ */
+public final class ComponentSlots {
+
+	// float slots
+
+	// BitmapTextComponent
+	public static final int LETTER_SPACING = 0;
+
+	// DynamicBitmapTextComponent
+	public static final int SCROLL_X = 1;
+	public static final int SCROLL_Y = 2;
+
+	// GameObjectEditorComponent
+	public static final int GAME_OBJECT_EDITOR_TRANSPARENCY = 3;
+
+	// OriginComponent
+	public static final int ORIGIN_X = 4;
+	public static final int ORIGIN_Y = 5;
+
+	// TileSpriteComponent
+	public static final int TILE_POSITION_X = 6;
+	public static final int TILE_POSITION_Y = 7;
+	public static final int TILE_SCALE_X = 8;
+	public static final int TILE_SCALE_Y = 9;
+	public static final int WIDTH = 10;
+	public static final int HEIGHT = 11;
+
+	// TransformComponent
+	public static final int X = 12;
+	public static final int Y = 13;
+	public static final int SCALE_X = 14;
+	public static final int SCALE_Y = 15;
+	public static final int ANGLE = 16;
+
+	public static final int FLOAT_COUNT = 17;
+
+	// int slots
+
+	// BitmapTextComponent
+	public static final int FONT_SIZE = 0;
+	public static final int ALIGN = 1;
+
+	// DynamicBitmapTextComponent
+	public static final int CROP_WIDTH = 2;
+	public static final int CROP_HEIGHT = 3;
+
+	public static final int INT_COUNT = 4;
+
+	// boolean slots
+
+	// FlipComponent
+	public static final int FLIP_X = 0;
+	public static final int FLIP_Y = 1;
+
+	// GameObjectComponent
+	public static final int ACTIVE = 2;
+	public static final int OBJECT_BUILD = 3;
+	public static final int USE_NAME = 4;
+
+	// GameObjectEditorComponent
+	public static final int GAME_OBJECT_EDITOR_DIRTY = 5;
+	public static final int GAME_OBJECT_EDITOR_SHOW = 6;
+	public static final int GAME_OBJECT_EDITOR_CLOSED = 7;
+	public static final int GAME_OBJECT_EDITOR_SHOW_BONES = 8;
+
+	// VariableComponent
+	public static final int VARIABLE_FIELD = 9;
+
+	// VisibleComponent
+	public static final int VISIBLE = 10;
+
+	public static final int BOOLEAN_COUNT = 11;
+
+	private ComponentSlots() {
+	}
+}
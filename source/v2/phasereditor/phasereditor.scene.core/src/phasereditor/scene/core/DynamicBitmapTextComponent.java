@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface DynamicBitmapTextComponent {
 
 	// displayCallback
@@ -50,19 +49,19 @@ public interface DynamicBitmapTextComponent {
 	static int cropHeight_default = 0;
 
 	static int get_cropWidth(ObjectModel obj) {
-		return (int) obj.get("cropWidth");
+		return obj.getInt(ComponentSlots.CROP_WIDTH);
 	}
 
 	static void set_cropWidth(ObjectModel obj, int cropWidth) {
-		obj.put("cropWidth", cropWidth);
+		obj.setInt(ComponentSlots.CROP_WIDTH, cropWidth);
 	}
 
 	static int get_cropHeight(ObjectModel obj) {
-		return (int) obj.get("cropHeight");
+		return obj.getInt(ComponentSlots.CROP_HEIGHT);
 	}
 
 	static void set_cropHeight(ObjectModel obj, int cropHeight) {
-		obj.put("cropHeight", cropHeight);
+		obj.setInt(ComponentSlots.CROP_HEIGHT, cropHeight);
 	}
 
 	// scroll
@@ -74,19 +73,19 @@ public interface DynamicBitmapTextComponent {
 	static float scrollY_default = 0;
 
 	static float get_scrollX(ObjectModel obj) {
-		return (float) obj.get("scrollX");
+		return obj.getFloat(ComponentSlots.SCROLL_X);
 	}
 
 	static void set_scrollX(ObjectModel obj, float scrollX) {
-		obj.put("scrollX", scrollX);
+		obj.setFloat(ComponentSlots.SCROLL_X, scrollX);
 	}
 
 	static float get_scrollY(ObjectModel obj) {
-		return (float) obj.get("scrollY");
+		return obj.getFloat(ComponentSlots.SCROLL_Y);
 	}
 
 	static void set_scrollY(ObjectModel obj, float scrollY) {
-		obj.put("scrollY", scrollY);
+		obj.setFloat(ComponentSlots.SCROLL_Y, scrollY);
 	}
 
 	// init
@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface FlipComponent {
 
 	// flip
@@ -37,19 +36,19 @@ public interface FlipComponent {
 	static boolean flipY_default = false;
 
 	static boolean get_flipX(ObjectModel obj) {
-		return (boolean) obj.get("flipX");
+		return obj.getBoolean(ComponentSlots.FLIP_X);
 	}
 
 	static void set_flipX(ObjectModel obj, boolean flipX) {
-		obj.put("flipX", flipX);
+		obj.setBoolean(ComponentSlots.FLIP_X, flipX);
 	}
 
 	static boolean get_flipY(ObjectModel obj) {
-		return (boolean) obj.get("flipY");
+		return obj.getBoolean(ComponentSlots.FLIP_Y);
 	}
 
 	static void set_flipY(ObjectModel obj, boolean flipY) {
-		obj.put("flipY", flipY);
+		obj.setBoolean(ComponentSlots.FLIP_Y, flipY);
 	}
 	
 	static boolean is(Object model) {
@@ -27,7 +27,6 @@ import org.json.JSONObject;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface GameObjectComponent {
 
 	// active
@@ -37,11 +36,11 @@ public interface GameObjectComponent {
 	static boolean active_default = true;
 
 	static boolean get_active(ObjectModel obj) {
-		return (boolean) obj.get("active");
+		return obj.getBoolean(ComponentSlots.ACTIVE);
 	}
 
 	static void set_active(ObjectModel obj, boolean active) {
-		obj.put("active", active);
+		obj.setBoolean(ComponentSlots.ACTIVE, active);
 	}
 
 	
@@ -80,11 +79,11 @@ public interface GameObjectComponent {
 	static boolean objectBuild_default = false;
 
 	static boolean get_objectBuild(ObjectModel obj) {
-		return (boolean) obj.get("objectBuild");
+		return obj.getBoolean(ComponentSlots.OBJECT_BUILD);
 	}
 
 	static void set_objectBuild(ObjectModel obj, boolean objectBuild) {
-		obj.put("objectBuild", objectBuild);
+		obj.setBoolean(ComponentSlots.OBJECT_BUILD, objectBuild);
 	}
 	
 	// useName
@@ -94,11 +93,11 @@ public interface GameObjectComponent {
 	static boolean useName_default = false;
 
 	static boolean get_useName(ObjectModel obj) {
-		return (boolean) obj.get("useName");
+		return obj.getBoolean(ComponentSlots.USE_NAME);
 	}
 
 	static void set_useName(ObjectModel obj, boolean useName) {
-		obj.put("useName", useName);
+		obj.setBoolean(ComponentSlots.USE_NAME, useName);
 	}
 
 	// utils
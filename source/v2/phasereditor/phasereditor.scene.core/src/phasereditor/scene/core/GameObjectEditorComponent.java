@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface GameObjectEditorComponent {
 
 	// editorDirty
@@ -35,11 +34,11 @@ public interface GameObjectEditorComponent {
 	static boolean gameObjectEditorDirty_default = true;
 
 	static boolean get_gameObjectEditorDirty(ObjectModel obj) {
-		return (boolean) obj.get("gameObjectEditorDirty");
+		return obj.getBoolean(ComponentSlots.GAME_OBJECT_EDITOR_DIRTY);
 	}
 
 	static void set_gameObjectEditorDirty(ObjectModel obj, boolean editorDirty) {
-		obj.put("gameObjectEditorDirty", editorDirty);
+		obj.setBoolean(ComponentSlots.GAME_OBJECT_EDITOR_DIRTY, editorDirty);
 	}
 
 	// editorShow
@@ -49,11 +48,11 @@ public interface GameObjectEditorComponent {
 	static boolean gemeObjectEditorShow_default = true;
 
 	static boolean get_gameObjectEditorShow(ObjectModel obj) {
-		return (boolean) obj.get("gameObjectEditorShow");
+		return obj.getBoolean(ComponentSlots.GAME_OBJECT_EDITOR_SHOW);
 	}
 
 	static void set_gameObjectEditorShow(ObjectModel obj, boolean editorShow) {
-		obj.put("gameObjectEditorShow", editorShow);
+		obj.setBoolean(ComponentSlots.GAME_OBJECT_EDITOR_SHOW, editorShow);
 	}
 
 	// editorClosed
@@ -63,11 +62,11 @@ public interface GameObjectEditorComponent {
 	static boolean editorClosed_default = false;
 
 	static boolean get_gameObjectEditorClosed(ObjectModel obj) {
-		return (boolean) obj.get("gameObjectEditorClosed");
+		return obj.getBoolean(ComponentSlots.GAME_OBJECT_EDITOR_CLOSED);
 	}
 
 	static void set_gameObjectEditorClosed(ObjectModel obj, boolean editorClosed) {
-		obj.put("gameObjectEditorClosed", editorClosed);
+		obj.setBoolean(ComponentSlots.GAME_OBJECT_EDITOR_CLOSED, editorClosed);
 	}
 
 	// editorTransparency
@@ -77,11 +76,11 @@ public interface GameObjectEditorComponent {
 	static float gameObjectEditorTransparency_default = 1;
 
 	static float get_gameObjectEditorTransparency(ObjectModel obj) {
-		return (float) obj.get("gameObjectEditorTransparency");
+		return obj.getFloat(ComponentSlots.GAME_OBJECT_EDITOR_TRANSPARENCY);
 	}
 
 	static void set_gameObjectEditorTransparency(ObjectModel obj, float gameObjectEditorTransparency) {
-		obj.put("gameObjectEditorTransparency", gameObjectEditorTransparency);
+		obj.setFloat(ComponentSlots.GAME_OBJECT_EDITOR_TRANSPARENCY, gameObjectEditorTransparency);
 	}
 
 	// gameObjectEditorShowBones
@@ -91,11 +90,11 @@ public interface GameObjectEditorComponent {
 	static boolean gameObjectEditorShowBones_default = false;
 
 	static boolean get_gameObjectEditorShowBones(ObjectModel obj) {
-		return (boolean) obj.get("gameObjectEditorShowBones");
+		return obj.getBoolean(ComponentSlots.GAME_OBJECT_EDITOR_SHOW_BONES);
 	}
 
 	static void set_gameObjectEditorShowBones(ObjectModel obj, boolean gameObjectEditorShowBones) {
-		obj.put("gameObjectEditorShowBones", gameObjectEditorShowBones);
+		obj.setBoolean(ComponentSlots.GAME_OBJECT_EDITOR_SHOW_BONES, gameObjectEditorShowBones);
 	}
 	
 	// utils
@@ -53,13 +53,13 @@ public class GroupModel extends VariableModel implements
 
 	@Override
 	protected void writeChild(ObjectModel obj, JSONObject data) {
-		data.put("-id", obj.getId());
+		data.put(ID_KEY, obj.getId());
 	}
 
 	@Override
 	protected ObjectModel readChild(IProject project, JSONObject childData) {
 
-		var id = childData.getString("-id");
+		var id = childData.getString(ID_KEY);
 
 		var model = getGroups().getSceneModel().getDisplayList().findById(id);
 
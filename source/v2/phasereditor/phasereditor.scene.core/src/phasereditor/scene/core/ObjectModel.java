@@ -35,7 +35,21 @@ import org.json.JSONObject;
  */
 public abstract class ObjectModel {
 
+	/**
+	 * The key of the object ID in the JSON data.
+	 */
+	public static final String ID_KEY = "-id";
+
+	/**
+	 * The key of the object type in the JSON data.
+	 */
+	public static final String TYPE_KEY = "-type";
+
 	private Map<String, Object> _map;
+	private float[] _floats;
+	private int[] _ints;
+	private long _booleans;
+	private int _version;
 	private String _id;
 	private String _type;
 
@@ -44,6 +58,8 @@ public abstract class ObjectModel {
 		_id = UUID.randomUUID().toString();
 
 		_map = new HashMap<>();
+		_floats = new float[ComponentSlots.FLOAT_COUNT];
+		_ints = new int[ComponentSlots.INT_COUNT];
 	}
 
 	public String getId() {
@@ -60,20 +76,67 @@ public abstract class ObjectModel {
 
 	public void put(String key, Object value) {
 		_map.put(key, value);
+		_version++;
 	}
 
 	public Object get(String key) {
 		return _map.get(key);
 	}
 
+	/**
+	 * The typed storage of the primitive properties of the components. The slots
+	 * are defined in {@link ComponentSlots}, and accessed by the components
+	 * <code>get_/set_</code> methods.
+	 */
+	public float getFloat(int slot) {
+		return _floats[slot];
+	}
+
+	public void setFloat(int slot, float value) {
+		_floats[slot] = value;
+		_version++;
+	}
+
+	public int getInt(int slot) {
+		return _ints[slot];
+	}
+
+	public void setInt(int slot, int value) {
+		_ints[slot] = value;
+		_version++;
+	}
+
+	public boolean getBoolean(int slot) {
+		return (_booleans & (1L << slot)) != 0;
+	}
+
+	public void setBoolean(int slot, boolean value) {
+		if (value) {
+			_booleans |= 1L << slot;
+		} else {
+			_booleans &= ~(1L << slot);
+		}
+
+		_version++;
+	}
+
+	/**
+	 * A number that changes every time a property of this object is set. It does
+	 * not track the changes inside the values, like the elements added to the
+	 * children list.
+	 */
+	public int getVersion() {
+		return _version;
+	}
+
 	public void write(JSONObject data) {
-		data.put("-id", _id);
-		data.put("-type", _type);
+		data.put(ID_KEY, _id);
+		data.put(TYPE_KEY, _type);
 	}
 
 	@SuppressWarnings("unused")
 	public void read(JSONObject data, IProject project) {
-		_id = data.getString("-id");
+		_id = data.getString(ID_KEY);
 	}
 
 	public void visit(Consumer<ObjectModel> visitor) {
@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface OriginComponent {
 
 	// origin
@@ -50,19 +49,19 @@ public interface OriginComponent {
 	}
 
 	static float get_originX(ObjectModel obj) {
-		return (float) obj.get("originX");
+		return obj.getFloat(ComponentSlots.ORIGIN_X);
 	}
 
 	static void set_originX(ObjectModel obj, float originX) {
-		obj.put("originX", originX);
+		obj.setFloat(ComponentSlots.ORIGIN_X, originX);
 	}
 
 	static float get_originY(ObjectModel obj) {
-		return (float) obj.get("originY");
+		return obj.getFloat(ComponentSlots.ORIGIN_Y);
 	}
 
 	static void set_originY(ObjectModel obj, float originY) {
-		obj.put("originY", originY);
+		obj.setFloat(ComponentSlots.ORIGIN_Y, originY);
 	}
 
 	static boolean is(Object model) {
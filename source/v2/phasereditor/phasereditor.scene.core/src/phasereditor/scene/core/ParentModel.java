@@ -115,7 +115,7 @@ public abstract class ParentModel extends ObjectModel implements ParentComponent
 
 	@SuppressWarnings("static-method")
 	protected ObjectModel readChild(IProject project, JSONObject childData) {
-		var type = childData.getString("-type");
+		var type = childData.getString(TYPE_KEY);
 
 		ObjectModel childModel = SceneModel.createModel(type);
 
@@ -22,21 +22,57 @@
 package phasereditor.scene.core;
 
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
 
+import phasereditor.scene.core.codedom.UnitDom;
 import phasereditor.scene.core.codegen.JS6_UnitCodeGenerator;
 import phasereditor.scene.core.codegen.SceneCodeDomBuilder;
 
 /**
+ * Compiles the scene files to JavaScript.
+ * <p>
+ * A batch of scenes is generated in parallel, each thread writes the code in
+ * its own reusable buffers. The code is compared with the content of the
+ * existing file, and only the files with a different content are written, in a
+ * single workspace operation.
+ * 
  * @author arian
  *
  */
 public class SceneCompiler {
+
+	/**
+	 * The number of scenes generated in parallel in a batch. It can be set with
+	 * the <code>SceneCompiler.THREADS</code> system property.
+	 */
+	public static final int THREADS = Integer.getInteger("SceneCompiler.THREADS",
+			Math.max(1, Runtime.getRuntime().availableProcessors()));
+
 	private IFile _sceneFile;
 	private SceneModel _sceneModel;
 
@@ -46,38 +82,270 @@ public class SceneCompiler {
 		_sceneModel = sceneModel;
 	}
 
-	public void compile(IProgressMonitor monitor) throws Exception {
-		var codeFile = SceneCore.getSceneSourceCodeFile(_sceneFile);
+	/**
+	 * The result of the compilation of a scene.
+	 * 
+	 * @author arian
+	 *
+	 */
+	public static class Result {
+		private IFile _sceneFile;
+		private IFile _codeFile;
+		private Charset _charset;
+		private boolean _exists;
+		private byte[] _content;
+		private long _time;
+		private Exception _error;
+
+		Result(IFile sceneFile) {
+			_sceneFile = sceneFile;
+			_codeFile = SceneCore.getSceneSourceCodeFile(sceneFile);
+		}
+
+		public IFile getSceneFile() {
+			return _sceneFile;
+		}
+
+		public IFile getCodeFile() {
+			return _codeFile;
+		}
+
+		/**
+		 * @return If the generated code is different to the content of the code
+		 *         file, so the file was written.
+		 */
+		public boolean isChanged() {
+			return _content != null;
+		}
 
-		Charset charset;
+		/**
+		 * @return The time spent generating the code of the scene, in milliseconds.
+		 */
+		public long getTime() {
+			return _time;
+		}
 
-		if (codeFile.exists()) {
-			charset = Charset.forName(codeFile.getCharset());
-		} else {
-			charset = Charset.forName("UTF-8");
+		public Exception getError() {
+			return _error;
 		}
+	}
+
+	/**
+	 * The buffers used to generate and encode the code. They are reused by all
+	 * the scenes generated in the same thread.
+	 */
+	static class Buffers {
+		final StringBuilder text = new StringBuilder(64 * 1024);
+		private ByteBuffer _bytes = ByteBuffer.allocate(64 * 1024);
+		private Map<Charset, CharsetEncoder> _encoders = new HashMap<>();
+
+		/**
+		 * Encodes the text, replacing the malformed and unmappable characters, like
+		 * {@link String#getBytes(Charset)} does.
+		 */
+		ByteBuffer encode(Charset charset) throws CharacterCodingException {
+			var encoder = _encoders.computeIfAbsent(charset, c -> c.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+			var in = CharBuffer.wrap(text);
+			var needed = (int) (text.length() * (double) encoder.maxBytesPerChar());
+
+			if (_bytes.capacity() < needed) {
+				_bytes = ByteBuffer.allocate(needed);
+			}
 
-		String replace = null;
+			_bytes.clear();
+			encoder.reset();
 
-		if (codeFile.exists()) {
-			byte[] bytes = Files.readAllBytes(codeFile.getLocation().makeAbsolute().toFile().toPath());
-			replace = new String(bytes, charset);
+			var result = encoder.encode(in, _bytes, true);
+
+			if (!result.isUnderflow()) {
+				result.throwException();
+			}
+
+			result = encoder.flush(_bytes);
+
+			if (!result.isUnderflow()) {
+				result.throwException();
+			}
+
+			_bytes.flip();
+
+			return _bytes;
 		}
+	}
 
-		var builder = new SceneCodeDomBuilder(codeFile);
-		var unitDom = builder.build(_sceneModel);
+	/**
+	 * Generates the code of the unit.
+	 * 
+	 * @param replace
+	 *            The content of the existing code file, with the user code. It
+	 *            can be <code>null</code>.
+	 * @param existing
+	 *            The bytes of the existing code file. It can be <code>null</code>.
+	 * @return The bytes of the new code, or <code>null</code> if they are the same
+	 *         of the existing file.
+	 */
+	static byte[] generate(UnitDom unitDom, String replace, byte[] existing, Charset charset, Buffers buffers)
+			throws CharacterCodingException {
+		var codeGenerator = new JS6_UnitCodeGenerator(unitDom, buffers.text);
+		codeGenerator.generateBuffer(replace);
 
-		var codeGenerator = new JS6_UnitCodeGenerator(unitDom);
-		var code = codeGenerator.generate(replace);
+		var bytes = buffers.encode(charset);
+		var array = bytes.array();
+		var length = bytes.limit();
 
-		ByteArrayInputStream stream = new ByteArrayInputStream(code.getBytes(charset));
-		if (codeFile.exists()) {
-			codeFile.setContents(stream, IResource.NONE, monitor);
-		} else {
-			codeFile.create(stream, false, monitor);
-			codeFile.setCharset(charset.name(), monitor);
+		if (existing != null && Arrays.equals(array, 0, length, existing, 0, existing.length)) {
+			return null;
 		}
-		codeFile.refreshLocal(1, null);
 
+		return Arrays.copyOf(array, length);
+	}
+
+	private static Result generate(IFile sceneFile, SceneModel sceneModel, Buffers buffers) {
+		var result = new Result(sceneFile);
+		var start = System.currentTimeMillis();
+
+		try {
+			var model = sceneModel;
+
+			if (model == null) {
+				model = new SceneModel();
+				model.read(sceneFile);
+			}
+
+			var codeFile = result._codeFile;
+
+			result._exists = codeFile.exists();
+
+			String replace = null;
+			byte[] existing = null;
+
+			if (result._exists) {
+				result._charset = Charset.forName(codeFile.getCharset());
+				existing = Files.readAllBytes(codeFile.getLocation().makeAbsolute().toFile().toPath());
+				replace = new String(existing, result._charset);
+			} else {
+				result._charset = StandardCharsets.UTF_8;
+			}
+
+			var builder = new SceneCodeDomBuilder(codeFile);
+			var unitDom = builder.build(model);
+
+			result._content = generate(unitDom, replace, existing, result._charset, buffers);
+		} catch (Exception e) {
+			result._error = e;
+		}
+
+		result._time = System.currentTimeMillis() - start;
+
+		return result;
+	}
+
+	public Result compile(IProgressMonitor monitor) throws Exception {
+		var result = generate(_sceneFile, _sceneModel, new Buffers());
+
+		if (result._error != null) {
+			throw result._error;
+		}
+
+		write(List.of(result), monitor);
+
+		return result;
+	}
+
+	/**
+	 * Compiles the scene files. The models are read and the code is generated in
+	 * parallel, then the changed code files are written in a single workspace
+	 * operation.
+	 * 
+	 * @param monitor
+	 *            It is advanced a unit per scene. When it is cancelled, the pending
+	 *            scenes are not compiled.
+	 * @return The results, in the same order of the scene files. The scenes that
+	 *         failed are not written, their error is in the result.
+	 */
+	public static List<Result> compile(List<IFile> sceneFiles, IProgressMonitor monitor) throws CoreException {
+		var submonitor = SubMonitor.convert(monitor, sceneFiles.size() + 1);
+		var results = new ArrayList<Result>();
+
+		int[] count = { 0 };
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(THREADS, Math.max(1, sceneFiles.size())), r -> {
+			var thread = new Thread(r, "Scene Compiler " + count[0]++);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			var buffers = ThreadLocal.withInitial(Buffers::new);
+			var futures = new ArrayList<Future<Result>>();
+
+			for (var sceneFile : sceneFiles) {
+				futures.add(pool.submit(() -> generate(sceneFile, null, buffers.get())));
+			}
+
+			for (var future : futures) {
+				if (submonitor.isCanceled()) {
+					for (var future2 : futures) {
+						future2.cancel(false);
+					}
+				}
+
+				try {
+					results.add(future.get());
+				} catch (CancellationException e) {
+					continue;
+				} catch (ExecutionException e) {
+					// generate(IFile, ...) catches the errors
+					e.printStackTrace();
+					continue;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+				submonitor.worked(1);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		if (!submonitor.isCanceled()) {
+			write(results, submonitor.split(1));
+		}
+
+		return results;
+	}
+
+	private static void write(List<Result> results, IProgressMonitor monitor) throws CoreException {
+		var changed = new ArrayList<Result>();
+
+		for (var result : results) {
+			if (result._error == null && result._content != null) {
+				changed.add(result);
+			}
+		}
+
+		if (changed.isEmpty()) {
+			return;
+		}
+
+		var workspace = ResourcesPlugin.getWorkspace();
+
+		workspace.run(monitor2 -> {
+			for (var result : changed) {
+				var codeFile = result._codeFile;
+				var stream = new ByteArrayInputStream(result._content);
+
+				if (result._exists) {
+					codeFile.setContents(stream, IResource.NONE, monitor2);
+				} else {
+					codeFile.create(stream, false, monitor2);
+					codeFile.setCharset(result._charset.name(), monitor2);
+				}
+
+				codeFile.refreshLocal(1, null);
+			}
+		}, workspace.getRoot(), IWorkspace.AVOID_UPDATE, monitor);
 	}
 }
@@ -0,0 +1,189 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.core;
+
+import static java.lang.System.out;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import phasereditor.scene.core.SceneCompiler.Buffers;
+import phasereditor.scene.core.codedom.AssignPropertyDom;
+import phasereditor.scene.core.codedom.ClassDeclDom;
+import phasereditor.scene.core.codedom.MethodCallDom;
+import phasereditor.scene.core.codedom.MethodDeclDom;
+import phasereditor.scene.core.codedom.UnitDom;
+import phasereditor.scene.core.codegen.JS6_UnitCodeGenerator;
+
+/**
+ * Compiles 200 generated scenes into a temporary folder, like after an asset
+ * rename, comparing the serial compiler that always writes the files with the
+ * parallel compiler that reuses the buffers and skips the unchanged files.
+ * 
+ * @author arian
+ *
+ */
+public class SceneCompilerBenchmark {
+
+	private static final int SCENES = 200;
+	private static final int OBJECTS = 300;
+	private static final int CHANGED = 10;
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws Exception {
+		var folder = Files.createTempDirectory("scene-compiler");
+		var charset = StandardCharsets.UTF_8;
+
+		var units = new ArrayList<UnitDom>();
+
+		for (int i = 0; i < SCENES; i++) {
+			units.add(createUnit(i, 0));
+		}
+
+		var files = new ArrayList<Path>();
+
+		for (int i = 0; i < SCENES; i++) {
+			var file = folder.resolve("Scene" + i + ".js");
+			Files.write(file, new JS6_UnitCodeGenerator(units.get(i)).generate(null).getBytes(charset));
+			files.add(file);
+		}
+
+		// the first scenes are modified in each run
+
+		var serialTime = 0L;
+		var parallelTime = 0L;
+		var written = 0;
+
+		for (int run = 1; run <= RUNS; run++) {
+			for (int i = 0; i < CHANGED; i++) {
+				units.set(i, createUnit(i, run));
+			}
+
+			var t = System.nanoTime();
+			compileSerial(units, files, charset);
+			serialTime += System.nanoTime() - t;
+
+			for (int i = 0; i < CHANGED; i++) {
+				units.set(i, createUnit(i, -run));
+			}
+
+			t = System.nanoTime();
+			written += compileParallel(units, files, charset);
+			parallelTime += System.nanoTime() - t;
+		}
+
+		out.println(String.format(
+				"%d scenes, %d changed, per batch: serial %.1fms (%d writes), parallel %.1fms (%d writes) (x%.1f)",
+				SCENES, CHANGED, serialTime / 1e6 / RUNS, SCENES, parallelTime / 1e6 / RUNS, written / RUNS,
+				(double) serialTime / parallelTime));
+
+		for (var file : files) {
+			Files.delete(file);
+		}
+
+		Files.delete(folder);
+	}
+
+	private static void compileSerial(List<UnitDom> units, List<Path> files, Charset charset) throws Exception {
+		for (int i = 0; i < units.size(); i++) {
+			var file = files.get(i);
+			var replace = new String(Files.readAllBytes(file), charset);
+			var code = new JS6_UnitCodeGenerator(units.get(i)).generate(replace);
+			Files.write(file, code.getBytes(charset));
+		}
+	}
+
+	private static int compileParallel(List<UnitDom> units, List<Path> files, Charset charset) throws Exception {
+		var pool = Executors.newFixedThreadPool(SceneCompiler.THREADS, r -> {
+			var thread = new Thread(r);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			var buffers = ThreadLocal.withInitial(Buffers::new);
+			var futures = new ArrayList<Future<byte[]>>();
+
+			for (int i = 0; i < units.size(); i++) {
+				var unit = units.get(i);
+				var file = files.get(i);
+
+				futures.add(pool.submit(() -> {
+					var existing = Files.readAllBytes(file);
+					var replace = new String(existing, charset);
+					return SceneCompiler.generate(unit, replace, existing, charset, buffers.get());
+				}));
+			}
+
+			var written = 0;
+
+			for (int i = 0; i < futures.size(); i++) {
+				var content = futures.get(i).get();
+
+				if (content != null) {
+					Files.write(files.get(i), content);
+					written++;
+				}
+			}
+
+			return written;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static UnitDom createUnit(int index, int version) {
+		var unit = new UnitDom();
+
+		var cls = new ClassDeclDom("Scene" + index);
+		cls.setSuperClass("Phaser.Scene");
+
+		var create = new MethodDeclDom("create");
+		var instructions = create.getInstructions();
+
+		for (int i = 0; i < OBJECTS; i++) {
+			var call = new MethodCallDom("sprite", "this.add");
+			call.arg(i * 10 + version);
+			call.arg(i * 5);
+			call.argLiteral("atlas");
+			call.argLiteral("frame" + i);
+			call.setReturnToVar("sprite" + i);
+			call.setDeclareReturnToVar(true);
+			instructions.add(call);
+
+			var assign = new AssignPropertyDom("angle", "sprite" + i);
+			assign.value(i % 360);
+			instructions.add(assign);
+		}
+
+		cls.getMembers().add(create);
+		unit.getElements().add(cls);
+
+		return unit;
+	}
+}
@@ -21,6 +21,8 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.scene.core;
 
+import java.util.List;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -62,6 +64,31 @@ public class SceneCore {
 
 	}
 
+	/**
+	 * Compiles the scene files in parallel, only the changed code files are
+	 * written.
+	 * 
+	 * @return The results of the compilation, or an empty list if the scenes
+	 *         cannot be compiled in this version.
+	 */
+	public static List<SceneCompiler.Result> compileScenes(List<IFile> sceneFiles, IProgressMonitor monitor)
+			throws Exception {
+
+		{
+			if (LicCore.isEvaluationProduct()) {
+				for (var project : sceneFiles.stream().map(IFile::getProject).distinct().toArray(IProject[]::new)) {
+					var cause = SceneCore.isFreeVersionAllowed(project);
+					if (cause != null) {
+						LicCore.launchGoPremiumDialogs(cause);
+						return List.of();
+					}
+				}
+			}
+		}
+
+		return SceneCompiler.compile(sceneFiles, monitor);
+	}
+
 	public static String isFreeVersionAllowed(IProject project) {
 		var projectData = getSceneFileDataCache().getProjectData(project);
 		var count = projectData.size();
@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface TileSpriteComponent {
 	// tilePosition
 	static String tilePositionX_name = "tilePositionX";
@@ -35,19 +34,19 @@ public interface TileSpriteComponent {
 	static float tilePositionY_default = 0;
 
 	static float get_tilePositionX(ObjectModel obj) {
-		return (float) obj.get("tilePositionX");
+		return obj.getFloat(ComponentSlots.TILE_POSITION_X);
 	}
 
 	static void set_tilePositionX(ObjectModel obj, float tilePositionX) {
-		obj.put("tilePositionX", tilePositionX);
+		obj.setFloat(ComponentSlots.TILE_POSITION_X, tilePositionX);
 	}
 
 	static float get_tilePositionY(ObjectModel obj) {
-		return (float) obj.get("tilePositionY");
+		return obj.getFloat(ComponentSlots.TILE_POSITION_Y);
 	}
 
 	static void set_tilePositionY(ObjectModel obj, float tilePositionY) {
-		obj.put("tilePositionY", tilePositionY);
+		obj.setFloat(ComponentSlots.TILE_POSITION_Y, tilePositionY);
 	}
 
 	// tileScale
@@ -59,19 +58,19 @@ public interface TileSpriteComponent {
 	static float tileScaleY_default = 1;
 
 	static float get_tileScaleX(ObjectModel obj) {
-		return (float) obj.get("tileScaleX");
+		return obj.getFloat(ComponentSlots.TILE_SCALE_X);
 	}
 
 	static void set_tileScaleX(ObjectModel obj, float tileScaleX) {
-		obj.put("tileScaleX", tileScaleX);
+		obj.setFloat(ComponentSlots.TILE_SCALE_X, tileScaleX);
 	}
 
 	static float get_tileScaleY(ObjectModel obj) {
-		return (float) obj.get("tileScaleY");
+		return obj.getFloat(ComponentSlots.TILE_SCALE_Y);
 	}
 
 	static void set_tileScaleY(ObjectModel obj, float tileScaleY) {
-		obj.put("tileScaleY", tileScaleY);
+		obj.setFloat(ComponentSlots.TILE_SCALE_Y, tileScaleY);
 	}
 
 	// size
@@ -83,11 +82,11 @@ public interface TileSpriteComponent {
 	static float width_default = -1;
 
 	static float get_width(ObjectModel obj) {
-		return (float) obj.get("width");
+		return obj.getFloat(ComponentSlots.WIDTH);
 	}
 
 	static void set_width(ObjectModel obj, float width) {
-		obj.put("width", width);
+		obj.setFloat(ComponentSlots.WIDTH, width);
 	}
 
 	// height
@@ -97,11 +96,11 @@ public interface TileSpriteComponent {
 	static float height_default = -1;
 
 	static float get_height(ObjectModel obj) {
-		return (float) obj.get("height");
+		return obj.getFloat(ComponentSlots.HEIGHT);
 	}
 
 	static void set_height(ObjectModel obj, float height) {
-		obj.put("height", height);
+		obj.setFloat(ComponentSlots.HEIGHT, height);
 	}
 
 	// init
@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface TransformComponent {
 
 	// x
@@ -33,11 +32,11 @@ public interface TransformComponent {
 	static float x_default = 0f;
 
 	static float get_x(ObjectModel obj) {
-		return (float) obj.get("x");
+		return obj.getFloat(ComponentSlots.X);
 	}
 
 	static void set_x(ObjectModel obj, float x) {
-		obj.put("x", x);
+		obj.setFloat(ComponentSlots.X, x);
 	}
 
 	// y
@@ -47,11 +46,11 @@ public interface TransformComponent {
 	static float y_default = 0f;
 
 	static float get_y(ObjectModel obj) {
-		return (float) obj.get("y");
+		return obj.getFloat(ComponentSlots.Y);
 	}
 
 	static void set_y(ObjectModel obj, float y) {
-		obj.put("y", y);
+		obj.setFloat(ComponentSlots.Y, y);
 	}
 
 	// scale
@@ -63,19 +62,19 @@ public interface TransformComponent {
 	static float scaleY_default = 1f;
 
 	static float get_scaleX(ObjectModel obj) {
-		return (float) obj.get("scaleX");
+		return obj.getFloat(ComponentSlots.SCALE_X);
 	}
 
 	static void set_scaleX(ObjectModel obj, float scaleX) {
-		obj.put("scaleX", scaleX);
+		obj.setFloat(ComponentSlots.SCALE_X, scaleX);
 	}
 
 	static float get_scaleY(ObjectModel obj) {
-		return (float) obj.get("scaleY");
+		return obj.getFloat(ComponentSlots.SCALE_Y);
 	}
 
 	static void set_scaleY(ObjectModel obj, float scaleY) {
-		obj.put("scaleY", scaleY);
+		obj.setFloat(ComponentSlots.SCALE_Y, scaleY);
 	}
 
 	// angle
@@ -85,11 +84,11 @@ public interface TransformComponent {
 	static float angle_default = 0f;
 
 	static float get_angle(ObjectModel obj) {
-		return (float) obj.get("angle");
+		return obj.getFloat(ComponentSlots.ANGLE);
 	}
 
 	static void set_angle(ObjectModel obj, float angle) {
-		obj.put("angle", angle);
+		obj.setFloat(ComponentSlots.ANGLE, angle);
 	}
 
 	static boolean is(Object model) {
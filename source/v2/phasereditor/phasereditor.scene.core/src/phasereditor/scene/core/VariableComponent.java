@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface VariableComponent {
 
 	// editorName
@@ -49,11 +48,11 @@ public interface VariableComponent {
 	static boolean variableField_default = false;
 
 	static boolean get_variableField(ObjectModel obj) {
-		return (boolean) obj.get("variableField");
+		return obj.getBoolean(ComponentSlots.VARIABLE_FIELD);
 	}
 
 	static void set_variableField(ObjectModel obj, boolean editorField) {
-		obj.put("variableField", editorField);
+		obj.setBoolean(ComponentSlots.VARIABLE_FIELD, editorField);
 	}
 	
 	// utils
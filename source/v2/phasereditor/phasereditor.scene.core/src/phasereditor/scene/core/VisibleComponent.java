@@ -25,7 +25,6 @@ package phasereditor.scene.core;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public interface VisibleComponent {
 	// visible
 
@@ -33,11 +32,11 @@ public interface VisibleComponent {
 	static boolean visible_default = true;
 
 	static boolean get_visible(ObjectModel obj) {
-		return (boolean) obj.get("visible");
+		return obj.getBoolean(ComponentSlots.VISIBLE);
 	}
 
 	static void set_visible(ObjectModel obj, boolean visible) {
-		obj.put("visible", visible);
+		obj.setBoolean(ComponentSlots.VISIBLE, visible);
 	}
 
 	static boolean is(Object model) {
@@ -42,6 +42,11 @@ public class JS6_UnitCodeGenerator extends BaseCodeGenerator {
 		_unit = unit;
 	}
 
+	public JS6_UnitCodeGenerator(UnitDom unit, StringBuilder buffer) {
+		super(buffer);
+		_unit = unit;
+	}
+
 	@Override
 	protected void internalGenerate() {
 
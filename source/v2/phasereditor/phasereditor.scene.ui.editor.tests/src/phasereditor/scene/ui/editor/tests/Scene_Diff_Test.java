@@ -0,0 +1,211 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.ui.editor.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import phasereditor.scene.core.ContainerModel;
+import phasereditor.scene.core.ObjectModel;
+import phasereditor.scene.core.ParentComponent;
+import phasereditor.scene.core.SceneModel;
+import phasereditor.scene.core.TransformComponent;
+import phasereditor.scene.ui.editor.undo.SceneDiff;
+
+/**
+ * Computes the changes between two states of a scene, and checks the undo and
+ * redo of them set the scene to the right state.
+ * 
+ * @author arian
+ *
+ */
+public class Scene_Diff_Test {
+
+	private SceneModel _scene;
+	private ContainerModel _parent;
+	private ContainerModel _child1;
+	private ContainerModel _child2;
+
+	@Before
+	public void createScene() {
+		_scene = new SceneModel();
+
+		_parent = new ContainerModel();
+		_child1 = new ContainerModel();
+		_child2 = new ContainerModel();
+
+		ParentComponent.utils_addChild(_scene.getDisplayList(), _parent);
+		ParentComponent.utils_addChild(_parent, _child1);
+		ParentComponent.utils_addChild(_parent, _child2);
+
+		TransformComponent.set_x(_parent, 10);
+	}
+
+	private JSONObject snapshot() {
+		var data = new JSONObject();
+		_scene.write(data);
+		return data;
+	}
+
+	private List<ObjectModel> children(ObjectModel model) {
+		return ParentComponent.get_children(_scene.getDisplayList().findById(model.getId()));
+	}
+
+	@Test
+	public void testEmpty() {
+		var diff = SceneDiff.computeScene(snapshot(), snapshot());
+
+		assertTrue(diff.isEmpty());
+		assertFalse(diff.isStructural());
+	}
+
+	@Test
+	public void testProperty() {
+		var before = snapshot();
+
+		TransformComponent.set_x(_parent, 20);
+
+		var after = snapshot();
+
+		var diff = SceneDiff.computeScene(before, after);
+
+		assertFalse(diff.isEmpty());
+		assertFalse(diff.isStructural());
+
+		// only the changed property is kept
+		assertTrue(diff.getSize() < before.toString().length());
+
+		diff.apply(_scene, null, false);
+
+		assertEquals(10, TransformComponent.get_x(_parent), 0);
+
+		// the children are not created again
+		var children = children(_parent);
+		assertEquals(2, children.size());
+		assertSame(_child1, children.get(0));
+		assertSame(_child2, children.get(1));
+		assertSame(_parent, ParentComponent.get_parent(_child1));
+
+		diff.apply(_scene, null, true);
+
+		assertEquals(20, TransformComponent.get_x(_parent), 0);
+		assertSame(_child1, children(_parent).get(0));
+	}
+
+	@Test
+	public void testRemoveChild() {
+		var before = snapshot();
+
+		ParentComponent.utils_removeChild(_parent, _child2);
+		TransformComponent.set_x(_child1, 5);
+
+		var after = snapshot();
+
+		var diff = SceneDiff.computeScene(before, after);
+
+		assertTrue(diff.isStructural());
+
+		diff.apply(_scene, null, false);
+
+		var children = children(_parent);
+		assertEquals(2, children.size());
+		assertSame(_child1, children.get(0));
+		assertEquals(_child2.getId(), children.get(1).getId());
+		assertEquals(0, TransformComponent.get_x(_child1), 0);
+
+		diff.apply(_scene, null, true);
+
+		children = children(_parent);
+		assertEquals(1, children.size());
+		assertSame(_child1, children.get(0));
+		assertEquals(5, TransformComponent.get_x(_child1), 0);
+	}
+
+	@Test
+	public void testReorder() {
+		var before = snapshot();
+
+		ParentComponent.utils_removeChild(_parent, _child1);
+		ParentComponent.utils_addChild(_parent, _child1);
+
+		var diff = SceneDiff.computeScene(before, snapshot());
+
+		assertTrue(diff.isStructural());
+
+		diff.apply(_scene, null, false);
+
+		var children = children(_parent);
+		assertSame(_child1, children.get(0));
+		assertSame(_child2, children.get(1));
+	}
+
+	@Test
+	public void testMerge() {
+		var s0 = snapshot();
+		TransformComponent.set_x(_parent, 20);
+		var s1 = snapshot();
+		TransformComponent.set_x(_parent, 30);
+		var s2 = snapshot();
+		TransformComponent.set_y(_parent, 30);
+		var s3 = snapshot();
+
+		var d1 = SceneDiff.computeScene(s0, s1);
+		var d2 = SceneDiff.computeScene(s1, s2);
+		var d3 = SceneDiff.computeScene(s2, s3);
+
+		// other property
+		assertFalse(d2.canMerge(d3));
+
+		assertTrue(d1.canMerge(d2));
+
+		d1.merge(d2);
+
+		d1.apply(_scene, null, false);
+		assertEquals(10, TransformComponent.get_x(_parent), 0);
+
+		d1.apply(_scene, null, true);
+		assertEquals(30, TransformComponent.get_x(_parent), 0);
+	}
+
+	@Test
+	public void testNotMergeStructural() {
+		var s0 = snapshot();
+		TransformComponent.set_x(_parent, 20);
+		var s1 = snapshot();
+		ParentComponent.utils_removeChild(_parent, _child2);
+		TransformComponent.set_x(_parent, 30);
+		var s2 = snapshot();
+
+		var d1 = SceneDiff.computeScene(s0, s1);
+		var d2 = SceneDiff.computeScene(s1, s2);
+
+		assertFalse(d1.canMerge(d2));
+	}
+}
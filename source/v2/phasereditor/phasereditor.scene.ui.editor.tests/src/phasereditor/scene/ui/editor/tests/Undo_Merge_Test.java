@@ -0,0 +1,197 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.ui.editor.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.commands.operations.DefaultOperationHistory;
+import org.eclipse.core.commands.operations.IOperationHistory;
+import org.eclipse.core.commands.operations.IUndoContext;
+import org.eclipse.core.commands.operations.ObjectUndoContext;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import phasereditor.scene.core.ObjectModel;
+import phasereditor.scene.ui.editor.SceneEditor;
+import phasereditor.scene.ui.editor.undo.SceneDiff;
+import phasereditor.scene.ui.editor.undo.SceneDiffOperation;
+
+/**
+ * The rules to coalesce the scene editor operations: the same label, the same
+ * properties of the same objects, within {@link SceneDiffOperation#MERGE_TIME}
+ * and nothing to redo.
+ * 
+ * @author arian
+ *
+ */
+public class Undo_Merge_Test {
+
+	static class TestOperation extends SceneDiffOperation {
+
+		public TestOperation(SceneDiff diff, String label, long time) {
+			super(diff, label, time);
+		}
+
+		@Override
+		public IStatus undo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+			return Status.OK_STATUS;
+		}
+
+		@Override
+		public IStatus redo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+			return Status.OK_STATUS;
+		}
+
+		@Override
+		protected void updateEditor(SceneEditor editor) {
+			// nothing
+		}
+	}
+
+	private IOperationHistory _history;
+	private IUndoContext _context;
+
+	@Before
+	public void createHistory() {
+		_history = new DefaultOperationHistory();
+		_context = new ObjectUndoContext(this);
+	}
+
+	private static SceneDiff diff(String key, Object before, Object after) {
+		var beforeData = new JSONObject();
+		beforeData.put(ObjectModel.ID_KEY, "obj");
+		beforeData.put(key, before);
+
+		var afterData = new JSONObject();
+		afterData.put(ObjectModel.ID_KEY, "obj");
+		afterData.put(key, after);
+
+		return SceneDiff.computeObjects(List.of(beforeData), List.of(afterData));
+	}
+
+	private boolean execute(SceneDiffOperation op) throws ExecutionException {
+		if (SceneDiffOperation.mergeWithLast(_history, _context, op)) {
+			return false;
+		}
+
+		op.addContext(_context);
+		_history.execute(op, null, null);
+
+		return true;
+	}
+
+	@Test
+	public void testMerge() throws ExecutionException {
+		var op1 = new TestOperation(diff("x", 10, 20), "Move", 1000);
+
+		assertTrue(execute(op1));
+		assertFalse(execute(new TestOperation(diff("x", 20, 30), "Move", 1500)));
+
+		// the time is of the last merged operation
+		assertFalse(execute(new TestOperation(diff("x", 30, 40), "Move", 2400)));
+
+		assertEquals(1, _history.getUndoHistory(_context).length);
+		assertSame(op1, _history.getUndoOperation(_context));
+	}
+
+	@Test
+	public void testEmpty() throws ExecutionException {
+		assertFalse(execute(new TestOperation(diff("x", 10, 10), "Move", 1000)));
+		assertEquals(0, _history.getUndoHistory(_context).length);
+	}
+
+	@Test
+	public void testNotMergeLabel() throws ExecutionException {
+		execute(new TestOperation(diff("x", 10, 20), "Move", 1000));
+
+		assertTrue(execute(new TestOperation(diff("x", 20, 30), "Scale", 1100)));
+	}
+
+	@Test
+	public void testNotMergeTime() throws ExecutionException {
+		execute(new TestOperation(diff("x", 10, 20), "Move", 1000));
+
+		assertTrue(execute(new TestOperation(diff("x", 20, 30), "Move", 1001 + SceneDiffOperation.MERGE_TIME)));
+	}
+
+	@Test
+	public void testNotMergeKeys() throws ExecutionException {
+		execute(new TestOperation(diff("x", 10, 20), "Move", 1000));
+
+		assertTrue(execute(new TestOperation(diff("y", 20, 30), "Move", 1100)));
+	}
+
+	@Test
+	public void testNotMergeWithRedo() throws ExecutionException {
+		execute(new TestOperation(diff("x", 10, 20), "Move", 1000));
+		execute(new TestOperation(diff("y", 10, 20), "Move", 1100));
+
+		_history.undo(_context, null, null);
+
+		assertNotNull(_history.getRedoOperation(_context));
+
+		assertTrue(execute(new TestOperation(diff("x", 20, 30), "Move", 1200)));
+	}
+
+	@Test
+	public void testLimitMemory() throws ExecutionException {
+		var op1 = new TestOperation(diff("x", 10, 20), "Move", 1000);
+		var op2 = new TestOperation(diff("y", 10, 20), "Move", 1000);
+		var op3 = new TestOperation(diff("x", 20, 30), "Scale", 1000);
+
+		execute(op1);
+		execute(op2);
+		execute(op3);
+
+		var size = op1.getDiff().getSize();
+
+		SceneDiffOperation.limitMemory(_history, _context, size * 2);
+
+		var ops = _history.getUndoHistory(_context);
+
+		assertEquals(2, ops.length);
+		assertSame(op2, ops[0]);
+		assertSame(op3, ops[1]);
+
+		// the removed operation is disposed
+		assertNull(op1.getDiff());
+
+		// the last operation is kept always
+		SceneDiffOperation.limitMemory(_history, _context, 0);
+
+		assertEquals(1, _history.getUndoHistory(_context).length);
+		assertNull(op2.getDiff());
+	}
+}
@@ -77,10 +77,19 @@ public class DragObjectsEvents {
 
 		var renderer = _scene.getSceneRenderer();
 
+		// the area to repaint: the old bounds, and the bounds moved to the new
+		// position
+
+		float[] damage = null;
+		var partial = true;
+
 		for (var model : _objects) {
 			if (model instanceof TransformComponent) {
 				var parent = ParentComponent.get_parent(model);
 
+				var oldPoint = renderer.localToScene(parent, TransformComponent.get_x(model),
+						TransformComponent.get_y(model));
+
 				var localX = (float) model.get(START_DRAG_X);
 				var localY = (float) model.get(START_DRAG_Y);
 
@@ -96,10 +105,38 @@ public class DragObjectsEvents {
 				
 				TransformComponent.set_x(model, x);
 				TransformComponent.set_y(model, y);
+
+				var newPoint = renderer.localToScene(parent, x, y);
+
+				var box = renderer.getObjectViewBox(model);
+
+				if (box != null) {
+					var dx = newPoint[0] - oldPoint[0];
+					var dy = newPoint[1] - oldPoint[1];
+
+					damage = joinBox(damage, box);
+					damage = joinBox(damage, new float[] { box[0] + dx, box[1] + dy, box[2] + dx, box[3] + dy });
+				} else {
+					partial = false;
+				}
 			}
 		}
 
-		_scene.redraw();
+		_scene.redrawObjectsArea(_objects, partial ? damage : null);
+	}
+
+	private static float[] joinBox(float[] a, float[] b) {
+		if (a == null) {
+			return b;
+		}
+
+		return new float[] {
+
+				Math.min(a[0], b[0]), Math.min(a[1], b[1]),
+
+				Math.max(a[2], b[2]), Math.max(a[3], b[3])
+
+		};
 	}
 
 	public boolean isDragging() {
@@ -25,7 +25,9 @@ import static phasereditor.ui.PhaserEditorUI.swtRun;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.eclipse.jface.util.LocalSelectionTransfer;
@@ -93,6 +95,7 @@ public class SceneCanvas extends ZoomCanvas
 		implements MouseListener, MouseMoveListener, DragDetectListener, ISceneObjectRendererContext {
 
 	private static final String SCENE_COPY_STAMP = "--scene--copy--stamp--";
+	private static final int DAMAGE_MARGIN = 30;
 	public static final int X_LABELS_HEIGHT = 18;
 	public static final int Y_LABEL_WIDTH = 18;
 	private SceneEditor _editor;
@@ -105,6 +108,7 @@ public class SceneCanvas extends ZoomCanvas
 	private boolean _transformLocalCoords;
 	private boolean _interactiveToolsHightlights;
 	private AssetFinder _finder;
+	private boolean _mouseOverTools;
 
 	public SceneCanvas(Composite parent, int style) {
 		super(parent, style | SWT.DOUBLE_BUFFERED | SWT.NO_REDRAW_RESIZE);
@@ -809,11 +813,69 @@ public class SceneCanvas extends ZoomCanvas
 		return new Point(1, 1);
 	}
 
+	/**
+	 * Repaints only the given area (minX, minY, maxX, maxY) of the canvas, plus
+	 * the space used by the selection decorations of the objects. If there are
+	 * interactive tools, all the canvas is repainted, since the tools could be
+	 * anywhere.
+	 */
+	void redrawObjectsArea(List<ObjectModel> models, float[] box) {
+		if (box == null || _renderer == null || !_interactiveTools.isEmpty()) {
+			redraw();
+			return;
+		}
+
+		var margin = DAMAGE_MARGIN;
+
+		{
+			// the selection paints the name of the objects, outside the bounds
+
+			var gc = new GC(this);
+
+			try {
+				for (var model : models) {
+					if (VariableComponent.is(model)) {
+						var size = gc.textExtent(" " + VariableComponent.get_variableName(model));
+						margin = Math.max(margin, DAMAGE_MARGIN + size.x + size.y);
+					}
+				}
+			} finally {
+				gc.dispose();
+			}
+		}
+
+		var x = (int) Math.floor(box[0]) - margin;
+		var y = (int) Math.floor(box[1]) - margin;
+		var w = (int) Math.ceil(box[2] - box[0]) + margin * 2;
+		var h = (int) Math.ceil(box[3] - box[1]) + margin * 2;
+
+		redraw(x, y, w, h, false);
+	}
+
 	ObjectModel pickObject(int x, int y) {
-		return pickObject(getModel().getDisplayList(), x, y);
+		var candidates = _renderer.getObjectsAt(x, y);
+
+		if (candidates.isEmpty()) {
+			return null;
+		}
+
+		// the candidates and their ancestors are the only objects to visit
+
+		var visit = new HashSet<ObjectModel>();
+
+		for (var model : candidates) {
+			var obj = model;
+
+			while (obj != null && visit.add(obj)) {
+				obj = ParentComponent.get_parent(obj);
+			}
+		}
+
+		return pickObject(getModel().getDisplayList(), x, y, candidates, visit);
 	}
 
-	private ObjectModel pickObject(ObjectModel model, int x, int y) {
+	private ObjectModel pickObject(ObjectModel model, int x, int y, Set<ObjectModel> candidates,
+			Set<ObjectModel> visit) {
 
 		if (model instanceof GameObjectEditorComponent) {
 			if (GameObjectEditorComponent.get_gameObjectEditorTransparency(model) == 0) {
@@ -842,7 +904,11 @@ public class SceneCanvas extends ZoomCanvas
 
 					var model2 = children.get(i);
 
-					var pick = pickObject(model2, x, y);
+					if (!visit.contains(model2)) {
+						continue;
+					}
+
+					var pick = pickObject(model2, x, y, candidates, visit);
 
 					if (pick != null) {
 						return pick;
@@ -851,6 +917,10 @@ public class SceneCanvas extends ZoomCanvas
 			}
 		}
 
+		if (!candidates.contains(model)) {
+			return null;
+		}
+
 		var polygon = _renderer.getObjectBounds(model);
 
 		if (hitsPolygon(x, y, polygon)) {
@@ -1122,7 +1192,7 @@ public class SceneCanvas extends ZoomCanvas
 				var data = (JSONObject) obj;
 				if (data.has(SCENE_COPY_STAMP)) {
 
-					String type = data.getString("-type");
+					String type = data.getString(ObjectModel.TYPE_KEY);
 
 					var newModel = SceneModel.createModel(type);
 
@@ -1303,11 +1373,16 @@ public class SceneCanvas extends ZoomCanvas
 		}
 
 		boolean contains = false;
+		boolean dragging = false;
 
 		for (var elem : _interactiveTools) {
 			if (elem.contains(e.x, e.y)) {
 				contains = true;
 			}
+
+			if (elem.isDragging()) {
+				dragging = true;
+			}
 		}
 
 		if (contains) {
@@ -1320,11 +1395,18 @@ public class SceneCanvas extends ZoomCanvas
 
 			if (_dragObjectsEvents.isDragging()) {
 				_dragObjectsEvents.update(e);
+				dragging = true;
 			}
 
 		}
 
-		if (!_interactiveTools.isEmpty()) {
+		// only repaint if the tools could change: the mouse is entering, leaving or
+		// moving over a tool, or something is dragged.
+
+		var lastContains = _mouseOverTools;
+		_mouseOverTools = contains;
+
+		if (!_interactiveTools.isEmpty() && (contains || lastContains || dragging)) {
 			redraw();
 		}
 	}
@@ -43,6 +43,7 @@ import phasereditor.scene.core.SceneCore;
 import phasereditor.scene.core.SceneModel;
 import phasereditor.scene.ui.editor.outline.SceneOutlinePage;
 import phasereditor.scene.ui.editor.properties.ScenePropertyPage;
+import phasereditor.scene.ui.editor.undo.SceneDiffOperation;
 import phasereditor.ui.SelectionProviderImpl;
 import phasereditor.ui.editors.EditorFileStampHelper;
 
@@ -413,11 +414,22 @@ public class SceneEditor extends EditorPart {
 
 	public void executeOperation(IUndoableOperation operation) {
 
-		operation.addContext(undoContext);
 		IWorkbench workbench = getSite().getWorkbenchWindow().getWorkbench();
 		try {
 			IOperationHistory history = workbench.getOperationSupport().getOperationHistory();
+
+			if (operation instanceof SceneDiffOperation
+					&& SceneDiffOperation.mergeWithLast(history, undoContext, (SceneDiffOperation) operation)) {
+				// nothing changed, or the change was made and it is joined to the last
+				// operation
+				return;
+			}
+
+			operation.addContext(undoContext);
+
 			history.execute(operation, null, this);
+
+			SceneDiffOperation.limitMemory(history, undoContext);
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw new RuntimeException(e);
@@ -0,0 +1,114 @@
+package phasereditor.scene.ui.editor.handlers;
+
+import static java.lang.System.out;
+import static java.util.stream.Collectors.joining;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import phasereditor.scene.core.SceneCompiler;
+import phasereditor.scene.core.SceneCore;
+import phasereditor.scene.ui.SceneUI;
+
+/**
+ * Compiles the scene files of the selected resources, in a batch.
+ * 
+ * @author arian
+ *
+ */
+public class CompileScenesHandler extends AbstractHandler {
+
+	private static final int SLOWEST_SCENES = 3;
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		var selection = HandlerUtil.getCurrentSelection(event);
+
+		var files = new LinkedHashSet<IFile>();
+
+		if (selection instanceof IStructuredSelection) {
+			for (var elem : ((IStructuredSelection) selection).toArray()) {
+				var root = Platform.getAdapterManager().getAdapter(elem, IResource.class);
+
+				if (root != null) {
+					try {
+						root.accept(resource -> {
+							if (resource instanceof IFile && SceneCore.isSceneFile((IFile) resource)) {
+								files.add((IFile) resource);
+							}
+							return true;
+						});
+					} catch (CoreException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+		}
+
+		if (files.isEmpty()) {
+			MessageDialog.openInformation(HandlerUtil.getActiveShell(event), "Compile Scenes",
+					"No scene files selected.");
+			return null;
+		}
+
+		var job = new WorkspaceJob("Compiling " + files.size() + " scenes.") {
+
+			@Override
+			public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+				var start = System.currentTimeMillis();
+
+				try {
+					var results = SceneCore.compileScenes(new ArrayList<>(files), monitor);
+
+					var changed = 0;
+
+					for (var result : results) {
+						var error = result.getError();
+
+						if (error != null) {
+							SceneUI.logError(error);
+						} else if (result.isChanged()) {
+							changed++;
+						}
+					}
+
+					// the scenes that took more time, to find the slow ones in a big batch
+
+					var slowest = results.stream().filter(r -> r.getError() == null)
+							.sorted(Comparator.comparingLong(SceneCompiler.Result::getTime).reversed())
+							.limit(SLOWEST_SCENES).map(r -> r.getSceneFile().getName() + " " + r.getTime() + "ms")
+							.collect(joining(", "));
+
+					out.println("Compiled " + results.size() + " scenes (" + changed + " changed) in "
+							+ (System.currentTimeMillis() - start) + "ms"
+							+ (slowest.isEmpty() ? "" : ". Slowest: " + slowest));
+
+				} catch (Exception e) {
+					SceneUI.logError(e);
+				}
+
+				return Status.OK_STATUS;
+			}
+		};
+
+		job.schedule();
+
+		return null;
+	}
+}
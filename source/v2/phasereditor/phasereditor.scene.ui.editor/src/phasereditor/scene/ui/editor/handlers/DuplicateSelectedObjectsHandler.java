@@ -47,7 +47,7 @@ public class DuplicateSelectedObjectsHandler extends AbstractHandler {
 
 			var copyData = new JSONObject();
 			obj.write(copyData);
-			var copy = SceneModel.createModel(copyData.getString("-type"));
+			var copy = SceneModel.createModel(copyData.getString(ObjectModel.TYPE_KEY));
 			copy.read(copyData, project);
 
 			copy.setId(UUID.randomUUID().toString());
@@ -21,12 +21,6 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.scene.ui.editor.undo;
 
-import org.eclipse.core.commands.ExecutionException;
-import org.eclipse.core.commands.operations.AbstractOperation;
-import org.eclipse.core.runtime.IAdaptable;
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 import org.json.JSONObject;
 
 import phasereditor.scene.ui.editor.SceneEditor;
@@ -35,10 +29,7 @@ import phasereditor.scene.ui.editor.SceneEditor;
  * @author arian
  *
  */
-public class GroupListSnapshotOperation extends AbstractOperation {
-
-	private JSONObject _beforeData;
-	private JSONObject _afterData;
+public class GroupListSnapshotOperation extends SceneDiffOperation {
 
 	public static JSONObject takeSnapshot(SceneEditor editor) {
 		var data = new JSONObject();
@@ -49,37 +40,11 @@ public class GroupListSnapshotOperation extends AbstractOperation {
 	}
 
 	public GroupListSnapshotOperation(JSONObject beforeData, JSONObject afterData, String label) {
-		super(label);
-
-		_beforeData = beforeData;
-		_afterData = afterData;
+		super(SceneDiff.computeGroups(beforeData, afterData), label);
 	}
 
 	@Override
-	public IStatus execute(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-		return Status.OK_STATUS;
-	}
-
-	@Override
-	public IStatus redo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-		loadSnapshot(info, _afterData);
-		return Status.OK_STATUS;
-	}
-
-	@Override
-	public IStatus undo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-		loadSnapshot(info, _beforeData);
-
-		return Status.OK_STATUS;
-	}
-
-	private static void loadSnapshot(IAdaptable info, JSONObject data) {
-		var editor = info.getAdapter(SceneEditor.class);
-		var model = editor.getSceneModel().getGroupsModel();
-		var project = editor.getEditorInput().getFile().getProject();
-
-		model.read(data, project);
-
+	protected void updateEditor(SceneEditor editor) {
 		editor.refreshOutline_basedOnId();
 
 		editor.updatePropertyPagesContentWithSelection();
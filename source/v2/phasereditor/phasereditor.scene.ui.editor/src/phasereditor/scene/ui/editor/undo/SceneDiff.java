@@ -0,0 +1,512 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.ui.editor.undo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.core.resources.IProject;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import phasereditor.scene.core.ObjectModel;
+import phasereditor.scene.core.ParentComponent;
+import phasereditor.scene.core.SceneModel;
+
+/**
+ * The changes between two states of a scene. It keeps only the properties
+ * that changed in every object, the children lists that changed (objects
+ * added, removed, re-parented or re-ordered) and the data of the objects that
+ * exist only in one of the states.
+ * 
+ * @author arian
+ *
+ */
+public class SceneDiff {
+
+	private static final String DISPLAY_LIST = "displayList";
+	private static final String GROUPS = "groups";
+
+	static class PropertyDelta {
+		/**
+		 * The object ID, or <code>null</code> for the scene properties.
+		 */
+		String id;
+		/**
+		 * The changed properties, a missing key means the property is not present.
+		 */
+		JSONObject before;
+		JSONObject after;
+
+		PropertyDelta(String id, JSONObject before, JSONObject after) {
+			this.id = id;
+			this.before = before;
+			this.after = after;
+		}
+
+		JSONObject get(boolean after) {
+			return after ? this.after : this.before;
+		}
+	}
+
+	static class ChildrenDelta {
+		String parentId;
+		List<String> before;
+		List<String> after;
+
+		ChildrenDelta(String parentId, List<String> before, List<String> after) {
+			this.parentId = parentId;
+			this.before = before;
+			this.after = after;
+		}
+
+		List<String> get(boolean after) {
+			return after ? this.after : this.before;
+		}
+	}
+
+	private static class Node {
+		JSONObject data;
+		String parentId;
+		List<String> children;
+	}
+
+	private List<PropertyDelta> _propertyDeltas;
+	private List<ChildrenDelta> _childrenDeltas;
+	private Map<String, JSONObject> _beforeObjects;
+	private Map<String, JSONObject> _afterObjects;
+	private JSONObject _beforeGroups;
+	private JSONObject _afterGroups;
+	private long _size;
+
+	private SceneDiff() {
+		_propertyDeltas = new ArrayList<>();
+		_childrenDeltas = new ArrayList<>();
+		_beforeObjects = new HashMap<>();
+		_afterObjects = new HashMap<>();
+	}
+
+	/**
+	 * Computes the changes between two scene snapshots, written by
+	 * {@link SceneModel#write(JSONObject)}.
+	 */
+	public static SceneDiff computeScene(JSONObject before, JSONObject after) {
+		var diff = new SceneDiff();
+
+		diff.diffTree(before.optJSONObject(DISPLAY_LIST), after.optJSONObject(DISPLAY_LIST));
+
+		diff.diffGroups(before.optJSONObject(GROUPS), after.optJSONObject(GROUPS));
+
+		var delta = diffProperties(null, before, after, DISPLAY_LIST, GROUPS);
+		if (delta != null) {
+			diff._propertyDeltas.add(delta);
+		}
+
+		diff.computeSize();
+
+		return diff;
+	}
+
+	/**
+	 * Computes the changes of a list of objects, written by
+	 * {@link ObjectModel#write(JSONObject)}. The changes in the children of the
+	 * objects are included too.
+	 */
+	public static SceneDiff computeObjects(List<JSONObject> before, List<JSONObject> after) {
+		var diff = new SceneDiff();
+
+		var afterMap = new HashMap<String, JSONObject>();
+
+		for (var data : after) {
+			afterMap.put(data.getString(ObjectModel.ID_KEY), data);
+		}
+
+		for (var beforeData : before) {
+			var afterData = afterMap.get(beforeData.getString(ObjectModel.ID_KEY));
+
+			diff.diffTree(beforeData, afterData);
+		}
+
+		diff.computeSize();
+
+		return diff;
+	}
+
+	/**
+	 * Computes the changes of the groups, written by
+	 * {@link SceneModel#getGroupsModel()}.
+	 */
+	public static SceneDiff computeGroups(JSONObject before, JSONObject after) {
+		var diff = new SceneDiff();
+
+		diff.diffGroups(before, after);
+
+		diff.computeSize();
+
+		return diff;
+	}
+
+	private void diffGroups(JSONObject before, JSONObject after) {
+		if (before == null || after == null) {
+			return;
+		}
+
+		if (!before.similar(after)) {
+			_beforeGroups = before;
+			_afterGroups = after;
+		}
+	}
+
+	private void diffTree(JSONObject before, JSONObject after) {
+		if (before == null || after == null) {
+			return;
+		}
+
+		var beforeNodes = new HashMap<String, Node>();
+		var afterNodes = new HashMap<String, Node>();
+
+		flatten(before, null, beforeNodes);
+		flatten(after, null, afterNodes);
+
+		for (var entry : beforeNodes.entrySet()) {
+			var id = entry.getKey();
+			var beforeNode = entry.getValue();
+			var afterNode = afterNodes.get(id);
+
+			if (afterNode == null) {
+				if (!beforeNodes.containsKey(beforeNode.parentId) || afterNodes.containsKey(beforeNode.parentId)) {
+					// the top-most removed object
+					_beforeObjects.put(id, beforeNode.data);
+				}
+				continue;
+			}
+
+			var delta = diffProperties(id, beforeNode.data, afterNode.data, ParentComponent.children_name);
+
+			if (delta != null) {
+				_propertyDeltas.add(delta);
+			}
+
+			if (beforeNode.children != null && !beforeNode.children.equals(afterNode.children)) {
+				_childrenDeltas.add(new ChildrenDelta(id, beforeNode.children, afterNode.children));
+			}
+		}
+
+		for (var entry : afterNodes.entrySet()) {
+			var id = entry.getKey();
+			var afterNode = entry.getValue();
+
+			if (!beforeNodes.containsKey(id)) {
+				if (!afterNodes.containsKey(afterNode.parentId) || beforeNodes.containsKey(afterNode.parentId)) {
+					// the top-most added object
+					_afterObjects.put(id, afterNode.data);
+				}
+			}
+		}
+	}
+
+	private static void flatten(JSONObject data, String parentId, Map<String, Node> nodes) {
+		var node = new Node();
+		node.data = data;
+		node.parentId = parentId;
+
+		var id = data.getString(ObjectModel.ID_KEY);
+
+		nodes.put(id, node);
+
+		var childrenData = data.optJSONArray(ParentComponent.children_name);
+
+		if (childrenData != null) {
+			node.children = new ArrayList<>();
+
+			for (int i = 0; i < childrenData.length(); i++) {
+				var childData = childrenData.getJSONObject(i);
+				node.children.add(childData.getString(ObjectModel.ID_KEY));
+				flatten(childData, id, nodes);
+			}
+		}
+	}
+
+	private static PropertyDelta diffProperties(String id, JSONObject before, JSONObject after,
+			String... ignoreKeys) {
+		var ignore = new HashSet<>(List.of(ignoreKeys));
+
+		var keys = new HashSet<String>();
+		keys.addAll(before.keySet());
+		keys.addAll(after.keySet());
+		keys.removeAll(ignore);
+
+		var beforeDelta = new JSONObject();
+		var afterDelta = new JSONObject();
+
+		for (var key : keys) {
+			var beforeValue = before.opt(key);
+			var afterValue = after.opt(key);
+
+			if (!sameValue(beforeValue, afterValue)) {
+				// a missing property is kept as null, so it is removed when the delta is
+				// applied
+				beforeDelta.put(key, beforeValue == null ? JSONObject.NULL : beforeValue);
+				afterDelta.put(key, afterValue == null ? JSONObject.NULL : afterValue);
+			}
+		}
+
+		if (beforeDelta.length() == 0) {
+			return null;
+		}
+
+		return new PropertyDelta(id, beforeDelta, afterDelta);
+	}
+
+	private static boolean sameValue(Object a, Object b) {
+		if (a instanceof JSONObject) {
+			return ((JSONObject) a).similar(b);
+		}
+
+		if (a instanceof JSONArray) {
+			return ((JSONArray) a).similar(b);
+		}
+
+		if (a instanceof Number && b instanceof Number) {
+			return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+		}
+
+		return Objects.equals(a, b);
+	}
+
+	private void computeSize() {
+		long size = 0;
+
+		for (var delta : _propertyDeltas) {
+			size += delta.before.toString().length() + delta.after.toString().length();
+		}
+
+		for (var delta : _childrenDeltas) {
+			size += (delta.before.size() + delta.after.size()) * 40;
+		}
+
+		for (var data : _beforeObjects.values()) {
+			size += data.toString().length();
+		}
+
+		for (var data : _afterObjects.values()) {
+			size += data.toString().length();
+		}
+
+		if (_beforeGroups != null) {
+			size += _beforeGroups.toString().length();
+		}
+
+		if (_afterGroups != null) {
+			size += _afterGroups.toString().length();
+		}
+		// two bytes per char
+		_size = size * 2;
+	}
+
+	/**
+	 * The estimated memory used by the changes.
+	 */
+	public long getSize() {
+		return _size;
+	}
+
+	public boolean isEmpty() {
+		return _propertyDeltas.isEmpty() && _childrenDeltas.isEmpty() && _beforeGroups == null;
+	}
+
+	public boolean isStructural() {
+		return !_childrenDeltas.isEmpty() || !_beforeObjects.isEmpty() || !_afterObjects.isEmpty();
+	}
+
+	/**
+	 * If this diff can be coalesced with the next one. Both have to change only
+	 * the same properties of the same objects.
+	 */
+	public boolean canMerge(SceneDiff next) {
+		if (isStructural() || next.isStructural() || _beforeGroups != null || next._beforeGroups != null) {
+			return false;
+		}
+
+		if (_propertyDeltas.size() != next._propertyDeltas.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < _propertyDeltas.size(); i++) {
+			var d1 = _propertyDeltas.get(i);
+			var d2 = next._propertyDeltas.get(i);
+
+			if (!Objects.equals(d1.id, d2.id) || !d1.after.keySet().equals(d2.before.keySet())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Coalesces the next diff into this one, it should be tested with
+	 * {@link #canMerge(SceneDiff)}.
+	 */
+	public void merge(SceneDiff next) {
+		for (int i = 0; i < _propertyDeltas.size(); i++) {
+			_propertyDeltas.get(i).after = next._propertyDeltas.get(i).after;
+		}
+
+		computeSize();
+	}
+
+	/**
+	 * Sets the scene to the state before (<code>after=false</code>) or after
+	 * (<code>after=true</code>) the changes.
+	 */
+	public void apply(SceneModel sceneModel, IProject project, boolean after) {
+		var displayList = sceneModel.getDisplayList();
+
+		// structure
+
+		if (!_childrenDeltas.isEmpty()) {
+
+			var objectsData = after ? _afterObjects : _beforeObjects;
+
+			var pool = new HashMap<String, ObjectModel>();
+
+			displayList.visit(model -> pool.put(model.getId(), model));
+
+			for (var delta : _childrenDeltas) {
+				var parent = pool.get(delta.parentId);
+
+				if (parent == null) {
+					continue;
+				}
+
+				var children = new ArrayList<ObjectModel>();
+
+				for (var id : delta.get(after)) {
+					var child = pool.get(id);
+
+					if (child == null) {
+						var data = objectsData.get(id);
+
+						if (data != null) {
+							child = SceneModel.createModel(data.getString(ObjectModel.TYPE_KEY));
+
+							if (child != null) {
+								child.read(data, project);
+							}
+						}
+					}
+
+					if (child != null) {
+						children.add(child);
+					}
+				}
+
+				ParentComponent.set_children(parent, children);
+
+				for (var child : children) {
+					ParentComponent.set_parent(child, parent);
+				}
+			}
+		}
+
+		// properties
+
+		for (var delta : _propertyDeltas) {
+			var values = delta.get(after);
+
+			if (delta.id == null) {
+				var data = new JSONObject();
+				sceneModel.writeProperties(data);
+				overlay(data, values);
+				sceneModel.readProperties(data);
+				continue;
+			}
+
+			var model = displayList.findById(delta.id);
+
+			if (model == null) {
+				model = sceneModel.getGroupsModel().findById(delta.id);
+			}
+
+			if (model != null) {
+				applyProperties(model, values, project);
+			}
+		}
+
+		// groups
+
+		var groupsModel = sceneModel.getGroupsModel();
+
+		var groupsData = after ? _afterGroups : _beforeGroups;
+
+		if (groupsData == null && isStructural()) {
+			// the objects could be created again, so the groups have to reference the new
+			// instances
+			groupsData = new JSONObject();
+			groupsModel.write(groupsData);
+		}
+
+		if (groupsData != null) {
+			groupsModel.read(groupsData, project);
+		}
+	}
+
+	/**
+	 * Sets the changed properties of the object. The children are not part of the
+	 * property changes, so they are detached while the object is written and
+	 * read, else they would be serialized and created again.
+	 */
+	private static void applyProperties(ObjectModel model, JSONObject values, IProject project) {
+		List<ObjectModel> children = null;
+
+		if (model instanceof ParentComponent) {
+			children = ParentComponent.get_children(model);
+			ParentComponent.set_children(model, new ArrayList<>());
+		}
+
+		var data = new JSONObject();
+		model.write(data);
+		overlay(data, values);
+		model.read(data, project);
+
+		if (children != null) {
+			ParentComponent.set_children(model, children);
+		}
+	}
+
+	private static void overlay(JSONObject data, JSONObject values) {
+		for (var key : values.keySet()) {
+			var value = values.get(key);
+
+			if (value == JSONObject.NULL) {
+				data.remove(key);
+			} else {
+				data.put(key, value);
+			}
+		}
+	}
+}
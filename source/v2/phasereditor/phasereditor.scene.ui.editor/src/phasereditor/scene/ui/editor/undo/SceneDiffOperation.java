@@ -0,0 +1,216 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.ui.editor.undo;
+
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.commands.operations.AbstractOperation;
+import org.eclipse.core.commands.operations.IOperationHistory;
+import org.eclipse.core.commands.operations.IUndoContext;
+import org.eclipse.core.commands.operations.IUndoableOperation;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import phasereditor.scene.ui.editor.SceneEditor;
+
+/**
+ * The base of the scene editor operations. It keeps only the changes
+ * ({@link SceneDiff}) made by the operation, not the whole snapshots, and
+ * undo/redo applies them to the current scene.
+ * 
+ * @author arian
+ *
+ */
+public abstract class SceneDiffOperation extends AbstractOperation {
+
+	/**
+	 * The max memory (in MB) used by the undo history of a scene editor.
+	 */
+	public static final long MEMORY_LIMIT;
+
+	/**
+	 * Two operations with the same label and changing the same properties of the
+	 * same objects are coalesced if they are executed within this time.
+	 */
+	public static final long MERGE_TIME = 1000;
+
+	static {
+		long limit = 64;
+		var str = System.getProperty("SceneEditor.UNDO_MEMORY");
+		if (str != null) {
+			try {
+				limit = Long.parseLong(str);
+			} catch (Exception e) {
+				//
+			}
+		}
+		MEMORY_LIMIT = limit * 1024 * 1024;
+	}
+
+	private SceneDiff _diff;
+	private long _time;
+
+	public SceneDiffOperation(SceneDiff diff, String label) {
+		this(diff, label, System.currentTimeMillis());
+	}
+
+	/**
+	 * @param time
+	 *            The time the change was made, it is used to coalesce the
+	 *            operations.
+	 */
+	protected SceneDiffOperation(SceneDiff diff, String label, long time) {
+		super(label);
+
+		_diff = diff;
+		_time = time;
+	}
+
+	public SceneDiff getDiff() {
+		return _diff;
+	}
+
+	@Override
+	public IStatus execute(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+		// nothing to do, the change was made
+		return Status.OK_STATUS;
+	}
+
+	@Override
+	public IStatus redo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+
+		loadDiff(info, true);
+
+		return Status.OK_STATUS;
+	}
+
+	@Override
+	public IStatus undo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+
+		loadDiff(info, false);
+
+		return Status.OK_STATUS;
+	}
+
+	private void loadDiff(IAdaptable info, boolean after) {
+		var editor = info.getAdapter(SceneEditor.class);
+		var project = editor.getEditorInput().getFile().getProject();
+
+		_diff.apply(editor.getSceneModel(), project, after);
+
+		updateEditor(editor);
+	}
+
+	protected abstract void updateEditor(SceneEditor editor);
+
+	@Override
+	public void dispose() {
+		_diff = null;
+
+		super.dispose();
+	}
+
+	/**
+	 * Coalesces the operation into the last operation of the context, if there is
+	 * nothing to redo. Else, the merge would change the state the redo operations
+	 * are applied to.
+	 * 
+	 * @return If the operation has not to be executed, because it is empty or it
+	 *         was merged into the last one.
+	 */
+	public static boolean mergeWithLast(IOperationHistory history, IUndoContext context,
+			SceneDiffOperation operation) {
+
+		if (operation.getDiff().isEmpty()) {
+			return true;
+		}
+
+		var last = history.getUndoOperation(context);
+
+		if (last instanceof SceneDiffOperation && history.getRedoOperation(context) == null) {
+			return ((SceneDiffOperation) last).merge(operation);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Coalesces the next operation into this one, if they are of the same kind
+	 * and change the same properties. It is used to join the consecutive changes
+	 * of a drag, or the steps of a property value.
+	 * 
+	 * @return If the next operation was merged.
+	 */
+	public boolean merge(SceneDiffOperation next) {
+		if (getClass() != next.getClass() || !getLabel().equals(next.getLabel())) {
+			return false;
+		}
+
+		if (next._time - _time > MERGE_TIME) {
+			return false;
+		}
+
+		if (!_diff.canMerge(next._diff)) {
+			return false;
+		}
+
+		_diff.merge(next._diff);
+		_time = next._time;
+
+		return true;
+	}
+
+	/**
+	 * Removes the oldest operations of the context until the memory of the undo
+	 * history fits in the {@link #MEMORY_LIMIT}. The removed operations are
+	 * disposed.
+	 */
+	public static void limitMemory(IOperationHistory history, IUndoContext context) {
+		limitMemory(history, context, MEMORY_LIMIT);
+	}
+
+	public static void limitMemory(IOperationHistory history, IUndoContext context, long limit) {
+		var ops = history.getUndoHistory(context);
+
+		long size = 0;
+
+		for (var op : ops) {
+			if (op instanceof SceneDiffOperation) {
+				size += ((SceneDiffOperation) op)._diff.getSize();
+			}
+		}
+
+		// the oldest operations are at the start, the last one is kept always
+		for (int i = 0; i < ops.length - 1 && size > limit; i++) {
+			var op = ops[i];
+
+			if (op instanceof SceneDiffOperation) {
+				size -= ((SceneDiffOperation) op)._diff.getSize();
+
+				// the history does not dispose the replaced operation
+				history.replaceOperation(op, new IUndoableOperation[0]);
+				op.dispose();
+			}
+		}
+	}
+}
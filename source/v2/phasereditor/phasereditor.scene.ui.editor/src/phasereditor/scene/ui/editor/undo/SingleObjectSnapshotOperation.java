@@ -25,12 +25,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
-import org.eclipse.core.commands.ExecutionException;
-import org.eclipse.core.commands.operations.AbstractOperation;
-import org.eclipse.core.runtime.IAdaptable;
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 import org.json.JSONObject;
 
 import phasereditor.scene.core.GameObjectEditorComponent;
@@ -41,7 +35,7 @@ import phasereditor.scene.ui.editor.SceneEditor;
  * @author arian
  *
  */
-public class SingleObjectSnapshotOperation extends AbstractOperation {
+public class SingleObjectSnapshotOperation extends SceneDiffOperation {
 
 	public static List<JSONObject> takeSnapshot(List<ObjectModel> models) {
 		var list = new ArrayList<JSONObject>();
@@ -55,8 +49,7 @@ public class SingleObjectSnapshotOperation extends AbstractOperation {
 		return list;
 	}
 
-	private List<JSONObject> _beforeData;
-	private List<JSONObject> _afterData;
+	private List<String> _ids;
 	private boolean _dirtyModels;
 	private Function<ObjectModel, Boolean> _filterDirtyModels;
 
@@ -67,11 +60,14 @@ public class SingleObjectSnapshotOperation extends AbstractOperation {
 
 	public SingleObjectSnapshotOperation(List<JSONObject> beforeData, List<JSONObject> afterData, String label,
 			boolean dirtyModels, Function<ObjectModel, Boolean> filterDirtyModels) {
-		
-		super(label);
 
-		_beforeData = beforeData;
-		_afterData = afterData;
+		super(SceneDiff.computeObjects(beforeData, afterData), label);
+
+		_ids = new ArrayList<>();
+
+		for (var data : beforeData) {
+			_ids.add(data.getString(ObjectModel.ID_KEY));
+		}
 
 		_dirtyModels = dirtyModels;
 		_filterDirtyModels = filterDirtyModels;
@@ -82,61 +78,49 @@ public class SingleObjectSnapshotOperation extends AbstractOperation {
 	}
 
 	@Override
-	public IStatus execute(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-		// nothing to do, the change was made
-		return Status.OK_STATUS;
-	}
-
-	@Override
-	public IStatus redo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-
-		loadSnapshot(info, _afterData);
-
-		return Status.OK_STATUS;
-	}
-
-	@Override
-	public IStatus undo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-
-		loadSnapshot(info, _beforeData);
+	protected void updateEditor(SceneEditor editor) {
+		var sceneModel = editor.getSceneModel();
+		var selectionIds = editor.getSelectionIdList();
 
-		return Status.OK_STATUS;
-	}
+		if (_dirtyModels) {
+			for (var id : _ids) {
 
-	private void loadSnapshot(IAdaptable info, List<JSONObject> list) {
-		var editor = info.getAdapter(SceneEditor.class);
-		var sceneModel = editor.getSceneModel();
-		var project = editor.getEditorInput().getFile().getProject();
-		var selectionIds = editor.getSelectionIdList(); 
-
-		for (var data : list) {
-			var id = data.getString("-id");
-			
-			var model = sceneModel.getDisplayList().findById(id);
-			
-			if (model == null) {
-				model = sceneModel.getGroupsModel().findById(id);
-			}
+				var model = sceneModel.getDisplayList().findById(id);
 
-			if (model != null) {
-				model.read(data, project);
+				if (model == null) {
+					model = sceneModel.getGroupsModel().findById(id);
+				}
 
-				if (_dirtyModels) {
+				if (model != null) {
 					if (_filterDirtyModels == null || _filterDirtyModels.apply(model).booleanValue()) {
 						GameObjectEditorComponent.set_gameObjectEditorDirty(model, true);
 					}
-
 				}
 			}
 		}
 
 		editor.refreshOutline_basedOnId();
-		
+
 		editor.setSelectionFromIdList(selectionIds);
-		
+
 		editor.updatePropertyPagesContentWithSelection();
 
 		editor.setDirty(true);
 	}
 
+	@Override
+	public boolean merge(SceneDiffOperation next) {
+		if (!(next instanceof SingleObjectSnapshotOperation)) {
+			return false;
+		}
+
+		var op = (SingleObjectSnapshotOperation) next;
+
+		if (op._dirtyModels != _dirtyModels || op._filterDirtyModels != _filterDirtyModels) {
+			return false;
+		}
+
+		return super.merge(next);
+	}
+
 }
@@ -21,25 +21,34 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.scene.ui.editor.undo;
 
-import org.eclipse.core.commands.ExecutionException;
-import org.eclipse.core.commands.operations.AbstractOperation;
-import org.eclipse.core.runtime.IAdaptable;
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 import org.json.JSONObject;
 
 import phasereditor.scene.ui.editor.SceneEditor;
 
 /**
+ * The operation of the structural changes of the scene: add, delete, paste,
+ * duplicate, morph or re-parent objects.
+ * <p>
+ * It is recorded with a snapshot of the whole scene before and after the
+ * change. A structural change can create, remove and move objects in any
+ * place of the tree, and the groups reference those objects, so the diff
+ * needs both trees to know what changed. The snapshots are released after the
+ * diff is computed, only the diff is kept in the history.
+ * <p>
+ * The changes of properties, that are the frequent ones (moving, scaling,
+ * editing in the properties view), are recorded with
+ * {@link SingleObjectSnapshotOperation}, that takes a snapshot of the changed
+ * objects only.
+ * 
  * @author arian
  *
  */
-public class WorldSnapshotOperation extends AbstractOperation {
-
-	private JSONObject _beforeData;
-	private JSONObject _afterData;
+public class WorldSnapshotOperation extends SceneDiffOperation {
 
+	/**
+	 * A full snapshot of the scene. Use it only for structural changes, see the
+	 * class comment.
+	 */
 	public static JSONObject takeSnapshot(SceneEditor editor) {
 		var data = new JSONObject();
 
@@ -48,44 +57,17 @@ public class WorldSnapshotOperation extends AbstractOperation {
 		return data;
 	}
 
+	/**
+	 * The snapshots are not kept, only the changes between them.
+	 */
 	public WorldSnapshotOperation(JSONObject beforeData, JSONObject afterData, String label) {
-		super(label);
-
-		_beforeData = beforeData;
-		_afterData = afterData;
-	}
-
-	@Override
-	public IStatus execute(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-		// nothing to do, the change was made
-		return Status.OK_STATUS;
-	}
-
-	@Override
-	public IStatus redo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-
-		loadSnapshot(info, _afterData);
-
-		return Status.OK_STATUS;
+		super(SceneDiff.computeScene(beforeData, afterData), label);
 	}
 
 	@Override
-	public IStatus undo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
-
-		loadSnapshot(info, _beforeData);
-
-		return Status.OK_STATUS;
-	}
-
-	private static void loadSnapshot(IAdaptable info, JSONObject data) {
-		var editor = info.getAdapter(SceneEditor.class);
-		var model = editor.getSceneModel();
-		var project = editor.getEditorInput().getFile().getProject();
-
+	protected void updateEditor(SceneEditor editor) {
 		var selectionIds = editor.getSelectionIdList();
 
-		model.read(data, project);
-
 		editor.refreshOutline_basedOnId();
 
 		editor.setSelectionFromIdList(selectionIds);
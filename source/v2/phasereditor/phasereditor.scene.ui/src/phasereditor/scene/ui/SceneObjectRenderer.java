@@ -29,10 +29,15 @@ import static phasereditor.ui.Colors.YELLOW;
 import static phasereditor.ui.Colors.color;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.GC;
@@ -45,7 +50,7 @@ import phasereditor.assetpack.core.AssetFinder;
 import phasereditor.assetpack.ui.AssetPackUI;
 import phasereditor.bmpfont.core.BitmapFontModel.Align;
 import phasereditor.bmpfont.core.BitmapFontModel.RenderArgs;
-import phasereditor.bmpfont.core.BitmapFontRenderer;
+import phasereditor.bmpfont.core.BitmapFontModel.RasterRenderer;
 import phasereditor.scene.core.BaseSpriteModel;
 import phasereditor.scene.core.BitmapTextComponent;
 import phasereditor.scene.core.BitmapTextModel;
@@ -64,7 +69,6 @@ import phasereditor.scene.core.TileSpriteComponent;
 import phasereditor.scene.core.TileSpriteModel;
 import phasereditor.scene.core.TransformComponent;
 import phasereditor.scene.core.VisibleComponent;
-import phasereditor.ui.BaseCanvas;
 import phasereditor.ui.ImageProxy;
 import phasereditor.ui.PhaserEditorUI;
 import phasereditor.ui.ScaledImage;
@@ -74,11 +78,91 @@ import phasereditor.ui.ScaledImage;
  *
  */
 public class SceneObjectRenderer {
+
+	/**
+	 * The counters of the last rendered frame.
+	 */
+	public static class Stats {
+		int _visited;
+		int _drawn;
+		int _culled;
+		int _reused;
+		double _time;
+
+		/**
+		 * The objects processed in the frame.
+		 */
+		public int getVisited() {
+			return _visited;
+		}
+
+		/**
+		 * The objects painted in the frame.
+		 */
+		public int getDrawn() {
+			return _drawn;
+		}
+
+		/**
+		 * The objects not painted because they are outside the viewport.
+		 */
+		public int getCulled() {
+			return _culled;
+		}
+
+		/**
+		 * The culled objects that were not processed at all, they kept the bounds
+		 * of the previous frame.
+		 */
+		public int getReused() {
+			return _reused;
+		}
+
+		/**
+		 * The time of the frame, in milliseconds.
+		 */
+		public double getTime() {
+			return _time;
+		}
+
+		@SuppressWarnings("boxing")
+		@Override
+		public String toString() {
+			return String.format("visited %d, drawn %d, culled %d (%d reused), %.2fms", _visited, _drawn, _culled,
+					_reused, _time);
+		}
+	}
+
+	/**
+	 * What is needed to know if an object (and its children) can be skipped in a
+	 * new frame.
+	 */
+	private static class RenderState {
+		long stamp;
+		float[] parentMatrix;
+		float[] box;
+	}
+
+	/**
+	 * The ARGB pixels of the font textures. The textures are kept by the
+	 * {@link ImageProxy} cache, so the entries are removed when it evicts them.
+	 */
+	private static final Map<BufferedImage, int[]> _texturePixelsMap = new WeakHashMap<>();
+
 	private ISceneObjectRendererContext _rendererContext;
 	private Map<ObjectModel, float[]> _modelMatrixMap;
 	private Map<ObjectModel, float[]> _modelBoundsMap;
 	private Map<ObjectModel, float[]> _modelChildrenBoundsMap;
 	private Map<Object, ScaledImage> _imageCacheMap;
+	private SceneSpatialIndex _spatialIndex;
+	private float[] _sceneToViewMatrix;
+	private float[] _viewToSceneMatrix;
+	private Map<ObjectModel, RenderState> _renderStateMap;
+	private Set<ObjectModel> _visitedModels;
+	private Rectangle _viewport;
+	private boolean _culling;
+	private int _finderVersion;
+	private Stats _stats;
 
 	private boolean _debug;
 	private List<Runnable> _postPaintActions;
@@ -103,8 +187,41 @@ public class SceneObjectRenderer {
 
 		_imageCacheMap = new HashMap<>();
 
+		_spatialIndex = new SceneSpatialIndex();
+		_sceneToViewMatrix = new float[] { 1, 0, 0, 1, 0, 0 };
+		_viewToSceneMatrix = new float[] { 1, 0, 0, 1, 0, 0 };
+
+		_renderStateMap = new HashMap<>();
+		_visitedModels = new HashSet<>();
+		_culling = true;
+		_stats = new Stats();
+
 		_finder = rendererContext.getAssetFinder();
-		_lastFinderSnapshot = _finder;
+		_lastFinderSnapshot = _finder.snapshot();
+		_finderVersion = _finder.getVersion();
+	}
+
+	/**
+	 * If the objects outside the viewport are skipped. It is enabled by default.
+	 */
+	public boolean isCulling() {
+		return _culling;
+	}
+
+	public void setCulling(boolean culling) {
+		_culling = culling;
+		_renderStateMap.clear();
+	}
+
+	/**
+	 * Forces to process all the objects in the next frame.
+	 */
+	public void invalidate() {
+		_renderStateMap.clear();
+	}
+
+	public Stats getStats() {
+		return _stats;
 	}
 
 	public void dispose() {
@@ -137,9 +254,28 @@ public class SceneObjectRenderer {
 		_COLOR_RED = color(RED);
 		_COLOR_WHITE = color(WHITE);
 
-		_modelMatrixMap = new HashMap<>();
-		_modelBoundsMap = new HashMap<>();
-		_modelChildrenBoundsMap = new HashMap<>();
+		var startTime = System.nanoTime();
+
+		_stats = new Stats();
+		_visitedModels = new HashSet<>();
+
+		if (_finder.getVersion() != _finderVersion) {
+			// the assets changed, the sizes of the objects could change too
+			_renderStateMap.clear();
+		}
+
+		{
+			// the clipping, in device coordinates
+
+			var gcTx = new Transform(gc.getDevice());
+			gc.getTransform(gcTx);
+			gc.setTransform(null);
+
+			_viewport = gc.getClipping();
+
+			gc.setTransform(gcTx);
+			gcTx.dispose();
+		}
 
 		var tx2 = newTx(gc, tx);
 
@@ -153,16 +289,32 @@ public class SceneObjectRenderer {
 
 				tx2.translate(dx, dy);
 				tx2.scale(scale, scale);
+
+				tx2.getElements(_sceneToViewMatrix);
+				_viewToSceneMatrix = invertMatrix(_sceneToViewMatrix);
 			}
 
+			_spatialIndex.startFrame();
+
 			// renderObject(gc, tx2, sceneModel.getDisplayList());
 			renderChildren(gc, tx2, sceneModel.getDisplayList());
 
+			_spatialIndex.endFrame();
+
+			// remove the objects that are not in the scene anymore
+
+			_modelMatrixMap.keySet().retainAll(_visitedModels);
+			_modelBoundsMap.keySet().retainAll(_visitedModels);
+			_modelChildrenBoundsMap.keySet().retainAll(_visitedModels);
+			_renderStateMap.keySet().retainAll(_visitedModels);
+
 		} finally {
 			tx2.dispose();
 			gc.setTransform(null);
 		}
 
+		_stats._time = (System.nanoTime() - startTime) / 1_000_000d;
+
 		if (_debug) {
 			startDebug(gc, sceneModel);
 		}
@@ -184,7 +336,10 @@ public class SceneObjectRenderer {
 
 		_postPaintActions.clear();
 
-		_lastFinderSnapshot = _finder.snapshot();
+		if (_finder.getVersion() != _finderVersion) {
+			_lastFinderSnapshot = _finder.snapshot();
+			_finderVersion = _finder.getVersion();
+		}
 	}
 
 	private void renderBones(GC gc, ObjectModel parent, boolean forceRender) {
@@ -239,6 +394,9 @@ public class SceneObjectRenderer {
 
 		debugObject(gc, model.getDisplayList());
 
+		gc.setForeground(_COLOR_WHITE);
+		gc.drawText(_stats.toString(), 5, 5, true);
+
 		gc.setTransform(oldTx);
 
 	}
@@ -274,13 +432,22 @@ public class SceneObjectRenderer {
 
 		var children = ParentComponent.get_children(parent);
 
+		var parentMatrix = _modelMatrixMap.get(parent);
+
 		for (var obj : children) {
 
+			if (canSkip(obj, parentMatrix)) {
+				skip(obj);
+				continue;
+			}
+
 			var tx2 = newTx(gc, tx);
 
 			renderObject(gc, tx2, obj);
 
 			tx2.dispose();
+
+			saveRenderState(obj, parentMatrix);
 		}
 
 		var minX = Float.MAX_VALUE;
@@ -306,6 +473,174 @@ public class SceneObjectRenderer {
 		_modelChildrenBoundsMap.put(parent, new float[] { minX, minY, maxX, minY, maxX, maxY, minX, maxY });
 	}
 
+	/**
+	 * An object can be skipped if it was outside the viewport in the last frame,
+	 * and it did not change, and its parent did not move.
+	 */
+	private boolean canSkip(ObjectModel model, float[] parentMatrix) {
+		if (!_culling) {
+			return false;
+		}
+
+		var state = _renderStateMap.get(model);
+
+		if (state == null) {
+			return false;
+		}
+
+		if (!Arrays.equals(state.parentMatrix, parentMatrix)) {
+			return false;
+		}
+
+		if (state.box != null && isInViewport(state.box)) {
+			return false;
+		}
+
+		return state.stamp == computeStamp(model);
+	}
+
+	private void skip(ObjectModel model) {
+		model.visit(obj -> {
+			if (_visitedModels.add(obj)) {
+				_spatialIndex.touch(obj);
+				_stats._culled++;
+				_stats._reused++;
+			}
+		});
+	}
+
+	private void saveRenderState(ObjectModel model, float[] parentMatrix) {
+		if (!_culling) {
+			return;
+		}
+
+		var state = _renderStateMap.get(model);
+
+		if (state == null) {
+			state = new RenderState();
+			_renderStateMap.put(model, state);
+		}
+
+		state.stamp = computeStamp(model);
+		state.parentMatrix = parentMatrix == null ? null : parentMatrix.clone();
+		state.box = computeBox(model);
+	}
+
+	private static long computeStamp(ObjectModel model) {
+		long stamp = model.getVersion();
+
+		if (model instanceof ParentComponent) {
+			for (var child : ParentComponent.get_children(model)) {
+				stamp = stamp * 31 + System.identityHashCode(child);
+				stamp = stamp * 31 + computeStamp(child);
+			}
+		}
+
+		return stamp;
+	}
+
+	/**
+	 * The view box (minX, minY, maxX, maxY) of the object and its children.
+	 */
+	private float[] computeBox(ObjectModel model) {
+		if (!_visitedModels.contains(model)) {
+			return null;
+		}
+
+		float[] box = null;
+
+		var bounds = _modelBoundsMap.get(model);
+
+		if (bounds != null) {
+			box = new float[] { Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+
+			for (int i = 0; i + 1 < bounds.length; i += 2) {
+				box[0] = Math.min(box[0], bounds[i]);
+				box[1] = Math.min(box[1], bounds[i + 1]);
+				box[2] = Math.max(box[2], bounds[i]);
+				box[3] = Math.max(box[3], bounds[i + 1]);
+			}
+		}
+
+		if (model instanceof ParentComponent) {
+			for (var child : ParentComponent.get_children(model)) {
+				var state = _renderStateMap.get(child);
+
+				if (state == null || state.box == null || !_visitedModels.contains(child)) {
+					continue;
+				}
+
+				if (box == null) {
+					box = state.box.clone();
+				} else {
+					box[0] = Math.min(box[0], state.box[0]);
+					box[1] = Math.min(box[1], state.box[1]);
+					box[2] = Math.max(box[2], state.box[2]);
+					box[3] = Math.max(box[3], state.box[3]);
+				}
+			}
+		}
+
+		return box;
+	}
+
+	/**
+	 * The box (minX, minY, maxX, maxY) in canvas coordinates, of the object and
+	 * its children, as they were painted in the last frame. It is used to compute
+	 * the area to repaint when the object changes.
+	 */
+	public float[] getObjectViewBox(ObjectModel model) {
+		var state = _renderStateMap.get(model);
+
+		if (state != null && state.box != null) {
+			return state.box.clone();
+		}
+
+		return computeBox(model);
+	}
+
+	private boolean isInViewport(float[] box) {
+		if (!_culling || _viewport == null) {
+			return true;
+		}
+
+		return box[0] <= _viewport.x + _viewport.width && box[2] >= _viewport.x
+
+				&& box[1] <= _viewport.y + _viewport.height && box[3] >= _viewport.y;
+	}
+
+	private boolean isBoundsInViewport(ObjectModel model) {
+		if (!_culling || _viewport == null) {
+			return true;
+		}
+
+		var bounds = _modelBoundsMap.get(model);
+
+		if (bounds == null) {
+			return true;
+		}
+
+		var minX = Math.min(Math.min(bounds[0], bounds[2]), Math.min(bounds[4], bounds[6]));
+		var minY = Math.min(Math.min(bounds[1], bounds[3]), Math.min(bounds[5], bounds[7]));
+		var maxX = Math.max(Math.max(bounds[0], bounds[2]), Math.max(bounds[4], bounds[6]));
+		var maxY = Math.max(Math.max(bounds[1], bounds[3]), Math.max(bounds[5], bounds[7]));
+
+		return isInViewport(new float[] { minX, minY, maxX, maxY });
+	}
+
+	/**
+	 * Counts the object as drawn or culled, and returns if it has to be drawn.
+	 */
+	private boolean checkDraw(ObjectModel model) {
+		if (isBoundsInViewport(model)) {
+			_stats._drawn++;
+			return true;
+		}
+
+		_stats._culled++;
+		return false;
+	}
+
 	public static float[] joinBounds(float[] a, float[] b) {
 		var minX = Float.MAX_VALUE;
 		var minY = Float.MAX_VALUE;
@@ -334,6 +669,8 @@ public class SceneObjectRenderer {
 			return;
 		}
 
+		_stats._visited++;
+
 		var alpha = gc.getAlpha();
 		var transp = GameObjectEditorComponent.get_gameObjectEditorTransparency(model);
 
@@ -478,13 +815,19 @@ public class SceneObjectRenderer {
 				}
 			}
 
-			scaledImage.paint(gc, 0, 0);
+			bounds = scaledImage.getBounds();
+
+			setObjectBounds(gc, model, 0, 0, bounds.width, bounds.height);
+
+			if (checkDraw(model)) {
+				scaledImage.paint(gc, 0, 0);
+			}
 
 			if (tx2 != null) {
 				tx2.dispose();
 			}
 
-			bounds = scaledImage.getBounds();
+			return;
 		}
 
 		setObjectBounds(gc, model, 0, 0, bounds.width, bounds.height);
@@ -499,22 +842,30 @@ public class SceneObjectRenderer {
 
 		var args = createBitmapTextRenderArgs(textModel);
 
-		var metrics = fontModel.metrics(args);
+		// the layout is cached by the font, so the metrics and the render share it
 
-		var width = metrics.getWidth();
-		var height = metrics.getHeight();
+		var layout = fontModel.getLayout(args);
 
-		var buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		var width = layout.getWidth();
+		var height = layout.getHeight();
 
-		var g2 = buffer.createGraphics();
-
-		BaseCanvas.prepareGC(g2);
+		var buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 
 		var asset = BitmapTextComponent.utils_getFont(textModel, _finder);
 
 		var proxy = ImageProxy.get(asset.getTextureFile(), null);
 		var fontTexture = proxy.getFileBufferedImage();
 
+		if (fontTexture == null) {
+			return createScaledImage(buffer);
+		}
+
+		// the chars are copied directly into the pixels of the buffer
+
+		var renderer = new RasterRenderer(getTexturePixels(fontTexture), fontTexture.getWidth(),
+				fontTexture.getHeight(), ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData(), width,
+				height);
+
 		if (textModel instanceof DynamicBitmapTextComponent) {
 			// crop it
 
@@ -531,37 +882,46 @@ public class SceneObjectRenderer {
 				var cropX = width * originX;
 				var cropY = height * originY;
 
-				g2.setClip((int) cropX, (int) cropY, cropWidth, cropHeight);
+				renderer.setClip((int) cropX, (int) cropY, cropWidth, cropHeight);
 
 				var scrollX = DynamicBitmapTextComponent.get_scrollX(textModel);
 				var scrollY = DynamicBitmapTextComponent.get_scrollY(textModel);
 
-				g2.translate(-scrollX, -scrollY);
+				renderer.setTranslate((int) -scrollX, (int) -scrollY);
 
 			}
 		}
 
 		try {
 
-			fontModel.render(args, new BitmapFontRenderer() {
-
-				@SuppressWarnings("hiding")
-				@Override
-				public void render(char c, int x, int y, int width, int height, int srcX, int srcY, int srcW,
-						int srcH) {
-					g2.drawImage(fontTexture, x, y, x + width, y + height, srcX, srcY, srcX + srcW, srcY + srcH, null);
-				}
-			});
+			layout.render(renderer);
 
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 
-		g2.dispose();
-
 		return createScaledImage(buffer);
 	}
 
+	private static int[] getTexturePixels(BufferedImage texture) {
+		if (texture.getType() == BufferedImage.TYPE_INT_ARGB) {
+			return ((DataBufferInt) texture.getRaster().getDataBuffer()).getData();
+		}
+
+		synchronized (_texturePixelsMap) {
+			var pixels = _texturePixelsMap.get(texture);
+
+			if (pixels == null) {
+				var w = texture.getWidth();
+				var h = texture.getHeight();
+				pixels = texture.getRGB(0, 0, w, h, null, 0, w);
+				_texturePixelsMap.put(texture, pixels);
+			}
+
+			return pixels;
+		}
+	}
+
 	private static ScaledImage createScaledImage(BufferedImage buffer) {
 		return ScaledImage.create(buffer, ImageProxy.MAX_SIZE);
 	}
@@ -716,13 +1076,15 @@ public class SceneObjectRenderer {
 		var width = TileSpriteComponent.get_width(model);
 		var height = TileSpriteComponent.get_height(model);
 
-		var scaledImage = getTileSpriteImage(model);
+		setObjectBounds(gc, model, 0, 0, width, height);
 
-		if (scaledImage != null) {
-			scaledImage.paint(gc, 0, 0);
-		}
+		if (checkDraw(model)) {
+			var scaledImage = getTileSpriteImage(model);
 
-		setObjectBounds(gc, model, 0, 0, width, height);
+			if (scaledImage != null) {
+				scaledImage.paint(gc, 0, 0);
+			}
+		}
 
 	}
 
@@ -847,15 +1209,20 @@ public class SceneObjectRenderer {
 		}
 
 		var fd = assetFrame.getFrameData();
-		var proxy = AssetPackUI.getImageProxy(assetFrame);
-		proxy.paint(gc, 0, 0);
 
 		setObjectBounds(gc, model, 0, 0, fd.srcSize.x, fd.srcSize.y);
+
+		if (checkDraw(model)) {
+			var proxy = AssetPackUI.getImageProxy(assetFrame);
+			proxy.paint(gc, 0, 0);
+		}
 	}
 
 	private void setObjectTransform(GC gc, Transform tx, ObjectModel model) {
 		gc.setTransform(tx);
 
+		_visitedModels.add(model);
+
 		var matrix = _modelMatrixMap.get(model);
 
 		if (matrix == null) {
@@ -868,9 +1235,8 @@ public class SceneObjectRenderer {
 
 	private void setObjectBounds(GC gc, ObjectModel model, float x, float y, float width, float height) {
 		var txElems = _modelMatrixMap.get(model);
-		var tx = new Transform(gc.getDevice(), txElems);
 
-		var points = new float[] {
+		var points = transformPoints(txElems, new float[] {
 
 				x, y,
 
@@ -880,14 +1246,54 @@ public class SceneObjectRenderer {
 
 				x, y + height
 
-		};
+		});
 
-		tx.transform(points);
+		_modelBoundsMap.put(model, points);
 
-		tx.dispose();
+		_spatialIndex.update(model, transformPoints(_viewToSceneMatrix, points));
+	}
 
-		_modelBoundsMap.put(model, points);
+	/**
+	 * The objects with bounds containing the given point of the canvas. It is a
+	 * fast, broad filter, the bounds are axis-aligned boxes, so the candidates
+	 * should be tested with the real bounds.
+	 */
+	public Set<ObjectModel> getObjectsAt(float viewX, float viewY) {
+		var m = _viewToSceneMatrix;
+		var x = m[0] * viewX + m[2] * viewY + m[4];
+		var y = m[1] * viewX + m[3] * viewY + m[5];
+
+		return _spatialIndex.query(x, y);
+	}
+
+	private static float[] transformPoints(float[] m, float[] points) {
+		var result = new float[points.length];
+
+		for (int i = 0; i + 1 < points.length; i += 2) {
+			var x = points[i];
+			var y = points[i + 1];
+			result[i] = m[0] * x + m[2] * y + m[4];
+			result[i + 1] = m[1] * x + m[3] * y + m[5];
+		}
+
+		return result;
+	}
+
+	private static float[] invertMatrix(float[] m) {
+		var det = m[0] * m[3] - m[1] * m[2];
+
+		if (det == 0) {
+			return new float[] { 1, 0, 0, 1, 0, 0 };
+		}
+
+		var a = m[3] / det;
+		var b = -m[1] / det;
+		var c = -m[2] / det;
+		var d = m[0] / det;
+		var e = -(a * m[4] + c * m[5]);
+		var f = -(b * m[4] + d * m[5]);
 
+		return new float[] { a, b, c, d, e, f };
 	}
 
 	public float[] getObjectBounds(ObjectModel obj) {
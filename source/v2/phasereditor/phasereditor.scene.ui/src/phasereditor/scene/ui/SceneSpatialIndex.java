@@ -0,0 +1,291 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.scene.ui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import phasereditor.scene.core.ObjectModel;
+
+/**
+ * A spatial hash of the scene-space bounds of the objects. The bounds are
+ * bucketed in a uniform grid, and the objects that cover too many cells are
+ * kept in a separated list, that is checked in every query.
+ * <p>
+ * It is updated incrementally, an object is moved to other cells only if its
+ * bounds changed.
+ * 
+ * @author arian
+ *
+ */
+public class SceneSpatialIndex {
+
+	private static final int CELL_SIZE = 128;
+	private static final int MAX_CELLS_PER_OBJECT = 64;
+
+	private static class Entry {
+		ObjectModel model;
+		float minX;
+		float minY;
+		float maxX;
+		float maxY;
+		int cellMinX;
+		int cellMinY;
+		int cellMaxX;
+		int cellMaxY;
+		boolean large;
+		int frame;
+
+		boolean contains(float x, float y) {
+			return x >= minX && x <= maxX && y >= minY && y <= maxY;
+		}
+	}
+
+	private Map<ObjectModel, Entry> _entries;
+	private Map<Long, List<Entry>> _cells;
+	private List<Entry> _largeEntries;
+	private int _frame;
+
+	public SceneSpatialIndex() {
+		_entries = new HashMap<>();
+		_cells = new HashMap<>();
+		_largeEntries = new ArrayList<>();
+	}
+
+	/**
+	 * Starts a new update frame. The objects that are not updated in the frame
+	 * are removed by {@link #endFrame()}.
+	 */
+	public void startFrame() {
+		_frame++;
+	}
+
+	public void endFrame() {
+		var stale = new ArrayList<ObjectModel>();
+
+		for (var entry : _entries.values()) {
+			if (entry.frame != _frame) {
+				stale.add(entry.model);
+			}
+		}
+
+		for (var model : stale) {
+			remove(model);
+		}
+	}
+
+	/**
+	 * Sets the axis-aligned bounds of the object, computed from the given
+	 * polygon.
+	 */
+	public void update(ObjectModel model, float[] polygon) {
+		var minX = Float.MAX_VALUE;
+		var minY = Float.MAX_VALUE;
+		var maxX = -Float.MAX_VALUE;
+		var maxY = -Float.MAX_VALUE;
+
+		for (int i = 0; i + 1 < polygon.length; i += 2) {
+			minX = Math.min(minX, polygon[i]);
+			minY = Math.min(minY, polygon[i + 1]);
+			maxX = Math.max(maxX, polygon[i]);
+			maxY = Math.max(maxY, polygon[i + 1]);
+		}
+
+		update(model, minX, minY, maxX, maxY);
+	}
+
+	public void update(ObjectModel model, float minX, float minY, float maxX, float maxY) {
+		var entry = _entries.get(model);
+
+		if (entry != null) {
+			entry.frame = _frame;
+
+			if (entry.minX == minX && entry.minY == minY && entry.maxX == maxX && entry.maxY == maxY) {
+				return;
+			}
+
+			var cellMinX = cell(minX);
+			var cellMinY = cell(minY);
+			var cellMaxX = cell(maxX);
+			var cellMaxY = cell(maxY);
+
+			entry.minX = minX;
+			entry.minY = minY;
+			entry.maxX = maxX;
+			entry.maxY = maxY;
+
+			if (entry.cellMinX == cellMinX && entry.cellMinY == cellMinY && entry.cellMaxX == cellMaxX
+					&& entry.cellMaxY == cellMaxY) {
+				// it moved inside the same cells
+				return;
+			}
+
+			unlink(entry);
+
+		} else {
+			entry = new Entry();
+			entry.model = model;
+			entry.frame = _frame;
+			entry.minX = minX;
+			entry.minY = minY;
+			entry.maxX = maxX;
+			entry.maxY = maxY;
+
+			_entries.put(model, entry);
+		}
+
+		link(entry);
+	}
+
+	/**
+	 * Keeps the object in the index, with the same bounds, in the current frame.
+	 */
+	public void touch(ObjectModel model) {
+		var entry = _entries.get(model);
+
+		if (entry != null) {
+			entry.frame = _frame;
+		}
+	}
+
+	public void remove(ObjectModel model) {
+		var entry = _entries.remove(model);
+
+		if (entry != null) {
+			unlink(entry);
+		}
+	}
+
+	public void clear() {
+		_entries.clear();
+		_cells.clear();
+		_largeEntries.clear();
+	}
+
+	public int size() {
+		return _entries.size();
+	}
+
+	/**
+	 * The objects with bounds containing the point.
+	 */
+	public Set<ObjectModel> query(float x, float y) {
+		var result = new HashSet<ObjectModel>();
+
+		var list = _cells.get(key(cell(x), cell(y)));
+
+		if (list != null) {
+			for (var entry : list) {
+				if (entry.contains(x, y)) {
+					result.add(entry.model);
+				}
+			}
+		}
+
+		for (var entry : _largeEntries) {
+			if (entry.contains(x, y)) {
+				result.add(entry.model);
+			}
+		}
+
+		return result;
+	}
+
+	private void link(Entry entry) {
+		entry.cellMinX = cell(entry.minX);
+		entry.cellMinY = cell(entry.minY);
+		entry.cellMaxX = cell(entry.maxX);
+		entry.cellMaxY = cell(entry.maxY);
+
+		entry.large = isLarge(entry);
+
+		if (entry.large) {
+			_largeEntries.add(entry);
+			return;
+		}
+
+		for (int cx = entry.cellMinX; cx <= entry.cellMaxX; cx++) {
+			for (int cy = entry.cellMinY; cy <= entry.cellMaxY; cy++) {
+				_cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(entry);
+			}
+		}
+	}
+
+	/**
+	 * If the entry should be kept in the large list, because it covers too many
+	 * cells, or its bounds are not finite, empty or at the limit of the grid,
+	 * where the cell loops cannot be used.
+	 */
+	private static boolean isLarge(Entry entry) {
+		if (!Float.isFinite(entry.minX) || !Float.isFinite(entry.minY) || !Float.isFinite(entry.maxX)
+				|| !Float.isFinite(entry.maxY)) {
+			return true;
+		}
+
+		if (entry.cellMaxX == Integer.MAX_VALUE || entry.cellMaxY == Integer.MAX_VALUE) {
+			return true;
+		}
+
+		var spanX = (long) entry.cellMaxX - entry.cellMinX + 1;
+		var spanY = (long) entry.cellMaxY - entry.cellMinY + 1;
+
+		if (spanX <= 0 || spanY <= 0 || spanX > MAX_CELLS_PER_OBJECT || spanY > MAX_CELLS_PER_OBJECT) {
+			return true;
+		}
+
+		return spanX * spanY > MAX_CELLS_PER_OBJECT;
+	}
+
+	private void unlink(Entry entry) {
+		if (entry.large) {
+			_largeEntries.remove(entry);
+			return;
+		}
+
+		for (int cx = entry.cellMinX; cx <= entry.cellMaxX; cx++) {
+			for (int cy = entry.cellMinY; cy <= entry.cellMaxY; cy++) {
+				var k = key(cx, cy);
+				var list = _cells.get(k);
+
+				if (list != null) {
+					list.remove(entry);
+
+					if (list.isEmpty()) {
+						_cells.remove(k);
+					}
+				}
+			}
+		}
+	}
+
+	private static int cell(float v) {
+		return (int) Math.floor(v / CELL_SIZE);
+	}
+
+	private static Long key(int cx, int cy) {
+		return Long.valueOf(((long) cx << 32) | (cy & 0xFFFFFFFFL));
+	}
+}
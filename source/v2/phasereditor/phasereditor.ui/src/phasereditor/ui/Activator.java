@@ -59,7 +59,8 @@ public class Activator extends AbstractUIPlugin {
 			PhaserEditorUI.initPreferences();
 		});
 
-		ImageProxy.startGargabeCollector();
+		ImageProxy.getThumbnails().installWorkspaceListener();
+		ImageProxy.getThumbnails().trim();
 	}
 
 	/*
@@ -21,82 +21,60 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.ui;
 
-import static java.lang.System.currentTimeMillis;
-
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import org.eclipse.swt.widgets.Display;
-
+/**
+ * A frame based animation. The {@link #action()} of all the running animations
+ * is called by the shared {@link AnimationScheduler}, in the UI thread.
+ * 
+ * @author arian
+ *
+ */
 public abstract class Animation {
-	private static ExecutorService _threads;
 	protected int _fps;
-	protected boolean _stopped;
-	protected boolean _paused;
+	protected volatile boolean _stopped;
+	protected volatile boolean _paused;
 
-	static {
-		_threads = Executors.newCachedThreadPool();
-	}
+	// the scheduler state, only used in the UI thread
+	long _nextFrameTime;
+	int _droppedFrames;
 
 	public Animation(int fps) {
 		super();
 		_fps = fps;
-		_stopped = false;
-
+		_stopped = true;
 	}
 
 	public void start() {
 		_stopped = false;
 
-		_threads.execute(new Runnable() {
-
-			@Override
-			public void run() {
-				Runnable action = new Runnable() {
-
-					@Override
-					public void run() {
-						action();
-					}
-				};
-
-				long lastTime = currentTimeMillis();
-				try {
-					while (!_stopped) {
-						if (_paused) {
-							Thread.sleep(100);
-						} else {
-							long time = currentTimeMillis() - lastTime;
-							long target = 1000 / _fps;
-							long delay = target - time;
-							if (delay > 0) {
-								Thread.sleep(delay);
-								Display.getDefault().syncExec(action);
-							}
-							lastTime = currentTimeMillis();
-						}
-					}
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-
-			}
-		});
-
+		AnimationScheduler.getDefault().schedule(this);
 	}
 
 	public void stop() {
 		_stopped = true;
+
+		AnimationScheduler.getDefault().unschedule(this);
 	}
 
 	public void pause(boolean paused) {
+		if (_paused == paused) {
+			return;
+		}
+
 		_paused = paused;
+
+		if (!paused && !_stopped) {
+			AnimationScheduler.getDefault().schedule(this);
+		}
 	}
 
 	public boolean isPaused() {
 		return _paused;
 	}
 
+	public boolean isStopped() {
+		return _stopped;
+	}
+
 	public int getFps() {
 		return _fps;
 	}
@@ -105,5 +83,18 @@ public abstract class Animation {
 		_fps = fps;
 	}
 
+	/**
+	 * The number of frames skipped because the UI thread was busy when they were
+	 * due. The skipped frames are not played late, the animation continues with
+	 * the current frame.
+	 */
+	public int getDroppedFrames() {
+		return _droppedFrames;
+	}
+
+	long getFramePeriod() {
+		return 1_000_000_000L / Math.max(1, _fps);
+	}
+
 	public abstract void action();
 }
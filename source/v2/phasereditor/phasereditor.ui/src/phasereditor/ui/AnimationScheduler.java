@@ -0,0 +1,202 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Plays all the {@link Animation}s with a single UI timer. On each tick, the
+ * animations with a due frame are played together, in the same UI callback,
+ * and the timer is scheduled again for the nearest next frame. When there are
+ * not running animations (all stopped or paused) no timer is scheduled, so
+ * paused animations do not cost anything.
+ * <p>
+ * If the UI thread is busy and an animation misses some frames, they are
+ * counted in {@link Animation#getDroppedFrames()} and the animation jumps to
+ * the current frame.
+ * 
+ * @author arian
+ *
+ */
+public class AnimationScheduler {
+
+	/**
+	 * The frames that are due in this time (in nanoseconds) are played in the
+	 * current tick, instead of waking up again for them.
+	 */
+	private static final long COALESCE_TIME = 2_000_000;
+
+	private static AnimationScheduler _default;
+
+	private Display _display;
+	private List<Animation> _animations;
+	private Runnable _tick;
+	private long _wakeTime;
+	private long _totalDroppedFrames;
+
+	public AnimationScheduler(Display display) {
+		_display = display;
+		_animations = new ArrayList<>();
+		_tick = this::tick;
+		_wakeTime = Long.MAX_VALUE;
+	}
+
+	public static synchronized AnimationScheduler getDefault() {
+		if (_default == null) {
+			_default = new AnimationScheduler(Display.getDefault());
+		}
+		return _default;
+	}
+
+	/**
+	 * Starts or resumes the animation. It can be called from any thread.
+	 */
+	public void schedule(Animation anim) {
+		runInUI(() -> {
+			if (!_animations.contains(anim)) {
+				_animations.add(anim);
+			}
+
+			anim._nextFrameTime = System.nanoTime() + anim.getFramePeriod();
+
+			wakeUp();
+		});
+	}
+
+	/**
+	 * Removes the animation. It can be called from any thread.
+	 */
+	public void unschedule(Animation anim) {
+		runInUI(() -> {
+			_animations.remove(anim);
+
+			if (_animations.isEmpty()) {
+				cancelTimer();
+			}
+		});
+	}
+
+	/**
+	 * The number of frames dropped by all the animations.
+	 */
+	public long getTotalDroppedFrames() {
+		return _totalDroppedFrames;
+	}
+
+	public int getAnimationsCount() {
+		return _animations.size();
+	}
+
+	private void runInUI(Runnable run) {
+		if (_display.isDisposed()) {
+			return;
+		}
+
+		if (Display.getCurrent() == _display) {
+			run.run();
+		} else {
+			_display.asyncExec(run);
+		}
+	}
+
+	private void tick() {
+		_wakeTime = Long.MAX_VALUE;
+
+		long now = System.nanoTime();
+
+		// the list can be modified by the actions
+		var animations = _animations.toArray(new Animation[_animations.size()]);
+
+		for (var anim : animations) {
+
+			if (anim._stopped) {
+				_animations.remove(anim);
+				continue;
+			}
+
+			if (anim._paused || anim._nextFrameTime - now > COALESCE_TIME) {
+				continue;
+			}
+
+			long period = anim.getFramePeriod();
+			long late = now - anim._nextFrameTime;
+
+			if (late >= period) {
+				int dropped = (int) (late / period);
+				anim._droppedFrames += dropped;
+				_totalDroppedFrames += dropped;
+				anim._nextFrameTime += dropped * period;
+			}
+
+			anim._nextFrameTime += period;
+
+			try {
+				anim.action();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
+		wakeUp();
+	}
+
+	/**
+	 * Schedules the timer for the nearest frame, if it is earlier than the
+	 * current one.
+	 */
+	private void wakeUp() {
+		long next = Long.MAX_VALUE;
+
+		for (var anim : _animations) {
+			if (!anim._stopped && !anim._paused) {
+				next = Math.min(next, anim._nextFrameTime);
+			}
+		}
+
+		if (next == Long.MAX_VALUE) {
+			cancelTimer();
+			return;
+		}
+
+		if (next >= _wakeTime) {
+			return;
+		}
+
+		cancelTimer();
+
+		_wakeTime = next;
+
+		int delay = (int) Math.max(0, (next - System.nanoTime()) / 1_000_000);
+
+		_display.timerExec(delay, _tick);
+	}
+
+	private void cancelTimer() {
+		if (_wakeTime != Long.MAX_VALUE) {
+			_display.timerExec(-1, _tick);
+			_wakeTime = Long.MAX_VALUE;
+		}
+	}
+}
@@ -21,18 +21,11 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.ui;
 
-import static java.lang.System.currentTimeMillis;
 import static java.lang.System.out;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 
@@ -65,20 +58,20 @@ public class ImageProxy {
 		MAX_SIZE = maxSize;
 	}
 
+	private static ImageProxyCache _cache = new ImageProxyCache(ImageProxyCache.DEFAULT_BUDGET);
+	private static ImageProxyThumbnails _thumbnails = new ImageProxyThumbnails(
+			ImageProxyThumbnails.getDefaultFolder());
+
 	private File _file;
 	private FrameData _fd;
+	// the SWT image is changed only with the lock of the cache, together with its
+	// registration in the LRU list
 	private Image _swtImage;
-	private BufferedImage _currentFileBufferedImage;
+	private long _swtImageModified;
 	private FrameData _finalFrameData;
 	private float _scale;
 	private String _key;
 
-	private static Map<String, ImageProxy> _keyProxyMap = new HashMap<>();
-	private static Map<File, BufferedImage> _fileBufferedImageMap = new HashMap<>();
-	private static Map<File, Long> _fileModifiedMap = new HashMap<>();
-	private static List<ImageProxy> _proxyList = new ArrayList<>();
-	private static List<TrashItem> _trash = new ArrayList<>();
-
 	public static ImageProxy get(IFile file, FrameData fd) {
 
 		if (file == null) {
@@ -88,12 +81,16 @@ public class ImageProxy {
 		return get(file.getLocation().toFile(), fd);
 	}
 
-	@SuppressWarnings("boxing")
 	public static ImageProxy get(File file, FrameData fd) {
 
 		try {
 
-			if (file == null || !file.exists()) {
+			if (file == null) {
+				return null;
+			}
+
+			if (!file.exists()) {
+				_cache.removeFile(file);
 				return null;
 			}
 
@@ -101,7 +98,7 @@ public class ImageProxy {
 
 			var key = computeKey(file, fd, lastModified);
 
-			var proxy = _keyProxyMap.get(key);
+			var proxy = _cache.getProxy(key);
 
 			if (proxy == null) {
 
@@ -112,71 +109,32 @@ public class ImageProxy {
 				// - It is requesting a new frame inside the same file
 				//
 
-				// check if it is requesting a new file
-
-				var isNewFile = true;
-				for (var cacheImage : _proxyList) {
-					if (cacheImage._file.equals(file)) {
-						isNewFile = false;
-						break;
-					}
-				}
-
-				if (isNewFile) {
-					// create the new file buffer
-					var buffer = ImageIO.read(file);
-					if (buffer == null) {
-						// it is not an image file!
-						return null;
-					}
-					_fileBufferedImageMap.put(file, buffer);
-
-					// create the virtual image
-					proxy = new ImageProxy(file, fd, key);
+				var entry = _cache.getFileEntry(file, true);
 
-					// add the virtual image to maps
-					_proxyList.add(proxy);
-					_keyProxyMap.put(key, proxy);
-					_fileModifiedMap.put(file, lastModified);
+				synchronized (entry) {
+					if (entry.lastModified != lastModified) {
 
-					return proxy;
-				}
-
-				// check if the file changed
-
-				var cacheModified = _fileModifiedMap.get(file);
-				if (lastModified != cacheModified.longValue()) {
-					// The file changed, we need to recompute the buffered image. The SWT images of
-					// the virtual images are recomputed by demand
-					var buffer = ImageIO.read(file);
-					if (buffer == null) {
-						// it is not an image!
-						return null;
-					}
-					_fileBufferedImageMap.put(file, buffer);
-					_fileModifiedMap.put(file, lastModified);
-
-					// let's find the virtual image for that file and frame data
-					for (var cachedProxy : _proxyList) {
-						if (cachedProxy.sameFileAndFrameData(file, fd)) {
-							// re-map the proxy
-							_keyProxyMap.remove(cachedProxy.getKey());
-							_keyProxyMap.put(key, cachedProxy);
+						if (_thumbnails.exists(file, fd)) {
+							// The proxy image can be read from the thumbnail, the file is decoded only
+							// if it is needed
+							_cache.setFileModified(entry, lastModified);
+							return _cache.mapProxy(entry, fd, key);
+						}
 
-							return cachedProxy;
+						// The file is new or it changed, we need to (re)compute the buffered image.
+						// The SWT images of the proxies are recomputed by demand
+						var buffer = ImageIO.read(file);
+						if (buffer == null) {
+							// it is not an image file!
+							return null;
 						}
+						_cache.putFileImage(entry, buffer, lastModified);
 					}
 				}
 
-				// so it looks that the key changed because it is requesting a new frame data
-				// inside an existant texture, so let's create a new virtual image
-				{
-					proxy = new ImageProxy(file, fd, key);
-					// add the virtual image to maps
-					_proxyList.add(proxy);
-					_keyProxyMap.put(key, proxy);
-					_fileModifiedMap.put(file, lastModified);
-				}
+				// the proxy of the same file and frame data is re-mapped to the new key, else,
+				// it is requesting a new frame inside an existent texture
+				proxy = _cache.mapProxy(entry, fd, key);
 
 			}
 
@@ -187,120 +145,34 @@ public class ImageProxy {
 		}
 	}
 
-	private static class TrashItem {
-		public Image image;
-		public long time;
-		public File file;
-
-		public TrashItem(File file, Image image) {
-			this.image = image;
-			this.file = file;
-			time = currentTimeMillis();
-		}
-
-		@Override
-		public String toString() {
-			return file.getName() + " (" + time + ")";
-		}
-
+	public static ImageProxyCache getCache() {
+		return _cache;
 	}
 
-	public static void startGargabeCollector() {
-		new Thread("ImageProxy Garbage Collector") {
-
-			@Override
-			public void run() {
-				while (true) {
-					try {
-						sleep(30_000);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-
-					collectGarbage();
-
-				}
-			}
-		}.start();
+	public static ImageProxyThumbnails getThumbnails() {
+		return _thumbnails;
 	}
 
 	public static void disposeAll() {
 		out.println("ImageProxy: disposing all images...");
 
-		for (var item : _trash) {
-			out.println("ImageProxy: disposing trash item " + item);
-			item.image.dispose();
-		}
-
-		for (var proxy : _proxyList) {
-			if (proxy._swtImage != null) {
-				out.println("ImageProxy: disposing alive image " + proxy.getKey());
-				proxy._swtImage.dispose();
-			}
-		}
+		_cache.disposeAll();
 	}
 
-	public static void collectGarbage() {
-
-		out.println("ImageProxy: collecting garbage...");
-
-		var t = currentTimeMillis();
-
-		var dispose = new ArrayList<TrashItem>();
-		var trash2 = new HashSet<TrashItem>();
-
-		for (var item : _trash) {
-			var dt = t - item.time;
-			if (TimeUnit.MILLISECONDS.toMinutes(dt) >= 1) {
-				dispose.add(item);
-			} else {
-				trash2.add(item);
-			}
-		}
-
-		for (var item : dispose) {
-			try {
-				out.println("ImageProxy: disposing " + item + ".");
-				item.image.dispose();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+	boolean sameFrameData(FrameData fd) {
+		if (_fd == null && fd == null) {
+			return true;
 		}
 
-		_trash = new ArrayList<>(trash2);
-
-		for (var proxy : _proxyList) {
-			if (!proxy._file.exists() && proxy._swtImage != null) {
-				out.println("ImageProxy: the file " + proxy._file.getName()
-						+ " as deleted, disposing its alive proxy image.");
-				proxy._swtImage.dispose();
-				proxy._swtImage = null;
-				proxy._currentFileBufferedImage = null;
-				_fileBufferedImageMap.remove(proxy._file);
-			}
+		if (_fd == null || fd == null) {
+			return false;
 		}
 
-		out.println("done!");
-
-	}
-
-	private boolean sameFileAndFrameData(File file, FrameData fd) {
-		if (_file.equals(file)) {
-			if (_fd == null && fd == null) {
-				return true;
-			}
-
-			if (_fd == null || fd == null) {
-				return false;
-			}
+		return _fd.srcSize.equals(fd.srcSize)
 
-			return _fd.srcSize.equals(fd.srcSize)
+				&& _fd.src.equals(fd.src)
 
-					&& _fd.src.equals(fd.src)
-
-					&& _fd.dst.equals(fd.dst);
-		}
-		return false;
+				&& _fd.dst.equals(fd.dst);
 	}
 
 	private static long lastModified(File file) {
@@ -334,95 +206,193 @@ public class ImageProxy {
 		return _key;
 	}
 
+	void setKey(String key) {
+		_key = key;
+	}
+
 	/**
 	 * The SWT image. It is taken from the FrameData of the file texture, so it
 	 * should be painted complete, as it is.
 	 */
 	public Image getImage() {
-
-		updateImages();
-
-		return _swtImage;
+		return updateImages();
 	}
 
 	public BufferedImage getFileBufferedImage() {
-		return _fileBufferedImageMap.get(_file);
+		var entry = _cache.getFileEntry(_file, false);
+
+		if (entry == null) {
+			return null;
+		}
+
+		synchronized (entry) {
+			var image = entry.image;
+
+			if (image == null) {
+				// it was evicted from the cache, decode it again
+				try {
+					if (!_file.exists()) {
+						return null;
+					}
+
+					image = ImageIO.read(_file);
+
+					if (image == null) {
+						return null;
+					}
+
+					_cache.putFileImage(entry, image, entry.lastModified);
+				} catch (IOException e) {
+					e.printStackTrace();
+					throw new RuntimeException(e);
+				}
+			} else {
+				_cache.touch(_file);
+			}
+
+			return image;
+		}
 	}
 
-	private void updateImages() {
+	/**
+	 * Creates the SWT image if it was not created, or if it is of an old
+	 * modification of the file.
+	 * 
+	 * @return The SWT image. It is returned here because the cache could release
+	 *         it at any moment.
+	 */
+	private synchronized Image updateImages() {
 		try {
 
 			if (!_file.exists()) {
 
-				if (_swtImage != null) {
-					sendToTrash();
-				}
-
-				_swtImage = null;
-				_currentFileBufferedImage = null;
+				releaseImage();
 
-				return;
+				return null;
 			}
 
 			// just to ensure we have the last mapping of the file and image!
 			get(_file, _fd);
 
-			var newFileBufferedImage = _fileBufferedImageMap.get(_file);
+			var entry = _cache.getFileEntry(_file, false);
 
-			if (_currentFileBufferedImage != newFileBufferedImage || _swtImage == null) {
+			if (entry == null) {
+				return null;
+			}
 
-				_scale = 1;
+			var modified = entry.lastModified;
 
-				if (_swtImage != null) {
-					sendToTrash();
-				}
+			var image = _cache.getProxyImage(this, modified);
 
-				BufferedImage frameBufferedImage;
+			if (image != null) {
+				return image;
+			}
 
-				if (_fd == null || theFrameDataIsTheCompleteImage(newFileBufferedImage, _fd)) {
-					frameBufferedImage = newFileBufferedImage;
+			releaseImage();
 
-					int width = frameBufferedImage.getWidth();
-					int height = frameBufferedImage.getHeight();
+			var thumbnail = _thumbnails.read(_file, _fd);
 
-					var resize = ScaledImage.resizeInfo(width, height, MAX_SIZE);
+			if (thumbnail != null) {
+				_scale = thumbnail.scale;
+				_finalFrameData = thumbnail.finalFrameData;
 
-					var fd = FrameData.fromSourceRectangle(new Rectangle(0, 0, width, height));
+				return setSwtImage(thumbnail.image, modified);
+			}
 
-					if (resize.changed) {
-						var temp = resize.createImage(frameBufferedImage, fd);
-						frameBufferedImage = temp;
-						_scale = resize.scale_view_to_proxy;
-					}
+			var newFileBufferedImage = getFileBufferedImage();
+
+			if (newFileBufferedImage == null) {
+				return null;
+			}
 
-					_finalFrameData = fd;
-				} else {
-					var resize = ScaledImage.resizeInfo(_fd.srcSize.x, _fd.srcSize.y, MAX_SIZE);
+			_scale = 1;
 
-					frameBufferedImage = resize.createImage(newFileBufferedImage, _fd);
+			BufferedImage frameBufferedImage;
 
-					if (resize.changed) {
-						_scale = resize.scale_view_to_proxy;
-					}
+			if (_fd == null || theFrameDataIsTheCompleteImage(newFileBufferedImage, _fd)) {
+				frameBufferedImage = newFileBufferedImage;
+
+				int width = frameBufferedImage.getWidth();
+				int height = frameBufferedImage.getHeight();
+
+				var resize = ScaledImage.resizeInfo(width, height, MAX_SIZE);
 
-					_finalFrameData = FrameData.fromSourceRectangle(new Rectangle(0, 0, _fd.srcSize.x, _fd.srcSize.y));
+				var fd = FrameData.fromSourceRectangle(new Rectangle(0, 0, width, height));
+
+				if (resize.changed) {
+					var temp = resize.createImage(frameBufferedImage, fd);
+					frameBufferedImage = temp;
+					_scale = resize.scale_view_to_proxy;
 				}
 
-				_swtImage = PhaserEditorUI.image_Swing_To_SWT(frameBufferedImage);
+				_finalFrameData = fd;
+			} else {
+				var resize = ScaledImage.resizeInfo(_fd.srcSize.x, _fd.srcSize.y, MAX_SIZE);
+
+				frameBufferedImage = resize.createImage(newFileBufferedImage, _fd);
+
+				if (resize.changed) {
+					_scale = resize.scale_view_to_proxy;
+				}
 
+				_finalFrameData = FrameData.fromSourceRectangle(new Rectangle(0, 0, _fd.srcSize.x, _fd.srcSize.y));
 			}
 
-			_currentFileBufferedImage = newFileBufferedImage;
+			image = setSwtImage(frameBufferedImage, modified);
+
+			_thumbnails.write(_file, _fd, frameBufferedImage, _scale, _finalFrameData);
+
+			return image;
+
 		} catch (IOException e) {
 			e.printStackTrace();
 			throw new RuntimeException(e);
 		}
 	}
 
-	private void sendToTrash() {
-		var item = new TrashItem(_file, _swtImage);
-		_trash.add(item);
-		out.println("ImageProxy: send to trash " + item);
+	private Image setSwtImage(BufferedImage frameBufferedImage, long modified) throws IOException {
+		var image = PhaserEditorUI.image_Swing_To_SWT(frameBufferedImage);
+
+		disposeLater(_cache.putProxyImage(this, image, modified, frameBufferedImage.getWidth(),
+				frameBufferedImage.getHeight()));
+
+		return image;
+	}
+
+	/**
+	 * Releases the SWT image, it is created again by demand. The image is disposed
+	 * later in the UI thread, so the current paint can finish with it.
+	 */
+	void releaseImage() {
+		disposeLater(_cache.removeProxyImage(this));
+	}
+
+	/**
+	 * Sets the SWT image. It is called only by the cache, with its lock.
+	 * 
+	 * @return The previous image.
+	 */
+	Image swapImage(Image image, long modified) {
+		var old = _swtImage;
+
+		_swtImage = image;
+		_swtImageModified = modified;
+
+		return old;
+	}
+
+	/**
+	 * The SWT image, if it was created for the given modification of the file. It
+	 * is called only by the cache, with its lock.
+	 */
+	Image getImage(long modified) {
+		return _swtImageModified == modified ? _swtImage : null;
+	}
+
+	static void disposeLater(Image image) {
+		if (image != null) {
+			PhaserEditorUI.swtRun(image::dispose);
+		}
 	}
 
 	private static boolean theFrameDataIsTheCompleteImage(BufferedImage image, FrameData fd) {
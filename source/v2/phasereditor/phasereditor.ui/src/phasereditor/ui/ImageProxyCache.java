@@ -0,0 +1,399 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.ui;
+
+import static java.lang.System.out;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.swt.graphics.Image;
+
+/**
+ * The memory of the {@link ImageProxy}. It indexes the proxies by key and by
+ * file, and keeps the decoded file images and the proxy SWT images in a LRU
+ * list, bounded by the decoded (ARGB) size of the images.
+ * <p>
+ * The SWT image of a proxy is set and released only with the lock of the
+ * cache, together with its registration in the LRU list. So an evicted proxy
+ * loses its image atomically, without taking the lock of the proxy, and a
+ * concurrent {@link ImageProxy#getImage()} creates it again.
+ * 
+ * @author arian
+ *
+ */
+public class ImageProxyCache {
+
+	public static final long DEFAULT_BUDGET;
+
+	static {
+		// by default, a quarter of the heap, limited to 1GB
+		long budget = Math.min(Runtime.getRuntime().maxMemory() / 4, 1024L * 1024 * 1024);
+		var str = System.getProperty("ImageProxy.CACHE_SIZE");
+		if (str != null) {
+			try {
+				budget = Long.parseLong(str) * 1024 * 1024;
+			} catch (Exception e) {
+				//
+			}
+		}
+		DEFAULT_BUDGET = budget;
+	}
+
+	static class FileEntry {
+		File file;
+		long lastModified = -1;
+		BufferedImage image;
+		List<ImageProxy> proxies = new ArrayList<>();
+
+		public FileEntry(File file) {
+			this.file = file;
+		}
+	}
+
+	public static class Stats {
+		public long hits;
+		public long misses;
+		public long evictions;
+		public long usedBytes;
+		public long budget;
+		public int files;
+		public int proxies;
+
+		@Override
+		public String toString() {
+			return "ImageProxyCache[hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", used="
+					+ usedBytes / 1024 + "KB, budget=" + budget / 1024 + "KB, files=" + files + ", proxies=" + proxies
+					+ "]";
+		}
+	}
+
+	private Map<String, ImageProxy> _keyProxyMap;
+	private Map<File, FileEntry> _fileMap;
+	private LinkedHashMap<Object, Long> _lru;
+	private long _budget;
+	private long _usedBytes;
+	private AtomicLong _hits;
+	private AtomicLong _misses;
+	private AtomicLong _evictions;
+
+	public ImageProxyCache(long budget) {
+		_budget = budget;
+		_keyProxyMap = new HashMap<>();
+		_fileMap = new HashMap<>();
+		_lru = new LinkedHashMap<>(16, 0.75f, true);
+		_hits = new AtomicLong();
+		_misses = new AtomicLong();
+		_evictions = new AtomicLong();
+	}
+
+	public void setBudget(long budget) {
+		List<Image> victims;
+
+		synchronized (this) {
+			_budget = budget;
+
+			victims = evict();
+		}
+
+		disposeLater(victims);
+	}
+
+	public synchronized long getBudget() {
+		return _budget;
+	}
+
+	synchronized ImageProxy getProxy(String key) {
+		var proxy = _keyProxyMap.get(key);
+
+		if (proxy == null) {
+			_misses.incrementAndGet();
+		} else {
+			_hits.incrementAndGet();
+		}
+
+		return proxy;
+	}
+
+	synchronized FileEntry getFileEntry(File file, boolean create) {
+		var entry = _fileMap.get(file);
+
+		if (entry == null && create) {
+			entry = new FileEntry(file);
+			_fileMap.put(file, entry);
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Maps the key to the proxy of the file entry with the same frame data, or to
+	 * a new proxy.
+	 */
+	synchronized ImageProxy mapProxy(FileEntry entry, FrameData fd, String key) {
+		var proxy = _keyProxyMap.get(key);
+
+		if (proxy != null) {
+			return proxy;
+		}
+
+		for (var cachedProxy : entry.proxies) {
+			if (cachedProxy.sameFrameData(fd)) {
+				_keyProxyMap.remove(cachedProxy.getKey());
+				cachedProxy.setKey(key);
+				_keyProxyMap.put(key, cachedProxy);
+				return cachedProxy;
+			}
+		}
+
+		proxy = new ImageProxy(entry.file, fd, key);
+		entry.proxies.add(proxy);
+		_keyProxyMap.put(key, proxy);
+
+		return proxy;
+	}
+
+	/**
+	 * Sets the decoded image of the file, and evicts the least recently used
+	 * images if the budget is exceeded.
+	 */
+	void putFileImage(FileEntry entry, BufferedImage image, long lastModified) {
+		List<Image> victims;
+
+		synchronized (this) {
+			remove(entry.file);
+
+			entry.image = image;
+			entry.lastModified = lastModified;
+
+			add(entry.file, sizeOf(image.getWidth(), image.getHeight()));
+
+			victims = evict();
+		}
+
+		disposeLater(victims);
+	}
+
+	/**
+	 * Sets the modification time of the file, without decoding it. It is used
+	 * when the proxies can be created from the thumbnails.
+	 */
+	synchronized void setFileModified(FileEntry entry, long lastModified) {
+		remove(entry.file);
+
+		entry.image = null;
+		entry.lastModified = lastModified;
+	}
+
+	/**
+	 * Sets the SWT image of the proxy and registers it in the LRU list.
+	 * 
+	 * @return The previous image of the proxy, to be disposed.
+	 */
+	Image putProxyImage(ImageProxy proxy, Image image, long modified, int width, int height) {
+		List<Image> victims;
+		Image old;
+
+		synchronized (this) {
+			remove(proxy);
+
+			old = proxy.swapImage(image, modified);
+
+			add(proxy, sizeOf(width, height));
+
+			victims = evict();
+		}
+
+		disposeLater(victims);
+
+		return old;
+	}
+
+	/**
+	 * The SWT image of the proxy, if it was created for the given modification of
+	 * the file. The proxy is marked as recently used.
+	 */
+	synchronized Image getProxyImage(ImageProxy proxy, long modified) {
+		var image = proxy.getImage(modified);
+
+		if (image != null) {
+			_lru.get(proxy);
+		}
+
+		return image;
+	}
+
+	/**
+	 * Removes the SWT image of the proxy from the LRU list.
+	 * 
+	 * @return The image of the proxy, to be disposed.
+	 */
+	synchronized Image removeProxyImage(ImageProxy proxy) {
+		remove(proxy);
+
+		return proxy.swapImage(null, -1);
+	}
+
+	synchronized void touch(Object item) {
+		_lru.get(item);
+	}
+
+	/**
+	 * Forgets the file and its proxies, it is called when the file is deleted.
+	 */
+	void removeFile(File file) {
+		List<Image> victims = new ArrayList<>();
+
+		synchronized (this) {
+			var entry = _fileMap.remove(file);
+
+			if (entry == null) {
+				return;
+			}
+
+			remove(file);
+			entry.image = null;
+
+			for (var proxy : entry.proxies) {
+				_keyProxyMap.remove(proxy.getKey());
+				remove(proxy);
+
+				var image = proxy.swapImage(null, -1);
+
+				if (image != null) {
+					victims.add(image);
+				}
+			}
+		}
+
+		disposeLater(victims);
+	}
+
+	synchronized List<ImageProxy> getProxies() {
+		var list = new ArrayList<ImageProxy>();
+
+		for (var entry : _fileMap.values()) {
+			list.addAll(entry.proxies);
+		}
+
+		return list;
+	}
+
+	public Stats getStats() {
+		var stats = new Stats();
+
+		stats.hits = _hits.get();
+		stats.misses = _misses.get();
+		stats.evictions = _evictions.get();
+
+		synchronized (this) {
+			stats.usedBytes = _usedBytes;
+			stats.budget = _budget;
+			stats.files = _fileMap.size();
+			stats.proxies = _keyProxyMap.size();
+		}
+
+		return stats;
+	}
+
+	private void add(Object item, long size) {
+		_lru.put(item, Long.valueOf(size));
+		_usedBytes += size;
+	}
+
+	private void remove(Object item) {
+		var size = _lru.remove(item);
+
+		if (size != null) {
+			_usedBytes -= size.longValue();
+		}
+	}
+
+	/**
+	 * Removes the least recently used images until the used memory fits in the
+	 * budget. The last image, the one that was just added, is never evicted.
+	 * 
+	 * @return The images of the evicted proxies, to be disposed out of the lock.
+	 */
+	private List<Image> evict() {
+		var victims = new ArrayList<Image>();
+
+		var it = _lru.entrySet().iterator();
+
+		while (_usedBytes > _budget && _lru.size() > 1 && it.hasNext()) {
+			var lruEntry = it.next();
+			var item = lruEntry.getKey();
+
+			it.remove();
+			_usedBytes -= lruEntry.getValue().longValue();
+			_evictions.incrementAndGet();
+
+			if (item instanceof File) {
+				var entry = _fileMap.get(item);
+				if (entry != null) {
+					entry.image = null;
+				}
+			} else {
+				var image = ((ImageProxy) item).swapImage(null, -1);
+
+				if (image != null) {
+					victims.add(image);
+				}
+			}
+		}
+
+		return victims;
+	}
+
+	private static void disposeLater(List<Image> victims) {
+		for (var image : victims) {
+			ImageProxy.disposeLater(image);
+		}
+	}
+
+	private static long sizeOf(int width, int height) {
+		return (long) width * height * 4;
+	}
+
+	void disposeAll() {
+		synchronized (this) {
+			for (var proxy : getProxies()) {
+				remove(proxy);
+
+				var image = proxy.swapImage(null, -1);
+
+				if (image != null) {
+					out.println("ImageProxy: disposing alive image " + proxy.getKey());
+					image.dispose();
+				}
+			}
+		}
+
+		out.println("ImageProxy: " + getStats());
+	}
+}
@@ -0,0 +1,408 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.ui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.util.Util;
+import org.eclipse.swt.graphics.Rectangle;
+
+/**
+ * The on-disk store of the {@link ImageProxy} images. The thumbnails are
+ * pre-scaled, raw ARGB pixels, read in a single call, so the proxies do not
+ * need to decode the texture files in the next sessions.
+ * <p>
+ * The thumbnails of a file are stored in a folder named by the hash of the
+ * file path, and each thumbnail is named by the hash of the file modification
+ * time, length, frame data and the proxy max size.
+ * <p>
+ * The store is bounded by size and age: the thumbnails not read in the last
+ * <code>ImageProxy.THUMBNAILS_DAYS</code> days (30 by default) are deleted,
+ * and then the least recently read ones until the store fits in
+ * <code>ImageProxy.THUMBNAILS_SIZE</code> MB (512 by default). It is trimmed
+ * when the editor starts and every time a tenth of the size was written. The
+ * reads are tracked in memory, and written as the modification time of the
+ * thumbnails when the store is trimmed.
+ * 
+ * @author arian
+ *
+ */
+public class ImageProxyThumbnails {
+
+	private static final int MAGIC = 0x50455448; // PETH
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 * 7;
+
+	public static final long DEFAULT_MAX_SIZE = Long.getLong("ImageProxy.THUMBNAILS_SIZE", 512).longValue() * 1024
+			* 1024;
+	public static final long DEFAULT_MAX_AGE = Integer.getInteger("ImageProxy.THUMBNAILS_DAYS", 30).intValue() * 24L
+			* 60 * 60 * 1000;
+
+	public static class Thumbnail {
+		public BufferedImage image;
+		public float scale;
+		public FrameData finalFrameData;
+	}
+
+	private static class StoredFile {
+		Path path;
+		long size;
+		long time;
+
+		public StoredFile(Path path, long size, long time) {
+			this.path = path;
+			this.size = size;
+			this.time = time;
+		}
+	}
+
+	private Path _folder;
+	private ExecutorService _writer;
+	private long _maxSize;
+	private long _maxAge;
+	// only accessed by the writer thread
+	private long _writtenSinceTrim;
+	// the time of the reads since the last trim
+	private Map<Path, Long> _lastUse;
+
+	public ImageProxyThumbnails(Path folder) {
+		this(folder, DEFAULT_MAX_SIZE, DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * @param maxSize
+	 *            The max size of the store, in bytes.
+	 * @param maxAge
+	 *            The time, in milliseconds, a thumbnail is kept since it was
+	 *            read or written.
+	 */
+	public ImageProxyThumbnails(Path folder, long maxSize, long maxAge) {
+		_folder = folder;
+		_maxSize = maxSize;
+		_maxAge = maxAge;
+		_lastUse = new ConcurrentHashMap<>();
+		_writer = Executors.newSingleThreadExecutor(r -> {
+			var thread = new Thread(r, "ImageProxy Thumbnails Writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public static Path getDefaultFolder() {
+		var home = Paths.get(System.getProperty("user.home"));
+
+		Path dir;
+
+		if (Util.isMac()) {
+			dir = home.resolve("Library/Caches/com.phasereditor2d");
+		} else {
+			dir = home.resolve(".phasereditor");
+		}
+
+		return dir.resolve("thumbnails");
+	}
+
+	public boolean exists(File file, FrameData fd) {
+		return Files.exists(getThumbnailPath(file, fd));
+	}
+
+	public Thumbnail read(File file, FrameData fd) {
+		var path = getThumbnailPath(file, fd);
+
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		try {
+			var buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+			if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return null;
+			}
+
+			var width = buffer.getInt();
+			var height = buffer.getInt();
+			var finalWidth = buffer.getInt();
+			var finalHeight = buffer.getInt();
+			var scale = buffer.getFloat();
+
+			if (buffer.remaining() < width * height * 4) {
+				return null;
+			}
+
+			var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			buffer.asIntBuffer().get(pixels);
+
+			var thumbnail = new Thumbnail();
+			thumbnail.image = image;
+			thumbnail.scale = scale;
+			thumbnail.finalFrameData = FrameData.fromSourceRectangle(new Rectangle(0, 0, finalWidth, finalHeight));
+
+			_lastUse.put(path, Long.valueOf(System.currentTimeMillis()));
+
+			return thumbnail;
+
+		} catch (Exception e) {
+			// a broken or deleted thumbnail is just ignored, it will be written again
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the thumbnail in background. The image should not be modified after
+	 * this call.
+	 */
+	public void write(File file, FrameData fd, BufferedImage image, float scale, FrameData finalFrameData) {
+		var path = getThumbnailPath(file, fd);
+
+		_writer.execute(() -> {
+			try {
+				var width = image.getWidth();
+				var height = image.getHeight();
+				var pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+				var buffer = ByteBuffer.allocate(HEADER_SIZE + pixels.length * 4);
+				buffer.putInt(MAGIC);
+				buffer.putInt(VERSION);
+				buffer.putInt(width);
+				buffer.putInt(height);
+				buffer.putInt(finalFrameData.srcSize.x);
+				buffer.putInt(finalFrameData.srcSize.y);
+				buffer.putFloat(scale);
+				buffer.asIntBuffer().put(pixels);
+
+				Files.createDirectories(path.getParent());
+
+				var temp = path.resolveSibling(path.getFileName() + ".tmp");
+				Files.write(temp, buffer.array());
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+				_writtenSinceTrim += buffer.capacity();
+
+				if (_writtenSinceTrim > _maxSize / 10) {
+					trimNow();
+				}
+
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * Deletes, in background, the old thumbnails and the least recently used
+	 * ones, until the store fits in the max size.
+	 */
+	public void trim() {
+		_writer.execute(this::trimNow);
+	}
+
+	private void trimNow() {
+		_writtenSinceTrim = 0;
+
+		if (!Files.exists(_folder)) {
+			return;
+		}
+
+		var files = new ArrayList<StoredFile>();
+		long total = 0;
+
+		try (var stream = Files.walk(_folder, 2)) {
+			for (var path : (Iterable<Path>) stream::iterator) {
+				var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+
+				if (attrs.isRegularFile()) {
+					var time = attrs.lastModifiedTime().toMillis();
+					var lastUse = _lastUse.remove(path);
+
+					if (lastUse != null && lastUse.longValue() > time) {
+						// the modification time is the last use, for the next sessions
+						time = lastUse.longValue();
+						setLastModifiedTime(path, time);
+					}
+
+					files.add(new StoredFile(path, attrs.size(), time));
+					total += attrs.size();
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		// the reads of the thumbnails deleted by other ways
+		_lastUse.keySet().removeIf(path -> !Files.exists(path));
+
+		files.sort(Comparator.comparingLong(f -> f.time));
+
+		var now = System.currentTimeMillis();
+
+		for (var file : files) {
+			if (total <= _maxSize && now - file.time <= _maxAge) {
+				break;
+			}
+
+			try {
+				Files.deleteIfExists(file.path);
+				total -= file.size;
+
+				var dir = file.path.getParent();
+
+				try (var stream = Files.list(dir)) {
+					if (stream.findAny().isEmpty()) {
+						Files.deleteIfExists(dir);
+					}
+				}
+			} catch (IOException e) {
+				// the file could be in use, it will be deleted in the next trim
+			}
+		}
+	}
+
+	private static void setLastModifiedTime(Path path, long time) {
+		try {
+			Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+		} catch (IOException e) {
+			// it was deleted
+		}
+	}
+
+	/**
+	 * Deletes the thumbnails of the file.
+	 */
+	public void invalidate(File file) {
+		var dir = getFileFolder(file);
+
+		if (!Files.exists(dir)) {
+			return;
+		}
+
+		_writer.execute(() -> {
+			try (var stream = Files.list(dir)) {
+				stream.forEach(path -> {
+					try {
+						Files.deleteIfExists(path);
+					} catch (IOException e) {
+						// the file could be in use, it will be invalidated by its key
+					}
+				});
+				Files.deleteIfExists(dir);
+			} catch (IOException e) {
+				// nothing
+			}
+		});
+	}
+
+	/**
+	 * Invalidates the thumbnails of the changed and removed files of the
+	 * workspace.
+	 */
+	public void installWorkspaceListener() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this::resourceChanged,
+				IResourceChangeEvent.POST_CHANGE);
+	}
+
+	private void resourceChanged(IResourceChangeEvent event) {
+		var delta = event.getDelta();
+
+		if (delta == null) {
+			return;
+		}
+
+		try {
+			delta.accept(d -> {
+				var resource = d.getResource();
+
+				if (resource.getType() == IResource.FILE) {
+					var kind = d.getKind();
+
+					if (kind == IResourceDelta.REMOVED
+
+							|| kind == IResourceDelta.CHANGED && (d.getFlags() & IResourceDelta.CONTENT) != 0) {
+
+						var location = resource.getLocation();
+
+						if (location != null) {
+							invalidate(location.toFile());
+						}
+					}
+				}
+
+				return true;
+			});
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private Path getFileFolder(File file) {
+		return _folder.resolve(hash(file.getAbsolutePath()));
+	}
+
+	private Path getThumbnailPath(File file, FrameData fd) {
+		var key = file.lastModified() + ":" + file.length() + ":" + (fd == null ? "FULL" : fd) + ":"
+				+ ImageProxy.MAX_SIZE;
+
+		return getFileFolder(file).resolve(hash(key));
+	}
+
+	private static String hash(String str) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-1").digest(str.getBytes(StandardCharsets.UTF_8));
+
+			var sb = new StringBuilder();
+
+			for (var b : digest) {
+				sb.append(String.format("%02x", Byte.valueOf(b)));
+			}
+
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,516 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A compiled arithmetic expression, like the ones the user writes in the number
+ * properties: <code>Math.PI / 4</code>, <code>(32 + 8) * 2</code>,
+ * <code>Math.max(10, 20) % 7</code>. It supports a subset of JavaScript:
+ * numbers (decimal, exponent and hex), the <code>+ - * / %</code> operators,
+ * parentheses, the functions and constants of <code>Math</code>,
+ * <code>Infinity</code> and <code>NaN</code>. The results are the same of a
+ * JavaScript engine.
+ * <p>
+ * The expressions are compiled to a tree of evaluators, and cached by the
+ * source string. The compiled expressions are immutable, so they can be
+ * evaluated from any thread.
+ * 
+ * @author arian
+ *
+ */
+public final class NumberExpression {
+
+	interface Node {
+		double eval();
+	}
+
+	private static final int MAX_CACHE_SIZE = 1024;
+
+	private static final Map<String, NumberExpression> _cache = new ConcurrentHashMap<>();
+
+	private static final Map<String, Double> CONSTANTS = Map.of(
+
+			"Math.E", Double.valueOf(Math.E),
+
+			"Math.PI", Double.valueOf(Math.PI),
+
+			"Math.LN2", Double.valueOf(Math.log(2)),
+
+			"Math.LN10", Double.valueOf(Math.log(10)),
+
+			"Math.LOG2E", Double.valueOf(1 / Math.log(2)),
+
+			"Math.LOG10E", Double.valueOf(1 / Math.log(10)),
+
+			"Math.SQRT1_2", Double.valueOf(Math.sqrt(0.5)),
+
+			"Math.SQRT2", Double.valueOf(Math.sqrt(2)),
+
+			"Infinity", Double.valueOf(Double.POSITIVE_INFINITY),
+
+			"NaN", Double.valueOf(Double.NaN));
+
+	private static final Map<String, DoubleUnaryOperator> FUNCTIONS_1 = Map.ofEntries(
+
+			Map.entry("Math.abs", Math::abs),
+
+			Map.entry("Math.acos", Math::acos),
+
+			Map.entry("Math.asin", Math::asin),
+
+			Map.entry("Math.atan", Math::atan),
+
+			Map.entry("Math.cbrt", Math::cbrt),
+
+			Map.entry("Math.ceil", Math::ceil),
+
+			Map.entry("Math.cos", Math::cos),
+
+			Map.entry("Math.exp", Math::exp),
+
+			Map.entry("Math.floor", Math::floor),
+
+			Map.entry("Math.log", Math::log),
+
+			Map.entry("Math.log10", Math::log10),
+
+			Map.entry("Math.log2", x -> Math.log(x) / Math.log(2)),
+
+			// the JavaScript round goes up in the .5 of negative numbers, like floor(x + 0.5)
+			Map.entry("Math.round", x -> Double.isFinite(x) ? Math.floor(x + 0.5) : x),
+
+			Map.entry("Math.sign", Math::signum),
+
+			Map.entry("Math.sin", Math::sin),
+
+			Map.entry("Math.sqrt", Math::sqrt),
+
+			Map.entry("Math.tan", Math::tan),
+
+			Map.entry("Math.trunc", x -> x < 0 ? Math.ceil(x) : Math.floor(x)));
+
+	private static final Map<String, DoubleBinaryOperator> FUNCTIONS_2 = Map.of(
+
+			"Math.atan2", Math::atan2,
+
+			"Math.pow", Math::pow);
+
+	private final String _source;
+	private final Node _root;
+
+	private NumberExpression(String source, Node root) {
+		_source = source;
+		_root = root;
+	}
+
+	public String getSource() {
+		return _source;
+	}
+
+	public double eval() {
+		return _root.eval();
+	}
+
+	/**
+	 * Compiles the expression, or gets it from the cache.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the expression has a syntax error.
+	 */
+	public static NumberExpression compile(String source) {
+		var expr = _cache.get(source);
+
+		if (expr == null) {
+			expr = new NumberExpression(source, new Parser(source).parse());
+
+			if (_cache.size() >= MAX_CACHE_SIZE) {
+				_cache.clear();
+			}
+
+			_cache.put(source, expr);
+		}
+
+		return expr;
+	}
+
+	/**
+	 * Evaluates the expression, a plain number is parsed directly.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the expression has a syntax error.
+	 */
+	public static double eval(String source) {
+		// look in the cache first, the failed parse of an expression is expensive
+		var expr = _cache.get(source);
+
+		if (expr != null) {
+			return expr.eval();
+		}
+
+		try {
+			return Double.parseDouble(source);
+		} catch (NumberFormatException e) {
+			return compile(source).eval();
+		}
+	}
+
+	/**
+	 * Returns the syntax error of the expression, or null if it is valid.
+	 */
+	public static String validate(String source) {
+		if (_cache.containsKey(source)) {
+			return null;
+		}
+
+		try {
+			Double.parseDouble(source);
+			return null;
+		} catch (NumberFormatException e) {
+			try {
+				compile(source);
+				return null;
+			} catch (IllegalArgumentException e1) {
+				return e1.getMessage();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return _source;
+	}
+
+	/**
+	 * A recursive descent parser. Constant sub-expressions are folded.
+	 */
+	private static class Parser {
+		private String _src;
+		private int _pos;
+
+		public Parser(String src) {
+			_src = src;
+			_pos = 0;
+		}
+
+		public Node parse() {
+			var node = parseSum();
+
+			skipSpaces();
+
+			if (_pos < _src.length()) {
+				throw error("Unexpected '" + _src.charAt(_pos) + "'");
+			}
+
+			return node;
+		}
+
+		private Node parseSum() {
+			var left = parseProduct();
+
+			while (true) {
+				skipSpaces();
+
+				if (accept('+')) {
+					left = binary(left, parseProduct(), (a, b) -> a + b);
+				} else if (accept('-')) {
+					left = binary(left, parseProduct(), (a, b) -> a - b);
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private Node parseProduct() {
+			var left = parseUnary();
+
+			while (true) {
+				skipSpaces();
+
+				if (accept('*')) {
+					left = binary(left, parseUnary(), (a, b) -> a * b);
+				} else if (accept('/')) {
+					left = binary(left, parseUnary(), (a, b) -> a / b);
+				} else if (accept('%')) {
+					left = binary(left, parseUnary(), (a, b) -> a % b);
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private Node parseUnary() {
+			skipSpaces();
+
+			if (accept('-')) {
+				return unary(parseUnary(), x -> -x);
+			}
+
+			if (accept('+')) {
+				return parseUnary();
+			}
+
+			return parsePrimary();
+		}
+
+		private Node parsePrimary() {
+			skipSpaces();
+
+			if (_pos >= _src.length()) {
+				throw error("Unexpected end of expression");
+			}
+
+			char c = _src.charAt(_pos);
+
+			if (c == '(') {
+				_pos++;
+				var node = parseSum();
+				skipSpaces();
+				expect(')');
+				return node;
+			}
+
+			if (Character.isDigit(c) || c == '.') {
+				return parseNumber();
+			}
+
+			if (Character.isJavaIdentifierStart(c)) {
+				return parseName();
+			}
+
+			throw error("Unexpected '" + c + "'");
+		}
+
+		private Node parseNumber() {
+			int start = _pos;
+			double value;
+
+			if (_src.startsWith("0x", _pos) || _src.startsWith("0X", _pos)) {
+				_pos += 2;
+
+				while (_pos < _src.length() && Character.digit(_src.charAt(_pos), 16) != -1) {
+					_pos++;
+				}
+
+				if (_pos == start + 2) {
+					throw error("Invalid hex number");
+				}
+
+				value = Long.parseLong(_src.substring(start + 2, _pos), 16);
+			} else {
+				while (_pos < _src.length() && (Character.isDigit(_src.charAt(_pos)) || _src.charAt(_pos) == '.')) {
+					_pos++;
+				}
+
+				if (_pos < _src.length() && (_src.charAt(_pos) == 'e' || _src.charAt(_pos) == 'E')) {
+					_pos++;
+
+					if (_pos < _src.length() && (_src.charAt(_pos) == '+' || _src.charAt(_pos) == '-')) {
+						_pos++;
+					}
+
+					while (_pos < _src.length() && Character.isDigit(_src.charAt(_pos))) {
+						_pos++;
+					}
+				}
+
+				try {
+					value = Double.parseDouble(_src.substring(start, _pos));
+				} catch (NumberFormatException e) {
+					throw error("Invalid number");
+				}
+			}
+
+			if (_pos < _src.length() && Character.isJavaIdentifierStart(_src.charAt(_pos))) {
+				throw error("Invalid number");
+			}
+
+			return constant(value);
+		}
+
+		private Node parseName() {
+			int start = _pos;
+
+			while (_pos < _src.length()
+					&& (Character.isJavaIdentifierPart(_src.charAt(_pos)) || _src.charAt(_pos) == '.')) {
+				_pos++;
+			}
+
+			var name = _src.substring(start, _pos);
+
+			var value = CONSTANTS.get(name);
+
+			if (value != null) {
+				return constant(value.doubleValue());
+			}
+
+			skipSpaces();
+
+			if (!accept('(')) {
+				throw error("Unknown name '" + name + "'");
+			}
+
+			var args = parseArguments();
+
+			if (name.equals("Math.random")) {
+				checkArguments(name, args, 0);
+				return Math::random;
+			}
+
+			if (name.equals("Math.max") || name.equals("Math.min")) {
+				return minMax(name.equals("Math.max"), args);
+			}
+
+			var f1 = FUNCTIONS_1.get(name);
+
+			if (f1 != null) {
+				checkArguments(name, args, 1);
+				return unary(args.get(0), f1);
+			}
+
+			var f2 = FUNCTIONS_2.get(name);
+
+			if (f2 != null) {
+				checkArguments(name, args, 2);
+				return binary(args.get(0), args.get(1), f2);
+			}
+
+			throw error("Unknown function '" + name + "'");
+		}
+
+		private List<Node> parseArguments() {
+			List<Node> args = new ArrayList<>();
+
+			skipSpaces();
+
+			if (accept(')')) {
+				return args;
+			}
+
+			while (true) {
+				args.add(parseSum());
+
+				skipSpaces();
+
+				if (accept(')')) {
+					return args;
+				}
+
+				expect(',');
+			}
+		}
+
+		private void checkArguments(String name, List<Node> args, int count) {
+			if (args.size() != count) {
+				throw error("The function '" + name + "' expects " + count + " arguments");
+			}
+		}
+
+		private static Node minMax(boolean max, List<Node> args) {
+			var nodes = args.toArray(new Node[args.size()]);
+
+			Node node = () -> {
+				// like in JavaScript, any NaN argument gives NaN
+				double result = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+				for (var arg : nodes) {
+					double x = arg.eval();
+					result = max ? Math.max(result, x) : Math.min(result, x);
+				}
+				return result;
+			};
+
+			for (var arg : nodes) {
+				if (!(arg instanceof Constant)) {
+					return node;
+				}
+			}
+
+			return constant(node.eval());
+		}
+
+		private static Node unary(Node arg, DoubleUnaryOperator op) {
+			if (arg instanceof Constant) {
+				return constant(op.applyAsDouble(arg.eval()));
+			}
+
+			return () -> op.applyAsDouble(arg.eval());
+		}
+
+		private static Node binary(Node left, Node right, DoubleBinaryOperator op) {
+			if (left instanceof Constant && right instanceof Constant) {
+				return constant(op.applyAsDouble(left.eval(), right.eval()));
+			}
+
+			return () -> op.applyAsDouble(left.eval(), right.eval());
+		}
+
+		private static Node constant(double value) {
+			return new Constant(value);
+		}
+
+		private void skipSpaces() {
+			while (_pos < _src.length() && Character.isWhitespace(_src.charAt(_pos))) {
+				_pos++;
+			}
+		}
+
+		private boolean accept(char c) {
+			if (_pos < _src.length() && _src.charAt(_pos) == c) {
+				_pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if (!accept(c)) {
+				if (_pos < _src.length()) {
+					throw error("Expected '" + c + "' but found '" + _src.charAt(_pos) + "'");
+				}
+				throw error("Expected '" + c + "'");
+			}
+		}
+
+		private IllegalArgumentException error(String msg) {
+			return new IllegalArgumentException(msg + " at " + _pos + ": " + _src);
+		}
+	}
+
+	private static class Constant implements Node {
+		private final double _value;
+
+		public Constant(double value) {
+			_value = value;
+		}
+
+		@Override
+		public double eval() {
+			return _value;
+		}
+	}
+}
@@ -25,12 +25,15 @@ import static java.lang.System.out;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -52,9 +55,6 @@ import java.util.stream.Collectors;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.FileImageInputStream;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.resources.IFile;
@@ -1049,10 +1049,75 @@ public class PhaserEditorUI {
 	}
 
 	public static Image image_Swing_To_SWT(BufferedImage img) throws IOException {
+		var data = imageData_Swing_To_SWT(img);
+		Image result = new Image(Display.getCurrent(), data);
+		return result;
+	}
+
+	/**
+	 * Converts the image by encoding it in PNG and decoding it again. It is slower
+	 * than {@link #imageData_Swing_To_SWT(BufferedImage)}, we keep it only to
+	 * compare the results.
+	 */
+	public static ImageData imageData_Swing_To_SWT_PNG(BufferedImage img) throws IOException {
 		ByteArrayOutputStream memory = new ByteArrayOutputStream();
 		ImageIO.write(img, "png", memory);
-		Image result = new Image(Display.getCurrent(), new ByteArrayInputStream(memory.toByteArray()));
-		return result;
+		return new ImageData(new ByteArrayInputStream(memory.toByteArray()));
+	}
+
+	/**
+	 * Creates the SWT image data copying the pixels of the AWT image. If the image
+	 * is not backed by a packed (A)RGB int raster, it is first painted into a
+	 * <code>TYPE_INT_ARGB</code> image.
+	 */
+	public static ImageData imageData_Swing_To_SWT(BufferedImage img) {
+		var buffer = img;
+
+		if (!isPackedIntImage(buffer)) {
+			buffer = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+			var g2 = buffer.createGraphics();
+			g2.drawImage(img, 0, 0, null);
+			g2.dispose();
+		}
+
+		var width = buffer.getWidth();
+		var height = buffer.getHeight();
+		var pixels = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+
+		// the pixels are written as big-endian ints, so the masks match the AWT ARGB
+		// layout and the alpha byte is ignored by the palette.
+		var palette = new PaletteData(0xFF0000, 0xFF00, 0xFF);
+		var data = new ImageData(width, height, 32, palette);
+		ByteBuffer.wrap(data.data).asIntBuffer().put(pixels, 0, width * height);
+
+		if (buffer.getType() == BufferedImage.TYPE_INT_ARGB) {
+			var alphaData = new byte[width * height];
+			for (int i = 0; i < alphaData.length; i++) {
+				alphaData[i] = (byte) (pixels[i] >>> 24);
+			}
+			data.alphaData = alphaData;
+		}
+
+		return data;
+	}
+
+	private static boolean isPackedIntImage(BufferedImage img) {
+		var type = img.getType();
+
+		if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+			return false;
+		}
+
+		var raster = img.getRaster();
+
+		if (raster.getParent() != null || raster.getDataBuffer().getOffset() != 0) {
+			return false;
+		}
+
+		var sampleModel = raster.getSampleModel();
+
+		return sampleModel instanceof SinglePixelPackedSampleModel
+				&& ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride() == img.getWidth();
 	}
 
 	public static String getNameFromFilename(String name) {
@@ -1525,41 +1590,19 @@ public class PhaserEditorUI {
 		return e.stateMask != 0 || handModeActivated;
 	}
 
-	public final static ScriptEngine scriptEngine;
-
-	static {
-		scriptEngine = new ScriptEngineManager().getEngineByName("nashorn");
-	}
-
+	/**
+	 * Evaluates a number property value, that can be a number or an arithmetic
+	 * expression.
+	 * 
+	 * @see NumberExpression
+	 */
 	public static Double scriptEngineEval(String value) {
-		try {
-			return Double.valueOf(value);
-		} catch (NumberFormatException e) {
-			try {
-				Object result = scriptEngine.eval(value);
-				return Double.valueOf(((Number) result).doubleValue());
-			} catch (ScriptException e1) {
-				throw new RuntimeException(e1);
-			}
-		}
+		return Double.valueOf(NumberExpression.eval(value));
 	}
 
 	public static String scriptEngineValidate(Object value) {
 		if (value instanceof String) {
-			String script = (String) value;
-			try {
-				Double.parseDouble(script);
-			} catch (NumberFormatException e) {
-				// try a javascript expression
-				try {
-					Object result = scriptEngine.eval(script);
-					if (!(result instanceof Number)) {
-						return "Invalid expression result.";
-					}
-				} catch (ScriptException e1) {
-					return "Invalid number or script format.";
-				}
-			}
+			return NumberExpression.validate((String) value);
 		}
 		return null;
 	}
@@ -0,0 +1,89 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.ui.internal.tools;
+
+import static java.lang.System.out;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import phasereditor.ui.PhaserEditorUI;
+
+/**
+ * Compares the PNG round trip with the direct pixel copy used to convert AWT
+ * images into SWT image data.
+ * 
+ * @author arian
+ *
+ */
+public class ImageConversionBenchmark {
+
+	private static final int[] SIZES = { 64, 512, 2048 };
+
+	public static void main(String[] args) throws IOException {
+		for (int size : SIZES) {
+			var img = createImage(size);
+
+			var iterations = Math.max(5, 4096 * 4096 / (size * size) / 8);
+
+			// warm up
+			for (int i = 0; i < 5; i++) {
+				PhaserEditorUI.imageData_Swing_To_SWT_PNG(img);
+				PhaserEditorUI.imageData_Swing_To_SWT(img);
+			}
+
+			var t = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				PhaserEditorUI.imageData_Swing_To_SWT_PNG(img);
+			}
+			var pngTime = (System.nanoTime() - t) / iterations;
+
+			t = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				PhaserEditorUI.imageData_Swing_To_SWT(img);
+			}
+			var directTime = (System.nanoTime() - t) / iterations;
+
+			out.println(String.format("%5dpx  png: %10.3fms  direct: %10.3fms  (x%.1f)", size, pngTime / 1e6,
+					directTime / 1e6, (double) pngTime / directTime));
+		}
+	}
+
+	private static BufferedImage createImage(int size) {
+		var img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		var g2 = img.createGraphics();
+		var random = new Random(size);
+
+		for (int i = 0; i < 100; i++) {
+			g2.setColor(new Color(random.nextInt(), true));
+			var x = random.nextInt(size);
+			var y = random.nextInt(size);
+			g2.fillOval(x, y, random.nextInt(size - x + 1), random.nextInt(size - y + 1));
+		}
+
+		g2.dispose();
+
+		return img;
+	}
+}
@@ -0,0 +1,164 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2019 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.ui.internal.tools;
+
+import static java.lang.System.out;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import phasereditor.ui.NumberExpression;
+
+/**
+ * Compares the {@link NumberExpression} evaluator with the JavaScript script
+ * engine used before to evaluate the number properties. The script engine is
+ * not available in JDK 15 or newer, then only the expressions are measured.
+ * 
+ * @author arian
+ *
+ */
+@SuppressWarnings("boxing")
+public class NumberExpressionBenchmark {
+
+	private static final String[] EXPRESSIONS = {
+
+			"10 + 20",
+
+			"Math.PI / 4",
+
+			"(32 + 8) * 2 - 1",
+
+			"-Math.sin(Math.PI / 6) * 100",
+
+			"Math.max(10, 20, 5) % 7",
+
+			"Math.round(12.5) + Math.floor(-1.5) + Math.ceil(0.2)",
+
+			"Math.pow(2, 10) / 0x10",
+
+			"1e3 * .5 - Math.sqrt(2) * Math.SQRT2",
+
+			"Math.atan2(1, 1) * 180 / Math.PI",
+
+			"(((1 + 2) * (3 + 4)) / (5 - 6)) % 4" };
+
+	private static final int ITERATIONS = 100_000;
+
+	private static final int THREADS = 4;
+
+	public static void main(String[] args) throws Exception {
+		ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+
+		if (engine == null) {
+			out.println("The JavaScript engine is not available.");
+		} else {
+			for (var expr : EXPRESSIONS) {
+				double expected = ((Number) engine.eval(expr)).doubleValue();
+				double actual = NumberExpression.eval(expr);
+				if (Double.compare(expected, actual) != 0) {
+					throw new IllegalStateException(expr + " = " + expected + " but was " + actual);
+				}
+			}
+		}
+
+		// first call: engine start and compilation
+
+		if (engine != null) {
+			var t = System.nanoTime();
+			new ScriptEngineManager().getEngineByName("nashorn").eval(EXPRESSIONS[0]);
+			out.println(String.format("script engine start and first eval: %.1fms", (System.nanoTime() - t) / 1e6));
+		}
+
+		{
+			var t = System.nanoTime();
+			for (var expr : EXPRESSIONS) {
+				NumberExpression.compile(expr);
+			}
+			out.println(String.format("compile %d expressions: %.3fms", EXPRESSIONS.length,
+					(System.nanoTime() - t) / 1e6));
+		}
+
+		// evaluation of cached expressions
+
+		if (engine != null) {
+			int n = ITERATIONS / 100;
+			var t = System.nanoTime();
+			for (int i = 0; i < n; i++) {
+				evalScript(engine, EXPRESSIONS[i % EXPRESSIONS.length]);
+			}
+			out.println(String.format("script engine: %.3fus per eval", (System.nanoTime() - t) / 1e3 / n));
+		}
+
+		for (int round = 0; round < 3; round++) {
+			double sum = 0;
+			var t = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				sum += NumberExpression.eval(EXPRESSIONS[i % EXPRESSIONS.length]);
+			}
+			out.println(String.format("NumberExpression: %.3fus per eval (%s)", (System.nanoTime() - t) / 1e3 / ITERATIONS,
+					sum));
+		}
+
+		// parallel evaluation, like from the validators
+
+		var pool = Executors.newFixedThreadPool(THREADS);
+		var tasks = new ArrayList<Callable<Double>>();
+
+		for (int i = 0; i < THREADS; i++) {
+			tasks.add(() -> {
+				double sum = 0;
+				for (int j = 0; j < ITERATIONS; j++) {
+					sum += NumberExpression.eval(EXPRESSIONS[j % EXPRESSIONS.length]);
+				}
+				return sum;
+			});
+		}
+
+		var t = System.nanoTime();
+		Double expected = null;
+		for (var future : pool.invokeAll(tasks)) {
+			try {
+				var sum = future.get();
+				if (expected != null && !expected.equals(sum)) {
+					throw new IllegalStateException("Different results in parallel evaluation");
+				}
+				expected = sum;
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		out.println(String.format("NumberExpression in %d threads: %.1fms for %d evals", THREADS,
+				(System.nanoTime() - t) / 1e6, THREADS * ITERATIONS));
+
+		pool.shutdown();
+	}
+
+	private static double evalScript(ScriptEngine engine, String expr) throws ScriptException {
+		return ((Number) engine.eval(expr)).doubleValue();
+	}
+}